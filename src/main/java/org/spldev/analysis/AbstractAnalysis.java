@@ -23,12 +23,20 @@
 package org.spldev.analysis;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
 
 import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
 import org.spldev.formula.structure.*;
 import org.spldev.formula.structure.atomic.*;
 import org.spldev.util.data.*;
 import org.spldev.util.job.*;
+import org.spldev.util.tree.*;
 
 /**
  * Base class for an analysis using any {@link Solver solver}.
@@ -41,28 +49,164 @@ import org.spldev.util.job.*;
  */
 public abstract class AbstractAnalysis<T, S extends Solver, I> implements Analysis<T>, Provider<T> {
 
+	public static final Identifier<AnalysisResultCache> resultCacheIdentifier = new Identifier<>();
+
 	protected static Object defaultParameters = new Object();
 
-	// TODO fix caching / improve handling of many results with different parameters
+	/**
+	 * Creates a provider for an {@link AnalysisResultCache} for a model. As the
+	 * result cache is stored in the cache of the model, all analyses of the same
+	 * model can share it via {@link #setResultCache(AnalysisResultCache)}.
+	 *
+	 * @param maxSize the maximum number of cached results
+	 * @return a provider for the result cache
+	 */
+	public static Provider<AnalysisResultCache> resultCache(int maxSize) {
+		return new Provider<>() {
+			@Override
+			public Identifier<AnalysisResultCache> getIdentifier() {
+				return resultCacheIdentifier;
+			}
+
+			@Override
+			public Result<AnalysisResultCache> apply(Cache c, InternalMonitor m) {
+				return Result.of(new AnalysisResultCache(maxSize));
+			}
+		};
+	}
+
+	/**
+	 * Creates a provider for an {@link AnalysisResultCache} for a model that is
+	 * backed by a persistent store. Thus, results of previous executions and
+	 * other processes are reused for all models with the same CNF.
+	 *
+	 * @param maxSize the maximum number of cached results
+	 * @param store   the persistent store
+	 * @return a provider for the result cache
+	 *
+	 * @see #resultCache(int)
+	 */
+	public static Provider<AnalysisResultCache> resultCache(int maxSize, AnalysisResultStore store) {
+		return new Provider<>() {
+			@Override
+			public Identifier<AnalysisResultCache> getIdentifier() {
+				return resultCacheIdentifier;
+			}
+
+			@Override
+			public Result<AnalysisResultCache> apply(Cache c, InternalMonitor m) {
+				return c.get(CNFProvider.fromFormula()).map(cnf -> new AnalysisResultCache(maxSize, store,
+					AnalysisResultStore.computeHash(cnf)));
+			}
+		};
+	}
+
+	/**
+	 * Results of analyses are not stored in the cache of a model, as they depend
+	 * on the assumptions of each analysis. Instead, they can be stored in an
+	 * {@link #setResultCache(AnalysisResultCache) analysis result cache}.
+	 */
 	@Override
 	public boolean storeInCache() {
 		return false;
 	}
 
+	/**
+	 * {@inheritDoc} Uses the {@link #setExecutor(AnalysisExecutor) executor} of
+	 * this analysis, if there is one.
+	 */
 	@Override
 	public Result<T> apply(Cache c, InternalMonitor m) {
+		if (executor != null) {
+			return executor.run(this, c, m);
+		}
 		return Executor.run(this::execute, c, m);
 	}
 
-	protected final Assignment assumptions = new IndexAssignment();
+	protected final LiteralAssumptions assumptions = new LiteralAssumptions();
 	protected final List<Formula> assumedConstraints = new ArrayList<>();
 	protected Provider<I> solverInputProvider;
 	protected S solver;
+	protected SolverPool<S> solverPool;
+	protected Budget budget;
+	protected AnalysisResultCache resultCache;
+	protected AnalysisExecutor executor;
+	private boolean resultCacheChecked;
+	private int trailCheckpoint = -1;
+	private int pushedConstraintCount;
 
 	public void setSolver(S solver) {
 		this.solver = solver;
 	}
 
+	/**
+	 * Sets a pool from which a solver is borrowed for each execution of this
+	 * analysis if no solver was {@link #setSolver(Solver) set}. Thus, multiple
+	 * analyses can run concurrently on solvers for the same problem.
+	 *
+	 * @param solverPool the pool or {@code null}
+	 */
+	public void setSolverPool(SolverPool<S> solverPool) {
+		this.solverPool = solverPool;
+	}
+
+	public SolverPool<S> getSolverPool() {
+		return solverPool;
+	}
+
+	/**
+	 * Sets a budget for all solver calls of each execution of this analysis. The
+	 * budget replaces the budget of the solver during the execution. Without a
+	 * budget, the analysis uses the budget of the solver (e.g., the budget of an
+	 * enclosing analysis). To limit each analysis of a batch separately while
+	 * sharing an overall limit, use {@link Budget#createChild(long, long, long)
+	 * children} of a common budget.
+	 *
+	 * @param budget the budget or {@code null}
+	 */
+	public void setBudget(Budget budget) {
+		this.budget = budget;
+	}
+
+	public Budget getBudget() {
+		return budget;
+	}
+
+	public AnalysisResultCache getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * Sets a cache for the results of this analysis. Before each execution, the
+	 * cache is checked for a result of an analysis of the same type with equal
+	 * assumptions, assumed constraints, and {@link #getResultParameters()
+	 * parameters}. If there is one, it is returned without using a solver.
+	 * Otherwise, the computed result is added to the cache, unless the analysis
+	 * reports it as {@link #isResultCacheable() incomplete}. The cache must only
+	 * be shared by analyses for the same problem and solvers to which no further
+	 * clauses were added permanently.
+	 *
+	 * @param resultCache the cache or {@code null}
+	 */
+	public void setResultCache(AnalysisResultCache resultCache) {
+		this.resultCache = resultCache;
+	}
+
+	public AnalysisExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Sets an executor on which this analysis runs when it is used as
+	 * {@link Provider} (e.g., via the cache of a model), such that equal
+	 * requests that are running at the same time are computed only once.
+	 *
+	 * @param executor the executor or {@code null} to run in the calling thread
+	 */
+	public void setExecutor(AnalysisExecutor executor) {
+		this.executor = executor;
+	}
+
 	public void setSolverInputProvider(Provider<I> solverInputProvider) {
 		this.solverInputProvider = solverInputProvider;
 	}
@@ -71,6 +215,16 @@ public abstract class AbstractAnalysis<T, S extends Solver, I> implements Analys
 		return assumptions;
 	}
 
+	/**
+	 * Returns the assumptions of this analysis as a primitive literal trail. The
+	 * trail and {@link #getAssumptions()} refer to the same assumptions.
+	 *
+	 * @return the trail of assumed literals
+	 */
+	public LiteralAssumptions getLiteralAssumptions() {
+		return assumptions;
+	}
+
 	public List<Formula> getAssumedConstraints() {
 		return assumedConstraints;
 	}
@@ -83,29 +237,375 @@ public abstract class AbstractAnalysis<T, S extends Solver, I> implements Analys
 		return Arrays.asList(assumptions, assumedConstraints);
 	}
 
+	/**
+	 * Returns further parameters of this analysis that influence its result
+	 * besides the assumptions and assumed constraints (e.g., the variables to
+	 * analyze). The returned object must implement {@link Object#equals(Object)}
+	 * and {@link Object#hashCode()} and must not be modified afterwards.
+	 *
+	 * @return the parameters or {@code null} if there are none
+	 *
+	 * @see #setResultCache(AnalysisResultCache)
+	 */
+	protected Object getResultParameters() {
+		return null;
+	}
+
+	/**
+	 * Checks whether the result of the last execution is complete and can be
+	 * {@link #setResultCache(AnalysisResultCache) cached} (e.g., whether there
+	 * was no timeout).
+	 *
+	 * @return {@code true} if the result can be cached
+	 */
+	protected boolean isResultCacheable() {
+		return true;
+	}
+
+	/**
+	 * Creates a result that identifies the current execution of this analysis.
+	 *
+	 * @param constraints the assumed constraints to store in the result
+	 * @param result      the result
+	 * @return a new result
+	 */
+	AnalysisResult<T> createResultKey(List<Formula> constraints, T result) {
+		return new AnalysisResult<>(getClass().getName(), new LiteralList(assumptions.toArray()), constraints,
+			getResultParameters(), result);
+	}
+
+	private AnalysisResult<T> getCachedResult() {
+		return resultCache.get(createResultKey(assumedConstraints, null));
+	}
+
+	private void cacheResult(T result) {
+		final List<Formula> constraints = new ArrayList<>(assumedConstraints.size());
+		for (final Formula constraint : assumedConstraints) {
+			constraints.add(Trees.cloneTree(constraint));
+		}
+		resultCache.put(createResultKey(constraints, result));
+	}
+
 	@Override
 	public final T execute(Cache c, InternalMonitor monitor) {
+		if (resultCache != null) {
+			monitor.checkCancel();
+			final AnalysisResult<T> cachedResult = getCachedResult();
+			if (cachedResult != null) {
+				return cachedResult.getResult();
+			}
+			resultCacheChecked = true;
+		}
+		try {
+			if ((solver == null) && (solverPool != null)) {
+				final S pooledSolver = solverPool.borrow();
+				try {
+					return execute(pooledSolver, monitor);
+				} finally {
+					if (solver == pooledSolver) {
+						solver = null;
+					}
+					solverPool.release(pooledSolver);
+				}
+			}
+			if (solver == null) {
+				solver = createSolver(c.get(solverInputProvider).get());
+			}
+			return execute(solver, monitor);
+		} finally {
+			resultCacheChecked = false;
+		}
+	}
+
+	public T execute(S solver, InternalMonitor monitor) {
+		if (this.solver == null) {
+			this.solver = solver;
+		}
+		monitor.checkCancel();
+		if ((resultCache != null) && !resultCacheChecked) {
+			final AnalysisResult<T> cachedResult = getCachedResult();
+			if (cachedResult != null) {
+				return cachedResult.getResult();
+			}
+		}
+		final Budget oldBudget = solver.getBudget();
+		if (budget != null) {
+			solver.setBudget(budget);
+		}
+		try {
+			// the solver is reset even if preparing fails, as some assumptions may
+			// already be set
+			try {
+				prepareSolver(solver);
+				final T result;
+				try {
+					result = analyze(solver, monitor);
+				} catch (final Exception e) {
+					throw new RuntimeException(e);
+				}
+				if ((resultCache != null) && isResultCacheable()) {
+					cacheResult(result);
+				}
+				return result;
+			} finally {
+				resetSolver(solver);
+			}
+		} finally {
+			if (budget != null) {
+				solver.setBudget(oldBudget);
+			}
+		}
+	}
+
+	/**
+	 * Executes this analysis once for each of the given sets of assumptions, in
+	 * addition to the assumptions and assumed constraints of this analysis.
+	 * Borrows or creates a solver as {@link #execute(Cache, InternalMonitor)}.
+	 *
+	 * @param assumptionSets the sets of assumed literals
+	 * @param c              the cache of the model
+	 * @param monitor        the monitor
+	 * @return a list containing the result for each set in the given order
+	 *
+	 * @see #executeBatch(List, Solver, InternalMonitor)
+	 */
+	public final List<T> executeBatch(List<LiteralList> assumptionSets, Cache c, InternalMonitor monitor) {
+		if ((solver == null) && (solverPool != null)) {
+			final S pooledSolver = solverPool.borrow();
+			try {
+				return executeBatch(assumptionSets, pooledSolver, monitor);
+			} finally {
+				if (solver == pooledSolver) {
+					solver = null;
+				}
+				solverPool.release(pooledSolver);
+			}
+		}
 		if (solver == null) {
 			solver = createSolver(c.get(solverInputProvider).get());
 		}
-		return execute(solver, monitor);
+		return executeBatch(assumptionSets, solver, monitor);
 	}
 
-	public T execute(S solver, InternalMonitor monitor) {
+	/**
+	 * Executes this analysis once for each of the given sets of assumptions, in
+	 * addition to the assumptions and assumed constraints of this analysis. In
+	 * contrast to calling {@link #execute(Solver, InternalMonitor)} for each set,
+	 * the solver is prepared only once and only the literals of each set are
+	 * exchanged. The sets are processed in an order in which consecutive sets
+	 * share as many assumptions as possible, which solvers can exploit by reusing
+	 * their assignments. The {@link #setBudget(Budget) budget} applies to the
+	 * whole batch.
+	 *
+	 * @param assumptionSets the sets of assumed literals
+	 * @param solver         the solver
+	 * @param monitor        the monitor
+	 * @return a list containing the result for each set in the given order
+	 */
+	public List<T> executeBatch(List<LiteralList> assumptionSets, S solver, InternalMonitor monitor) {
 		if (this.solver == null) {
 			this.solver = solver;
 		}
 		monitor.checkCancel();
-		prepareSolver(solver);
+		final int[] order = new int[assumptionSets.size()];
+		final int[][] orderedSets = orderForSharedPrefixes(assumptionSets, order);
+		final ArrayList<T> results = new ArrayList<>(Collections.nCopies(order.length, null));
+		final int baseSize = assumptions.size();
+		final Budget oldBudget = solver.getBudget();
+		if (budget != null) {
+			solver.setBudget(budget);
+		}
 		try {
-			return analyze(solver, monitor);
-		} catch (final Exception e) {
-			throw new RuntimeException(e);
+			try {
+				prepareSolver(solver);
+				try {
+					for (int i = 0; i < order.length; i++) {
+						monitor.checkCancel();
+						setBatchAssumptions(solver, baseSize, orderedSets[i]);
+						final AnalysisResult<T> cachedResult = resultCache != null ? getCachedResult() : null;
+						if (cachedResult != null) {
+							results.set(order[i], cachedResult.getResult());
+						} else {
+							final T result = analyze(solver, monitor);
+							if ((resultCache != null) && isResultCacheable()) {
+								cacheResult(result);
+							}
+							results.set(order[i], result);
+						}
+					}
+				} catch (final Exception e) {
+					throw new RuntimeException(e);
+				}
+				return results;
+			} finally {
+				resetSolver(solver);
+				assumptions.clear(baseSize);
+			}
 		} finally {
-			resetSolver(solver);
+			if (budget != null) {
+				solver.setBudget(oldBudget);
+			}
 		}
 	}
 
+	/**
+	 * Executes an analysis once for each of the given sets of assumptions, where
+	 * the sets are partitioned into consecutive parts that are processed
+	 * concurrently. Each part is processed by a new analysis via
+	 * {@link #executeBatch(List, Solver, InternalMonitor)} on a solver borrowed
+	 * from the given pool.
+	 *
+	 * @param <T>             the type of the results
+	 * @param <S>             the type of the solvers
+	 * @param assumptionSets  the sets of assumed literals
+	 * @param analysisFactory creates a new analysis for each part (e.g.,
+	 *                        {@code CoreDeadAnalysis::new})
+	 * @param solverPool      the pool of solvers for the problem
+	 * @param threadCount     the number of threads
+	 * @param monitor         the monitor, which is shared by all threads
+	 * @return a list containing the result for each set in the given order
+	 */
+	public static <T, S extends Solver> List<T> executeBatch(List<LiteralList> assumptionSets,
+		Supplier<? extends AbstractAnalysis<T, S, ?>> analysisFactory, SolverPool<S> solverPool, int threadCount,
+		InternalMonitor monitor) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException(String.valueOf(threadCount));
+		}
+		final int[] order = new int[assumptionSets.size()];
+		orderForSharedPrefixes(assumptionSets, order);
+		final int partCount = Math.max(1, Math.min(order.length, threadCount * 4));
+		final ArrayList<T> results = new ArrayList<>(Collections.nCopies(order.length, null));
+		final AtomicBoolean failed = new AtomicBoolean();
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+			final Thread thread = new Thread(runnable, "BatchAnalysis");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			final List<Future<?>> futures = new ArrayList<>(partCount);
+			for (int part = 0; part < partCount; part++) {
+				final int start = (int) (((long) order.length * part) / partCount);
+				final int end = (int) (((long) order.length * (part + 1)) / partCount);
+				futures.add(executor.submit(() -> {
+					if (failed.get()) {
+						return;
+					}
+					final List<LiteralList> partSets = new ArrayList<>(end - start);
+					for (int i = start; i < end; i++) {
+						partSets.add(assumptionSets.get(order[i]));
+					}
+					final S solver = solverPool.borrow();
+					try {
+						final List<T> partResults = analysisFactory.get().executeBatch(partSets, solver, monitor);
+						synchronized (results) {
+							for (int i = start; i < end; i++) {
+								results.set(order[i], partResults.get(i - start));
+							}
+						}
+					} catch (final RuntimeException e) {
+						failed.set(true);
+						throw e;
+					} finally {
+						solverPool.release(solver);
+					}
+				}));
+			}
+			for (final Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (final ExecutionException e) {
+					final Throwable cause = e.getCause();
+					throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeTimeoutException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+		return results;
+	}
+
+	/**
+	 * Sorts the literals of each set by their frequency in all sets and the sets
+	 * lexicographically, such that consecutive sets share long prefixes.
+	 *
+	 * @param assumptionSets the sets of literals
+	 * @param order          is filled with the index of each set in the given
+	 *                       list
+	 * @return the sorted literals of each set in the computed order
+	 */
+	private static int[][] orderForSharedPrefixes(List<LiteralList> assumptionSets, int[] order) {
+		int maxVariable = 0;
+		for (final LiteralList assumptionSet : assumptionSets) {
+			for (final int literal : assumptionSet.getLiterals()) {
+				maxVariable = Math.max(maxVariable, Math.abs(literal));
+			}
+		}
+		final int[] counts = new int[(maxVariable + 1) << 1];
+		for (final LiteralList assumptionSet : assumptionSets) {
+			for (final int literal : assumptionSet.getLiterals()) {
+				counts[toNode(literal)]++;
+			}
+		}
+		final long[] sortKeys = new long[counts.length];
+		for (int node = 0; node < counts.length; node++) {
+			sortKeys[node] = ((long) (Integer.MAX_VALUE - counts[node]) << 32) | node;
+		}
+		Arrays.sort(sortKeys);
+		final int[] ranks = new int[counts.length];
+		final int[] literalsByRank = new int[counts.length];
+		for (int rank = 0; rank < sortKeys.length; rank++) {
+			final int node = (int) sortKeys[rank];
+			ranks[node] = rank;
+			literalsByRank[rank] = (node & 1) == 0 ? node >> 1 : -(node >> 1);
+		}
+
+		// sorts the ranks of each set via a bit set, which takes linear time
+		final long[] rankBits = new long[(counts.length + 63) >> 6];
+		final int[][] rankedSets = new int[assumptionSets.size()][];
+		final Integer[] indexes = new Integer[rankedSets.length];
+		for (int i = 0; i < rankedSets.length; i++) {
+			final int[] literals = assumptionSets.get(i).getLiterals();
+			int maxWord = 0;
+			for (final int literal : literals) {
+				final int rank = ranks[toNode(literal)];
+				rankBits[rank >> 6] |= 1L << rank;
+				maxWord = Math.max(maxWord, rank >> 6);
+			}
+			final int[] rankedSet = new int[literals.length];
+			int size = 0;
+			for (int word = 0; word <= maxWord; word++) {
+				long bits = rankBits[word];
+				rankBits[word] = 0;
+				while (bits != 0) {
+					rankedSet[size++] = (word << 6) | Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+				}
+			}
+			rankedSets[i] = size == literals.length ? rankedSet : Arrays.copyOf(rankedSet, size);
+			indexes[i] = i;
+		}
+		Arrays.sort(indexes, (index1, index2) -> Arrays.compare(rankedSets[index1], rankedSets[index2]));
+
+		final int[][] orderedSets = new int[indexes.length][];
+		for (int i = 0; i < indexes.length; i++) {
+			final int[] rankedSet = rankedSets[indexes[i]];
+			final int[] literals = new int[rankedSet.length];
+			for (int j = 0; j < rankedSet.length; j++) {
+				literals[j] = literalsByRank[rankedSet[j]];
+			}
+			orderedSets[i] = literals;
+			order[i] = indexes[i];
+		}
+		return orderedSets;
+	}
+
+	private static int toNode(int literal) {
+		return literal > 0 ? literal << 1 : ((-literal) << 1) | 1;
+	}
+
 	/*
 	 * 1. Create analysis with MR Create analysis with MR and params
 	 * 
@@ -117,19 +617,65 @@ public abstract class AbstractAnalysis<T, S extends Solver, I> implements Analys
 	protected abstract S createSolver(I input) throws RuntimeContradictionException;
 
 	protected void prepareSolver(S solver) {
-		updateAssumptions();
+		updateAssumptions(solver);
 	}
 
 	private void updateAssumptions(S solver) {
-		solver.getAssumptions().setAll(assumptions.getAll());
-		solver.getDynamicFormula().push(assumedConstraints);
+		final Optional<LiteralAssumptions> literalAssumptions = solver.getLiteralAssumptions();
+		if (literalAssumptions.isPresent()) {
+			final LiteralAssumptions trail = literalAssumptions.get();
+			if (trailCheckpoint < 0) {
+				trailCheckpoint = trail.size();
+			} else {
+				trail.clear(trailCheckpoint);
+			}
+			trail.pushAll(assumptions);
+		} else {
+			solver.getAssumptions().setAll(assumptions.getAll());
+		}
+		final DynamicFormula<?> formula = solver.getDynamicFormula();
+		final int oldSize = formula.size();
+		try {
+			formula.push(assumedConstraints);
+		} finally {
+			pushedConstraintCount = formula.size() - oldSize;
+		}
+	}
+
+	/**
+	 * Replaces the assumptions of the current set of a batch by the given
+	 * literals, keeping the first {@code baseSize} assumptions of this analysis.
+	 */
+	private void setBatchAssumptions(S solver, int baseSize, int[] literals) {
+		final Optional<LiteralAssumptions> literalAssumptions = solver.getLiteralAssumptions();
+		if (!literalAssumptions.isPresent()) {
+			solver.getAssumptions().unsetAll(assumptions.getAll());
+		}
+		assumptions.clear(baseSize);
+		assumptions.pushAll(literals);
+		if (literalAssumptions.isPresent()) {
+			final LiteralAssumptions trail = literalAssumptions.get();
+			trail.clear(trailCheckpoint + baseSize);
+			trail.pushAll(literals);
+		} else {
+			solver.getAssumptions().setAll(assumptions.getAll());
+		}
 	}
 
 	protected abstract T analyze(S solver, InternalMonitor monitor) throws Exception;
 
 	protected void resetSolver(S solver) {
-		solver.getAssumptions().unsetAll(assumptions.getAll());
-		solver.getDynamicFormula().pop(assumedConstraints.size());
+		final Optional<LiteralAssumptions> literalAssumptions = solver.getLiteralAssumptions();
+		if (literalAssumptions.isPresent()) {
+			if (trailCheckpoint >= 0) {
+				literalAssumptions.get().clear(trailCheckpoint);
+				trailCheckpoint = -1;
+			}
+		} else {
+			solver.getAssumptions().unsetAll(assumptions.getAll());
+		}
+		solver.getDynamicFormula().pop(pushedConstraintCount);
+		pushedConstraintCount = 0;
 	}
 
 }
@@ -0,0 +1,308 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.*;
+
+import org.spldev.util.data.*;
+import org.spldev.util.job.*;
+
+/**
+ * Executes analyses asynchronously on a bounded pool of threads. Requests for
+ * the same analysis with the same assumptions, assumed constraints, and
+ * parameters on the same model (i.e., the same {@link Cache}) that are
+ * submitted while an equal request is running share a single computation.
+ * <p>
+ * Each request returns its own future. Canceling a future cancels the
+ * computation via its {@link InternalMonitor monitor} once all requests sharing
+ * the computation were canceled. An analysis must not be modified until its
+ * future is completed and must not be submitted concurrently with different
+ * assumptions.
+ */
+public class AnalysisExecutor {
+
+	private static final long CANCEL_CHECK_INTERVAL = 10;
+
+	private final ExecutorService executor;
+	private final ThreadLocal<Boolean> workerThread = ThreadLocal.withInitial(() -> Boolean.FALSE);
+	private final ConcurrentHashMap<Object, Computation<?>> computations = new ConcurrentHashMap<>();
+	private final AtomicLong computationCount = new AtomicLong();
+	private final AtomicLong requestCount = new AtomicLong();
+
+	/**
+	 * A monitor that can be canceled. All other methods do nothing.
+	 */
+	private static class CancelableMonitor extends NullMonitor {
+
+		private volatile boolean canceled;
+
+		@Override
+		public void checkCancel() throws MethodCancelException {
+			if (canceled) {
+				throw new MethodCancelException();
+			}
+		}
+
+		public boolean isCanceled() {
+			return canceled;
+		}
+
+		public void cancel() {
+			canceled = true;
+		}
+
+	}
+
+	/**
+	 * Identifies the requests that share a computation.
+	 */
+	private static final class RequestKey {
+
+		private final Cache cache;
+		private final AnalysisResult<?> resultKey;
+
+		private RequestKey(Cache cache, AnalysisResult<?> resultKey) {
+			this.cache = cache;
+			this.resultKey = resultKey;
+		}
+
+		@Override
+		public int hashCode() {
+			return (31 * System.identityHashCode(cache)) + resultKey.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if ((obj == null) || (getClass() != obj.getClass())) {
+				return false;
+			}
+			final RequestKey other = (RequestKey) obj;
+			return (cache == other.cache) && resultKey.equals(other.resultKey);
+		}
+
+	}
+
+	/**
+	 * A running computation and the number of requests waiting for it.
+	 */
+	private final class Computation<T> {
+
+		private final Object key;
+		private final CancelableMonitor monitor = new CancelableMonitor();
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		private int requestCount;
+		private boolean canceled;
+
+		private Computation(Object key) {
+			this.key = key;
+		}
+
+		/**
+		 * Creates a future for a new request.
+		 *
+		 * @return the future or {@code null} if the computation was already
+		 *         canceled
+		 */
+		private synchronized CompletableFuture<T> addRequest() {
+			if (canceled) {
+				return null;
+			}
+			requestCount++;
+			final CompletableFuture<T> request = new CompletableFuture<>();
+			result.whenComplete((value, exception) -> {
+				if (exception != null) {
+					request.completeExceptionally(exception);
+				} else {
+					request.complete(value);
+				}
+			});
+			request.whenComplete((value, exception) -> {
+				if (request.isCancelled()) {
+					removeRequest();
+				}
+			});
+			return request;
+		}
+
+		private synchronized void removeRequest() {
+			if ((--requestCount == 0) && !result.isDone()) {
+				canceled = true;
+				monitor.cancel();
+				computations.remove(key, this);
+			}
+		}
+
+		private void run(Analysis<T> analysis, Cache cache) {
+			T value = null;
+			Throwable exception = null;
+			try {
+				value = analysis.execute(cache, monitor);
+			} catch (final Throwable e) {
+				exception = e;
+			} finally {
+				computations.remove(key, this);
+			}
+			if (exception != null) {
+				result.completeExceptionally(exception);
+			} else {
+				result.complete(value);
+			}
+		}
+
+	}
+
+	/**
+	 * Creates a new executor.
+	 *
+	 * @param threadCount the maximum number of analyses that run concurrently
+	 */
+	public AnalysisExecutor(int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException(String.valueOf(threadCount));
+		}
+		executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+			final Thread thread = new Thread(() -> {
+				workerThread.set(Boolean.TRUE);
+				runnable.run();
+			}, "AnalysisExecutor");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Submits an analysis. If an equal request for the same model is running,
+	 * the returned future completes with the result of that request.
+	 *
+	 * @param <T>      the type of the result
+	 * @param analysis the analysis
+	 * @param cache    the cache of the model
+	 * @return a future for the result of the analysis
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<T> submit(Analysis<T> analysis, Cache cache) {
+		requestCount.incrementAndGet();
+		final Object key = analysis instanceof AbstractAnalysis
+			? new RequestKey(cache, ((AbstractAnalysis<T, ?, ?>) analysis).createResultKey(new ArrayList<>(analysis
+				.getAssumedConstraints()), null))
+			: analysis;
+		while (true) {
+			final Computation<T> newComputation = new Computation<>(key);
+			final Computation<T> computation = (Computation<T>) computations.putIfAbsent(key, newComputation);
+			if (computation == null) {
+				final CompletableFuture<T> request = newComputation.addRequest();
+				computationCount.incrementAndGet();
+				executor.execute(() -> newComputation.run(analysis, cache));
+				return request;
+			}
+			final CompletableFuture<T> request = computation.addRequest();
+			if (request != null) {
+				return request;
+			}
+			computations.remove(key, computation);
+		}
+	}
+
+	/**
+	 * Executes an analysis on this executor and waits for its result. The given
+	 * monitor is checked for cancellation while waiting. If this method is called
+	 * by an analysis that is executed by this executor, the analysis is executed
+	 * in the current thread.
+	 *
+	 * @param <T>      the type of the result
+	 * @param analysis the analysis
+	 * @param cache    the cache of the model
+	 * @param monitor  the monitor of the caller
+	 * @return the result of the analysis
+	 */
+	public <T> Result<T> run(Analysis<T> analysis, Cache cache, InternalMonitor monitor) {
+		if (workerThread.get()) {
+			return Executor.run(analysis, cache, monitor);
+		}
+		final CompletableFuture<T> future = submit(analysis, cache);
+		try {
+			while (true) {
+				try {
+					return Result.of(future.get(CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS));
+				} catch (final TimeoutException e) {
+					monitor.checkCancel();
+				}
+			}
+		} catch (final ExecutionException e) {
+			return Result.empty(e.getCause());
+		} catch (final InternalMonitor.MethodCancelException e) {
+			future.cancel(true);
+			return Result.empty(e);
+		} catch (final InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			return Result.empty(e);
+		}
+	}
+
+	/**
+	 * Returns the number of running computations.
+	 *
+	 * @return the number of computations
+	 */
+	public int getRunningCount() {
+		return computations.size();
+	}
+
+	/**
+	 * Returns the number of computations that were started, which is smaller
+	 * than the {@link #getRequestCount() number of requests} if requests shared
+	 * a computation.
+	 *
+	 * @return the number of computations
+	 */
+	public long getComputationCount() {
+		return computationCount.get();
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Cancels all running computations and stops the threads of this executor.
+	 */
+	public void shutdown() {
+		for (final Computation<?> computation : computations.values()) {
+			computation.monitor.cancel();
+		}
+		executor.shutdownNow();
+	}
+
+}
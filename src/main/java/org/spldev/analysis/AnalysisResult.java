@@ -25,10 +25,14 @@ package org.spldev.analysis;
 import java.util.*;
 
 import org.spldev.clauses.*;
+import org.spldev.formula.structure.*;
 
 /**
  * Wrapper class for an analysis result containing additional information about
- * the performed analysis.
+ * the performed analysis. Two results are equal if they were computed by the
+ * same analysis with the same assumptions, assumed constraints, and
+ * parameters, regardless of the actual result. Thus, a result can be used as
+ * key of an {@link AnalysisResultCache}.
  *
  * @param <T> Type of the analysis result.
  *
@@ -38,14 +42,36 @@ public class AnalysisResult<T> {
 
 	private final String id;
 	private final LiteralList assumptions;
+	private final List<Formula> assumedConstraints;
+	private final Object parameters;
 	private final int hashCode;
 	private final T result;
 
 	public AnalysisResult(String id, LiteralList assumptions, T result) {
+		this(id, assumptions, Collections.emptyList(), null, result);
+	}
+
+	/**
+	 * Creates a new result.
+	 *
+	 * @param id                 the id of the analysis
+	 * @param assumptions        the assumed literals
+	 * @param assumedConstraints the assumed constraints
+	 * @param parameters         further parameters of the analysis that
+	 *                           influence the result or {@code null}
+	 * @param result             the result
+	 */
+	public AnalysisResult(String id, LiteralList assumptions, List<Formula> assumedConstraints, Object parameters,
+		T result) {
 		this.id = id;
 		this.assumptions = assumptions;
+		this.assumedConstraints = assumedConstraints;
+		this.parameters = parameters;
 		this.result = result;
-		this.hashCode = (31 * id.hashCode()) + Arrays.hashCode(assumptions.getLiterals());
+		int hashCode = id.hashCode();
+		hashCode = (31 * hashCode) + Arrays.hashCode(assumptions.getLiterals());
+		hashCode = (31 * hashCode) + assumedConstraints.hashCode();
+		this.hashCode = (31 * hashCode) + Objects.hashCode(parameters);
 	}
 
 	public String getId() {
@@ -56,6 +82,14 @@ public class AnalysisResult<T> {
 		return assumptions;
 	}
 
+	public List<Formula> getAssumedConstraints() {
+		return assumedConstraints;
+	}
+
+	public Object getParameters() {
+		return parameters;
+	}
+
 	public T getResult() {
 		return result;
 	}
@@ -74,7 +108,8 @@ public class AnalysisResult<T> {
 			return false;
 		}
 		final AnalysisResult<?> other = (AnalysisResult<?>) obj;
-		return id.equals(other.id) && Arrays.equals(assumptions.getLiterals(), other.assumptions.getLiterals());
+		return id.equals(other.id) && Arrays.equals(assumptions.getLiterals(), other.assumptions.getLiterals())
+			&& assumedConstraints.equals(other.assumedConstraints) && Objects.equals(parameters, other.parameters);
 	}
 
 }
@@ -0,0 +1,206 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import java.util.*;
+
+import org.spldev.clauses.*;
+
+/**
+ * Thread-safe, bounded cache for the results of analyses. Results are stored
+ * as {@link AnalysisResult}, which identifies a result by the id of the
+ * analysis, its assumptions, assumed constraints, and parameters. If the cache
+ * is full, the least recently used result is removed.
+ * <p>
+ * A cache must only be shared by analyses for the same problem (e.g., via
+ * {@link AbstractAnalysis#resultCache(int)} in the cache of a model). Cached
+ * results are returned as they are and must not be modified.
+ * <p>
+ * A cache can be backed by an {@link AnalysisResultStore}, which persists
+ * results beyond the lifetime of the cache. Results that are not in the cache
+ * are looked up in the store and all results added to the cache are also added
+ * to the store.
+ */
+public class AnalysisResultCache {
+
+	private final int maxSize;
+	private final LinkedHashMap<AnalysisResult<?>, AnalysisResult<?>> results;
+	private final AnalysisResultStore store;
+	private final String cnfHash;
+	private long hitCount;
+	private long storeHitCount;
+	private long missCount;
+	private long evictionCount;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param maxSize the maximum number of cached results
+	 */
+	public AnalysisResultCache(int maxSize) {
+		this(maxSize, null, null);
+	}
+
+	/**
+	 * Creates a new cache that is backed by a persistent store.
+	 *
+	 * @param maxSize the maximum number of cached results
+	 * @param store   the store or {@code null}
+	 * @param cnfHash the {@link AnalysisResultStore#computeHash(CNF) hash} of
+	 *                the CNF of the model of all cached results
+	 */
+	public AnalysisResultCache(int maxSize, AnalysisResultStore store, String cnfHash) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+		}
+		if ((store != null) && (cnfHash == null)) {
+			throw new IllegalArgumentException("Missing CNF hash");
+		}
+		this.maxSize = maxSize;
+		this.store = store;
+		this.cnfHash = cnfHash;
+		results = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<AnalysisResult<?>, AnalysisResult<?>> eldest) {
+				if (size() > AnalysisResultCache.this.maxSize) {
+					evictionCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public AnalysisResultStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Looks up the result of an analysis.
+	 *
+	 * @param <T> the type of the result
+	 * @param key a result with the same id, assumptions, assumed constraints,
+	 *            and parameters as the requested result (its actual result is
+	 *            ignored)
+	 * @return the cached result or {@code null} if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> AnalysisResult<T> get(AnalysisResult<T> key) {
+		synchronized (this) {
+			final AnalysisResult<T> result = (AnalysisResult<T>) results.get(key);
+			if (result != null) {
+				hitCount++;
+				return result;
+			}
+			if (store == null) {
+				missCount++;
+				return null;
+			}
+		}
+		// the store is read outside the monitor, such that hits in the cache are
+		// not blocked by disk access
+		final AnalysisResult<T> result = store.get(cnfHash, key);
+		synchronized (this) {
+			if (result != null) {
+				hitCount++;
+				storeHitCount++;
+				results.putIfAbsent(result, result);
+			} else {
+				missCount++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the result of an analysis. Replaces any result with the same id,
+	 * assumptions, assumed constraints, and parameters.
+	 *
+	 * @param result the result
+	 */
+	public void put(AnalysisResult<?> result) {
+		synchronized (this) {
+			results.put(result, result);
+		}
+		if (store != null) {
+			store.put(cnfHash, result);
+		}
+	}
+
+	public synchronized int size() {
+		return results.size();
+	}
+
+	public synchronized void clear() {
+		results.clear();
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns the number of hits for results that were not in the cache, but in
+	 * the {@link #getStore() store}.
+	 *
+	 * @return the number of hits in the store
+	 */
+	public synchronized long getStoreHitCount() {
+		return storeHitCount;
+	}
+
+	/**
+	 * Returns the number of results that were removed because the cache was
+	 * full.
+	 *
+	 * @return the number of removed results
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	public synchronized void resetStatistics() {
+		hitCount = 0;
+		storeHitCount = 0;
+		missCount = 0;
+		evictionCount = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "AnalysisResultCache [size=" + results.size() + ", hits=" + hitCount + ", storeHits="
+			+ storeHitCount + ", misses=" + missCount
+			+ ", evictions=" + evictionCount + "]";
+	}
+
+}
@@ -0,0 +1,413 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.atomic.literal.*;
+
+/**
+ * Persistent store for the results of analyses, such that results survive
+ * restarts and can be shared between processes on the same machine. Results
+ * are identified by the {@link #computeHash(CNF) content hash} of the CNF of
+ * the analyzed model together with the id, assumptions, and parameters of an
+ * {@link AnalysisResult}. Results with assumed constraints are not stored.
+ * Results and parameters are stored via Java serialization and must therefore
+ * be {@link Serializable}. When reading results, only classes of this library,
+ * numbers, booleans, strings, and standard collections are deserialized, other
+ * results are treated as missing.
+ * <p>
+ * The store consists of two append-only files in a directory. The data file
+ * contains the serialized results and the index file contains a fixed-size
+ * entry for each result, which consists of the digest of its key, and the
+ * position and length of the result in the data file. Both files are read via
+ * memory mapping. New results are appended while holding a lock on the index
+ * file, where the result is written before its index entry, such that readers
+ * never see an incomplete result. The index of a store is kept in memory and
+ * updated with the entries of other processes before each lookup that misses.
+ * <p>
+ * Within one process, a directory must only be opened by a single store,
+ * which can be shared by multiple threads and analyses for different models
+ * (e.g., via {@link AbstractAnalysis#resultCache(int, AnalysisResultStore)}).
+ */
+public class AnalysisResultStore implements Closeable {
+
+	public static final String DATA_FILE_NAME = "results.data";
+	public static final String INDEX_FILE_NAME = "results.index";
+
+	private static final int MAGIC = 0x41525331;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	private static final int DIGEST_SIZE = 32;
+	private static final int INDEX_ENTRY_SIZE = DIGEST_SIZE + 8 + 4;
+
+	/**
+	 * Classes that may be deserialized from the data file, which are the types of
+	 * the results of the analyses of this library. Store files can be written by
+	 * other processes, so arbitrary classes must not be instantiated when reading
+	 * them.
+	 */
+	private static final ObjectInputFilter RESULT_FILTER = ObjectInputFilter.Config.createFilter(
+		"maxdepth=32;" //
+			+ "java.lang.Object;java.lang.Enum;java.lang.Boolean;java.lang.Number;java.lang.Integer;java.lang.Long;" //
+			+ "java.lang.String;java.math.BigInteger;" //
+			+ "java.util.ArrayList;java.util.LinkedList;java.util.Arrays$ArrayList;" //
+			+ "java.util.Collections$*;java.util.ImmutableCollections$*;java.util.CollSer;" //
+			+ "org.spldev.**;!*");
+
+	private final FileChannel dataChannel;
+	private final FileChannel indexChannel;
+	private final HashMap<ByteBuffer, long[]> index = new HashMap<>();
+	private MappedByteBuffer dataBuffer;
+	private long indexPosition = HEADER_SIZE;
+
+	/**
+	 * Opens the store in the given directory. Creates the directory and the
+	 * files of the store if they do not exist.
+	 *
+	 * @param directory the directory of the store
+	 * @throws IOException if the files cannot be opened or are not valid store
+	 *                     files
+	 */
+	public AnalysisResultStore(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		dataChannel = FileChannel.open(directory.resolve(DATA_FILE_NAME), StandardOpenOption.CREATE,
+			StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			indexChannel = FileChannel.open(directory.resolve(INDEX_FILE_NAME), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		} catch (final IOException e) {
+			dataChannel.close();
+			throw e;
+		}
+		try {
+			final FileLock lock = indexChannel.lock();
+			try {
+				initializeFile(dataChannel);
+				initializeFile(indexChannel);
+				readIndex();
+			} finally {
+				lock.release();
+			}
+		} catch (final IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	private static void initializeFile(FileChannel channel) throws IOException {
+		final long size = channel.size();
+		if (size == 0) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).flip();
+			write(channel, header, 0);
+			channel.force(false);
+		} else {
+			if (size < HEADER_SIZE) {
+				throw new IOException("Not a result store file");
+			}
+			final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC) {
+				throw new IOException("Not a result store file");
+			}
+			if (header.getInt() != VERSION) {
+				throw new IOException("Unsupported result store version");
+			}
+		}
+	}
+
+	/**
+	 * Computes a hash of the content of a CNF, which identifies the CNF
+	 * independently of the order of its clauses and the order of the literals
+	 * within each clause. As the results of analyses refer to variables by their
+	 * index, the hash includes the name of each variable index.
+	 *
+	 * @param cnf the CNF
+	 * @return the SHA-256 hash of the CNF as hexadecimal string
+	 */
+	public static String computeHash(CNF cnf) {
+		final MessageDigest digest = createDigest();
+		final VariableMap variables = cnf.getVariableMap();
+		final int maxIndex = variables.getMaxIndex();
+		final ByteBuffer buffer = ByteBuffer.allocate(4);
+		update(digest, buffer, maxIndex);
+		for (int index = 1; index <= maxIndex; index++) {
+			final byte[] name = variables.getName(index).orElse("").getBytes(StandardCharsets.UTF_8);
+			update(digest, buffer, name.length);
+			digest.update(name);
+		}
+		final List<int[]> clauses = new ArrayList<>(cnf.getClauses().size());
+		for (final LiteralList clause : cnf.getClauses()) {
+			final int[] literals = clause.getLiterals().clone();
+			Arrays.sort(literals);
+			clauses.add(literals);
+		}
+		clauses.sort(Arrays::compare);
+		int[] lastClause = null;
+		for (final int[] clause : clauses) {
+			if (!Arrays.equals(clause, lastClause)) {
+				update(digest, buffer, clause.length);
+				for (final int literal : clause) {
+					update(digest, buffer, literal);
+				}
+				lastClause = clause;
+			}
+		}
+		final StringBuilder sb = new StringBuilder(2 * DIGEST_SIZE);
+		for (final byte b : digest.digest()) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+			sb.append(Character.forDigit(b & 0xf, 16));
+		}
+		return sb.toString();
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void update(MessageDigest digest, ByteBuffer buffer, int value) {
+		buffer.clear();
+		buffer.putInt(value);
+		digest.update(buffer.array(), 0, 4);
+	}
+
+	/**
+	 * Computes the digest that identifies a result in the store.
+	 *
+	 * @return the digest or {@code null} if the result cannot be stored
+	 */
+	private static ByteBuffer computeKey(String cnfHash, AnalysisResult<?> key) {
+		if (!key.getAssumedConstraints().isEmpty()) {
+			return null;
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeUTF(cnfHash);
+			out.writeUTF(key.getId());
+			final int[] assumptions = key.getAssumptions().getLiterals();
+			out.writeInt(assumptions.length);
+			for (final int literal : assumptions) {
+				out.writeInt(literal);
+			}
+			try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+				objectOut.writeObject(key.getParameters());
+			}
+		} catch (final NotSerializableException e) {
+			return null;
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return ByteBuffer.wrap(createDigest().digest(bytes.toByteArray()));
+	}
+
+	/**
+	 * Looks up the result of an analysis of a model.
+	 *
+	 * @param <T>     the type of the result
+	 * @param cnfHash the {@link #computeHash(CNF) hash} of the CNF of the model
+	 * @param key     a result with the same id, assumptions, and parameters as
+	 *                the requested result (its actual result is ignored)
+	 * @return the stored result or {@code null} if there is none
+	 *
+	 * @throws UncheckedIOException if the files of the store cannot be read
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T> AnalysisResult<T> get(String cnfHash, AnalysisResult<T> key) {
+		final ByteBuffer digest = computeKey(cnfHash, key);
+		if (digest == null) {
+			return null;
+		}
+		try {
+			long[] entry = index.get(digest);
+			if (entry == null) {
+				refreshIndex();
+				entry = index.get(digest);
+				if (entry == null) {
+					return null;
+				}
+			}
+			final byte[] data = readData(entry[0], (int) entry[1]);
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+				in.setObjectInputFilter(RESULT_FILTER);
+				return new AnalysisResult<>(key.getId(), key.getAssumptions(), key.getAssumedConstraints(), key
+					.getParameters(), (T) in.readObject());
+			} catch (ClassNotFoundException | InvalidClassException e) {
+				// stored by an incompatible version of the result type or rejected by
+				// the filter
+				return null;
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Stores the result of an analysis of a model. Results with assumed
+	 * constraints, results whose result or parameters are not serializable, and
+	 * results that are already stored are ignored.
+	 *
+	 * @param cnfHash the {@link #computeHash(CNF) hash} of the CNF of the model
+	 * @param result  the result
+	 * @return {@code true} if the result was added to the store
+	 *
+	 * @throws UncheckedIOException if the files of the store cannot be written
+	 */
+	public synchronized boolean put(String cnfHash, AnalysisResult<?> result) {
+		final ByteBuffer digest = computeKey(cnfHash, result);
+		if ((digest == null) || index.containsKey(digest)) {
+			return false;
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(result.getResult());
+		} catch (final NotSerializableException e) {
+			return false;
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		try {
+			final FileLock lock = indexChannel.lock();
+			try {
+				readIndex();
+				if (index.containsKey(digest)) {
+					return false;
+				}
+				final long position = dataChannel.size();
+				final byte[] data = bytes.toByteArray();
+				write(dataChannel, ByteBuffer.wrap(data), position);
+				dataChannel.force(false);
+
+				final ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+				entry.put(digest.duplicate()).putLong(position).putInt(data.length).flip();
+				write(indexChannel, entry, indexPosition);
+				indexChannel.force(false);
+				indexPosition += INDEX_ENTRY_SIZE;
+				index.put(digest, new long[] { position, data.length });
+				return true;
+			} finally {
+				lock.release();
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position());
+		}
+	}
+
+	private void refreshIndex() throws IOException {
+		final FileLock lock = indexChannel.lock(0, Long.MAX_VALUE, true);
+		try {
+			readIndex();
+		} finally {
+			lock.release();
+		}
+	}
+
+	/**
+	 * Reads all index entries that were appended since the last call. Must be
+	 * called while holding a lock on the index file.
+	 */
+	private void readIndex() throws IOException {
+		final long size = indexChannel.size();
+		final long count = (size - indexPosition) / INDEX_ENTRY_SIZE;
+		if (count > 0) {
+			final MappedByteBuffer entries = indexChannel.map(FileChannel.MapMode.READ_ONLY, indexPosition, count
+				* INDEX_ENTRY_SIZE);
+			for (long i = 0; i < count; i++) {
+				final byte[] digest = new byte[DIGEST_SIZE];
+				entries.get(digest);
+				index.put(ByteBuffer.wrap(digest), new long[] { entries.getLong(), entries.getInt() });
+			}
+			indexPosition += count * INDEX_ENTRY_SIZE;
+		}
+	}
+
+	private byte[] readData(long position, int length) throws IOException {
+		final long end = position + length;
+		final byte[] data = new byte[length];
+		if (end > Integer.MAX_VALUE) {
+			// beyond the maximum size of a single mapped buffer
+			dataChannel.map(FileChannel.MapMode.READ_ONLY, position, length).get(data);
+			return data;
+		}
+		if ((dataBuffer == null) || (end > dataBuffer.capacity())) {
+			final long size = Math.min(dataChannel.size(), Integer.MAX_VALUE);
+			if (end > size) {
+				throw new IOException("Truncated result store");
+			}
+			dataBuffer = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+		final ByteBuffer buffer = dataBuffer.duplicate();
+		buffer.position((int) position);
+		buffer.get(data);
+		return data;
+	}
+
+	/**
+	 * Returns the number of results in the store, including results that were
+	 * added by other processes.
+	 *
+	 * @return the number of stored results
+	 *
+	 * @throws UncheckedIOException if the index file cannot be read
+	 */
+	public synchronized int size() {
+		try {
+			refreshIndex();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return index.size();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		dataBuffer = null;
+		try {
+			dataChannel.close();
+		} finally {
+			indexChannel.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "AnalysisResultStore [size=" + index.size() + "]";
+	}
+
+}
@@ -0,0 +1,920 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.bdd.solver;
+
+import java.math.*;
+import java.util.*;
+
+/**
+ * Manager for reduced ordered binary decision diagrams (ROBDDs). All nodes are
+ * stored in primitive arrays and identified by their index, with
+ * {@link #FALSE} and {@link #TRUE} as terminal nodes. A unique table guarantees
+ * that each function is represented by exactly one node, and a direct-mapped
+ * operation cache memoizes the results of recent operations (colliding entries
+ * are overwritten).
+ * <p>
+ * Nodes that are still needed must be protected by {@link #ref(int)}. Before
+ * each top-level operation, unreferenced nodes are reclaimed by a mark-and-sweep
+ * garbage collection if the node table runs out of free nodes. The operands of
+ * the operation are always kept alive. Results are returned unreferenced.
+ * <p>
+ * The variable order is fixed at construction and given as a sequence of
+ * variable indices of a {@code VariableMap}, from the top-most to the
+ * bottom-most level. An instance is not thread-safe.
+ */
+public class BDD {
+
+	public static final int FALSE = 0;
+	public static final int TRUE = 1;
+
+	private static final int OP_AND = 0;
+	private static final int OP_OR = 1;
+	private static final int OP_XOR = 2;
+	private static final int OP_NOT = 3;
+	private static final int OP_ITE = 4;
+
+	private static final int DEFAULT_CAPACITY = 1 << 12;
+	private static final double MIN_FREE_RATIO = 0.2;
+
+	private final int numberOfVariables;
+	private final int[] levelOfVariable;
+	private final int[] variableAtLevel;
+
+	private int capacity;
+	private int[] levels;
+	private int[] lows;
+	private int[] highs;
+	private int[] refs;
+	private int[] next;
+	private int[] buckets;
+	private int freeList;
+	private int freeCount;
+
+	private int[] cacheKeys;
+	private int[] cacheResults;
+	private long cacheHits;
+	private long cacheMisses;
+	private long garbageCollections;
+
+	private final byte[] assumed;
+	private int[] stamps;
+	private int stamp;
+	private int[] positions;
+	private int[] order = new int[64];
+	private int orderSize;
+	private int[] stack = new int[64];
+
+	/**
+	 * Creates a new manager with the natural variable order.
+	 *
+	 * @param numberOfVariables the number of variables
+	 */
+	public BDD(int numberOfVariables) {
+		this(numberOfVariables, null);
+	}
+
+	/**
+	 * Creates a new manager with a given variable order.
+	 *
+	 * @param numberOfVariables the number of variables
+	 * @param variableOrder     a permutation of the variable indices
+	 *                          {@code 1..numberOfVariables}, starting with the
+	 *                          top-most variable, or {@code null} for the natural
+	 *                          order
+	 */
+	public BDD(int numberOfVariables, int[] variableOrder) {
+		this.numberOfVariables = numberOfVariables;
+		levelOfVariable = new int[numberOfVariables + 1];
+		variableAtLevel = new int[numberOfVariables];
+		if (variableOrder == null) {
+			for (int level = 0; level < numberOfVariables; level++) {
+				variableAtLevel[level] = level + 1;
+				levelOfVariable[level + 1] = level;
+			}
+		} else {
+			if (variableOrder.length != numberOfVariables) {
+				throw new IllegalArgumentException("Order must contain each variable exactly once");
+			}
+			Arrays.fill(levelOfVariable, -1);
+			for (int level = 0; level < numberOfVariables; level++) {
+				final int variable = variableOrder[level];
+				if ((variable <= 0) || (variable > numberOfVariables) || (levelOfVariable[variable] >= 0)) {
+					throw new IllegalArgumentException("Order must contain each variable exactly once");
+				}
+				variableAtLevel[level] = variable;
+				levelOfVariable[variable] = level;
+			}
+		}
+		assumed = new byte[numberOfVariables + 1];
+
+		capacity = DEFAULT_CAPACITY;
+		levels = new int[capacity];
+		lows = new int[capacity];
+		highs = new int[capacity];
+		refs = new int[capacity];
+		next = new int[capacity];
+		buckets = new int[capacity];
+		levels[FALSE] = numberOfVariables;
+		levels[TRUE] = numberOfVariables;
+		for (int node = capacity - 1; node > TRUE; node--) {
+			levels[node] = -1;
+			next[node] = freeList;
+			freeList = node;
+		}
+		freeCount = capacity - 2;
+		createCache();
+	}
+
+	public int getNumberOfVariables() {
+		return numberOfVariables;
+	}
+
+	public int getLevel(int variable) {
+		return levelOfVariable[variable];
+	}
+
+	public int getVariableAtLevel(int level) {
+		return variableAtLevel[level];
+	}
+
+	/**
+	 * Returns the variable order of this manager.
+	 *
+	 * @return the variable indices, starting with the top-most variable
+	 */
+	public int[] getVariableOrder() {
+		return Arrays.copyOf(variableAtLevel, numberOfVariables);
+	}
+
+	/**
+	 * Returns the variable tested by an inner node.
+	 *
+	 * @param node an inner node
+	 * @return the variable index
+	 */
+	public int getVariable(int node) {
+		return variableAtLevel[levels[node]];
+	}
+
+	public int getLow(int node) {
+		return lows[node];
+	}
+
+	public int getHigh(int node) {
+		return highs[node];
+	}
+
+	/**
+	 * Returns the number of allocated nodes, including unreferenced nodes that
+	 * have not been collected yet.
+	 *
+	 * @return the number of nodes
+	 */
+	public int getNodeCount() {
+		return capacity - 2 - freeCount;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getCacheHits() {
+		return cacheHits;
+	}
+
+	public long getCacheMisses() {
+		return cacheMisses;
+	}
+
+	public long getGarbageCollections() {
+		return garbageCollections;
+	}
+
+	/**
+	 * Protects a node from garbage collection.
+	 *
+	 * @param node the node
+	 * @return the given node
+	 */
+	public int ref(int node) {
+		if (node > TRUE) {
+			refs[node]++;
+		}
+		return node;
+	}
+
+	/**
+	 * Releases a node that was protected by {@link #ref(int)}.
+	 *
+	 * @param node the node
+	 */
+	public void deref(int node) {
+		if (node > TRUE) {
+			if (refs[node] <= 0) {
+				throw new IllegalStateException("Node is not referenced: " + node);
+			}
+			refs[node]--;
+		}
+	}
+
+	/**
+	 * Returns the node for a literal.
+	 *
+	 * @param literal a literal in DIMACS notation
+	 * @return the node
+	 */
+	public int literal(int literal) {
+		maybeCollect(FALSE, FALSE, FALSE);
+		final int level = levelOfVariable[Math.abs(literal)];
+		return literal > 0 ? makeNode(level, FALSE, TRUE) : makeNode(level, TRUE, FALSE);
+	}
+
+	/**
+	 * Returns the node for a disjunction of literals. The node is constructed
+	 * directly in linear time. Empty clauses yield {@link #FALSE} and
+	 * tautological clauses yield {@link #TRUE}.
+	 *
+	 * @param literals literals in DIMACS notation
+	 * @return the node
+	 */
+	public int clause(int... literals) {
+		maybeCollect(FALSE, FALSE, FALSE);
+		final int[] keys = new int[literals.length];
+		for (int i = 0; i < literals.length; i++) {
+			final int literal = literals[i];
+			keys[i] = (levelOfVariable[Math.abs(literal)] << 1) | (literal > 0 ? 0 : 1);
+		}
+		Arrays.sort(keys);
+		int node = FALSE;
+		int lastKey = -1;
+		for (int i = keys.length - 1; i >= 0; i--) {
+			final int key = keys[i];
+			if (key != lastKey) {
+				if ((key >>> 1) == (lastKey >>> 1)) {
+					return TRUE;
+				}
+				node = (key & 1) == 0 ? makeNode(key >>> 1, node, TRUE) : makeNode(key >>> 1, TRUE, node);
+				lastKey = key;
+			}
+		}
+		return node;
+	}
+
+	public int not(int a) {
+		maybeCollect(a, FALSE, FALSE);
+		return notRec(a);
+	}
+
+	public int and(int a, int b) {
+		maybeCollect(a, b, FALSE);
+		return andRec(a, b);
+	}
+
+	public int or(int a, int b) {
+		maybeCollect(a, b, FALSE);
+		return orRec(a, b);
+	}
+
+	public int xor(int a, int b) {
+		maybeCollect(a, b, FALSE);
+		return xorRec(a, b);
+	}
+
+	public int implies(int a, int b) {
+		maybeCollect(a, b, FALSE);
+		return iteRec(a, b, TRUE);
+	}
+
+	public int biimplies(int a, int b) {
+		maybeCollect(a, b, FALSE);
+		return notRec(xorRec(a, b));
+	}
+
+	/**
+	 * Computes if-then-else, i.e., {@code (f and g) or (not f and h)}.
+	 *
+	 * @param f the condition
+	 * @param g the then-branch
+	 * @param h the else-branch
+	 * @return the resulting node
+	 */
+	public int ite(int f, int g, int h) {
+		maybeCollect(f, g, h);
+		return iteRec(f, g, h);
+	}
+
+	/**
+	 * Returns the number of inner nodes reachable from a node.
+	 *
+	 * @param root the node
+	 * @return the number of inner nodes
+	 */
+	public int size(int root) {
+		return collect(root);
+	}
+
+	/**
+	 * Checks whether a node has a solution that contains the first {@code count}
+	 * literals of the given array. Takes time linear in the size of the node.
+	 *
+	 * @param root        the node
+	 * @param assumptions literals in DIMACS notation
+	 * @param count       the number of valid entries in {@code assumptions}
+	 * @return {@code true} if there is a solution, {@code false} otherwise
+	 */
+	public boolean hasSolution(int root, int[] assumptions, int count) {
+		if (!assume(assumptions, count)) {
+			return false;
+		}
+		try {
+			return computeSatisfiable(root) != null;
+		} finally {
+			unassume(assumptions, count);
+		}
+	}
+
+	/**
+	 * Returns a solution of a node that contains the first {@code count} literals
+	 * of the given array. Variables that are not constrained on the chosen path
+	 * are set to {@code false}.
+	 *
+	 * @param root        the node
+	 * @param assumptions literals in DIMACS notation
+	 * @param count       the number of valid entries in {@code assumptions}
+	 * @return the literals of a solution ordered by variable index or
+	 *         {@code null} if there is no solution
+	 */
+	public int[] getSolution(int root, int[] assumptions, int count) {
+		if (!assume(assumptions, count)) {
+			return null;
+		}
+		try {
+			final boolean[] satisfiable = computeSatisfiable(root);
+			if (satisfiable == null) {
+				return null;
+			}
+			final int[] solution = new int[numberOfVariables];
+			for (int variable = 1; variable <= numberOfVariables; variable++) {
+				solution[variable - 1] = assumed[variable] > 0 ? variable : -variable;
+			}
+			int node = root;
+			while (node > TRUE) {
+				final int variable = variableAtLevel[levels[node]];
+				final int low = lows[node];
+				if ((assumed[variable] <= 0) && isSatisfiable(low, satisfiable)) {
+					solution[variable - 1] = -variable;
+					node = low;
+				} else {
+					solution[variable - 1] = variable;
+					node = highs[node];
+				}
+			}
+			return solution;
+		} finally {
+			unassume(assumptions, count);
+		}
+	}
+
+	/**
+	 * Counts the solutions of a node over all variables of this manager that
+	 * contain the first {@code count} literals of the given array. Takes time
+	 * linear in the size of the node.
+	 *
+	 * @param root        the node
+	 * @param assumptions literals in DIMACS notation
+	 * @param count       the number of valid entries in {@code assumptions}
+	 * @return the number of solutions
+	 */
+	public BigInteger countSolutions(int root, int[] assumptions, int count) {
+		if (!assume(assumptions, count)) {
+			return BigInteger.ZERO;
+		}
+		try {
+			final int[] freeVariables = new int[numberOfVariables + 1];
+			for (int level = 0; level < numberOfVariables; level++) {
+				freeVariables[level + 1] = freeVariables[level] + (assumed[variableAtLevel[level]] == 0 ? 1 : 0);
+			}
+			final int size = collect(root);
+			final BigInteger[] counts = new BigInteger[size];
+			for (int i = 0; i < size; i++) {
+				final int node = order[i];
+				final int level = levels[node];
+				final byte value = assumed[variableAtLevel[level]];
+				BigInteger nodeCount = BigInteger.ZERO;
+				if (value <= 0) {
+					nodeCount = nodeCount.add(countEdge(level + 1, lows[node], counts, freeVariables));
+				}
+				if (value >= 0) {
+					nodeCount = nodeCount.add(countEdge(level + 1, highs[node], counts, freeVariables));
+				}
+				counts[i] = nodeCount;
+			}
+			return countEdge(0, root, counts, freeVariables);
+		} finally {
+			unassume(assumptions, count);
+		}
+	}
+
+	private BigInteger countEdge(int fromLevel, int node, BigInteger[] counts, int[] freeVariables) {
+		switch (node) {
+		case FALSE:
+			return BigInteger.ZERO;
+		case TRUE:
+			return BigInteger.ONE.shiftLeft(freeVariables[numberOfVariables] - freeVariables[fromLevel]);
+		default:
+			return counts[positions[node]].shiftLeft(freeVariables[levels[node]] - freeVariables[fromLevel]);
+		}
+	}
+
+	/**
+	 * Computes all literals that are contained in every solution of a node that
+	 * contains the first {@code count} literals of the given array. Takes time
+	 * linear in the size of the node plus the number of variables.
+	 *
+	 * @param root        the node
+	 * @param assumptions literals in DIMACS notation
+	 * @param count       the number of valid entries in {@code assumptions}
+	 * @return the implied literals ordered by variable index or {@code null} if
+	 *         there is no solution
+	 */
+	public int[] getImpliedLiterals(int root, int[] assumptions, int count) {
+		if (!assume(assumptions, count)) {
+			return null;
+		}
+		try {
+			final boolean[] satisfiable = computeSatisfiable(root);
+			if (satisfiable == null) {
+				return null;
+			}
+			final int[] skipped = new int[numberOfVariables + 1];
+			final boolean[] canBeTrue = new boolean[numberOfVariables + 1];
+			final boolean[] canBeFalse = new boolean[numberOfVariables + 1];
+			addSkippedLevels(skipped, -1, root);
+			for (int i = 0; i < orderSize; i++) {
+				final int node = order[i];
+				if (satisfiable[i]) {
+					final int level = levels[node];
+					final int variable = variableAtLevel[level];
+					final int low = lows[node];
+					final int high = highs[node];
+					if ((assumed[variable] <= 0) && isSatisfiable(low, satisfiable)) {
+						canBeFalse[variable] = true;
+						addSkippedLevels(skipped, level, low);
+					}
+					if ((assumed[variable] >= 0) && isSatisfiable(high, satisfiable)) {
+						canBeTrue[variable] = true;
+						addSkippedLevels(skipped, level, high);
+					}
+				}
+			}
+			final int[] impliedLiterals = new int[numberOfVariables];
+			int impliedCount = 0;
+			int skipDepth = 0;
+			for (int level = 0; level < numberOfVariables; level++) {
+				skipDepth += skipped[level];
+				final int variable = variableAtLevel[level];
+				if (skipDepth > 0) {
+					canBeTrue[variable] |= assumed[variable] >= 0;
+					canBeFalse[variable] |= assumed[variable] <= 0;
+				}
+			}
+			for (int variable = 1; variable <= numberOfVariables; variable++) {
+				if (canBeTrue[variable] != canBeFalse[variable]) {
+					impliedLiterals[impliedCount++] = canBeTrue[variable] ? variable : -variable;
+				}
+			}
+			return Arrays.copyOf(impliedLiterals, impliedCount);
+		} finally {
+			unassume(assumptions, count);
+		}
+	}
+
+	private void addSkippedLevels(int[] skipped, int fromLevel, int to) {
+		final int toLevel = levels[to];
+		if ((toLevel - fromLevel) > 1) {
+			skipped[fromLevel + 1]++;
+			skipped[toLevel]--;
+		}
+	}
+
+	/**
+	 * Collects all nodes reachable from a node via edges that are consistent with
+	 * the current assumptions and determines which of them have a solution.
+	 *
+	 * @param root the node
+	 * @return the satisfiability of each collected node in the order of
+	 *         {@link #order} or {@code null} if the root has no solution
+	 */
+	private boolean[] computeSatisfiable(int root) {
+		final int size = collect(root);
+		final boolean[] satisfiable = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			final int node = order[i];
+			final byte value = assumed[variableAtLevel[levels[node]]];
+			satisfiable[i] = ((value <= 0) && isSatisfiable(lows[node], satisfiable))
+				|| ((value >= 0) && isSatisfiable(highs[node], satisfiable));
+		}
+		return isSatisfiable(root, satisfiable) ? satisfiable : null;
+	}
+
+	private boolean isSatisfiable(int node, boolean[] satisfiable) {
+		return (node == TRUE) || ((node != FALSE) && satisfiable[positions[node]]);
+	}
+
+	/**
+	 * Stores all inner nodes reachable from a node via edges that are consistent
+	 * with the current assumptions in {@link #order}, such that children precede
+	 * their parents. The position of each collected node is stored in
+	 * {@link #positions}.
+	 *
+	 * @param root the node
+	 * @return the number of collected nodes
+	 */
+	private int collect(int root) {
+		if ((stamps == null) || (stamps.length < capacity)) {
+			stamps = new int[capacity];
+			positions = new int[capacity];
+			stamp = 0;
+		}
+		if (++stamp == Integer.MAX_VALUE) {
+			Arrays.fill(stamps, 0);
+			stamp = 1;
+		}
+		orderSize = 0;
+		if (root <= TRUE) {
+			return 0;
+		}
+		int stackSize = 0;
+		stack[stackSize++] = root;
+		while (stackSize > 0) {
+			final int entry = stack[--stackSize];
+			if (entry < 0) {
+				final int node = ~entry;
+				if (orderSize == order.length) {
+					order = Arrays.copyOf(order, orderSize << 1);
+				}
+				positions[node] = orderSize;
+				order[orderSize++] = node;
+			} else if (stamps[entry] != stamp) {
+				stamps[entry] = stamp;
+				if ((stackSize + 3) > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length << 1);
+				}
+				stack[stackSize++] = ~entry;
+				final byte value = assumed[variableAtLevel[levels[entry]]];
+				final int low = lows[entry];
+				final int high = highs[entry];
+				if ((value <= 0) && (low > TRUE) && (stamps[low] != stamp)) {
+					stack[stackSize++] = low;
+				}
+				if ((value >= 0) && (high > TRUE) && (stamps[high] != stamp)) {
+					stack[stackSize++] = high;
+				}
+			}
+		}
+		return orderSize;
+	}
+
+	private boolean assume(int[] assumptions, int count) {
+		for (int i = 0; i < count; i++) {
+			final int literal = assumptions[i];
+			final int variable = Math.abs(literal);
+			final byte value = literal > 0 ? (byte) 1 : (byte) -1;
+			if ((variable == 0) || (variable > numberOfVariables)) {
+				unassume(assumptions, i);
+				throw new IllegalArgumentException(String.valueOf(literal));
+			} else if (assumed[variable] == -value) {
+				unassume(assumptions, i);
+				return false;
+			}
+			assumed[variable] = value;
+		}
+		return true;
+	}
+
+	private void unassume(int[] assumptions, int count) {
+		for (int i = 0; i < count; i++) {
+			assumed[Math.abs(assumptions[i])] = 0;
+		}
+	}
+
+	private int notRec(int a) {
+		if (a <= TRUE) {
+			return a ^ 1;
+		}
+		int result = lookup(OP_NOT, a, FALSE, FALSE);
+		if (result < 0) {
+			final int level = levels[a];
+			final int low = notRec(lows[a]);
+			final int high = notRec(highs[a]);
+			result = makeNode(level, low, high);
+			store(OP_NOT, a, FALSE, FALSE, result);
+		}
+		return result;
+	}
+
+	private int andRec(int a, int b) {
+		if ((a == FALSE) || (b == FALSE)) {
+			return FALSE;
+		} else if ((a == TRUE) || (a == b)) {
+			return b;
+		} else if (b == TRUE) {
+			return a;
+		}
+		if (a > b) {
+			final int temp = a;
+			a = b;
+			b = temp;
+		}
+		int result = lookup(OP_AND, a, b, FALSE);
+		if (result < 0) {
+			final int levelA = levels[a];
+			final int levelB = levels[b];
+			final int level = Math.min(levelA, levelB);
+			final int low = andRec(levelA == level ? lows[a] : a, levelB == level ? lows[b] : b);
+			final int high = andRec(levelA == level ? highs[a] : a, levelB == level ? highs[b] : b);
+			result = makeNode(level, low, high);
+			store(OP_AND, a, b, FALSE, result);
+		}
+		return result;
+	}
+
+	private int orRec(int a, int b) {
+		if ((a == TRUE) || (b == TRUE)) {
+			return TRUE;
+		} else if ((a == FALSE) || (a == b)) {
+			return b;
+		} else if (b == FALSE) {
+			return a;
+		}
+		if (a > b) {
+			final int temp = a;
+			a = b;
+			b = temp;
+		}
+		int result = lookup(OP_OR, a, b, FALSE);
+		if (result < 0) {
+			final int levelA = levels[a];
+			final int levelB = levels[b];
+			final int level = Math.min(levelA, levelB);
+			final int low = orRec(levelA == level ? lows[a] : a, levelB == level ? lows[b] : b);
+			final int high = orRec(levelA == level ? highs[a] : a, levelB == level ? highs[b] : b);
+			result = makeNode(level, low, high);
+			store(OP_OR, a, b, FALSE, result);
+		}
+		return result;
+	}
+
+	private int xorRec(int a, int b) {
+		if (a == b) {
+			return FALSE;
+		} else if (a == FALSE) {
+			return b;
+		} else if (b == FALSE) {
+			return a;
+		} else if (a == TRUE) {
+			return notRec(b);
+		} else if (b == TRUE) {
+			return notRec(a);
+		}
+		if (a > b) {
+			final int temp = a;
+			a = b;
+			b = temp;
+		}
+		int result = lookup(OP_XOR, a, b, FALSE);
+		if (result < 0) {
+			final int levelA = levels[a];
+			final int levelB = levels[b];
+			final int level = Math.min(levelA, levelB);
+			final int low = xorRec(levelA == level ? lows[a] : a, levelB == level ? lows[b] : b);
+			final int high = xorRec(levelA == level ? highs[a] : a, levelB == level ? highs[b] : b);
+			result = makeNode(level, low, high);
+			store(OP_XOR, a, b, FALSE, result);
+		}
+		return result;
+	}
+
+	private int iteRec(int f, int g, int h) {
+		if (f == TRUE) {
+			return g;
+		} else if (f == FALSE) {
+			return h;
+		} else if (g == h) {
+			return g;
+		} else if ((g == TRUE) && (h == FALSE)) {
+			return f;
+		} else if ((g == FALSE) && (h == TRUE)) {
+			return notRec(f);
+		}
+		int result = lookup(OP_ITE, f, g, h);
+		if (result < 0) {
+			final int levelF = levels[f];
+			final int levelG = levels[g];
+			final int levelH = levels[h];
+			final int level = Math.min(levelF, Math.min(levelG, levelH));
+			final int low = iteRec(levelF == level ? lows[f] : f, levelG == level ? lows[g] : g,
+				levelH == level ? lows[h] : h);
+			final int high = iteRec(levelF == level ? highs[f] : f, levelG == level ? highs[g] : g,
+				levelH == level ? highs[h] : h);
+			result = makeNode(level, low, high);
+			store(OP_ITE, f, g, h, result);
+		}
+		return result;
+	}
+
+	private int makeNode(int level, int low, int high) {
+		if (low == high) {
+			return low;
+		}
+		int bucket = hash(level, low, high) & (capacity - 1);
+		for (int node = buckets[bucket]; node != 0; node = next[node]) {
+			if ((levels[node] == level) && (lows[node] == low) && (highs[node] == high)) {
+				return node;
+			}
+		}
+		if (freeList == 0) {
+			grow();
+			bucket = hash(level, low, high) & (capacity - 1);
+		}
+		final int node = freeList;
+		freeList = next[node];
+		freeCount--;
+		levels[node] = level;
+		lows[node] = low;
+		highs[node] = high;
+		refs[node] = 0;
+		next[node] = buckets[bucket];
+		buckets[bucket] = node;
+		return node;
+	}
+
+	private static int hash(int level, int low, int high) {
+		int hash = (level * 12582917) + (low * 4256249) + (high * 741457);
+		hash ^= hash >>> 16;
+		return hash;
+	}
+
+	private void grow() {
+		final int oldCapacity = capacity;
+		capacity = oldCapacity << 1;
+		levels = Arrays.copyOf(levels, capacity);
+		lows = Arrays.copyOf(lows, capacity);
+		highs = Arrays.copyOf(highs, capacity);
+		refs = Arrays.copyOf(refs, capacity);
+		next = Arrays.copyOf(next, capacity);
+		buckets = new int[capacity];
+		for (int node = oldCapacity - 1; node > TRUE; node--) {
+			if (levels[node] >= 0) {
+				final int bucket = hash(levels[node], lows[node], highs[node]) & (capacity - 1);
+				next[node] = buckets[bucket];
+				buckets[bucket] = node;
+			}
+		}
+		for (int node = capacity - 1; node >= oldCapacity; node--) {
+			levels[node] = -1;
+			next[node] = freeList;
+			freeList = node;
+		}
+		freeCount += capacity - oldCapacity;
+		createCache();
+	}
+
+	private void maybeCollect(int a, int b, int c) {
+		if (freeCount < (capacity * MIN_FREE_RATIO)) {
+			collectGarbage(a, b, c);
+			if (freeCount < (capacity * MIN_FREE_RATIO)) {
+				grow();
+			}
+		}
+	}
+
+	/**
+	 * Reclaims all nodes that are neither referenced nor reachable from a
+	 * referenced node or one of the given nodes.
+	 *
+	 * @param a a node to keep
+	 * @param b a node to keep
+	 * @param c a node to keep
+	 */
+	private void collectGarbage(int a, int b, int c) {
+		final boolean[] marks = new boolean[capacity];
+		marks[FALSE] = true;
+		marks[TRUE] = true;
+		for (int node = TRUE + 1; node < capacity; node++) {
+			if (refs[node] > 0) {
+				mark(node, marks);
+			}
+		}
+		mark(a, marks);
+		mark(b, marks);
+		mark(c, marks);
+
+		Arrays.fill(buckets, 0);
+		freeList = 0;
+		freeCount = 0;
+		for (int node = capacity - 1; node > TRUE; node--) {
+			if (marks[node]) {
+				final int bucket = hash(levels[node], lows[node], highs[node]) & (capacity - 1);
+				next[node] = buckets[bucket];
+				buckets[bucket] = node;
+			} else {
+				levels[node] = -1;
+				next[node] = freeList;
+				freeList = node;
+				freeCount++;
+			}
+		}
+
+		for (int entry = 0; entry < cacheResults.length; entry++) {
+			final int key = entry << 2;
+			if ((cacheKeys[key] >= 0) && (!marks[cacheKeys[key + 1]] || !marks[cacheKeys[key + 2]]
+				|| !marks[cacheKeys[key + 3]] || !marks[cacheResults[entry]])) {
+				cacheKeys[key] = -1;
+			}
+		}
+		garbageCollections++;
+	}
+
+	private void mark(int root, boolean[] marks) {
+		if (marks[root]) {
+			return;
+		}
+		marks[root] = true;
+		int stackSize = 0;
+		stack[stackSize++] = root;
+		while (stackSize > 0) {
+			final int node = stack[--stackSize];
+			if ((stackSize + 2) > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length << 1);
+			}
+			final int low = lows[node];
+			if (!marks[low]) {
+				marks[low] = true;
+				stack[stackSize++] = low;
+			}
+			final int high = highs[node];
+			if (!marks[high]) {
+				marks[high] = true;
+				stack[stackSize++] = high;
+			}
+		}
+	}
+
+	private void createCache() {
+		cacheKeys = new int[capacity << 2];
+		cacheResults = new int[capacity];
+		for (int key = 0; key < cacheKeys.length; key += 4) {
+			cacheKeys[key] = -1;
+		}
+	}
+
+	private int lookup(int operation, int a, int b, int c) {
+		final int entry = cacheHash(operation, a, b, c) & (cacheResults.length - 1);
+		final int key = entry << 2;
+		if ((cacheKeys[key] == operation) && (cacheKeys[key + 1] == a) && (cacheKeys[key + 2] == b)
+			&& (cacheKeys[key + 3] == c)) {
+			cacheHits++;
+			return cacheResults[entry];
+		}
+		cacheMisses++;
+		return -1;
+	}
+
+	private void store(int operation, int a, int b, int c, int result) {
+		final int entry = cacheHash(operation, a, b, c) & (cacheResults.length - 1);
+		final int key = entry << 2;
+		cacheKeys[key] = operation;
+		cacheKeys[key + 1] = a;
+		cacheKeys[key + 2] = b;
+		cacheKeys[key + 3] = c;
+		cacheResults[entry] = result;
+	}
+
+	private static int cacheHash(int operation, int a, int b, int c) {
+		int hash = (operation * 16777619) + (a * 12582917) + (b * 4256249) + (c * 741457);
+		hash ^= hash >>> 15;
+		return hash;
+	}
+
+}
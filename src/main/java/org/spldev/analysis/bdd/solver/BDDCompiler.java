@@ -0,0 +1,252 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.bdd.solver;
+
+import java.util.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.formula.structure.compound.*;
+import org.spldev.util.job.*;
+
+/**
+ * Compiles formulas and clauses into nodes of a {@link BDD}. Variables are
+ * mapped to BDD variables by their index in a given {@link VariableMap}. All
+ * returned nodes are referenced and must be released via
+ * {@link BDD#deref(int)} when they are not needed anymore.
+ */
+public class BDDCompiler {
+
+	private final BDD bdd;
+	private final VariableMap variableMap;
+	private InternalMonitor monitor;
+	private Budget budget;
+
+	public BDDCompiler(BDD bdd, VariableMap variableMap) {
+		this.bdd = bdd;
+		this.variableMap = variableMap;
+	}
+
+	public BDD getBDD() {
+		return bdd;
+	}
+
+	public InternalMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Sets a monitor that is checked after each compiled clause or sub formula.
+	 * If the monitor is canceled, compiling is aborted with a
+	 * {@link RuntimeTimeoutException}.
+	 *
+	 * @param monitor the monitor or {@code null}
+	 */
+	public void setMonitor(InternalMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	public Budget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Sets a budget whose deadline is checked after each compiled clause or sub
+	 * formula. If the budget is exhausted, compiling is aborted with a
+	 * {@link RuntimeTimeoutException}. Compiling does not consume conflicts or
+	 * propagations.
+	 *
+	 * @param budget the budget or {@code null}
+	 */
+	public void setBudget(Budget budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Compiles a conjunction of clauses. The clauses are conjoined from the
+	 * bottom-most to the top-most level of their top variable, which keeps
+	 * intermediate results small for most orders.
+	 *
+	 * @param clauses clauses in DIMACS notation
+	 * @return the referenced node
+	 *
+	 * @throws RuntimeTimeoutException if the monitor was canceled
+	 */
+	public int compile(List<LiteralList> clauses) throws RuntimeTimeoutException {
+		final List<LiteralList> sortedClauses = new ArrayList<>(clauses);
+		sortedClauses.sort(Comparator.comparingInt(this::getTopLevel).reversed());
+		int result = BDD.TRUE;
+		for (final LiteralList clause : sortedClauses) {
+			final int clauseNode = bdd.ref(bdd.clause(clause.getLiterals()));
+			result = conjoin(result, clauseNode);
+			if (result == BDD.FALSE) {
+				break;
+			}
+			checkCancel();
+		}
+		return result;
+	}
+
+	private int getTopLevel(LiteralList clause) {
+		int topLevel = Integer.MAX_VALUE;
+		for (final int literal : clause.getLiterals()) {
+			topLevel = Math.min(topLevel, bdd.getLevel(Math.abs(literal)));
+		}
+		return topLevel;
+	}
+
+	/**
+	 * Compiles a propositional formula. Supports literals, {@link Not},
+	 * {@link And}, {@link Or}, {@link Implies}, {@link Biimplies}, and all
+	 * {@link Cardinal cardinality constraints}.
+	 *
+	 * @param formula the formula
+	 * @return the referenced node
+	 *
+	 * @throws RuntimeTimeoutException  if the monitor was canceled
+	 * @throws IllegalArgumentException if the formula contains unsupported
+	 *                                  expressions or unknown variables
+	 */
+	public int compile(Formula formula) throws RuntimeTimeoutException {
+		final int result;
+		if (formula == Literal.True) {
+			result = BDD.TRUE;
+		} else if (formula == Literal.False) {
+			result = BDD.FALSE;
+		} else if (formula instanceof LiteralPredicate) {
+			final LiteralPredicate literal = (LiteralPredicate) formula;
+			final String name = literal.getVariable().getName();
+			final int variable = variableMap.getIndex(name)
+				.orElseThrow(() -> new IllegalArgumentException("Unknown variable: " + name));
+			result = bdd.ref(bdd.literal(literal.isPositive() ? variable : -variable));
+		} else if (formula instanceof Not) {
+			final int child = compile(((Not) formula).getChildren().get(0));
+			result = bdd.ref(bdd.not(child));
+			bdd.deref(child);
+		} else if (formula instanceof And) {
+			int conjunction = BDD.TRUE;
+			for (final Formula child : ((And) formula).getChildren()) {
+				conjunction = conjoin(conjunction, compile(child));
+				if (conjunction == BDD.FALSE) {
+					break;
+				}
+			}
+			result = conjunction;
+		} else if (formula instanceof Or) {
+			int disjunction = BDD.FALSE;
+			for (final Formula child : ((Or) formula).getChildren()) {
+				final int childNode = compile(child);
+				final int newDisjunction = bdd.ref(bdd.or(disjunction, childNode));
+				bdd.deref(disjunction);
+				bdd.deref(childNode);
+				disjunction = newDisjunction;
+				if (disjunction == BDD.TRUE) {
+					break;
+				}
+			}
+			result = disjunction;
+		} else if (formula instanceof Implies) {
+			final List<Formula> children = ((Implies) formula).getChildren();
+			final int left = compile(children.get(0));
+			final int right = compile(children.get(1));
+			result = bdd.ref(bdd.implies(left, right));
+			bdd.deref(left);
+			bdd.deref(right);
+		} else if (formula instanceof Biimplies) {
+			final List<Formula> children = ((Biimplies) formula).getChildren();
+			final int left = compile(children.get(0));
+			final int right = compile(children.get(1));
+			result = bdd.ref(bdd.biimplies(left, right));
+			bdd.deref(left);
+			bdd.deref(right);
+		} else if (formula instanceof Cardinal) {
+			result = compileCardinal((Cardinal) formula);
+		} else {
+			throw new IllegalArgumentException("Unsupported expression: " + formula.getClass().getSimpleName());
+		}
+		checkCancel();
+		return result;
+	}
+
+	/**
+	 * Compiles a cardinality constraint by counting the satisfied children. After
+	 * processing a prefix of the children, {@code exactly[k]} represents that
+	 * exactly {@code k} of them are satisfied. Counts above the upper bound are
+	 * dropped, since they can never satisfy the constraint again.
+	 */
+	private int compileCardinal(Cardinal cardinal) {
+		final List<Formula> children = cardinal.getChildren();
+		final int min = cardinal.getMin();
+		final int max = Math.min(cardinal.getMax(), children.size());
+		if (min > max) {
+			return BDD.FALSE;
+		}
+		final int[] exactly = new int[max + 1];
+		exactly[0] = BDD.TRUE;
+		for (final Formula child : children) {
+			final int childNode = compile(child);
+			for (int k = max; k >= 0; k--) {
+				final int newNode = bdd.ref(bdd.ite(childNode, k > 0 ? exactly[k - 1] : BDD.FALSE, exactly[k]));
+				bdd.deref(exactly[k]);
+				exactly[k] = newNode;
+			}
+			bdd.deref(childNode);
+		}
+		int result = BDD.FALSE;
+		for (int k = min; k <= max; k++) {
+			final int newResult = bdd.ref(bdd.or(result, exactly[k]));
+			bdd.deref(result);
+			result = newResult;
+		}
+		for (int k = 0; k <= max; k++) {
+			bdd.deref(exactly[k]);
+		}
+		return result;
+	}
+
+	/**
+	 * Conjoins two referenced nodes and releases both.
+	 */
+	private int conjoin(int a, int b) {
+		final int result = bdd.ref(bdd.and(a, b));
+		bdd.deref(a);
+		bdd.deref(b);
+		return result;
+	}
+
+	private void checkCancel() {
+		if ((budget != null) && budget.isExhausted()) {
+			throw new RuntimeTimeoutException();
+		}
+		if (monitor != null) {
+			try {
+				monitor.checkCancel();
+			} catch (final InternalMonitor.MethodCancelException e) {
+				throw new RuntimeTimeoutException();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,263 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.bdd.solver;
+
+import java.math.*;
+import java.util.*;
+
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.util.job.*;
+
+/**
+ * Solver based on a {@link BDD}. Compiles the current formula on the first
+ * query and answers all subsequent satisfiability, counting, and
+ * implied-literal queries in time linear in the size of the BDD, regardless of
+ * the assumptions. The formula and the assumptions are managed by an
+ * underlying {@link CDCLSolver}. The BDD is recompiled only if the permanent
+ * clauses of the formula change. Each pushed constraint is compiled separately
+ * and conjoined with the root of the constraints below it. Popping a constraint
+ * returns to the previous root.
+ */
+public class BDDSolver implements SharpSatSolver, SolutionSolver<LiteralList> {
+
+	protected final CDCLSolver solver;
+	private VariableOrder variableOrder = new ForceVariableOrder();
+	private BDD bdd;
+	private int baseRoot = BDD.FALSE;
+	private long bddRevision = -1;
+	private final ArrayList<CDCLConstraint> conjoinedConstraints = new ArrayList<>();
+	private int[] conjoinedRoots = new int[4];
+	private int root = BDD.FALSE;
+	private long rootRevision = -1;
+	private InternalMonitor monitor;
+	private int[] solution;
+
+	public BDDSolver(CNF cnf) {
+		solver = new CDCLSolver(cnf);
+	}
+
+	public BDDSolver(VariableMap variableMap) {
+		solver = new CDCLSolver(variableMap);
+	}
+
+	@Override
+	public CDCLAssumptions getAssumptions() {
+		return solver.getAssumptions();
+	}
+
+	@Override
+	public Optional<LiteralAssumptions> getLiteralAssumptions() {
+		return solver.getLiteralAssumptions();
+	}
+
+	@Override
+	public CDCLFormula getDynamicFormula() {
+		return solver.getDynamicFormula();
+	}
+
+	@Override
+	public VariableMap getVariables() {
+		return solver.getVariables();
+	}
+
+	public CDCLSolver getSatSolver() {
+		return solver;
+	}
+
+	/**
+	 * @throws RuntimeTimeoutException if compiling was canceled via the monitor or
+	 *                                 the budget is exhausted
+	 */
+	@Override
+	public SatResult hasSolution() throws RuntimeTimeoutException {
+		final LiteralAssumptions assumptions = solver.getAssumptions();
+		solution = getBDD().getSolution(root, assumptions.getLiterals(), assumptions.size());
+		return solution != null ? SatResult.TRUE : SatResult.FALSE;
+	}
+
+	@Override
+	public LiteralList getSolution() {
+		return solution != null ? new LiteralList(solution, Order.INDEX, false) : null;
+	}
+
+	/**
+	 * @throws RuntimeTimeoutException if compiling was canceled via the monitor or
+	 *                                 the budget is exhausted
+	 */
+	@Override
+	public BigInteger countSolutions() throws RuntimeTimeoutException {
+		final LiteralAssumptions assumptions = solver.getAssumptions();
+		return getBDD().countSolutions(root, assumptions.getLiterals(), assumptions.size());
+	}
+
+	/**
+	 * Computes all literals that are contained in every solution of the current
+	 * formula under the current assumptions (i.e., core and dead variables).
+	 *
+	 * @return the implied literals or {@code null} if there is no solution
+	 *
+	 * @throws RuntimeTimeoutException if compiling was canceled via the monitor or
+	 *                                 the budget is exhausted
+	 */
+	public LiteralList getImpliedLiterals() throws RuntimeTimeoutException {
+		final LiteralAssumptions assumptions = solver.getAssumptions();
+		final int[] impliedLiterals = getBDD().getImpliedLiterals(root, assumptions.getLiterals(), assumptions
+			.size());
+		return impliedLiterals != null ? new LiteralList(impliedLiterals) : null;
+	}
+
+	/**
+	 * Returns the BDD for the current formula. The permanent clauses of the
+	 * formula are (re-)compiled if they changed since the last call. Pushed
+	 * constraints that were not compiled yet are conjoined with the root.
+	 *
+	 * @return the BDD manager that contains the {@link #getRoot() root node}
+	 *
+	 * @throws RuntimeTimeoutException if compiling was canceled via the monitor or
+	 *                                 the budget is exhausted
+	 */
+	public BDD getBDD() throws RuntimeTimeoutException {
+		final CDCLFormula formula = solver.getDynamicFormula();
+		final long permanentRevision = formula.getPermanentRevision();
+		if ((bdd == null) || (bddRevision != permanentRevision)) {
+			final List<LiteralList> clauses = formula.getPermanentClauses();
+			final VariableMap variables = getVariables();
+			final BDD newBDD = new BDD(variables.getMaxIndex(), variableOrder.getOrder(variables, clauses));
+			final BDDCompiler compiler = new BDDCompiler(newBDD, variables);
+			compiler.setMonitor(monitor);
+			compiler.setBudget(solver.getBudget());
+			baseRoot = compiler.compile(clauses);
+			bdd = newBDD;
+			bddRevision = permanentRevision;
+			conjoinedConstraints.clear();
+			rootRevision = -1;
+		}
+		final long revision = solver.getEngine().getRevision();
+		if (rootRevision != revision) {
+			root = conjoinGuardedConstraints(formula);
+			rootRevision = revision;
+		}
+		return bdd;
+	}
+
+	private int conjoinGuardedConstraints(CDCLFormula formula) throws RuntimeTimeoutException {
+		final ArrayList<CDCLConstraint> constraints = new ArrayList<>();
+		for (final CDCLConstraint constraint : formula.getConstraints()) {
+			if (constraint.isGuarded()) {
+				constraints.add(constraint);
+			}
+		}
+		int keptCount = 0;
+		final int maxKeptCount = Math.min(constraints.size(), conjoinedConstraints.size());
+		while ((keptCount < maxKeptCount) && (constraints.get(keptCount) == conjoinedConstraints.get(keptCount))) {
+			keptCount++;
+		}
+		for (int i = conjoinedConstraints.size() - 1; i >= keptCount; i--) {
+			bdd.deref(conjoinedRoots[i]);
+			conjoinedConstraints.remove(i);
+		}
+		if (constraints.size() > keptCount) {
+			final BDDCompiler compiler = new BDDCompiler(bdd, getVariables());
+			compiler.setMonitor(monitor);
+			compiler.setBudget(solver.getBudget());
+			for (int i = keptCount; i < constraints.size(); i++) {
+				final CDCLConstraint constraint = constraints.get(i);
+				final int constraintRoot = compiler.compile(constraint.getClauses());
+				final int previousRoot = i == 0 ? baseRoot : conjoinedRoots[i - 1];
+				final int newRoot = bdd.ref(bdd.and(previousRoot, constraintRoot));
+				bdd.deref(constraintRoot);
+				if (i == conjoinedRoots.length) {
+					conjoinedRoots = Arrays.copyOf(conjoinedRoots, i << 1);
+				}
+				conjoinedRoots[i] = newRoot;
+				conjoinedConstraints.add(constraint);
+			}
+		}
+		return constraints.isEmpty() ? baseRoot : conjoinedRoots[constraints.size() - 1];
+	}
+
+	/**
+	 * Returns the referenced root node of the current formula.
+	 *
+	 * @return the root node in {@link #getBDD()}
+	 *
+	 * @throws RuntimeTimeoutException if compiling was canceled via the monitor or
+	 *                                 the budget is exhausted
+	 */
+	public int getRoot() throws RuntimeTimeoutException {
+		getBDD();
+		return root;
+	}
+
+	public VariableOrder getVariableOrder() {
+		return variableOrder;
+	}
+
+	/**
+	 * Sets the heuristic that determines the variable order of the BDD. Takes
+	 * effect for the next compilation.
+	 *
+	 * @param variableOrder the variable order
+	 */
+	public void setVariableOrder(VariableOrder variableOrder) {
+		this.variableOrder = Objects.requireNonNull(variableOrder);
+		bdd = null;
+	}
+
+	public InternalMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Sets a monitor that is checked for cancellation while compiling.
+	 *
+	 * @param monitor the monitor or {@code null}
+	 */
+	public void setMonitor(InternalMonitor monitor) {
+		this.monitor = monitor;
+		solver.setMonitor(monitor);
+	}
+
+	@Override
+	public Budget getBudget() {
+		return solver.getBudget();
+	}
+
+	/**
+	 * Sets a budget that limits the underlying {@link CDCLSolver} as well as
+	 * the compiler. If the budget is exhausted, compiling is aborted with a
+	 * {@link RuntimeTimeoutException}. Queries on a compiled BDD are not
+	 * limited.
+	 *
+	 * @param budget the budget or {@code null}
+	 */
+	@Override
+	public void setBudget(Budget budget) {
+		solver.setBudget(budget);
+	}
+
+}
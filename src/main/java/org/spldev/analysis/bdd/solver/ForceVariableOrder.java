@@ -0,0 +1,126 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.bdd.solver;
+
+import java.util.*;
+
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.atomic.literal.*;
+
+/**
+ * Variable order computed by the FORCE heuristic (Aloul et al.). Iteratively
+ * moves each variable to the average center of gravity of the clauses it
+ * occurs in, such that variables of the same clause end up close to each
+ * other. Stops as soon as the total span of all clauses does not decrease
+ * anymore.
+ */
+public class ForceVariableOrder implements VariableOrder {
+
+	private int maxIterations = 32;
+
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	@Override
+	public int[] getOrder(VariableMap variables, List<LiteralList> clauses) {
+		final int numberOfVariables = variables.getMaxIndex();
+		final int[][] clauseVariables = new int[clauses.size()][];
+		final int[] occurrenceCounts = new int[numberOfVariables + 1];
+		for (int i = 0; i < clauseVariables.length; i++) {
+			final int[] literals = clauses.get(i).getLiterals();
+			final int[] clause = new int[literals.length];
+			for (int j = 0; j < literals.length; j++) {
+				clause[j] = Math.abs(literals[j]);
+				occurrenceCounts[clause[j]]++;
+			}
+			clauseVariables[i] = clause;
+		}
+
+		Integer[] order = new Integer[numberOfVariables];
+		final int[] ranks = new int[numberOfVariables + 1];
+		for (int i = 0; i < numberOfVariables; i++) {
+			order[i] = i + 1;
+			ranks[i + 1] = i;
+		}
+		long span = computeSpan(clauseVariables, ranks);
+		final double[] positions = new double[numberOfVariables + 1];
+		for (int iteration = 0; iteration < maxIterations; iteration++) {
+			Arrays.fill(positions, 0);
+			for (final int[] clause : clauseVariables) {
+				double centerOfGravity = 0;
+				for (final int variable : clause) {
+					centerOfGravity += ranks[variable];
+				}
+				centerOfGravity /= clause.length;
+				for (final int variable : clause) {
+					positions[variable] += centerOfGravity;
+				}
+			}
+			for (int variable = 1; variable <= numberOfVariables; variable++) {
+				positions[variable] = occurrenceCounts[variable] == 0 ? ranks[variable]
+					: positions[variable] / occurrenceCounts[variable];
+			}
+			final Integer[] newOrder = order.clone();
+			Arrays.sort(newOrder, (v1, v2) -> Double.compare(positions[v1], positions[v2]));
+			final int[] newRanks = new int[numberOfVariables + 1];
+			for (int i = 0; i < numberOfVariables; i++) {
+				newRanks[newOrder[i]] = i;
+			}
+			final long newSpan = computeSpan(clauseVariables, newRanks);
+			if (newSpan >= span) {
+				break;
+			}
+			span = newSpan;
+			order = newOrder;
+			System.arraycopy(newRanks, 0, ranks, 0, ranks.length);
+		}
+
+		final int[] result = new int[numberOfVariables];
+		for (int i = 0; i < numberOfVariables; i++) {
+			result[i] = order[i];
+		}
+		return result;
+	}
+
+	private static long computeSpan(int[][] clauseVariables, int[] ranks) {
+		long span = 0;
+		for (final int[] clause : clauseVariables) {
+			int min = Integer.MAX_VALUE;
+			int max = Integer.MIN_VALUE;
+			for (final int variable : clause) {
+				min = Math.min(min, ranks[variable]);
+				max = Math.max(max, ranks[variable]);
+			}
+			if (clause.length > 0) {
+				span += max - min;
+			}
+		}
+		return span;
+	}
+
+}
@@ -0,0 +1,63 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.bdd.solver;
+
+import java.util.*;
+
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.atomic.literal.*;
+
+/**
+ * Computes a variable order for a {@link BDD}. The size of a BDD strongly
+ * depends on its variable order, so that a good order is crucial for larger
+ * formulas.
+ */
+@FunctionalInterface
+public interface VariableOrder {
+
+	/**
+	 * Computes a variable order.
+	 *
+	 * @param variables the variables of the formula
+	 * @param clauses   the clauses of the formula
+	 * @return a permutation of the variable indices {@code 1..maxIndex} of the
+	 *         given map, starting with the top-most variable
+	 */
+	int[] getOrder(VariableMap variables, List<LiteralList> clauses);
+
+	/**
+	 * Orders variables by their index.
+	 *
+	 * @return the natural order
+	 */
+	static VariableOrder natural() {
+		return (variables, clauses) -> {
+			final int[] order = new int[variables.getMaxIndex()];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i + 1;
+			}
+			return order;
+		};
+	}
+
+}
@@ -0,0 +1,180 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl;
+
+import java.util.*;
+
+import org.spldev.analysis.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.util.data.*;
+import org.spldev.util.job.*;
+
+/**
+ * Base class for analyses using a {@link CDCLSolver}.
+ *
+ * @param <T> Type of the analysis result.
+ */
+public abstract class AbstractCDCLAnalysis<T> extends AbstractAnalysis<T, CDCLSolver, CNF> {
+
+	public static final Identifier<SolverPool<CDCLSolver>> solverPoolIdentifier = new Identifier<>();
+
+	protected boolean timeoutOccured = false;
+	private boolean throwTimeoutException = true;
+	protected UnitPropagator unitPropagator;
+
+	public AbstractCDCLAnalysis() {
+		super();
+		solverInputProvider = CNFProvider.fromFormula();
+	}
+
+	public AbstractCDCLAnalysis(CDCLSolver solver) {
+		this();
+		this.solver = solver;
+	}
+
+	/**
+	 * Creates a provider for a pool of {@link CDCLSolver solvers} for the CNF of
+	 * a model. As the pool is stored in the cache of the model, all analyses of
+	 * the same model can share it via {@link #setSolverPool(SolverPool)}.
+	 *
+	 * @param maxSize the maximum number of solvers that are borrowed at the same
+	 *                time
+	 * @return a provider for the pool
+	 */
+	public static Provider<SolverPool<CDCLSolver>> solverPool(int maxSize) {
+		return new Provider<>() {
+			@Override
+			public Identifier<SolverPool<CDCLSolver>> getIdentifier() {
+				return solverPoolIdentifier;
+			}
+
+			@Override
+			public Result<SolverPool<CDCLSolver>> apply(Cache c, InternalMonitor m) {
+				return c.get(CNFProvider.fromFormula()).map(cnf -> new SolverPool<>(new CDCLSolver(cnf),
+					CDCLSolver::clone, maxSize));
+			}
+		};
+	}
+
+	public final boolean isThrowTimeoutException() {
+		return throwTimeoutException;
+	}
+
+	public final void setThrowTimeoutException(boolean throwTimeoutException) {
+		this.throwTimeoutException = throwTimeoutException;
+	}
+
+	public final boolean isTimeoutOccured() {
+		return timeoutOccured;
+	}
+
+	public UnitPropagator getUnitPropagator() {
+		return unitPropagator;
+	}
+
+	/**
+	 * Sets a propagator that is used as a pre-filter before calling the solver.
+	 * If propagation of the assumptions of this analysis results in a conflict,
+	 * the analysis can answer without a solver call. The propagator must be
+	 * created for the CNF of the solver (or a subset of its clauses) and must
+	 * not be used concurrently by other analyses.
+	 *
+	 * @param unitPropagator the propagator or {@code null}
+	 */
+	public void setUnitPropagator(UnitPropagator unitPropagator) {
+		this.unitPropagator = unitPropagator;
+	}
+
+	/**
+	 * Checks whether the {@link #setUnitPropagator(UnitPropagator) propagator}
+	 * refutes the assumptions of this analysis. As the assumed constraints can
+	 * only add clauses, a conflict proves that there is no solution.
+	 *
+	 * @return {@code true} if there is a propagator and propagation of the
+	 *         assumptions results in a conflict
+	 */
+	protected boolean isRefutedByPropagation() {
+		return (unitPropagator != null) && unitPropagator.isConflicting(assumptions.getLiterals(), assumptions
+			.size());
+	}
+
+	@Override
+	protected CDCLSolver createSolver(CNF input) throws RuntimeContradictionException {
+		return new CDCLSolver(input);
+	}
+
+	/**
+	 * {@inheritDoc} The given monitor is checked for cancellation while the solver
+	 * is running. A canceled solver call is reported as timeout.
+	 */
+	@Override
+	public T execute(CDCLSolver solver, InternalMonitor monitor) {
+		final InternalMonitor oldMonitor = solver.getMonitor();
+		solver.setMonitor(monitor);
+		try {
+			return super.execute(solver, monitor);
+		} finally {
+			solver.setMonitor(oldMonitor);
+		}
+	}
+
+	/**
+	 * {@inheritDoc} The engine of the solver {@link CDCLEngine#setReuseTrail(boolean)
+	 * reuses} the assignments of common assumptions between consecutive sets.
+	 */
+	@Override
+	public List<T> executeBatch(List<LiteralList> assumptionSets, CDCLSolver solver, InternalMonitor monitor) {
+		final InternalMonitor oldMonitor = solver.getMonitor();
+		final CDCLEngine engine = solver.getEngine();
+		final boolean oldReuseTrail = engine.isReuseTrail();
+		solver.setMonitor(monitor);
+		engine.setReuseTrail(true);
+		try {
+			return super.executeBatch(assumptionSets, solver, monitor);
+		} finally {
+			engine.setReuseTrail(oldReuseTrail);
+			solver.setMonitor(oldMonitor);
+		}
+	}
+
+	@Override
+	protected void prepareSolver(CDCLSolver solver) {
+		super.prepareSolver(solver);
+		timeoutOccured = false;
+	}
+
+	@Override
+	protected boolean isResultCacheable() {
+		return !timeoutOccured;
+	}
+
+	protected final void reportTimeout() throws RuntimeTimeoutException {
+		timeoutOccured = true;
+		if (throwTimeoutException) {
+			throw new RuntimeTimeoutException();
+		}
+	}
+
+}
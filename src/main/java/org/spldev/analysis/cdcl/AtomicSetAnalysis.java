@@ -0,0 +1,357 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl;
+
+import java.util.*;
+
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.util.data.*;
+import org.spldev.util.job.*;
+
+/**
+ * Finds the atomic sets of a formula, which are the maximal groups of variables
+ * that have the same value in all solutions. The first element of the result
+ * contains the literals of all core and dead variables as computed by a
+ * {@link CoreDeadAnalysis}. Each subsequent element contains the positive
+ * literals of one atomic set of the remaining variables, where every variable
+ * belongs to exactly one set and the sets are ordered by their smallest
+ * variable. The result is {@code null} if the formula has no solution.
+ * <p>
+ * Variables that are equivalent with respect to the binary clauses (after
+ * removing core and dead variables) are found as strongly connected components
+ * of the {@link ImplicationGraph}. Further candidates are variables that have
+ * the same value in all solutions found during the analysis, starting with
+ * solutions sampled using random phases. Each candidate is verified by two
+ * solver calls, which either prove the equivalence or yield a solution that
+ * separates further candidates.
+ */
+public class AtomicSetAnalysis extends AbstractCDCLAnalysis<List<LiteralList>> {
+
+	public static final Identifier<List<LiteralList>> identifier = new Identifier<>();
+
+	private final CoreDeadAnalysis coreDeadAnalysis = new CoreDeadAnalysis();
+
+	@Override
+	public Identifier<List<LiteralList>> getIdentifier() {
+		return identifier;
+	}
+
+	public AtomicSetAnalysis() {
+		super();
+	}
+
+	public AtomicSetAnalysis(CDCLSolver solver) {
+		super(solver);
+	}
+
+	/**
+	 * Returns the analysis that is used to compute the core and dead variables.
+	 * Can be used to configure it (e.g., its number of threads).
+	 *
+	 * @return the core dead analysis
+	 */
+	public CoreDeadAnalysis getCoreDeadAnalysis() {
+		return coreDeadAnalysis;
+	}
+
+	@Override
+	public List<LiteralList> analyze(CDCLSolver solver, InternalMonitor monitor) throws Exception {
+		coreDeadAnalysis.setThrowTimeoutException(isThrowTimeoutException());
+		coreDeadAnalysis.setUnitPropagator(unitPropagator);
+		final LiteralList coreDead = coreDeadAnalysis.execute(solver, monitor);
+		if (coreDeadAnalysis.isTimeoutOccured()) {
+			reportTimeout();
+		}
+		if (coreDead == null) {
+			return null;
+		}
+
+		final int variableCount = solver.getVariables().getMaxIndex();
+		final boolean[] fixed = new boolean[variableCount + 1];
+		for (final int literal : coreDead.getLiterals()) {
+			fixed[Math.abs(literal)] = true;
+		}
+		final List<LiteralList> clauses = new ArrayList<>();
+		for (final CDCLConstraint constraint : solver.getDynamicFormula().getConstraints()) {
+			clauses.addAll(constraint.getClauses());
+		}
+		final int[] components = new ImplicationGraph(variableCount, clauses, coreDead).getComponents();
+
+		// group variables by the component of their positive literal
+		final int[] representatives = new int[variableCount + 1];
+		final int[] componentRepresentatives = new int[(variableCount + 1) << 1];
+		for (int variable = 1; variable <= variableCount; variable++) {
+			if (!fixed[variable]) {
+				final int component = components[ImplicationGraph.node(variable)];
+				if (componentRepresentatives[component] == 0) {
+					componentRepresentatives[component] = variable;
+				}
+				representatives[variable] = componentRepresentatives[component];
+			}
+		}
+
+		final CDCLEngine engine = solver.getEngine();
+		final CDCLAssumptions solverAssumptions = solver.getAssumptions();
+		final int assumptionCount = solverAssumptions.size();
+		final int[] assumptions = Arrays.copyOf(solverAssumptions.getLiterals(), assumptionCount + 2);
+		final long[] signatures = new long[variableCount + 1];
+		switch (engine.solve(assumptions, assumptionCount)) {
+		case TRUE:
+			updateSignatures(signatures, representatives, engine.getModel());
+			break;
+		case FALSE:
+			return null;
+		case TIMEOUT:
+			reportTimeout();
+			return createResult(coreDead, representatives);
+		default:
+			throw new AssertionError();
+		}
+
+		final Random random = new Random(engine.getSeed());
+		final ArrayDeque<List<Integer>> candidateGroups = new ArrayDeque<>();
+		final List<Integer> allRepresentatives = new ArrayList<>();
+		for (int variable = 1; variable <= variableCount; variable++) {
+			if (representatives[variable] == variable) {
+				allRepresentatives.add(variable);
+			}
+		}
+		// sample solutions with random phases as long as they separate candidates
+		for (int i = 0, lastCount = 0, count = countSignatures(signatures, allRepresentatives); (i < 64)
+			&& (count > lastCount); i++) {
+			for (int j = 0; j < 4; j++) {
+				setRandomPhases(engine, representatives, random);
+				if (engine.solve(assumptions, assumptionCount) == SatResult.TIMEOUT) {
+					reportTimeout();
+					return createResult(coreDead, representatives);
+				}
+				updateSignatures(signatures, representatives, engine.getModel());
+			}
+			lastCount = count;
+			count = countSignatures(signatures, allRepresentatives);
+		}
+		addCandidateGroups(candidateGroups, allRepresentatives, signatures);
+		while (!candidateGroups.isEmpty()) {
+			monitor.checkCancel();
+			final List<Integer> group = candidateGroups.poll();
+			final int representative = group.get(0);
+			final List<Integer> remaining = new ArrayList<>();
+			for (int i = 1; i < group.size(); i++) {
+				final int variable = group.get(i);
+				if (signatures[variable] == signatures[representative]) {
+					final SatResult equivalent = isEquivalent(engine, assumptions, assumptionCount, representative,
+						variable, signatures, representatives, random);
+					if (equivalent == SatResult.TIMEOUT) {
+						reportTimeout();
+						return createResult(coreDead, representatives);
+					} else if (equivalent == SatResult.TRUE) {
+						representatives[variable] = representative;
+						continue;
+					}
+				}
+				remaining.add(variable);
+			}
+			addCandidateGroups(candidateGroups, remaining, signatures);
+		}
+		return createResult(coreDead, representatives);
+	}
+
+	/**
+	 * Checks whether two variables are equivalent.
+	 *
+	 * @return {@link SatResult#TRUE} if the variables are equivalent,
+	 *         {@link SatResult#FALSE} if there is a solution in which they differ,
+	 *         and {@link SatResult#TIMEOUT} if the solver timed out
+	 */
+	private static SatResult isEquivalent(CDCLEngine engine, int[] assumptions, int assumptionCount, int variable1,
+		int variable2, long[] signatures, int[] representatives, Random random) {
+		for (int sign = 1; sign >= -1; sign -= 2) {
+			setRandomPhases(engine, representatives, random);
+			assumptions[assumptionCount] = sign * variable1;
+			assumptions[assumptionCount + 1] = -sign * variable2;
+			switch (engine.solve(assumptions, assumptionCount + 2)) {
+			case TRUE:
+				updateSignatures(signatures, representatives, engine.getModel());
+				return SatResult.FALSE;
+			case FALSE:
+				break;
+			case TIMEOUT:
+				return SatResult.TIMEOUT;
+			default:
+				throw new AssertionError();
+			}
+		}
+		return SatResult.TRUE;
+	}
+
+	private static int countSignatures(long[] signatures, List<Integer> variables) {
+		final HashSet<Long> distinctSignatures = new HashSet<>();
+		for (final Integer variable : variables) {
+			distinctSignatures.add(signatures[variable]);
+		}
+		return distinctSignatures.size();
+	}
+
+	private static void setRandomPhases(CDCLEngine engine, int[] representatives, Random random) {
+		final int[] phases = new int[representatives.length - 1];
+		int count = 0;
+		for (int variable = 1; variable < representatives.length; variable++) {
+			if (representatives[variable] == variable) {
+				phases[count++] = random.nextBoolean() ? variable : -variable;
+			}
+		}
+		engine.setSavedPhases(Arrays.copyOf(phases, count));
+	}
+
+	/**
+	 * Adds the values of a solution to the signatures of all representatives.
+	 * Equivalent variables always have the same signature.
+	 */
+	private static void updateSignatures(long[] signatures, int[] representatives, int[] model) {
+		for (int variable = 1; variable < signatures.length; variable++) {
+			if (representatives[variable] == variable) {
+				signatures[variable] = (signatures[variable] * 31) + (model[variable - 1] > 0 ? 1 : 2);
+			}
+		}
+	}
+
+	private static void addCandidateGroups(Deque<List<Integer>> candidateGroups, List<Integer> variables,
+		long[] signatures) {
+		if (variables.size() > 1) {
+			final LinkedHashMap<Long, List<Integer>> groups = new LinkedHashMap<>();
+			for (final Integer variable : variables) {
+				groups.computeIfAbsent(signatures[variable], signature -> new ArrayList<>()).add(variable);
+			}
+			for (final List<Integer> group : groups.values()) {
+				if (group.size() > 1) {
+					candidateGroups.add(group);
+				}
+			}
+		}
+	}
+
+	private static List<LiteralList> createResult(LiteralList coreDead, int[] representatives) {
+		final int[] groupIndexes = new int[representatives.length];
+		final List<List<Integer>> groups = new ArrayList<>();
+		for (int variable = 1; variable < representatives.length; variable++) {
+			if (representatives[variable] != 0) {
+				int representative = representatives[variable];
+				while (representatives[representative] != representative) {
+					representative = representatives[representative];
+				}
+				if (groupIndexes[representative] == 0) {
+					groups.add(new ArrayList<>());
+					groupIndexes[representative] = groups.size();
+				}
+				groups.get(groupIndexes[representative] - 1).add(variable);
+			}
+		}
+		final List<LiteralList> atomicSets = new ArrayList<>(groups.size() + 1);
+		atomicSets.add(coreDead);
+		for (final List<Integer> group : groups) {
+			atomicSets.add(new LiteralList(group));
+		}
+		return atomicSets;
+	}
+
+	/**
+	 * Merges each atomic set of a formula into a single variable. Core and dead
+	 * variables are removed by unit propagation. The remaining variables of the
+	 * resulting formula are the first variables of all atomic sets, which keep
+	 * their names but are reindexed. Satisfied and duplicate clauses are removed.
+	 *
+	 * @param cnf        the formula
+	 * @param atomicSets the atomic sets of the formula as computed by this
+	 *                   analysis
+	 * @return the merged formula, which contains an empty clause if the clauses
+	 *         contradict the core and dead variables
+	 */
+	public static CNF createMergedCNF(CNF cnf, List<LiteralList> atomicSets) {
+		final VariableMap variables = cnf.getVariableMap();
+		final int variableCount = variables.getMaxIndex();
+		final int[] mapping = new int[variableCount + 1];
+		final boolean[] removed = new boolean[variableCount + 1];
+		for (final int literal : atomicSets.get(0).getLiterals()) {
+			removed[Math.abs(literal)] = true;
+			mapping[Math.abs(literal)] = literal > 0 ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+		}
+		final List<Integer> removedVariables = new ArrayList<>();
+		for (final LiteralList atomicSet : atomicSets.subList(1, atomicSets.size())) {
+			final int representative = Math.abs(atomicSet.get(0));
+			for (final int literal : atomicSet.getLiterals()) {
+				final int variable = Math.abs(literal);
+				mapping[variable] = representative;
+				if (variable != representative) {
+					removed[variable] = true;
+				}
+			}
+		}
+		final int[] newIndexes = new int[variableCount + 1];
+		int newIndex = 0;
+		for (int variable = 1; variable <= variableCount; variable++) {
+			if (removed[variable]) {
+				removedVariables.add(variable);
+			} else {
+				newIndexes[variable] = ++newIndex;
+			}
+		}
+
+		final LinkedHashSet<LiteralList> clauses = new LinkedHashSet<>();
+		clauseLoop: for (final LiteralList clause : cnf.getClauses()) {
+			final int[] literals = new int[clause.size()];
+			int size = 0;
+			for (final int literal : clause.getLiterals()) {
+				final int target = mapping[Math.abs(literal)];
+				if ((target == Integer.MAX_VALUE) || (target == Integer.MIN_VALUE)) {
+					if ((target == Integer.MAX_VALUE) == (literal > 0)) {
+						continue clauseLoop;
+					}
+				} else {
+					final int index = newIndexes[target != 0 ? target : Math.abs(literal)];
+					final int newLiteral = literal > 0 ? index : -index;
+					if (contains(literals, size, -newLiteral)) {
+						continue clauseLoop;
+					} else if (!contains(literals, size, newLiteral)) {
+						literals[size++] = newLiteral;
+					}
+				}
+			}
+			clauses.add(new LiteralList(Arrays.copyOf(literals, size), Order.NATURAL));
+		}
+		return new CNF(VariableMap.withoutIndexes(variables, removedVariables), new ArrayList<>(clauses));
+	}
+
+	private static boolean contains(int[] literals, int size, int literal) {
+		for (int i = 0; i < size; i++) {
+			if (literals[i] == literal) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,326 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.util.data.*;
+import org.spldev.util.job.*;
+
+/**
+ * Finds the core and dead variables of a formula (i.e., its backbone), which
+ * are the variables that are true or false in all solutions. The result
+ * contains a positive literal for each core and a negative literal for each
+ * dead variable, or is {@code null} if the formula has no solution.
+ * <p>
+ * The analysis starts with the literals of a first solution as candidates.
+ * Each further solution removes all candidates it contradicts. Remaining
+ * candidates are tested one by one by assuming their complement, where the
+ * saved phases of the solver are set to the complements of all open
+ * candidates, such that each solution found removes as many candidates as
+ * possible. Confirmed literals are added to the assumptions of subsequent
+ * tests. With more than one {@link #setThreadCount(int) thread}, the candidates
+ * are tested concurrently on copies of the solver, which share the set of open
+ * candidates.
+ * <p>
+ * Results can be cached via
+ * {@link #setResultCache(org.spldev.analysis.AnalysisResultCache)
+ * setResultCache}, where the analyzed {@link #setVariables(LiteralList)
+ * variables} are part of the key of each result.
+ */
+public class CoreDeadAnalysis extends AbstractCDCLAnalysis<LiteralList> {
+
+	public static final Identifier<LiteralList> identifier = new Identifier<>();
+
+	private LiteralList variables;
+	private int threadCount = 1;
+
+	@Override
+	public Identifier<LiteralList> getIdentifier() {
+		return identifier;
+	}
+
+	public CoreDeadAnalysis() {
+		super();
+	}
+
+	public CoreDeadAnalysis(CDCLSolver solver) {
+		super(solver);
+	}
+
+	public CoreDeadAnalysis(CDCLSolver solver, LiteralList variables) {
+		super(solver);
+		this.variables = variables;
+	}
+
+	public LiteralList getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Restricts the analysis to the given variables. By default, all variables
+	 * of the {@link org.spldev.formula.structure.atomic.literal.VariableMap
+	 * VariableMap} of the solver are analyzed.
+	 *
+	 * @param variables the variables to analyze or {@code null} for all
+	 *                  variables
+	 */
+	public void setVariables(LiteralList variables) {
+		this.variables = variables;
+	}
+
+	@Override
+	protected Object getResultParameters() {
+		return variables;
+	}
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * Sets the number of threads that test candidates concurrently. A
+	 * {@link #setUnitPropagator(UnitPropagator) propagator} is only used if
+	 * there is a single thread.
+	 *
+	 * @param threadCount a positive number
+	 */
+	public void setThreadCount(int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException(String.valueOf(threadCount));
+		}
+		this.threadCount = threadCount;
+	}
+
+	@Override
+	public LiteralList analyze(CDCLSolver solver, InternalMonitor monitor) throws Exception {
+		if (isRefutedByPropagation()) {
+			return null;
+		}
+		final CDCLEngine engine = solver.getEngine();
+		final CDCLAssumptions solverAssumptions = solver.getAssumptions();
+		final int maxVariable = solver.getVariables().getMaxIndex();
+		final int assumptionCount = solverAssumptions.size();
+		final int[] assumptionLiterals = Arrays.copyOf(solverAssumptions.getLiterals(), assumptionCount);
+
+		final SatResult hasSolution = engine.solve(assumptionLiterals, assumptionCount);
+		switch (hasSolution) {
+		case FALSE:
+			return null;
+		case TIMEOUT:
+			reportTimeout();
+			return null;
+		case TRUE:
+			break;
+		default:
+			throw new AssertionError(hasSolution);
+		}
+
+		final int[] model = engine.getModel();
+		final int[] candidates = new int[maxVariable + 1];
+		final AtomicLongArray openCandidates = new AtomicLongArray((maxVariable >>> 6) + 1);
+		if (variables == null) {
+			for (int variable = 1; variable <= maxVariable; variable++) {
+				candidates[variable] = model[variable - 1];
+			}
+		} else {
+			for (final int literal : variables.getLiterals()) {
+				final int variable = Math.abs(literal);
+				if ((variable > 0) && (variable <= maxVariable)) {
+					candidates[variable] = model[variable - 1];
+				}
+			}
+		}
+		for (int variable = 1; variable <= maxVariable; variable++) {
+			if (candidates[variable] != 0) {
+				openCandidates.getAndAccumulate(variable >>> 6, 1L << variable, (bits, mask) -> bits | mask);
+			}
+		}
+
+		final ConcurrentLinkedQueue<Integer> coreDead = new ConcurrentLinkedQueue<>();
+		final int[] impliedLiterals = engine.getImpliedLiterals(assumptionLiterals, assumptionCount);
+		if (impliedLiterals != null) {
+			for (final int literal : impliedLiterals) {
+				final int variable = Math.abs(literal);
+				if ((variable <= maxVariable) && close(openCandidates, variable)) {
+					coreDead.add(literal);
+				}
+			}
+		}
+
+		final AtomicInteger nextVariable = new AtomicInteger(1);
+		final AtomicBoolean timeout = new AtomicBoolean();
+		if (threadCount == 1) {
+			testCandidates(engine, assumptionLiterals, candidates, openCandidates, nextVariable, coreDead, timeout,
+				unitPropagator);
+		} else {
+			final CDCLEngine[] engines = new CDCLEngine[threadCount];
+			engines[0] = engine;
+			for (int i = 1; i < threadCount; i++) {
+				engines[i] = new CDCLEngine(engine);
+				engines[i].setSeed(engine.getSeed() + i);
+				engines[i].setMonitor(engine.getMonitor());
+			}
+			final ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+				final Thread thread = new Thread(runnable, "CoreDeadAnalysis");
+				thread.setDaemon(true);
+				return thread;
+			});
+			try {
+				final List<Future<?>> futures = new ArrayList<>(threadCount);
+				for (final CDCLEngine workerEngine : engines) {
+					futures.add(executor.submit(() -> {
+						try {
+							testCandidates(workerEngine, assumptionLiterals, candidates, openCandidates, nextVariable,
+								coreDead, timeout, null);
+						} finally {
+							if (timeout.get()) {
+								for (final CDCLEngine otherEngine : engines) {
+									otherEngine.interrupt();
+								}
+							}
+						}
+					}));
+				}
+				for (final Future<?> future : futures) {
+					try {
+						future.get();
+					} catch (final ExecutionException e) {
+						timeout.set(true);
+						for (final CDCLEngine workerEngine : engines) {
+							workerEngine.interrupt();
+						}
+						final Throwable cause = e.getCause();
+						throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+					}
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeTimeoutException(e);
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		if (timeout.get()) {
+			reportTimeout();
+		}
+		final int[] literals = new int[coreDead.size()];
+		int index = 0;
+		for (final Integer literal : coreDead) {
+			literals[index++] = literal;
+		}
+		return new LiteralList(literals, Order.NATURAL);
+	}
+
+	/**
+	 * Tests open candidates until there are no more candidates or a timeout
+	 * occurs.
+	 */
+	private static void testCandidates(CDCLEngine engine, int[] assumptionLiterals, int[] candidates,
+		AtomicLongArray openCandidates, AtomicInteger nextVariable, Collection<Integer> coreDead,
+		AtomicBoolean timeout, UnitPropagator unitPropagator) {
+		int assumptionCount = assumptionLiterals.length;
+		final int[] assumptions = Arrays.copyOf(assumptionLiterals, assumptionCount + candidates.length);
+		final Random random = new Random(engine.getSeed());
+		setPhases(engine, candidates, openCandidates, random);
+		for (int variable = nextVariable.getAndIncrement(); (variable < candidates.length) && !timeout.get();
+			variable = nextVariable.getAndIncrement()) {
+			if (!isOpen(openCandidates, variable)) {
+				continue;
+			}
+			final int candidate = candidates[variable];
+			assumptions[assumptionCount] = -candidate;
+			if ((unitPropagator != null) && unitPropagator.isConflicting(assumptions, assumptionCount + 1)) {
+				if (close(openCandidates, variable)) {
+					coreDead.add(candidate);
+				}
+				assumptions[assumptionCount++] = candidate;
+				continue;
+			}
+			switch (engine.solve(assumptions, assumptionCount + 1)) {
+			case FALSE:
+				if (close(openCandidates, variable)) {
+					coreDead.add(candidate);
+				}
+				assumptions[assumptionCount++] = candidate;
+				break;
+			case TRUE:
+				final int[] model = engine.getModel();
+				for (int i = 1; i < candidates.length; i++) {
+					if ((candidates[i] != 0) && (model[i - 1] != candidates[i])) {
+						close(openCandidates, i);
+					}
+				}
+				setPhases(engine, candidates, openCandidates, random);
+				break;
+			case TIMEOUT:
+				timeout.set(true);
+				return;
+			default:
+				throw new AssertionError();
+			}
+		}
+	}
+
+	/**
+	 * Sets the saved phase of each open candidate to its complement and the saved
+	 * phase of each other analyzed variable to a random value. Without the
+	 * random phases, subsequent solutions tend to differ only in the assumed
+	 * candidate and the literals it implies.
+	 */
+	private static void setPhases(CDCLEngine engine, int[] candidates, AtomicLongArray openCandidates,
+		Random random) {
+		final int[] phases = new int[candidates.length];
+		int count = 0;
+		for (int variable = 1; variable < candidates.length; variable++) {
+			if (isOpen(openCandidates, variable)) {
+				phases[count++] = -candidates[variable];
+			} else if (candidates[variable] != 0) {
+				phases[count++] = random.nextBoolean() ? variable : -variable;
+			}
+		}
+		engine.setSavedPhases(Arrays.copyOf(phases, count));
+	}
+
+	private static boolean isOpen(AtomicLongArray openCandidates, int variable) {
+		return (openCandidates.get(variable >>> 6) & (1L << variable)) != 0;
+	}
+
+	/**
+	 * Removes a variable from the open candidates.
+	 *
+	 * @return {@code true} if the variable was an open candidate
+	 */
+	private static boolean close(AtomicLongArray openCandidates, int variable) {
+		final long mask = 1L << variable;
+		return (openCandidates.getAndAccumulate(variable >>> 6, mask, (bits, bit) -> bits & ~bit) & mask) != 0;
+	}
+
+}
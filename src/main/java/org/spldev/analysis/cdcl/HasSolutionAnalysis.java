@@ -0,0 +1,69 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl;
+
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.util.data.*;
+import org.spldev.util.job.*;
+
+/**
+ * Determines whether a given formula is satisfiable.
+ */
+public class HasSolutionAnalysis extends AbstractCDCLAnalysis<Boolean> {
+
+	public static final Identifier<Boolean> identifier = new Identifier<>();
+
+	@Override
+	public Identifier<Boolean> getIdentifier() {
+		return identifier;
+	}
+
+	public HasSolutionAnalysis() {
+		super();
+	}
+
+	public HasSolutionAnalysis(CDCLSolver solver) {
+		super(solver);
+	}
+
+	@Override
+	public Boolean analyze(CDCLSolver solver, InternalMonitor monitor) throws Exception {
+		if (isRefutedByPropagation()) {
+			return false;
+		}
+		final SatResult hasSolution = solver.hasSolution();
+		switch (hasSolution) {
+		case FALSE:
+			return false;
+		case TIMEOUT:
+			reportTimeout();
+			return false;
+		case TRUE:
+			return true;
+		default:
+			throw new AssertionError(hasSolution);
+		}
+	}
+
+}
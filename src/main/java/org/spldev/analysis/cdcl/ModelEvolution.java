@@ -0,0 +1,326 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl;
+
+import java.util.*;
+
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.util.job.*;
+
+/**
+ * Supports the re-analysis of a new version of a model based on the solver
+ * state and the results of a previous version. The variables of both versions
+ * are matched by name (see {@link CNFDelta}).
+ * <p>
+ * The {@link #getSolver() solver} for the new version receives all learned
+ * clauses and fixed literals of the old solver that are still implied by the
+ * clauses of the new version, as checked by
+ * {@link CDCLEngine#addLearnedClause(int...)}. Other learned clauses are
+ * discarded.
+ * <p>
+ * Only the {@link #updateCoreDead(LiteralList, InternalMonitor) core and dead
+ * variables} are updated incrementally, other analyses can only benefit from
+ * the transferred clauses by using the {@link #getSolver() solver}. Results are
+ * only recomputed for variables whose support may have changed. These are the
+ * variables in connected components of the new clauses (i.e., variables that
+ * are linked via common clauses) that contain a changed variable. Within these
+ * components, adding clauses cannot invalidate core and dead variables and
+ * removing clauses cannot create new ones, which further restricts the
+ * variables to recompute if a version only adds or only removes clauses.
+ * <p>
+ * The incremental update only pays off if few variables are recomputed, as it
+ * requires comparing the clauses of both versions. Feature models usually
+ * consist of a single component, such that adding or removing a single feature
+ * affects all variables. Thus, if at least half of the variables are in a
+ * component with an added variable or with a variable that shared a clause
+ * with a removed variable, the evolution is not {@link #isIncremental()
+ * incremental}. In this case, no clauses are compared, no learned clauses are
+ * transferred, and the core and dead variables are computed from scratch.
+ */
+public class ModelEvolution {
+
+	private static final double MAX_AFFECTED_RATIO = 0.5;
+
+	private final CNFDelta delta;
+	private final CDCLSolver solver;
+	private final int[] components;
+	private final boolean incremental;
+	private int transferredClauseCount;
+	private int discardedClauseCount;
+	private int recomputedVariableCount;
+
+	public ModelEvolution(CNF oldCNF, CNF newCNF) {
+		this(oldCNF, null, newCNF);
+	}
+
+	/**
+	 * Creates a solver for the new version and transfers the learned clauses of
+	 * the old solver if the evolution is {@link #isIncremental() incremental}.
+	 * Resets the trail of the old solver, which must therefore not be used
+	 * concurrently.
+	 *
+	 * @param oldCNF    the CNF of the old version
+	 * @param oldSolver a solver for the old version or {@code null}
+	 * @param newCNF    the CNF of the new version
+	 */
+	public ModelEvolution(CNF oldCNF, CDCLSolver oldSolver, CNF newCNF) {
+		delta = new CNFDelta(oldCNF, newCNF);
+		solver = new CDCLSolver(newCNF);
+		components = computeComponents(newCNF);
+		incremental = countAffectedVariablesWithoutClauses() < (MAX_AFFECTED_RATIO * newCNF.getVariableMap()
+			.getMaxIndex());
+		if (incremental && (oldSolver != null)) {
+			transferLearnedClauses(oldSolver.getEngine());
+		}
+	}
+
+	private void transferLearnedClauses(CDCLEngine oldEngine) {
+		final CDCLEngine engine = solver.getEngine();
+		final int[] fixedLiterals = oldEngine.getImpliedLiterals(new int[0], 0);
+		if (fixedLiterals != null) {
+			for (final int literal : fixedLiterals) {
+				transferClause(engine, new int[] { literal });
+			}
+		}
+		for (final CDCLClause learnt : new ArrayList<>(oldEngine.getLearnedClauses())) {
+			transferClause(engine, learnt.getLiterals().getLiterals());
+		}
+	}
+
+	private void transferClause(CDCLEngine engine, int[] literals) {
+		final int[] mappedLiterals = new int[literals.length];
+		for (int i = 0; i < literals.length; i++) {
+			mappedLiterals[i] = delta.mapLiteral(literals[i]);
+			if (mappedLiterals[i] == 0) {
+				discardedClauseCount++;
+				return;
+			}
+		}
+		if (engine.addLearnedClause(mappedLiterals)) {
+			transferredClauseCount++;
+		} else {
+			discardedClauseCount++;
+		}
+	}
+
+	public CNFDelta getDelta() {
+		return delta;
+	}
+
+	/**
+	 * Returns whether the core and dead variables are updated based on the old
+	 * version. Otherwise, they are recomputed from scratch.
+	 *
+	 * @return {@code true} if the evolution is incremental
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Returns the solver for the new version, which contains the transferred
+	 * learned clauses.
+	 *
+	 * @return the solver
+	 */
+	public CDCLSolver getSolver() {
+		return solver;
+	}
+
+	/**
+	 * Returns the number of learned clauses and fixed literals of the old solver
+	 * that were added to the new solver.
+	 *
+	 * @return the number of transferred clauses
+	 */
+	public int getTransferredClauseCount() {
+		return transferredClauseCount;
+	}
+
+	/**
+	 * Returns the number of learned clauses and fixed literals of the old solver
+	 * that were discarded, either because they contain a removed variable or
+	 * because they are not implied by unit propagation in the new version.
+	 *
+	 * @return the number of discarded clauses
+	 */
+	public int getDiscardedClauseCount() {
+		return discardedClauseCount;
+	}
+
+	/**
+	 * Returns the number of variables that were analyzed by the last call of
+	 * {@link #updateCoreDead(LiteralList, InternalMonitor)}.
+	 *
+	 * @return the number of recomputed variables
+	 */
+	public int getRecomputedVariableCount() {
+		return recomputedVariableCount;
+	}
+
+	/**
+	 * Computes the core and dead variables of the new version, reusing the
+	 * result of the old version for all variables whose support did not change
+	 * if the evolution is {@link #isIncremental() incremental}.
+	 *
+	 * @param oldCoreDead the result of {@link CoreDeadAnalysis} for the old
+	 *                    version or {@code null} if the old version has no
+	 *                    solution
+	 * @param monitor     the monitor for the recomputation
+	 * @return the core and dead variables of the new version or {@code null} if
+	 *         the new version has no solution
+	 *
+	 * @throws Exception if the recomputation fails
+	 */
+	public LiteralList updateCoreDead(LiteralList oldCoreDead, InternalMonitor monitor) throws Exception {
+		final int maxVariable = solver.getVariables().getMaxIndex();
+		final CoreDeadAnalysis analysis = new CoreDeadAnalysis(solver);
+		if ((oldCoreDead == null) || !incremental) {
+			recomputedVariableCount = maxVariable;
+			return analysis.execute(solver, monitor);
+		}
+
+		final int[] oldLiterals = new int[maxVariable + 1];
+		for (final int literal : delta.mapLiterals(oldCoreDead).getLiterals()) {
+			oldLiterals[Math.abs(literal)] = literal;
+		}
+		final boolean[] affected = getAffectedVariables();
+		final boolean onlyAdded = delta.getRemovedClauses().isEmpty();
+		final boolean onlyRemoved = delta.getAddedClauses().isEmpty();
+		final ArrayList<Integer> reusedLiterals = new ArrayList<>();
+		final ArrayList<Integer> recomputedVariables = new ArrayList<>();
+		for (int variable = 1; variable <= maxVariable; variable++) {
+			final int oldLiteral = oldLiterals[variable];
+			if (!affected[variable] || (onlyAdded && (oldLiteral != 0))) {
+				if (oldLiteral != 0) {
+					reusedLiterals.add(oldLiteral);
+				}
+			} else if (!onlyRemoved || (oldLiteral != 0) || delta.getAddedVariables().containsAnyVariable(variable)) {
+				recomputedVariables.add(variable);
+			}
+		}
+		recomputedVariableCount = recomputedVariables.size();
+		analysis.setVariables(new LiteralList(recomputedVariables));
+		final LiteralList recomputedLiterals = analysis.execute(solver, monitor);
+		if (recomputedLiterals == null) {
+			return null;
+		}
+		for (final int literal : recomputedLiterals.getLiterals()) {
+			reusedLiterals.add(literal);
+		}
+		return new LiteralList(reusedLiterals, Order.NATURAL);
+	}
+
+	/**
+	 * Computes the connected components of the variables of a CNF.
+	 *
+	 * @return the representative variable of the component of each variable
+	 */
+	private static int[] computeComponents(CNF cnf) {
+		final int maxVariable = cnf.getVariableMap().getMaxIndex();
+		final int[] parents = new int[maxVariable + 1];
+		for (int variable = 1; variable <= maxVariable; variable++) {
+			parents[variable] = variable;
+		}
+		for (final LiteralList clause : cnf.getClauses()) {
+			final int[] literals = clause.getLiterals();
+			if (literals.length > 0) {
+				final int root = find(parents, Math.abs(literals[0]));
+				for (int i = 1; i < literals.length; i++) {
+					parents[find(parents, Math.abs(literals[i]))] = root;
+				}
+			}
+		}
+		for (int variable = 1; variable <= maxVariable; variable++) {
+			parents[variable] = find(parents, variable);
+		}
+		return parents;
+	}
+
+	/**
+	 * Counts the variables that share a connected component with a changed
+	 * variable that can be determined without comparing the clauses of both
+	 * versions, which are the added variables and all variables of the new
+	 * version that occur in a clause with a removed variable.
+	 */
+	private int countAffectedVariablesWithoutClauses() {
+		final boolean[] affectedRoots = new boolean[components.length];
+		for (final int variable : delta.getAddedVariables().getLiterals()) {
+			affectedRoots[components[variable]] = true;
+		}
+		if (!delta.getRemovedVariables().isEmpty()) {
+			final boolean[] removed = new boolean[delta.getOldCNF().getVariableMap().getMaxIndex() + 1];
+			for (final int variable : delta.getRemovedVariables().getLiterals()) {
+				removed[variable] = true;
+			}
+			clauseLoop: for (final LiteralList clause : delta.getOldCNF().getClauses()) {
+				final int[] literals = clause.getLiterals();
+				for (final int literal : literals) {
+					if (removed[Math.abs(literal)]) {
+						for (final int otherLiteral : literals) {
+							final int variable = delta.mapVariable(Math.abs(otherLiteral));
+							if (variable != 0) {
+								affectedRoots[components[variable]] = true;
+							}
+						}
+						continue clauseLoop;
+					}
+				}
+			}
+		}
+		int count = 0;
+		for (int variable = 1; variable < components.length; variable++) {
+			if (affectedRoots[components[variable]]) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Marks all variables of the new version that share a connected component
+	 * with a changed variable.
+	 */
+	private boolean[] getAffectedVariables() {
+		final boolean[] affectedRoots = new boolean[components.length];
+		for (final int variable : delta.getChangedVariables().getLiterals()) {
+			affectedRoots[components[variable]] = true;
+		}
+		final boolean[] affected = new boolean[components.length];
+		for (int variable = 1; variable < components.length; variable++) {
+			affected[variable] = affectedRoots[components[variable]];
+		}
+		return affected;
+	}
+
+	private static int find(int[] parents, int variable) {
+		while (parents[variable] != variable) {
+			parents[variable] = parents[parents[variable]];
+			variable = parents[variable];
+		}
+		return variable;
+	}
+
+}
@@ -0,0 +1,50 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.formula.structure.atomic.literal.*;
+
+/**
+ * Assumptions for a {@link CDCLSolver}. Stores the assumed literals in the
+ * order they were set.
+ */
+public class CDCLAssumptions extends LiteralAssumptions {
+
+	protected final VariableMap variables;
+
+	public CDCLAssumptions(VariableMap variables) {
+		super(variables.getMaxIndex());
+		this.variables = variables;
+	}
+
+	protected CDCLAssumptions(CDCLAssumptions oldAssumptions) {
+		super(oldAssumptions);
+		variables = oldAssumptions.variables;
+	}
+
+	public VariableMap getVariables() {
+		return variables;
+	}
+
+}
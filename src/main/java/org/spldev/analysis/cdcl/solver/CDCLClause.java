@@ -0,0 +1,76 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import org.spldev.clauses.*;
+
+/**
+ * A clause stored within a {@link CDCLEngine}. Literals are kept in the
+ * engine's internal encoding ({@code 2 * variable} for positive and
+ * {@code 2 * variable + 1} for negative literals). The first two literals are
+ * the watched literals of the clause.
+ */
+public final class CDCLClause {
+
+	int[] literals;
+	final boolean learnt;
+	double activity;
+	int lbd;
+	boolean removed;
+
+	CDCLClause(int[] literals, boolean learnt) {
+		this.literals = literals;
+		this.learnt = learnt;
+	}
+
+	public boolean isLearnt() {
+		return learnt;
+	}
+
+	public boolean isRemoved() {
+		return removed;
+	}
+
+	public int size() {
+		return literals.length;
+	}
+
+	/**
+	 * Returns the literals of this clause in DIMACS notation.
+	 *
+	 * @return a new {@link LiteralList}
+	 */
+	public LiteralList getLiterals() {
+		final int[] externalLiterals = new int[literals.length];
+		for (int i = 0; i < literals.length; i++) {
+			externalLiterals[i] = CDCLEngine.toExternal(literals[i]);
+		}
+		return new LiteralList(externalLiterals);
+	}
+
+	@Override
+	public String toString() {
+		return "CDCLClause " + getLiterals().toLiteralString();
+	}
+
+}
@@ -0,0 +1,74 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+
+import org.spldev.clauses.*;
+
+/**
+ * A constraint of a {@link CDCLFormula}. Consists of one or more clauses that
+ * are either added permanently to the {@link CDCLEngine} or guarded by a
+ * selector variable of the engine.
+ */
+public final class CDCLConstraint {
+
+	final List<LiteralList> clauses;
+	final CDCLClause[] engineClauses;
+	final int selector;
+
+	CDCLConstraint(List<LiteralList> clauses, CDCLClause[] engineClauses, int selector) {
+		this.clauses = clauses;
+		this.engineClauses = engineClauses;
+		this.selector = selector;
+	}
+
+	/**
+	 * Returns the clauses of this constraint without the selector literal.
+	 *
+	 * @return an unmodifiable list of clauses
+	 */
+	public List<LiteralList> getClauses() {
+		return Collections.unmodifiableList(clauses);
+	}
+
+	/**
+	 * Returns the selector variable of this constraint.
+	 *
+	 * @return the index of the selector variable or {@code 0} if this constraint
+	 *         is not guarded
+	 */
+	public int getSelector() {
+		return selector;
+	}
+
+	public boolean isGuarded() {
+		return selector != 0;
+	}
+
+	@Override
+	public String toString() {
+		return "CDCLConstraint " + clauses;
+	}
+
+}
@@ -0,0 +1,1835 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.util.job.*;
+
+/**
+ * Conflict-driven clause learning (CDCL) engine working directly on int
+ * literals in DIMACS notation. Uses two-watched-literal propagation, VSIDS
+ * branching with phase saving, restarts, and a periodic reduction of the
+ * learned clause database. Assumptions are handled as the first decisions of
+ * the search, such that learned clauses remain valid across calls.
+ * <p>
+ * Clauses can be grouped by a {@link #newSelector() selector variable}. Each
+ * clause of a group contains the negated selector, which is implicitly assumed
+ * to be true as long as the group is active. Releasing a group permanently
+ * falsifies its selector instead of removing clauses, such that learned
+ * clauses stay valid and no rebuild is necessary. Released selectors are
+ * collected in batches and reused for new groups.
+ */
+public class CDCLEngine {
+
+	public enum RestartPolicy {
+		LUBY, GEOMETRIC, NONE
+	}
+
+	public enum Phase {
+		NEGATIVE, POSITIVE, RANDOM
+	}
+
+	private static final byte TRUE = 1;
+	private static final byte FALSE = -1;
+	private static final byte UNDEF = 0;
+
+	private static final int SATISFIABLE = 1;
+	private static final int UNSATISFIABLE = -1;
+	private static final int UNKNOWN = 0;
+
+	private static final int NO_LITERAL = -1;
+
+	private static final int MIN_RETIRED_SELECTORS = 256;
+	private static final int MONITOR_INTERVAL = 256;
+	private static final int BUDGET_CHECK_INTERVAL = 512;
+	private static final long BUDGET_CONFLICT_CHUNK = 64;
+	private static final long BUDGET_PROPAGATION_CHUNK = 1 << 16;
+
+	private static final double VARIABLE_RESCALE_LIMIT = 1e100;
+	private static final double CLAUSE_RESCALE_LIMIT = 1e20;
+
+	private final ArrayList<CDCLClause> clauses = new ArrayList<>();
+	private final ArrayList<CDCLClause> learnts = new ArrayList<>();
+
+	private int numberOfVariables;
+
+	private byte[] values = new byte[2];
+	private int[] levels = new int[1];
+	private CDCLClause[] reasons = new CDCLClause[1];
+	private boolean[] seen = new boolean[1];
+	private boolean[] savedPhases = new boolean[1];
+	private boolean[] retired = new boolean[1];
+	private double[] activities = new double[1];
+
+	private int[] trail = new int[1];
+	private int trailSize;
+	private int[] trailLimits = new int[1];
+	private int decisionLevel;
+	private int propagationHead;
+
+	private CDCLClause[][] watchClauses = new CDCLClause[2][];
+	private int[][] watchBlockers = new int[2][];
+	private int[] watchSizes = new int[2];
+
+	private int[] heap = new int[1];
+	private int[] heapIndices = new int[1];
+	private int heapSize;
+
+	private int[] levelStamps = new int[1];
+	private int stamp;
+
+	private int[] assumptionBuffer = new int[16];
+	private int assumptionCount;
+	private boolean reuseTrail;
+
+	private int[] selectors = new int[4];
+	private int selectorCount;
+	private int[] retiredSelectors = new int[4];
+	private int retiredSelectorCount;
+	private int[] freeVariables = new int[4];
+	private int freeVariableCount;
+
+	private int[] analyzeBuffer = new int[16];
+	private int[] analyzeStack = new int[16];
+	private int[] analyzeToClear = new int[16];
+	private int analyzeToClearSize;
+	private int backtrackLevel;
+	private int learntLbd;
+
+	private double variableIncrement = 1;
+	private double clauseIncrement = 1;
+
+	private boolean ok = true;
+	private long revision;
+	private int[] model;
+	private int[] core = new int[0];
+	private volatile boolean interrupted;
+	private InternalMonitor monitor;
+
+	private long conflicts;
+	private long decisions;
+	private long propagations;
+	private long restarts;
+	private long nextReduce;
+	private int reduceInterval;
+
+	private long seed = 0;
+	private Random random = new Random(seed);
+	private RestartPolicy restartPolicy = RestartPolicy.LUBY;
+	private int restartInterval = 100;
+	private double restartFactor = 1.5;
+	private Phase phase = Phase.NEGATIVE;
+	private double randomDecisionFrequency = 0;
+	private double variableDecay = 0.95;
+	private double clauseDecay = 0.999;
+	private int firstReduce = 2000;
+	private int reduceIncrement = 300;
+
+	private Consumer<int[]> learnedClauseConsumer;
+	private int maxExportedClauseSize;
+
+	private Budget budget;
+	private long budgetConflictLimit;
+	private long budgetPropagationLimit;
+	private long chargedConflicts;
+	private long chargedPropagations;
+	private int budgetTicks;
+
+	private DratProofWriter proofWriter;
+	private final ArrayList<int[]> provenClauses = new ArrayList<>();
+	private boolean emptyClauseProven;
+
+	public CDCLEngine() {
+		nextReduce = firstReduce;
+		reduceInterval = firstReduce;
+	}
+
+	public CDCLEngine(int numberOfVariables) {
+		this();
+		ensureVariables(numberOfVariables);
+	}
+
+	/**
+	 * Creates a copy of the given engine including its learned clauses, its
+	 * assignments on decision level 0, and its configuration. Must not be called
+	 * while the given engine is solving.
+	 *
+	 * @param other the engine to copy
+	 */
+	public CDCLEngine(CDCLEngine other) {
+		this(other, new IdentityHashMap<>());
+	}
+
+	/**
+	 * Creates a copy of the given engine.
+	 *
+	 * @param other         the engine to copy
+	 * @param clauseMapping is filled with the copy of each clause of the given
+	 *                      engine
+	 */
+	CDCLEngine(CDCLEngine other, Map<CDCLClause, CDCLClause> clauseMapping) {
+		if ((other.decisionLevel != 0) && !other.reuseTrail) {
+			throw new IllegalStateException("Engine is solving");
+		}
+		numberOfVariables = other.numberOfVariables;
+		values = other.values.clone();
+		levels = other.levels.clone();
+		seen = new boolean[other.seen.length];
+		savedPhases = other.savedPhases.clone();
+		retired = other.retired.clone();
+		activities = other.activities.clone();
+		trail = other.trail.clone();
+		trailSize = other.trailSize;
+		trailLimits = other.trailLimits.clone();
+		decisionLevel = other.decisionLevel;
+		propagationHead = other.propagationHead;
+		heap = other.heap.clone();
+		heapIndices = other.heapIndices.clone();
+		heapSize = other.heapSize;
+		levelStamps = new int[other.levelStamps.length];
+		selectors = other.selectors.clone();
+		selectorCount = other.selectorCount;
+		retiredSelectors = other.retiredSelectors.clone();
+		retiredSelectorCount = other.retiredSelectorCount;
+		freeVariables = other.freeVariables.clone();
+		freeVariableCount = other.freeVariableCount;
+		variableIncrement = other.variableIncrement;
+		clauseIncrement = other.clauseIncrement;
+		ok = other.ok;
+		revision = other.revision;
+		conflicts = other.conflicts;
+		decisions = other.decisions;
+		propagations = other.propagations;
+		restarts = other.restarts;
+		nextReduce = other.nextReduce;
+		reduceInterval = other.reduceInterval;
+		setSeed(other.seed);
+		restartPolicy = other.restartPolicy;
+		restartInterval = other.restartInterval;
+		restartFactor = other.restartFactor;
+		phase = other.phase;
+		randomDecisionFrequency = other.randomDecisionFrequency;
+		variableDecay = other.variableDecay;
+		clauseDecay = other.clauseDecay;
+		firstReduce = other.firstReduce;
+		reduceIncrement = other.reduceIncrement;
+		monitor = other.monitor;
+		budget = other.budget;
+
+		watchClauses = new CDCLClause[other.watchClauses.length][];
+		watchBlockers = new int[other.watchBlockers.length][];
+		watchSizes = new int[other.watchSizes.length];
+		copyClauses(other.clauses, clauses, clauseMapping);
+		copyClauses(other.learnts, learnts, clauseMapping);
+		reasons = new CDCLClause[other.reasons.length];
+		for (int i = 0; i < trailSize; i++) {
+			final int variable = trail[i] >> 1;
+			final CDCLClause reason = other.reasons[variable];
+			reasons[variable] = reason == null ? null : clauseMapping.get(reason);
+		}
+		cancelUntil(0);
+	}
+
+	private void copyClauses(List<CDCLClause> source, List<CDCLClause> target,
+		Map<CDCLClause, CDCLClause> clauseMapping) {
+		for (final CDCLClause clause : source) {
+			if (!clause.removed) {
+				final CDCLClause copy = new CDCLClause(clause.literals.clone(), clause.learnt);
+				copy.activity = clause.activity;
+				copy.lbd = clause.lbd;
+				target.add(copy);
+				clauseMapping.put(clause, copy);
+				final int[] literals = copy.literals;
+				if (literals.length > 1) {
+					addWatch(literals[0], copy, literals[1]);
+					addWatch(literals[1], copy, literals[0]);
+				}
+			}
+		}
+	}
+
+	static int toInternal(int literal) {
+		return literal > 0 ? literal << 1 : ((-literal) << 1) | 1;
+	}
+
+	static int toExternal(int literal) {
+		return (literal & 1) == 0 ? literal >> 1 : -(literal >> 1);
+	}
+
+	/**
+	 * Creates a fresh variable.
+	 *
+	 * @return the index of the new variable
+	 */
+	public int newVariable() {
+		ensureVariables(numberOfVariables + 1);
+		return numberOfVariables;
+	}
+
+	/**
+	 * Makes sure that all variables up to the given index exist.
+	 *
+	 * @param variableCount the highest variable index that should be valid
+	 */
+	public void ensureVariables(int variableCount) {
+		if (variableCount <= numberOfVariables) {
+			return;
+		}
+		final int oldCount = numberOfVariables;
+		if (variableCount >= levels.length) {
+			final int capacity = Math.max(variableCount + 1, levels.length << 1);
+			values = Arrays.copyOf(values, capacity << 1);
+			levels = Arrays.copyOf(levels, capacity);
+			reasons = Arrays.copyOf(reasons, capacity);
+			seen = Arrays.copyOf(seen, capacity);
+			savedPhases = Arrays.copyOf(savedPhases, capacity);
+			retired = Arrays.copyOf(retired, capacity);
+			activities = Arrays.copyOf(activities, capacity);
+			trail = Arrays.copyOf(trail, capacity);
+			heap = Arrays.copyOf(heap, capacity);
+			heapIndices = Arrays.copyOf(heapIndices, capacity);
+			watchClauses = Arrays.copyOf(watchClauses, capacity << 1);
+			watchBlockers = Arrays.copyOf(watchBlockers, capacity << 1);
+			watchSizes = Arrays.copyOf(watchSizes, capacity << 1);
+		}
+		ensureLevels(variableCount + 1);
+		numberOfVariables = variableCount;
+		for (int variable = oldCount + 1; variable <= variableCount; variable++) {
+			heapIndices[variable] = -1;
+			savedPhases[variable] = initialPhase();
+			heapInsert(variable);
+		}
+	}
+
+	private void ensureLevels(int levelCount) {
+		if (levelCount >= trailLimits.length) {
+			final int capacity = Math.max(levelCount + 1, trailLimits.length << 1);
+			trailLimits = Arrays.copyOf(trailLimits, capacity);
+			levelStamps = Arrays.copyOf(levelStamps, capacity);
+		}
+	}
+
+	public int getNumberOfVariables() {
+		return numberOfVariables;
+	}
+
+	/**
+	 * Adds a clause to the engine. Literals in DIMACS notation; duplicate literals
+	 * are ignored. The engine stays usable if the clause contradicts the current
+	 * clauses, but any subsequent call of {@link #solve(int...)} will return
+	 * {@link SatResult#FALSE} until the contradicting clauses are removed.
+	 *
+	 * @param literals the literals of the clause
+	 * @return the identifying clause object
+	 */
+	public CDCLClause addClause(int... literals) {
+		cancelUntil(0);
+		revision++;
+		final CDCLClause clause = new CDCLClause(normalize(literals), false);
+		clauses.add(clause);
+		if (proofWriter != null) {
+			proofWriter.add(clause.literals, clause.literals.length);
+		}
+		attachOriginal(clause);
+		return clause;
+	}
+
+	/**
+	 * Adds a clause as learned clause, for instance a clause that was learned by
+	 * another engine for a similar set of clauses. To keep the engine sound, the
+	 * clause is only added if it is implied by the current clauses via reverse
+	 * unit propagation (i.e., propagating the negation of all its literals results
+	 * in a conflict). Literals that are false on decision level 0 are dropped. As
+	 * any other learned clause, the clause may be deleted later on and does not
+	 * affect the {@link #getRevision() revision}.
+	 *
+	 * @param literals the literals of the clause in DIMACS notation
+	 * @return {@code true} if the clause was added, {@code false} if it is not
+	 *         implied by unit propagation or already satisfied on decision level
+	 *         0
+	 */
+	public boolean addLearnedClause(int... literals) {
+		if (!ok) {
+			return false;
+		}
+		final int[] internalLiterals = normalize(literals);
+		cancelUntil(0);
+		if (propagate() != null) {
+			ok = false;
+			return false;
+		}
+		int size = 0;
+		for (final int literal : internalLiterals) {
+			final byte value = values[literal];
+			if (value == TRUE) {
+				return false;
+			} else if (value == UNDEF) {
+				internalLiterals[size++] = literal;
+			}
+		}
+		if (size == 0) {
+			return false;
+		}
+		ensureLevels(size + 1);
+		boolean implied = false;
+		try {
+			for (int i = 0; i < size; i++) {
+				final int negatedLiteral = internalLiterals[i] ^ 1;
+				if (values[negatedLiteral] == FALSE) {
+					// the literal is implied by the negation of the previous literals
+					implied = true;
+					break;
+				} else if (values[negatedLiteral] == UNDEF) {
+					newDecisionLevel();
+					enqueue(negatedLiteral, null);
+					if (propagate() != null) {
+						implied = true;
+						break;
+					}
+				}
+			}
+		} finally {
+			cancelUntil(0);
+		}
+		if (!implied) {
+			return false;
+		}
+		final int[] learntLiterals = Arrays.copyOf(internalLiterals, size);
+		if (proofWriter != null) {
+			proofWriter.add(learntLiterals, size);
+		}
+		if (size == 1) {
+			enqueue(learntLiterals[0], null);
+			if (propagate() != null) {
+				ok = false;
+			}
+		} else {
+			final CDCLClause learnt = new CDCLClause(learntLiterals, true);
+			learnt.lbd = size;
+			learnts.add(learnt);
+			attachLearnt(learnt);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes a previously added clause. As learned clauses may depend on the
+	 * removed clause, all learned clauses are discarded.
+	 *
+	 * @param clause the clause to remove
+	 * @return {@code true} if the clause was part of the engine
+	 */
+	public boolean removeClause(CDCLClause clause) {
+		for (int i = clauses.size() - 1; i >= 0; i--) {
+			if (clauses.get(i) == clause) {
+				clauses.remove(i);
+				if (proofWriter != null) {
+					proofWriter.delete(clause.literals, clause.literals.length);
+				}
+				clause.removed = true;
+				revision++;
+				rebuild();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes multiple previously added clauses at once. As learned clauses may
+	 * depend on the removed clauses, all learned clauses are discarded.
+	 *
+	 * @param clausesToRemove the clauses to remove
+	 */
+	public void removeClauses(Collection<CDCLClause> clausesToRemove) {
+		if (!clausesToRemove.isEmpty()) {
+			for (final CDCLClause clause : clausesToRemove) {
+				if ((proofWriter != null) && !clause.removed) {
+					proofWriter.delete(clause.literals, clause.literals.length);
+				}
+				clause.removed = true;
+			}
+			clauses.removeIf(clause -> clause.removed);
+			revision++;
+			rebuild();
+		}
+	}
+
+	/**
+	 * Creates a new active selector variable. Clauses containing the negated
+	 * selector are enforced until the selector is
+	 * {@link #releaseSelector(int, CDCLClause[]) released}.
+	 *
+	 * @return the index of the selector variable
+	 */
+	public int newSelector() {
+		final int selector = freeVariableCount > 0 ? freeVariables[--freeVariableCount] : newVariable();
+		if (selectorCount == selectors.length) {
+			selectors = Arrays.copyOf(selectors, selectorCount << 1);
+		}
+		selectors[selectorCount++] = selector;
+		revision++;
+		return selector;
+	}
+
+	/**
+	 * Deactivates a selector and all clauses guarded by it. The selector is
+	 * fixed to false, which satisfies the guarded clauses and all learned clauses
+	 * derived from them. Thus, in contrast to {@link #removeClause(CDCLClause)},
+	 * learned clauses are kept.
+	 *
+	 * @param selector       an active selector variable
+	 * @param guardedClauses all clauses containing the negated selector
+	 */
+	public void releaseSelector(int selector, CDCLClause[] guardedClauses) {
+		int index = selectorCount - 1;
+		while ((index >= 0) && (selectors[index] != selector)) {
+			index--;
+		}
+		if (index < 0) {
+			throw new IllegalArgumentException("Not an active selector: " + selector);
+		}
+		System.arraycopy(selectors, index + 1, selectors, index, selectorCount - index - 1);
+		selectorCount--;
+		revision++;
+
+		cancelUntil(0);
+		for (final CDCLClause clause : guardedClauses) {
+			clause.removed = true;
+		}
+		final int literal = toInternal(-selector);
+		if (values[literal] == UNDEF) {
+			if (proofWriter != null) {
+				proofWriter.begin(DratProofWriter.ADDITION);
+				proofWriter.literal(literal);
+				proofWriter.end();
+			}
+			enqueue(literal, null);
+			if (propagate() != null) {
+				ok = false;
+			}
+		}
+		retired[selector] = true;
+		if (retiredSelectorCount == retiredSelectors.length) {
+			retiredSelectors = Arrays.copyOf(retiredSelectors, retiredSelectorCount << 1);
+		}
+		retiredSelectors[retiredSelectorCount++] = selector;
+		if (retiredSelectorCount >= Math.max(MIN_RETIRED_SELECTORS, numberOfVariables >> 2)) {
+			collectSelectors();
+		}
+	}
+
+	/**
+	 * Returns the currently active selector variables in the order of their
+	 * creation.
+	 *
+	 * @return an array of variable indices
+	 */
+	public int[] getSelectors() {
+		return Arrays.copyOf(selectors, selectorCount);
+	}
+
+	/**
+	 * Returns whether a literal is implied by the clauses of the engine (including
+	 * active clause groups, but without any assumptions).
+	 *
+	 * @param literal a literal in DIMACS notation
+	 * @return {@code true} if the literal is fixed to true on decision level 0
+	 */
+	public boolean isFixed(int literal) {
+		final int variable = Math.abs(literal);
+		return (variable <= numberOfVariables) && (values[toInternal(literal)] == TRUE) && (levels[variable] == 0);
+	}
+
+	public List<CDCLClause> getClauses() {
+		final ArrayList<CDCLClause> currentClauses = new ArrayList<>(clauses.size());
+		for (final CDCLClause clause : clauses) {
+			if (!clause.removed) {
+				currentClauses.add(clause);
+			}
+		}
+		return currentClauses;
+	}
+
+	public List<CDCLClause> getLearnedClauses() {
+		return Collections.unmodifiableList(learnts);
+	}
+
+	/**
+	 * Returns a counter that is increased whenever clauses or selectors are added
+	 * or removed. Learned clauses do not affect the revision.
+	 *
+	 * @return the current revision
+	 */
+	public long getRevision() {
+		return revision;
+	}
+
+	/**
+	 * Returns whether the clauses of this engine are not yet known to be
+	 * contradicting on their own (i.e., without any assumptions).
+	 *
+	 * @return {@code false} if the clauses are unsatisfiable
+	 */
+	public boolean isOk() {
+		return ok;
+	}
+
+	/**
+	 * Checks satisfiability of the current clauses under the given assumptions.
+	 *
+	 * @param assumptions literals in DIMACS notation that must hold in a solution
+	 * @return {@link SatResult#TRUE} if there is a solution (available via
+	 *         {@link #getModel()}), {@link SatResult#FALSE} if there is none
+	 *         (conflicting assumptions available via {@link #getCore()}), and
+	 *         {@link SatResult#TIMEOUT} if the search was
+	 *         {@link #interrupt() interrupted}.
+	 */
+	public SatResult solve(int... assumptions) {
+		return solve(assumptions, assumptions.length);
+	}
+
+	/**
+	 * Checks satisfiability of the current clauses under the first {@code count}
+	 * literals of the given array.
+	 *
+	 * @param assumptions literals in DIMACS notation that must hold in a solution
+	 * @param count       the number of valid entries in {@code assumptions}
+	 * @return the result of the call
+	 *
+	 * @see #solve(int...)
+	 */
+	public SatResult solve(int[] assumptions, int count) {
+		interrupted = false;
+		model = null;
+		core = new int[0];
+		if (!ok) {
+			proveEmptyClause();
+			return SatResult.FALSE;
+		}
+		final int totalCount = selectorCount + count;
+		if (totalCount > assumptionBuffer.length) {
+			assumptionBuffer = Arrays.copyOf(assumptionBuffer, Math.max(totalCount, assumptionBuffer.length << 1));
+		}
+		// the kept decision levels belong to the assumptions of the last call
+		int keptLevels = Math.min(decisionLevel, totalCount);
+		for (int i = 0; i < selectorCount; i++) {
+			final int literal = selectors[i] << 1;
+			if ((i < keptLevels) && (assumptionBuffer[i] != literal)) {
+				keptLevels = i;
+			}
+			assumptionBuffer[i] = literal;
+		}
+		for (int i = 0; i < count; i++) {
+			final int literal = assumptions[i];
+			ensureVariables(Math.abs(literal));
+			final int internalLiteral = toInternal(literal);
+			if (((selectorCount + i) < keptLevels) && (assumptionBuffer[selectorCount + i] != internalLiteral)) {
+				keptLevels = selectorCount + i;
+			}
+			assumptionBuffer[selectorCount + i] = internalLiteral;
+		}
+		cancelUntil(keptLevels);
+		assumptionCount = totalCount;
+		ensureLevels(numberOfVariables + totalCount + 1);
+		if (budget != null) {
+			if (budget.isExhausted()) {
+				return SatResult.TIMEOUT;
+			}
+			chargedConflicts = conflicts;
+			chargedPropagations = propagations;
+			budgetTicks = 0;
+			updateBudgetLimits();
+		}
+
+		int status = UNKNOWN;
+		try {
+			while ((status == UNKNOWN) && !isCanceled()) {
+				status = search(nextRestartLimit());
+				if (interrupted) {
+					break;
+				}
+				if (status == UNKNOWN) {
+					restarts++;
+				}
+			}
+		} finally {
+			// all decision levels up to the last assumption are completely propagated
+			cancelUntil(reuseTrail && (status != UNKNOWN) ? Math.min(decisionLevel, assumptionCount) : 0);
+			if (budget != null) {
+				chargeBudget();
+			}
+		}
+		switch (status) {
+		case SATISFIABLE:
+			return SatResult.TRUE;
+		case UNSATISFIABLE:
+			if (proofWriter != null) {
+				proveCore();
+			}
+			return SatResult.FALSE;
+		default:
+			return SatResult.TIMEOUT;
+		}
+	}
+
+	/**
+	 * Returns all literals that are implied by unit propagation of the clauses
+	 * and the assumptions of the last call of {@link #solve(int...)}, including
+	 * the assumptions and active selectors. This is a partial result if the
+	 * last call returned {@link SatResult#TIMEOUT}, which becomes more complete
+	 * the more clauses have been learned. Must not be called while solving.
+	 *
+	 * @return an array of literals in DIMACS notation or {@code null} if unit
+	 *         propagation results in a conflict
+	 */
+	public int[] getImpliedLiterals() {
+		return impliedLiterals(assumptionBuffer, assumptionCount);
+	}
+
+	/**
+	 * Returns all literals that are implied by unit propagation of the clauses,
+	 * the active selectors, and the given assumptions.
+	 *
+	 * @param assumptions literals in DIMACS notation
+	 * @param count       the number of valid entries in {@code assumptions}
+	 * @return an array of literals in DIMACS notation or {@code null} if unit
+	 *         propagation results in a conflict
+	 *
+	 * @see #getImpliedLiterals()
+	 */
+	public int[] getImpliedLiterals(int[] assumptions, int count) {
+		final int[] internalAssumptions = new int[selectorCount + count];
+		for (int i = 0; i < selectorCount; i++) {
+			internalAssumptions[i] = selectors[i] << 1;
+		}
+		for (int i = 0; i < count; i++) {
+			ensureVariables(Math.abs(assumptions[i]));
+			internalAssumptions[selectorCount + i] = toInternal(assumptions[i]);
+		}
+		return impliedLiterals(internalAssumptions, internalAssumptions.length);
+	}
+
+	private int[] impliedLiterals(int[] internalAssumptions, int count) {
+		if (!ok) {
+			return null;
+		}
+		cancelUntil(0);
+		if (propagate() != null) {
+			ok = false;
+			return null;
+		}
+		ensureLevels(count + 1);
+		int[] impliedLiterals = null;
+		try {
+			for (int i = 0; i < count; i++) {
+				final int assumption = internalAssumptions[i];
+				if (values[assumption] == FALSE) {
+					return null;
+				} else if (values[assumption] == UNDEF) {
+					newDecisionLevel();
+					enqueue(assumption, null);
+					if (propagate() != null) {
+						return null;
+					}
+				}
+			}
+			impliedLiterals = new int[trailSize];
+			for (int i = 0; i < trailSize; i++) {
+				impliedLiterals[i] = toExternal(trail[i]);
+			}
+		} finally {
+			cancelUntil(0);
+		}
+		return impliedLiterals;
+	}
+
+	/**
+	 * Returns the solution found by the last call of {@link #solve(int...)}.
+	 *
+	 * @return an array containing one literal per variable (ordered by index) or
+	 *         {@code null} if the last call did not find a solution
+	 */
+	public int[] getModel() {
+		return model;
+	}
+
+	/**
+	 * Returns a subset of the assumptions of the last call of
+	 * {@link #solve(int...)} that is in conflict with the clauses of the engine.
+	 * Contains active selectors if their clause groups are involved in the
+	 * conflict. Is empty if the clauses are unsatisfiable without any assumptions.
+	 *
+	 * @return an array of assumption literals in DIMACS notation
+	 */
+	public int[] getCore() {
+		return core;
+	}
+
+	/**
+	 * Aborts a running call of {@link #solve(int...)}. Can be called from any
+	 * thread.
+	 */
+	public void interrupt() {
+		interrupted = true;
+	}
+
+	public InternalMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Sets a monitor that is checked periodically while solving. If the monitor
+	 * is canceled, the current call of {@link #solve(int...)} returns
+	 * {@link SatResult#TIMEOUT}.
+	 *
+	 * @param monitor the monitor or {@code null}
+	 */
+	public void setMonitor(InternalMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	private boolean isCanceled() {
+		if (monitor != null) {
+			try {
+				monitor.checkCancel();
+			} catch (final InternalMonitor.MethodCancelException e) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public Budget getBudget() {
+		return budget;
+	}
+
+	public boolean isReuseTrail() {
+		return reuseTrail;
+	}
+
+	/**
+	 * Sets whether the assignments of the assumptions are kept after each call
+	 * of {@link #solve(int...)}. The next call then only has to propagate the
+	 * assumptions that differ from the previous call, which speeds up
+	 * consecutive calls with a common prefix of assumptions. Any other operation
+	 * that modifies the engine discards the kept assignments. Disabling the
+	 * option discards them as well.
+	 *
+	 * @param reuseTrail whether to keep the assignments of the assumptions
+	 */
+	public void setReuseTrail(boolean reuseTrail) {
+		this.reuseTrail = reuseTrail;
+		if (!reuseTrail) {
+			cancelUntil(0);
+		}
+	}
+
+	/**
+	 * Sets a budget that limits all subsequent calls of {@link #solve(int...)}.
+	 * If the budget is exhausted, a call returns {@link SatResult#TIMEOUT}. The
+	 * budget is copied with the engine.
+	 *
+	 * @param budget the budget or {@code null}
+	 */
+	public void setBudget(Budget budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Checks the limits of the budget. Counters are compared to local limits on
+	 * every call. The consumption is only charged to the (possibly shared)
+	 * budget and the clock is only read if a local limit is reached or every
+	 * {@link #BUDGET_CHECK_INTERVAL} calls. Local limits are at most one chunk
+	 * ahead, such that engines sharing a budget exceed it only slightly.
+	 *
+	 * @return {@code true} if the budget is exhausted
+	 */
+	private boolean isOverBudget() {
+		if ((conflicts < budgetConflictLimit) && (propagations < budgetPropagationLimit)
+			&& (++budgetTicks < BUDGET_CHECK_INTERVAL)) {
+			return false;
+		}
+		budgetTicks = 0;
+		chargeBudget();
+		return budget.isExhausted();
+	}
+
+	private void chargeBudget() {
+		budget.consume(conflicts - chargedConflicts, propagations - chargedPropagations);
+		chargedConflicts = conflicts;
+		chargedPropagations = propagations;
+		updateBudgetLimits();
+	}
+
+	private void updateBudgetLimits() {
+		budgetConflictLimit = conflicts + Math.min(budget.getRemainingConflicts(), BUDGET_CONFLICT_CHUNK);
+		budgetPropagationLimit = propagations + Math.min(budget.getRemainingPropagations(),
+			BUDGET_PROPAGATION_CHUNK);
+	}
+
+	public long getConflicts() {
+		return conflicts;
+	}
+
+	public long getDecisions() {
+		return decisions;
+	}
+
+	public long getPropagations() {
+		return propagations;
+	}
+
+	public long getRestarts() {
+		return restarts;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+		random = new Random(seed);
+	}
+
+	public RestartPolicy getRestartPolicy() {
+		return restartPolicy;
+	}
+
+	public void setRestartPolicy(RestartPolicy restartPolicy) {
+		this.restartPolicy = Objects.requireNonNull(restartPolicy);
+	}
+
+	public int getRestartInterval() {
+		return restartInterval;
+	}
+
+	public void setRestartInterval(int restartInterval) {
+		this.restartInterval = restartInterval;
+	}
+
+	public double getRestartFactor() {
+		return restartFactor;
+	}
+
+	public void setRestartFactor(double restartFactor) {
+		this.restartFactor = restartFactor;
+	}
+
+	public Phase getPhase() {
+		return phase;
+	}
+
+	/**
+	 * Sets the default polarity for variables that have not been assigned yet.
+	 * Already assigned variables keep their saved phase.
+	 *
+	 * @param phase the initial phase
+	 */
+	public void setPhase(Phase phase) {
+		this.phase = Objects.requireNonNull(phase);
+		for (int variable = 1; variable <= numberOfVariables; variable++) {
+			savedPhases[variable] = initialPhase();
+		}
+	}
+
+	/**
+	 * Overrides the saved phase of the variable of each given literal, such that
+	 * the next decision on the variable assigns the literal (e.g., to continue
+	 * from an almost satisfying assignment found by another search). Must not be
+	 * called while solving.
+	 *
+	 * @param literals literals in DIMACS notation
+	 */
+	public void setSavedPhases(int... literals) {
+		for (final int literal : literals) {
+			if (literal != 0) {
+				final int variable = Math.abs(literal);
+				ensureVariables(variable);
+				savedPhases[variable] = literal > 0;
+			}
+		}
+	}
+
+	public double getRandomDecisionFrequency() {
+		return randomDecisionFrequency;
+	}
+
+	public void setRandomDecisionFrequency(double randomDecisionFrequency) {
+		this.randomDecisionFrequency = randomDecisionFrequency;
+	}
+
+	public double getVariableDecay() {
+		return variableDecay;
+	}
+
+	public void setVariableDecay(double variableDecay) {
+		this.variableDecay = variableDecay;
+	}
+
+	/**
+	 * Sets a consumer that receives every learned clause up to the given size
+	 * (e.g., to share short clauses with other engines solving the same
+	 * clauses). The consumer is called from the solving thread and must not
+	 * modify this engine. It is not copied with the engine.
+	 *
+	 * @param consumer the consumer of the literals of each learned clause in
+	 *                 DIMACS notation or {@code null}
+	 * @param maxSize  the maximum size of a passed clause
+	 */
+	public void setLearnedClauseConsumer(Consumer<int[]> consumer, int maxSize) {
+		learnedClauseConsumer = consumer;
+		maxExportedClauseSize = maxSize;
+	}
+
+	public DratProofWriter getProofWriter() {
+		return proofWriter;
+	}
+
+	/**
+	 * Sets a writer that records a DRAT proof for all subsequent changes and
+	 * answers of this engine. Setting a writer discards all learned clauses and
+	 * writes all current clauses as input clauses to the proof. Afterwards, all
+	 * added and removed clauses (including learned clauses) are written to the
+	 * proof. Each call of {@link #solve(int...)} that returns
+	 * {@link SatResult#FALSE} ends with the addition of the empty clause or, if
+	 * the answer depends on assumptions, of the clause consisting of the
+	 * negated {@link #getCore() core}. Thus, the proof can be replayed by a
+	 * {@link DratProofChecker} that is given all clauses that were added to
+	 * this engine. The writer is not copied with the engine and may throw an
+	 * {@link UncheckedIOException} while solving.
+	 *
+	 * @param proofWriter the writer or {@code null} to stop writing a proof
+	 */
+	public void setProofWriter(DratProofWriter proofWriter) {
+		this.proofWriter = null;
+		provenClauses.clear();
+		emptyClauseProven = false;
+		if (proofWriter != null) {
+			rebuild();
+			for (final CDCLClause clause : clauses) {
+				proofWriter.add(clause.literals, clause.literals.length);
+			}
+			this.proofWriter = proofWriter;
+		}
+	}
+
+	private void proveEmptyClause() {
+		if ((proofWriter != null) && !emptyClauseProven) {
+			proofWriter.add(analyzeBuffer, 0);
+			emptyClauseProven = true;
+		}
+	}
+
+	private void proveCore() {
+		if (core.length == 0) {
+			proveEmptyClause();
+		} else {
+			final int[] clause = new int[core.length];
+			for (int i = 0; i < core.length; i++) {
+				clause[i] = toInternal(-core[i]);
+			}
+			proofWriter.add(clause, clause.length);
+			provenClauses.add(clause);
+		}
+	}
+
+	private boolean initialPhase() {
+		switch (phase) {
+		case POSITIVE:
+			return true;
+		case RANDOM:
+			return random.nextBoolean();
+		case NEGATIVE:
+		default:
+			return false;
+		}
+	}
+
+	private int[] normalize(int[] literals) {
+		final int[] internalLiterals = new int[literals.length];
+		int size = 0;
+		outer: for (final int literal : literals) {
+			if (literal == 0) {
+				throw new IllegalArgumentException("0 is not a valid literal");
+			}
+			ensureVariables(Math.abs(literal));
+			final int internalLiteral = toInternal(literal);
+			for (int i = 0; i < size; i++) {
+				if (internalLiterals[i] == internalLiteral) {
+					continue outer;
+				}
+			}
+			internalLiterals[size++] = internalLiteral;
+		}
+		return size == literals.length ? internalLiterals : Arrays.copyOf(internalLiterals, size);
+	}
+
+	private void attachOriginal(CDCLClause clause) {
+		if (!ok) {
+			return;
+		}
+		final int[] literals = clause.literals;
+		if (literals.length == 0) {
+			ok = false;
+			return;
+		}
+		int front = 0;
+		for (int i = 0; (i < literals.length) && (front < 2); i++) {
+			if (values[literals[i]] != FALSE) {
+				final int literal = literals[i];
+				literals[i] = literals[front];
+				literals[front++] = literal;
+			}
+		}
+		if (front == 0) {
+			ok = false;
+			return;
+		}
+		if (literals.length > 1) {
+			addWatch(literals[0], clause, literals[1]);
+			addWatch(literals[1], clause, literals[0]);
+		}
+		if ((front == 1) && (values[literals[0]] == UNDEF)) {
+			enqueue(literals[0], clause);
+			if (propagate() != null) {
+				ok = false;
+			}
+		}
+	}
+
+	private void attachLearnt(CDCLClause clause) {
+		final int[] literals = clause.literals;
+		addWatch(literals[0], clause, literals[1]);
+		addWatch(literals[1], clause, literals[0]);
+	}
+
+	private void addWatch(int literal, CDCLClause clause, int blocker) {
+		CDCLClause[] watchClauseList = watchClauses[literal];
+		final int size = watchSizes[literal];
+		if (watchClauseList == null) {
+			watchClauseList = new CDCLClause[4];
+			watchClauses[literal] = watchClauseList;
+			watchBlockers[literal] = new int[4];
+		} else if (size == watchClauseList.length) {
+			watchClauseList = Arrays.copyOf(watchClauseList, size << 1);
+			watchClauses[literal] = watchClauseList;
+			watchBlockers[literal] = Arrays.copyOf(watchBlockers[literal], size << 1);
+		}
+		watchClauseList[size] = clause;
+		watchBlockers[literal][size] = blocker;
+		watchSizes[literal] = size + 1;
+	}
+
+	private void cleanWatches() {
+		for (int literal = 2; literal < ((numberOfVariables + 1) << 1); literal++) {
+			final CDCLClause[] watchClauseList = watchClauses[literal];
+			if (watchClauseList != null) {
+				final int[] blockerList = watchBlockers[literal];
+				final int size = watchSizes[literal];
+				int j = 0;
+				for (int i = 0; i < size; i++) {
+					if (!watchClauseList[i].removed) {
+						watchClauseList[j] = watchClauseList[i];
+						blockerList[j++] = blockerList[i];
+					}
+				}
+				Arrays.fill(watchClauseList, j, size, null);
+				watchSizes[literal] = j;
+			}
+		}
+	}
+
+	/**
+	 * Resets all derived information (assignments on decision level 0, learned
+	 * clauses, and watches) and attaches all current clauses again.
+	 */
+	private void rebuild() {
+		cancelUntil(0);
+		if (proofWriter != null) {
+			deleteDerivedClauses();
+		}
+		for (int i = 0; i < trailSize; i++) {
+			unassign(trail[i]);
+		}
+		trailSize = 0;
+		propagationHead = 0;
+		clauses.removeIf(clause -> clause.removed);
+		freeRetiredSelectors();
+		for (final CDCLClause learnt : learnts) {
+			learnt.removed = true;
+		}
+		learnts.clear();
+		for (int literal = 0; literal < watchSizes.length; literal++) {
+			if (watchClauses[literal] != null) {
+				Arrays.fill(watchClauses[literal], 0, watchSizes[literal], null);
+			}
+			watchSizes[literal] = 0;
+		}
+		ok = true;
+		for (final CDCLClause clause : clauses) {
+			attachOriginal(clause);
+		}
+	}
+
+	/**
+	 * Writes the deletion of all clauses to the proof that are discarded by
+	 * {@link #rebuild()}.
+	 */
+	private void deleteDerivedClauses() {
+		for (int i = 0; i < trailSize; i++) {
+			deleteUnit(trail[i]);
+		}
+		for (final CDCLClause learnt : learnts) {
+			proofWriter.delete(learnt.literals, learnt.literals.length);
+		}
+		for (final CDCLClause clause : clauses) {
+			if (clause.removed) {
+				proofWriter.delete(clause.literals, clause.literals.length);
+			}
+		}
+		for (final int[] clause : provenClauses) {
+			proofWriter.delete(clause, clause.length);
+		}
+		provenClauses.clear();
+		if (emptyClauseProven) {
+			proofWriter.delete(analyzeBuffer, 0);
+			emptyClauseProven = false;
+		}
+	}
+
+	private void deleteUnit(int literal) {
+		if (reasons[literal >> 1] == null) {
+			proofWriter.begin(DratProofWriter.DELETION);
+			proofWriter.literal(literal);
+			proofWriter.end();
+		}
+	}
+
+	/**
+	 * Removes all clauses guarded by released selectors together with all learned
+	 * clauses containing a released selector and makes the selector variables
+	 * available again. As selectors only occur negated in clauses, no other
+	 * assignment on decision level 0 depends on a released selector.
+	 */
+	private void collectSelectors() {
+		cancelUntil(0);
+		for (final CDCLClause learnt : learnts) {
+			if (containsRetiredSelector(learnt.literals)) {
+				learnt.removed = true;
+				if (proofWriter != null) {
+					proofWriter.delete(learnt.literals, learnt.literals.length);
+				}
+			}
+		}
+		learnts.removeIf(learnt -> learnt.removed);
+		if (proofWriter != null) {
+			for (final CDCLClause clause : clauses) {
+				if (clause.removed) {
+					proofWriter.delete(clause.literals, clause.literals.length);
+				}
+			}
+			provenClauses.removeIf(clause -> {
+				if (containsRetiredSelector(clause)) {
+					proofWriter.delete(clause, clause.length);
+					return true;
+				}
+				return false;
+			});
+		}
+		clauses.removeIf(clause -> clause.removed);
+		int j = 0;
+		for (int i = 0; i < trailSize; i++) {
+			final int literal = trail[i];
+			if (retired[literal >> 1]) {
+				if (proofWriter != null) {
+					deleteUnit(literal);
+				}
+				unassign(literal);
+			} else {
+				trail[j++] = literal;
+			}
+		}
+		trailSize = j;
+		propagationHead = j;
+		cleanWatches();
+		freeRetiredSelectors();
+	}
+
+	private boolean containsRetiredSelector(int[] literals) {
+		for (final int literal : literals) {
+			if (retired[literal >> 1]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void freeRetiredSelectors() {
+		if (freeVariableCount + retiredSelectorCount > freeVariables.length) {
+			freeVariables = Arrays.copyOf(freeVariables, freeVariableCount + retiredSelectorCount);
+		}
+		for (int i = 0; i < retiredSelectorCount; i++) {
+			final int selector = retiredSelectors[i];
+			retired[selector] = false;
+			freeVariables[freeVariableCount++] = selector;
+		}
+		retiredSelectorCount = 0;
+	}
+
+	private void enqueue(int literal, CDCLClause reason) {
+		values[literal] = TRUE;
+		values[literal ^ 1] = FALSE;
+		final int variable = literal >> 1;
+		levels[variable] = decisionLevel;
+		reasons[variable] = reason;
+		trail[trailSize++] = literal;
+	}
+
+	private void unassign(int literal) {
+		values[literal] = UNDEF;
+		values[literal ^ 1] = UNDEF;
+		final int variable = literal >> 1;
+		reasons[variable] = null;
+		savedPhases[variable] = (literal & 1) == 0;
+		if (heapIndices[variable] < 0) {
+			heapInsert(variable);
+		}
+	}
+
+	private void newDecisionLevel() {
+		trailLimits[decisionLevel++] = trailSize;
+	}
+
+	private void cancelUntil(int level) {
+		if (decisionLevel > level) {
+			final int limit = trailLimits[level];
+			for (int i = trailSize - 1; i >= limit; i--) {
+				unassign(trail[i]);
+			}
+			trailSize = limit;
+			propagationHead = limit;
+			decisionLevel = level;
+		}
+	}
+
+	private CDCLClause propagate() {
+		CDCLClause conflict = null;
+		while (propagationHead < trailSize) {
+			final int falseLiteral = trail[propagationHead++] ^ 1;
+			final CDCLClause[] watchClauseList = watchClauses[falseLiteral];
+			final int size = watchSizes[falseLiteral];
+			propagations++;
+			if (size == 0) {
+				continue;
+			}
+			final int[] blockerList = watchBlockers[falseLiteral];
+			int i = 0;
+			int j = 0;
+			while (i < size) {
+				final CDCLClause clause = watchClauseList[i];
+				final int blocker = blockerList[i++];
+				if (values[blocker] == TRUE) {
+					watchClauseList[j] = clause;
+					blockerList[j++] = blocker;
+					continue;
+				}
+				if (clause.removed) {
+					continue;
+				}
+				final int[] literals = clause.literals;
+				if (literals[0] == falseLiteral) {
+					literals[0] = literals[1];
+					literals[1] = falseLiteral;
+				}
+				final int first = literals[0];
+				if ((first != blocker) && (values[first] == TRUE)) {
+					watchClauseList[j] = clause;
+					blockerList[j++] = first;
+					continue;
+				}
+				boolean foundWatch = false;
+				for (int k = 2; k < literals.length; k++) {
+					final int literal = literals[k];
+					if (values[literal] != FALSE) {
+						literals[1] = literal;
+						literals[k] = falseLiteral;
+						addWatch(literal, clause, first);
+						foundWatch = true;
+						break;
+					}
+				}
+				if (foundWatch) {
+					continue;
+				}
+				watchClauseList[j] = clause;
+				blockerList[j++] = first;
+				if (values[first] == FALSE) {
+					conflict = clause;
+					propagationHead = trailSize;
+					while (i < size) {
+						watchClauseList[j] = watchClauseList[i];
+						blockerList[j++] = blockerList[i++];
+					}
+				} else {
+					enqueue(first, clause);
+				}
+			}
+			Arrays.fill(watchClauseList, j, size, null);
+			watchSizes[falseLiteral] = j;
+		}
+		return conflict;
+	}
+
+	private int search(long conflictLimit) {
+		long conflictCount = 0;
+		while (true) {
+			final CDCLClause conflict = propagate();
+			if (conflict != null) {
+				conflicts++;
+				conflictCount++;
+				if (decisionLevel == 0) {
+					ok = false;
+					proveEmptyClause();
+					return UNSATISFIABLE;
+				}
+				final int learntSize = analyze(conflict);
+				if (proofWriter != null) {
+					proofWriter.add(analyzeBuffer, learntSize);
+				}
+				if ((learnedClauseConsumer != null) && (learntSize <= maxExportedClauseSize)) {
+					exportLearnt(learntSize);
+				}
+				cancelUntil(backtrackLevel);
+				if (learntSize == 1) {
+					enqueue(analyzeBuffer[0], null);
+				} else {
+					final CDCLClause learnt = new CDCLClause(Arrays.copyOf(analyzeBuffer, learntSize), true);
+					learnt.lbd = learntLbd;
+					learnts.add(learnt);
+					attachLearnt(learnt);
+					bumpClause(learnt);
+					enqueue(learnt.literals[0], learnt);
+				}
+				decayActivities();
+				if (interrupted) {
+					return UNKNOWN;
+				}
+				if ((((conflicts % MONITOR_INTERVAL) == 0) && isCanceled()) || ((budget != null) && isOverBudget())) {
+					interrupted = true;
+					return UNKNOWN;
+				}
+			} else {
+				if ((budget != null) && isOverBudget()) {
+					interrupted = true;
+				}
+				if (((conflictLimit >= 0) && (conflictCount >= conflictLimit)) || interrupted) {
+					cancelUntil(0);
+					return UNKNOWN;
+				}
+				if (conflicts >= nextReduce) {
+					reduceInterval += reduceIncrement;
+					nextReduce = conflicts + reduceInterval;
+					reduceLearnts();
+				}
+
+				int next = NO_LITERAL;
+				while (decisionLevel < assumptionCount) {
+					final int assumption = assumptionBuffer[decisionLevel];
+					final byte value = values[assumption];
+					if (value == TRUE) {
+						newDecisionLevel();
+					} else if (value == FALSE) {
+						analyzeFinal(assumption);
+						return UNSATISFIABLE;
+					} else {
+						next = assumption;
+						break;
+					}
+				}
+				if (next == NO_LITERAL) {
+					decisions++;
+					next = pickBranchLiteral();
+					if (next == NO_LITERAL) {
+						saveModel();
+						return SATISFIABLE;
+					}
+				}
+				newDecisionLevel();
+				enqueue(next, null);
+			}
+		}
+	}
+
+	private void exportLearnt(int size) {
+		final int[] literals = new int[size];
+		for (int i = 0; i < size; i++) {
+			literals[i] = toExternal(analyzeBuffer[i]);
+		}
+		learnedClauseConsumer.accept(literals);
+	}
+
+	private void saveModel() {
+		model = new int[numberOfVariables];
+		for (int variable = 1; variable <= numberOfVariables; variable++) {
+			model[variable - 1] = values[variable << 1] == FALSE ? -variable : variable;
+		}
+	}
+
+	private long nextRestartLimit() {
+		switch (restartPolicy) {
+		case LUBY:
+			return (long) (luby(2, restarts) * restartInterval);
+		case GEOMETRIC:
+			return (long) (Math.pow(restartFactor, restarts) * restartInterval);
+		case NONE:
+		default:
+			return -1;
+		}
+	}
+
+	private static double luby(double y, long x) {
+		long size = 1;
+		int sequence = 0;
+		while (size < (x + 1)) {
+			sequence++;
+			size = (2 * size) + 1;
+		}
+		while ((size - 1) != x) {
+			size = (size - 1) >> 1;
+			sequence--;
+			x = x % size;
+		}
+		return Math.pow(y, sequence);
+	}
+
+	private int pickBranchLiteral() {
+		int next = 0;
+		if ((randomDecisionFrequency > 0) && (heapSize > 0) && (random.nextDouble() < randomDecisionFrequency)) {
+			next = heap[random.nextInt(heapSize)];
+		}
+		while ((next == 0) || (values[next << 1] != UNDEF)) {
+			if (heapSize == 0) {
+				return NO_LITERAL;
+			}
+			next = heapRemoveMax();
+		}
+		return savedPhases[next] ? next << 1 : (next << 1) | 1;
+	}
+
+	/**
+	 * Derives a learned clause from a conflict (first unique implication point),
+	 * stores it in {@link #analyzeBuffer} with the asserting literal at position
+	 * 0 and a literal of the backtrack level at position 1.
+	 *
+	 * @param conflict the conflicting clause
+	 * @return the size of the learned clause
+	 */
+	private int analyze(CDCLClause conflict) {
+		int size = 1;
+		int pathCount = 0;
+		int literal = NO_LITERAL;
+		int index = trailSize - 1;
+		CDCLClause clause = conflict;
+		do {
+			if (clause.learnt) {
+				bumpClause(clause);
+			}
+			final int[] literals = clause.literals;
+			for (int k = literal == NO_LITERAL ? 0 : 1; k < literals.length; k++) {
+				final int otherLiteral = literals[k];
+				final int variable = otherLiteral >> 1;
+				if (!seen[variable] && (levels[variable] > 0)) {
+					bumpVariable(variable);
+					seen[variable] = true;
+					if (levels[variable] >= decisionLevel) {
+						pathCount++;
+					} else {
+						if (size == analyzeBuffer.length) {
+							analyzeBuffer = Arrays.copyOf(analyzeBuffer, size << 1);
+						}
+						analyzeBuffer[size++] = otherLiteral;
+					}
+				}
+			}
+			while (!seen[trail[index--] >> 1]) {
+			}
+			literal = trail[index + 1];
+			clause = reasons[literal >> 1];
+			seen[literal >> 1] = false;
+			pathCount--;
+		} while (pathCount > 0);
+		analyzeBuffer[0] = literal ^ 1;
+
+		analyzeToClearSize = 0;
+		for (int i = 1; i < size; i++) {
+			pushToClear(analyzeBuffer[i]);
+		}
+		int abstractLevels = 0;
+		for (int i = 1; i < size; i++) {
+			abstractLevels |= abstractLevel(analyzeBuffer[i] >> 1);
+		}
+		int j = 1;
+		for (int i = 1; i < size; i++) {
+			final int variable = analyzeBuffer[i] >> 1;
+			if ((reasons[variable] == null) || !isRedundant(analyzeBuffer[i], abstractLevels)) {
+				analyzeBuffer[j++] = analyzeBuffer[i];
+			}
+		}
+		size = j;
+		for (int i = 0; i < analyzeToClearSize; i++) {
+			seen[analyzeToClear[i] >> 1] = false;
+		}
+
+		if (size == 1) {
+			backtrackLevel = 0;
+		} else {
+			int maxIndex = 1;
+			for (int i = 2; i < size; i++) {
+				if (levels[analyzeBuffer[i] >> 1] > levels[analyzeBuffer[maxIndex] >> 1]) {
+					maxIndex = i;
+				}
+			}
+			final int maxLiteral = analyzeBuffer[maxIndex];
+			analyzeBuffer[maxIndex] = analyzeBuffer[1];
+			analyzeBuffer[1] = maxLiteral;
+			backtrackLevel = levels[maxLiteral >> 1];
+		}
+		learntLbd = computeLbd(analyzeBuffer, size);
+		return size;
+	}
+
+	private int abstractLevel(int variable) {
+		return 1 << (levels[variable] & 31);
+	}
+
+	private void pushToClear(int literal) {
+		if (analyzeToClearSize == analyzeToClear.length) {
+			analyzeToClear = Arrays.copyOf(analyzeToClear, analyzeToClearSize << 1);
+		}
+		analyzeToClear[analyzeToClearSize++] = literal;
+	}
+
+	private boolean isRedundant(int literal, int abstractLevels) {
+		int stackSize = 0;
+		analyzeStack[stackSize++] = literal;
+		final int top = analyzeToClearSize;
+		while (stackSize > 0) {
+			final int[] literals = reasons[analyzeStack[--stackSize] >> 1].literals;
+			for (int k = 1; k < literals.length; k++) {
+				final int otherLiteral = literals[k];
+				final int variable = otherLiteral >> 1;
+				if (!seen[variable] && (levels[variable] > 0)) {
+					if ((reasons[variable] != null) && ((abstractLevel(variable) & abstractLevels) != 0)) {
+						seen[variable] = true;
+						if (stackSize == analyzeStack.length) {
+							analyzeStack = Arrays.copyOf(analyzeStack, stackSize << 1);
+						}
+						analyzeStack[stackSize++] = otherLiteral;
+						pushToClear(otherLiteral);
+					} else {
+						for (int i = top; i < analyzeToClearSize; i++) {
+							seen[analyzeToClear[i] >> 1] = false;
+						}
+						analyzeToClearSize = top;
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private int computeLbd(int[] literals, int size) {
+		if (++stamp == Integer.MAX_VALUE) {
+			Arrays.fill(levelStamps, 0);
+			stamp = 1;
+		}
+		int lbd = 0;
+		for (int i = 0; i < size; i++) {
+			final int level = levels[literals[i] >> 1];
+			if (levelStamps[level] != stamp) {
+				levelStamps[level] = stamp;
+				lbd++;
+			}
+		}
+		return lbd;
+	}
+
+	/**
+	 * Collects all assumptions that are responsible for the given assumption to
+	 * be false.
+	 *
+	 * @param literal a false assumption literal
+	 */
+	private void analyzeFinal(int literal) {
+		int size = 0;
+		int[] coreLiterals = new int[Math.min(decisionLevel, numberOfVariables) + 1];
+		coreLiterals[size++] = toExternal(literal);
+		if (decisionLevel > 0) {
+			seen[literal >> 1] = true;
+			for (int i = trailSize - 1; i >= trailLimits[0]; i--) {
+				final int trailLiteral = trail[i];
+				final int variable = trailLiteral >> 1;
+				if (seen[variable]) {
+					final CDCLClause reason = reasons[variable];
+					if (reason == null) {
+						if (size == coreLiterals.length) {
+							coreLiterals = Arrays.copyOf(coreLiterals, size << 1);
+						}
+						coreLiterals[size++] = toExternal(trailLiteral);
+					} else {
+						final int[] literals = reason.literals;
+						for (int k = 1; k < literals.length; k++) {
+							if (levels[literals[k] >> 1] > 0) {
+								seen[literals[k] >> 1] = true;
+							}
+						}
+					}
+					seen[variable] = false;
+				}
+			}
+			seen[literal >> 1] = false;
+		}
+		core = Arrays.copyOf(coreLiterals, size);
+	}
+
+	private void reduceLearnts() {
+		learnts.sort((c1, c2) -> c1.lbd != c2.lbd
+			? Integer.compare(c2.lbd, c1.lbd)
+			: Double.compare(c1.activity, c2.activity));
+		final int limit = learnts.size() / 2;
+		int removedCount = 0;
+		int j = 0;
+		for (int i = 0; i < learnts.size(); i++) {
+			final CDCLClause learnt = learnts.get(i);
+			if ((removedCount < limit) && (learnt.lbd > 2) && (learnt.literals.length > 2) && !isLocked(learnt)) {
+				learnt.removed = true;
+				removedCount++;
+				if (proofWriter != null) {
+					proofWriter.delete(learnt.literals, learnt.literals.length);
+				}
+			} else {
+				learnts.set(j++, learnt);
+			}
+		}
+		learnts.subList(j, learnts.size()).clear();
+		cleanWatches();
+	}
+
+	private boolean isLocked(CDCLClause clause) {
+		final int first = clause.literals[0];
+		return (reasons[first >> 1] == clause) && (values[first] == TRUE);
+	}
+
+	private void bumpVariable(int variable) {
+		if ((activities[variable] += variableIncrement) > VARIABLE_RESCALE_LIMIT) {
+			for (int i = 1; i <= numberOfVariables; i++) {
+				activities[i] *= 1 / VARIABLE_RESCALE_LIMIT;
+			}
+			variableIncrement *= 1 / VARIABLE_RESCALE_LIMIT;
+		}
+		if (heapIndices[variable] >= 0) {
+			heapUp(heapIndices[variable]);
+		}
+	}
+
+	private void bumpClause(CDCLClause clause) {
+		if ((clause.activity += clauseIncrement) > CLAUSE_RESCALE_LIMIT) {
+			for (final CDCLClause learnt : learnts) {
+				learnt.activity *= 1 / CLAUSE_RESCALE_LIMIT;
+			}
+			clauseIncrement *= 1 / CLAUSE_RESCALE_LIMIT;
+		}
+	}
+
+	private void decayActivities() {
+		variableIncrement /= variableDecay;
+		clauseIncrement /= clauseDecay;
+	}
+
+	private void heapInsert(int variable) {
+		heapIndices[variable] = heapSize;
+		heap[heapSize++] = variable;
+		heapUp(heapSize - 1);
+	}
+
+	private int heapRemoveMax() {
+		final int max = heap[0];
+		final int last = heap[--heapSize];
+		heapIndices[max] = -1;
+		if (heapSize > 0) {
+			heap[0] = last;
+			heapIndices[last] = 0;
+			heapDown(0);
+		}
+		return max;
+	}
+
+	private void heapUp(int index) {
+		final int variable = heap[index];
+		final double activity = activities[variable];
+		while (index > 0) {
+			final int parentIndex = (index - 1) >> 1;
+			final int parent = heap[parentIndex];
+			if (activities[parent] >= activity) {
+				break;
+			}
+			heap[index] = parent;
+			heapIndices[parent] = index;
+			index = parentIndex;
+		}
+		heap[index] = variable;
+		heapIndices[variable] = index;
+	}
+
+	private void heapDown(int index) {
+		final int variable = heap[index];
+		final double activity = activities[variable];
+		while (true) {
+			int childIndex = (index << 1) + 1;
+			if (childIndex >= heapSize) {
+				break;
+			}
+			if (((childIndex + 1) < heapSize) && (activities[heap[childIndex + 1]] > activities[heap[childIndex]])) {
+				childIndex++;
+			}
+			final int child = heap[childIndex];
+			if (activities[child] <= activity) {
+				break;
+			}
+			heap[index] = child;
+			heapIndices[child] = index;
+			index = childIndex;
+		}
+		heap[index] = variable;
+		heapIndices[variable] = index;
+	}
+
+}
@@ -0,0 +1,239 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.*;
+import org.spldev.formula.structure.atomic.literal.*;
+
+/**
+ * Modifiable formula of a {@link CDCLSolver}. Clauses of the initial CNF are
+ * added permanently to the {@link CDCLEngine}, one constraint per clause. All
+ * constraints pushed afterwards are guarded by their own selector variable,
+ * which is assumed by the engine as long as the constraint is present. Thus,
+ * pushing and popping a constraint only touches its own clauses and keeps all
+ * learned clauses of the engine. Selector variables are allocated after the
+ * variables of the {@link VariableMap}.
+ */
+public class CDCLFormula extends AbstractDynamicFormula<CDCLConstraint> {
+
+	protected final CDCLEngine engine;
+	private long permanentRevision;
+
+	public CDCLFormula(CDCLEngine engine, VariableMap variableMap) {
+		super(variableMap);
+		this.engine = engine;
+	}
+
+	/**
+	 * Creates a copy of the given formula for a copy of its engine.
+	 *
+	 * @param oldFormula    the formula to copy
+	 * @param engine        the copied engine
+	 * @param clauseMapping the copy of each clause of the old engine
+	 */
+	protected CDCLFormula(CDCLFormula oldFormula, CDCLEngine engine, Map<CDCLClause, CDCLClause> clauseMapping) {
+		super(oldFormula);
+		this.engine = engine;
+		permanentRevision = oldFormula.permanentRevision;
+		constraints.replaceAll(constraint -> {
+			final CDCLClause[] engineClauses = new CDCLClause[constraint.engineClauses.length];
+			for (int i = 0; i < engineClauses.length; i++) {
+				engineClauses[i] = clauseMapping.get(constraint.engineClauses[i]);
+			}
+			return new CDCLConstraint(constraint.clauses, engineClauses, constraint.selector);
+		});
+	}
+
+	/**
+	 * Converts the given formula into CNF and adds all resulting clauses as a
+	 * single constraint.
+	 *
+	 * @throws RuntimeContradictionException if the resulting clauses are in
+	 *                                       obvious contradiction with the
+	 *                                       current clauses. In this case, no
+	 *                                       clause is added.
+	 */
+	@Override
+	public List<CDCLConstraint> push(Formula formula) throws RuntimeContradictionException {
+		final CDCLConstraint constraint = addGuarded(Clauses.convertToCNF(formula, variableMap).getClauses());
+		if (engine.isFixed(-constraint.selector)) {
+			release(constraint);
+			throw new RuntimeContradictionException();
+		}
+		constraints.add(constraint);
+		return Collections.singletonList(constraint);
+	}
+
+	/**
+	 * Adds the given clauses as one constraint per clause.
+	 *
+	 * @param clauses the clauses to add
+	 * @return the identifying constraint objects of the clauses
+	 *
+	 * @throws RuntimeContradictionException if the clauses are in obvious
+	 *                                       contradiction with the current
+	 *                                       clauses. In this case, no clause is
+	 *                                       added.
+	 */
+	public List<CDCLConstraint> push(List<LiteralList> clauses) throws RuntimeContradictionException {
+		final ArrayList<CDCLConstraint> newConstraints = new ArrayList<>(clauses.size());
+		boolean contradiction = false;
+		for (final LiteralList clause : clauses) {
+			final CDCLConstraint constraint = addGuarded(Collections.singletonList(clause));
+			newConstraints.add(constraint);
+			contradiction |= engine.isFixed(-constraint.selector);
+		}
+		if (contradiction) {
+			for (int i = newConstraints.size() - 1; i >= 0; i--) {
+				release(newConstraints.get(i));
+			}
+			throw new RuntimeContradictionException();
+		}
+		constraints.addAll(newConstraints);
+		return newConstraints;
+	}
+
+	/**
+	 * Adds the given clause.
+	 *
+	 * @param clause the clause to add
+	 * @return the identifying constraint object of the clause
+	 *
+	 * @throws RuntimeContradictionException if the clause is in obvious
+	 *                                       contradiction with the current
+	 *                                       clauses. In this case, the clause is
+	 *                                       not added.
+	 */
+	public CDCLConstraint push(LiteralList clause) throws RuntimeContradictionException {
+		return push(Collections.singletonList(clause)).get(0);
+	}
+
+	/**
+	 * Adds the given clauses permanently (i.e., without a selector) even if they
+	 * are in contradiction with the current clauses.
+	 *
+	 * @param clauses the clauses to add
+	 */
+	void pushUnchecked(List<LiteralList> clauses) {
+		for (final LiteralList clause : clauses) {
+			constraints.add(new CDCLConstraint(Collections.singletonList(clause),
+				new CDCLClause[] { engine.addClause(clause.getLiterals()) }, 0));
+		}
+		permanentRevision++;
+	}
+
+	/**
+	 * Returns the clauses of all constraints that are not guarded by a selector,
+	 * i.e., the clauses of the initial CNF that were not removed.
+	 *
+	 * @return a new list of clauses
+	 */
+	public List<LiteralList> getPermanentClauses() {
+		return getClauses(false);
+	}
+
+	/**
+	 * Returns the clauses of all constraints that are guarded by a selector, i.e.,
+	 * the clauses of all constraints pushed after the initial CNF.
+	 *
+	 * @return a new list of clauses
+	 */
+	public List<LiteralList> getGuardedClauses() {
+		return getClauses(true);
+	}
+
+	private List<LiteralList> getClauses(boolean guarded) {
+		final ArrayList<LiteralList> clauses = new ArrayList<>();
+		for (final CDCLConstraint constraint : constraints) {
+			if (constraint.isGuarded() == guarded) {
+				clauses.addAll(constraint.clauses);
+			}
+		}
+		return clauses;
+	}
+
+	/**
+	 * Returns a counter that is increased whenever a constraint that is not
+	 * guarded by a selector is added or removed. In contrast to
+	 * {@link CDCLEngine#getRevision()}, pushing and popping guarded constraints
+	 * does not affect this counter.
+	 *
+	 * @return the current revision of the permanent clauses
+	 */
+	public long getPermanentRevision() {
+		return permanentRevision;
+	}
+
+	private CDCLConstraint addGuarded(List<LiteralList> clauses) {
+		final int selector = engine.newSelector();
+		final CDCLClause[] engineClauses = new CDCLClause[clauses.size()];
+		for (int i = 0; i < engineClauses.length; i++) {
+			final int[] literals = clauses.get(i).getLiterals();
+			final int[] guardedLiterals = Arrays.copyOf(literals, literals.length + 1);
+			guardedLiterals[literals.length] = -selector;
+			engineClauses[i] = engine.addClause(guardedLiterals);
+		}
+		return new CDCLConstraint(clauses, engineClauses, selector);
+	}
+
+	private void release(CDCLConstraint constraint) {
+		if (constraint.isGuarded()) {
+			engine.releaseSelector(constraint.selector, constraint.engineClauses);
+		} else {
+			engine.removeClauses(Arrays.asList(constraint.engineClauses));
+			permanentRevision++;
+		}
+	}
+
+	@Override
+	public void pop(int count) {
+		final List<CDCLConstraint> removedConstraints = constraints.subList(
+			Math.max(0, constraints.size() - count), constraints.size());
+		final ArrayList<CDCLClause> removedClauses = new ArrayList<>();
+		for (int i = removedConstraints.size() - 1; i >= 0; i--) {
+			final CDCLConstraint constraint = removedConstraints.get(i);
+			if (constraint.isGuarded()) {
+				engine.releaseSelector(constraint.selector, constraint.engineClauses);
+			} else {
+				removedClauses.addAll(Arrays.asList(constraint.engineClauses));
+			}
+		}
+		if (!removedClauses.isEmpty()) {
+			engine.removeClauses(removedClauses);
+			permanentRevision++;
+		}
+		removedConstraints.clear();
+	}
+
+	@Override
+	protected CDCLConstraint removeConstraint(int index) {
+		final CDCLConstraint constraint = super.removeConstraint(index);
+		release(constraint);
+		return constraint;
+	}
+
+}
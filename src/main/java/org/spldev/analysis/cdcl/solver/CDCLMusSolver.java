@@ -0,0 +1,307 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.atomic.literal.*;
+
+/**
+ * Extracts minimal unsatisfiable subsets (MUSes) of the constraints of its
+ * {@link CDCLFormula}. Each constraint (e.g., a single clause of the initial
+ * CNF or a pushed formula) is treated as one element of a subset. The current
+ * assumptions are treated as hard constraints.
+ * <p>
+ * A single MUS is computed by deletion with clause-set refinement and
+ * recursive model rotation. All MUSes are enumerated with MARCO: a shared map
+ * solver proposes unexplored subsets, which are either shrunk to a MUS or grown
+ * to a maximal satisfiable subset by multiple worker threads in parallel. Each
+ * result is blocked in the map solver until no unexplored subset is left.
+ */
+public class CDCLMusSolver extends CDCLSolver implements MusSolver<CDCLConstraint> {
+
+	private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+
+	public CDCLMusSolver(CNF cnf) {
+		super(cnf);
+	}
+
+	public CDCLMusSolver(VariableMap variableMap) {
+		super(variableMap);
+	}
+
+	protected CDCLMusSolver(CDCLMusSolver oldSolver) {
+		super(oldSolver);
+		numberOfThreads = oldSolver.numberOfThreads;
+	}
+
+	@Override
+	public CDCLMusSolver clone() {
+		return new CDCLMusSolver(this);
+	}
+
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	/**
+	 * Sets the number of worker threads used by
+	 * {@link #getAllMinimalUnsatisfiableSubsets()}.
+	 *
+	 * @param numberOfThreads a positive number
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException(String.valueOf(numberOfThreads));
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws RuntimeTimeoutException if the solver was canceled via its monitor
+	 */
+	@Override
+	public List<CDCLConstraint> getMinimalUnsatisfiableSubset() throws IllegalStateException {
+		final List<CDCLConstraint> constraints = formula.getConstraints();
+		final MusExtractor extractor = createExtractor(constraints);
+		return toConstraints(constraints, extractor.shrink(allGroups(constraints.size())));
+	}
+
+	/**
+	 * {@inheritDoc} The subsets are returned in the order in which they were
+	 * found.
+	 *
+	 * @throws RuntimeTimeoutException if the solver was canceled via its monitor
+	 */
+	@Override
+	public List<List<CDCLConstraint>> getAllMinimalUnsatisfiableSubsets() throws IllegalStateException {
+		final List<CDCLConstraint> constraints = formula.getConstraints();
+		final MusExtractor extractor = createExtractor(constraints);
+		if (extractor.solve(allGroups(constraints.size()), constraints.size()) == SatResult.TRUE) {
+			throw new IllegalStateException("Formula is satisfiable");
+		}
+		final MapSolver mapSolver = new MapSolver(constraints.size());
+		if (numberOfThreads == 1) {
+			enumerate(extractor, mapSolver);
+		} else {
+			final ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads, runnable -> {
+				final Thread thread = new Thread(runnable, "CDCLMusSolver");
+				thread.setDaemon(true);
+				return thread;
+			});
+			try {
+				final MusExtractor[] extractors = new MusExtractor[numberOfThreads];
+				extractors[0] = extractor;
+				for (int i = 1; i < numberOfThreads; i++) {
+					extractors[i] = new MusExtractor(extractor);
+					extractors[i].getEngine().setSeed(engine.getSeed() + i);
+				}
+				final List<Future<?>> futures = new ArrayList<>(numberOfThreads);
+				for (final MusExtractor workerExtractor : extractors) {
+					futures.add(executor.submit(() -> enumerate(workerExtractor, mapSolver)));
+				}
+				for (final Future<?> future : futures) {
+					try {
+						future.get();
+					} catch (final ExecutionException e) {
+						mapSolver.stop();
+						final Throwable cause = e.getCause();
+						throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+					}
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeTimeoutException(e);
+			} finally {
+				mapSolver.stop();
+				executor.shutdownNow();
+			}
+		}
+		final List<List<CDCLConstraint>> muses = new ArrayList<>();
+		for (final int[] mus : mapSolver.getMuses()) {
+			muses.add(toConstraints(constraints, mus));
+		}
+		return muses;
+	}
+
+	private void enumerate(MusExtractor extractor, MapSolver mapSolver) {
+		int[] seed;
+		while ((seed = mapSolver.nextSeed()) != null) {
+			if (extractor.solve(seed, seed.length) == SatResult.FALSE) {
+				mapSolver.blockUp(seed, extractor.shrink(seed));
+			} else {
+				mapSolver.blockDown(seed, extractor.grow(seed));
+			}
+		}
+	}
+
+	private MusExtractor createExtractor(List<CDCLConstraint> constraints) {
+		final MusExtractor extractor = new MusExtractor(variables.getMaxIndex(), constraints, Arrays.copyOf(
+			assumptions.getLiterals(), assumptions.size()));
+		extractor.getEngine().setMonitor(engine.getMonitor());
+		extractor.getEngine().setBudget(engine.getBudget());
+		return extractor;
+	}
+
+	private static int[] allGroups(int count) {
+		final int[] groups = new int[count];
+		for (int i = 0; i < count; i++) {
+			groups[i] = i;
+		}
+		return groups;
+	}
+
+	private static List<CDCLConstraint> toConstraints(List<CDCLConstraint> constraints, int[] groups) {
+		final ArrayList<CDCLConstraint> subset = new ArrayList<>(groups.length);
+		for (final int group : groups) {
+			subset.add(constraints.get(group));
+		}
+		return subset;
+	}
+
+	/**
+	 * Shared map solver of MARCO. Each variable represents whether a group is
+	 * contained in a subset. Solutions are unexplored subsets. Seeds that are
+	 * currently explored by another worker are not blocked in the map solver
+	 * (which would require a clause over all groups). Instead, a worker that
+	 * would receive such a seed waits until the next result has been blocked.
+	 */
+	private static class MapSolver {
+
+		private final CDCLEngine mapEngine;
+		private final int numberOfGroups;
+		private final LinkedHashSet<List<Integer>> muses = new LinkedHashSet<>();
+		private final ArrayList<int[]> pendingSeeds = new ArrayList<>();
+		private boolean done;
+
+		MapSolver(int numberOfGroups) {
+			this.numberOfGroups = numberOfGroups;
+			mapEngine = new CDCLEngine(numberOfGroups);
+			mapEngine.setPhase(CDCLEngine.Phase.POSITIVE);
+		}
+
+		synchronized int[] nextSeed() {
+			while (!done) {
+				final SatResult result = mapEngine.solve();
+				if (result != SatResult.TRUE) {
+					if (pendingSeeds.isEmpty()) {
+						done = true;
+						return null;
+					}
+				} else {
+					final int[] seed = toSeed(mapEngine.getModel());
+					if (!isPending(seed)) {
+						pendingSeeds.add(seed);
+						return seed;
+					}
+				}
+				try {
+					wait();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					done = true;
+				}
+			}
+			return null;
+		}
+
+		private int[] toSeed(int[] model) {
+			final int[] seed = new int[numberOfGroups];
+			int seedSize = 0;
+			for (int group = 0; group < numberOfGroups; group++) {
+				if (model[group] > 0) {
+					seed[seedSize++] = group;
+				}
+			}
+			return Arrays.copyOf(seed, seedSize);
+		}
+
+		private boolean isPending(int[] seed) {
+			for (final int[] pendingSeed : pendingSeeds) {
+				if (Arrays.equals(pendingSeed, seed)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void release(int[] seed) {
+			for (int i = 0; i < pendingSeeds.size(); i++) {
+				if (pendingSeeds.get(i) == seed) {
+					pendingSeeds.remove(i);
+					break;
+				}
+			}
+			notifyAll();
+		}
+
+		synchronized void blockUp(int[] seed, int[] mus) {
+			final int[] blockingClause = new int[mus.length];
+			final ArrayList<Integer> key = new ArrayList<>(mus.length);
+			for (int i = 0; i < mus.length; i++) {
+				blockingClause[i] = -(mus[i] + 1);
+				key.add(mus[i]);
+			}
+			if (muses.add(key)) {
+				mapEngine.addClause(blockingClause);
+			}
+			release(seed);
+		}
+
+		synchronized void blockDown(int[] seed, int[] mss) {
+			final boolean[] contained = new boolean[numberOfGroups];
+			for (final int group : mss) {
+				contained[group] = true;
+			}
+			final int[] blockingClause = new int[numberOfGroups - mss.length];
+			int size = 0;
+			for (int group = 0; group < numberOfGroups; group++) {
+				if (!contained[group]) {
+					blockingClause[size++] = group + 1;
+				}
+			}
+			mapEngine.addClause(blockingClause);
+			release(seed);
+		}
+
+		synchronized void stop() {
+			done = true;
+			notifyAll();
+		}
+
+		synchronized List<int[]> getMuses() {
+			final ArrayList<int[]> result = new ArrayList<>(muses.size());
+			for (final List<Integer> mus : muses) {
+				result.add(mus.stream().mapToInt(Integer::intValue).toArray());
+			}
+			return result;
+		}
+
+	}
+
+}
@@ -0,0 +1,220 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.formula.structure.atomic.literal.*;
+
+/**
+ * Computes optimal solutions with respect to variable weights, such as the
+ * cheapest valid configuration. The weights are given as an array indexed by
+ * the variables of the {@link VariableMap}, where the weight of a variable is
+ * counted for a solution if the variable is selected (i.e., true). Index
+ * {@code 0} is ignored. Negative weights are allowed.
+ * <p>
+ * Each optimization runs as a {@link MaxSatSearch} on a copy of the engine,
+ * which keeps the learned clauses of this solver but discards the auxiliary
+ * variables and clauses of the search afterwards. The current assumptions are
+ * treated as hard constraints.
+ */
+public class CDCLOptSolver extends CDCLSolver implements OptSolver<LiteralList, long[]> {
+
+	private int coreLimit = 1000;
+	private long maxEncodingSize = 1 << 20;
+	private long optimum;
+	private LiteralList bestSolution;
+	private volatile CDCLEngine searchEngine;
+
+	public CDCLOptSolver(CNF cnf) {
+		super(cnf);
+	}
+
+	public CDCLOptSolver(VariableMap variableMap) {
+		super(variableMap);
+	}
+
+	protected CDCLOptSolver(CDCLOptSolver oldSolver) {
+		super(oldSolver);
+		coreLimit = oldSolver.coreLimit;
+		maxEncodingSize = oldSolver.maxEncodingSize;
+	}
+
+	@Override
+	public CDCLOptSolver clone() {
+		return new CDCLOptSolver(this);
+	}
+
+	public int getCoreLimit() {
+		return coreLimit;
+	}
+
+	/**
+	 * Sets the number of unsatisfiable cores after which the optimization
+	 * switches from core-guided search to linear search. {@code 0} results in a
+	 * pure linear search and {@link Integer#MAX_VALUE} in a pure core-guided
+	 * search.
+	 *
+	 * @param coreLimit a non-negative number
+	 */
+	public void setCoreLimit(int coreLimit) {
+		if (coreLimit < 0) {
+			throw new IllegalArgumentException(String.valueOf(coreLimit));
+		}
+		this.coreLimit = coreLimit;
+	}
+
+	public long getMaxEncodingSize() {
+		return maxEncodingSize;
+	}
+
+	/**
+	 * Sets the maximum number of clauses for encoding the objective in the linear
+	 * search. If the encoding would be larger, the core-guided search is
+	 * continued instead.
+	 *
+	 * @param maxEncodingSize a non-negative number
+	 */
+	public void setMaxEncodingSize(long maxEncodingSize) {
+		if (maxEncodingSize < 0) {
+			throw new IllegalArgumentException(String.valueOf(maxEncodingSize));
+		}
+		this.maxEncodingSize = maxEncodingSize;
+	}
+
+	/**
+	 * Computes a solution with the minimal sum of the weights of all selected
+	 * variables.
+	 *
+	 * @param weights the weight of each variable indexed by the variable index
+	 * @return a literal list containing one literal per variable ordered by index
+	 *         or {@code null} if there is no solution
+	 *
+	 * @throws RuntimeTimeoutException if the solver was interrupted or canceled
+	 *                                 via its monitor
+	 */
+	@Override
+	public LiteralList minimum(long[] weights) {
+		checkWeights(weights);
+		return optimize(weights, 1);
+	}
+
+	/**
+	 * Computes a solution with the maximal sum of the weights of all selected
+	 * variables.
+	 *
+	 * @param weights the weight of each variable indexed by the variable index
+	 * @return a literal list containing one literal per variable ordered by index
+	 *         or {@code null} if there is no solution
+	 *
+	 * @throws RuntimeTimeoutException if the solver was interrupted or canceled
+	 *                                 via its monitor
+	 */
+	@Override
+	public LiteralList maximum(long[] weights) {
+		checkWeights(weights);
+		return optimize(weights, -1);
+	}
+
+	/**
+	 * Returns the sum of the weights of all selected variables of the solution
+	 * returned by the last call of {@link #minimum(long[])} or
+	 * {@link #maximum(long[])}. If the last call timed out, this is the value of
+	 * the {@link #getBestSolution() best solution} found so far.
+	 *
+	 * @return the optimal value
+	 */
+	public long getOptimum() {
+		return optimum;
+	}
+
+	/**
+	 * Returns the best solution found by the last call of
+	 * {@link #minimum(long[])} or {@link #maximum(long[])}. This is the optimal
+	 * solution if the call returned normally and the best solution found before
+	 * the timeout if the call threw a {@link RuntimeTimeoutException} (e.g., due
+	 * to an exhausted {@link Budget budget}).
+	 *
+	 * @return a literal list containing one literal per variable ordered by index
+	 *         or {@code null} if no solution was found
+	 */
+	public LiteralList getBestSolution() {
+		return bestSolution;
+	}
+
+	private void checkWeights(long[] weights) {
+		if (weights.length != (variables.getMaxIndex() + 1)) {
+			throw new IllegalArgumentException("Expected " + (variables.getMaxIndex() + 1) + " weights, but got "
+				+ weights.length);
+		}
+	}
+
+	private LiteralList optimize(long[] weights, int sign) {
+		final int[] softLiterals = new int[weights.length];
+		final long[] softWeights = new long[weights.length];
+		int softCount = 0;
+		long offset = 0;
+		for (int variable = 1; variable < weights.length; variable++) {
+			final long weight = sign * weights[variable];
+			if (weight > 0) {
+				softLiterals[softCount] = variable;
+				softWeights[softCount++] = weight;
+			} else if (weight < 0) {
+				offset += weight;
+				softLiterals[softCount] = -variable;
+				softWeights[softCount++] = -weight;
+			}
+		}
+		searchEngine = new CDCLEngine(engine);
+		final MaxSatSearch search = new MaxSatSearch(searchEngine, variables.getMaxIndex(), Arrays.copyOf(
+			assumptions.getLiterals(), assumptions.size()), Arrays.copyOf(softLiterals, softCount), Arrays
+				.copyOf(softWeights, softCount));
+		search.setCoreLimit(coreLimit);
+		search.setMaxEncodingSize(maxEncodingSize);
+		bestSolution = null;
+		try {
+			search.search();
+		} finally {
+			searchEngine = null;
+			final int[] solution = search.getBestModel();
+			if (solution != null) {
+				optimum = sign * (offset + search.getCost());
+				bestSolution = new LiteralList(solution, Order.INDEX, false);
+			}
+		}
+		return bestSolution;
+	}
+
+	@Override
+	public void interrupt() {
+		final CDCLEngine currentSearchEngine = searchEngine;
+		if (currentSearchEngine != null) {
+			currentSearchEngine.interrupt();
+		}
+		super.interrupt();
+	}
+
+}
@@ -0,0 +1,260 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.spldev.analysis.cdcl.solver.CDCLEngine.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.util.job.*;
+
+/**
+ * Portfolio of {@link CDCLSolver solvers} with diversified configurations
+ * (seeds, restart policies, and phase heuristics) that solve the same problem
+ * on separate threads. The first member that finds an answer wins and all
+ * others are interrupted. This solver itself is the first member of the
+ * portfolio. The other members are clones that are recreated whenever the
+ * clauses of this solver change and keep their learned clauses otherwise.
+ */
+public class CDCLPortfolioSolver extends CDCLSolver {
+
+	private static final long POLL_INTERVAL = 10;
+	private static final long KEEP_ALIVE_TIME = 1000;
+
+	private final int numberOfSolvers;
+	private final CDCLSolver[] members;
+	private long memberRevision = -1;
+	private ExecutorService executor;
+	private CDCLSolver winner = this;
+	private volatile boolean interrupted;
+
+	public CDCLPortfolioSolver(CNF cnf) {
+		this(cnf, Runtime.getRuntime().availableProcessors());
+	}
+
+	public CDCLPortfolioSolver(CNF cnf, int numberOfSolvers) {
+		super(cnf);
+		this.numberOfSolvers = checkNumberOfSolvers(numberOfSolvers);
+		members = new CDCLSolver[numberOfSolvers];
+		members[0] = this;
+	}
+
+	public CDCLPortfolioSolver(VariableMap variableMap, int numberOfSolvers) {
+		super(variableMap);
+		this.numberOfSolvers = checkNumberOfSolvers(numberOfSolvers);
+		members = new CDCLSolver[numberOfSolvers];
+		members[0] = this;
+	}
+
+	protected CDCLPortfolioSolver(CDCLPortfolioSolver oldSolver) {
+		super(oldSolver);
+		numberOfSolvers = oldSolver.numberOfSolvers;
+		members = new CDCLSolver[numberOfSolvers];
+		members[0] = this;
+	}
+
+	private static int checkNumberOfSolvers(int numberOfSolvers) {
+		if (numberOfSolvers < 1) {
+			throw new IllegalArgumentException("Invalid number of solvers: " + numberOfSolvers);
+		}
+		return numberOfSolvers;
+	}
+
+	@Override
+	public CDCLPortfolioSolver clone() {
+		return new CDCLPortfolioSolver(this);
+	}
+
+	public int getNumberOfSolvers() {
+		return numberOfSolvers;
+	}
+
+	/**
+	 * Configures the engine of a cloned member. The first member (i.e., this
+	 * solver) keeps its configuration.
+	 *
+	 * @param engine the engine of the member
+	 * @param index  the index of the member (at least {@code 1})
+	 */
+	protected void configure(CDCLEngine engine, int index) {
+		engine.setSeed(engine.getSeed() + index);
+		engine.setRestartPolicy((index & 1) == 0 ? RestartPolicy.LUBY : RestartPolicy.GEOMETRIC);
+		engine.setPhase(Phase.values()[index % Phase.values().length]);
+		engine.setRandomDecisionFrequency((index & 3) == 3 ? 0.02 : 0);
+	}
+
+	private void updateMembers() {
+		if (memberRevision != engine.getRevision()) {
+			for (int i = 1; i < numberOfSolvers; i++) {
+				members[i] = new CDCLSolver(this);
+				configure(members[i].engine, i);
+			}
+			memberRevision = engine.getRevision();
+		}
+	}
+
+	/**
+	 * Returns the worker threads of this portfolio. Idle workers terminate after
+	 * a short time, such that solvers that are discarded without calling
+	 * {@link #shutdown()} (e.g., clones) do not keep their threads alive.
+	 */
+	private ExecutorService getExecutor() {
+		if (executor == null) {
+			final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(numberOfSolvers, numberOfSolvers,
+				KEEP_ALIVE_TIME, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+					final Thread thread = new Thread(runnable, "CDCLPortfolioSolver");
+					thread.setDaemon(true);
+					return thread;
+				});
+			threadPool.allowCoreThreadTimeOut(true);
+			executor = threadPool;
+		}
+		return executor;
+	}
+
+	/**
+	 * Stops the worker threads of this portfolio immediately instead of after
+	 * they have been idle for a short time. They are started again by the next
+	 * call of {@link #hasSolution()}.
+	 */
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	@Override
+	public SatResult hasSolution() {
+		interrupted = false;
+		winner = this;
+		if (numberOfSolvers == 1) {
+			return super.hasSolution();
+		}
+		updateMembers();
+
+		final int[] literals = Arrays.copyOf(assumptions.getLiterals(), assumptions.size());
+		final SatResult[] results = new SatResult[numberOfSolvers];
+		final CompletionService<Integer> completionService = new ExecutorCompletionService<>(getExecutor());
+		for (int i = 0; i < numberOfSolvers; i++) {
+			final int index = i;
+			final CDCLEngine memberEngine = members[i].engine;
+			completionService.submit(() -> {
+				results[index] = memberEngine.solve(literals, literals.length);
+				return index;
+			});
+		}
+
+		int winnerIndex = -1;
+		int finished = 0;
+		boolean threadInterrupted = false;
+		RuntimeException exception = null;
+		while (finished < numberOfSolvers) {
+			try {
+				final Future<Integer> future = completionService.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				if (future != null) {
+					finished++;
+					final int index = future.get();
+					if ((winnerIndex < 0) && (results[index] != SatResult.TIMEOUT)) {
+						winnerIndex = index;
+					}
+				}
+			} catch (final InterruptedException e) {
+				threadInterrupted = true;
+			} catch (final ExecutionException e) {
+				finished++;
+				if (exception == null) {
+					exception = new RuntimeException(e.getCause());
+				}
+			}
+			if ((winnerIndex >= 0) || interrupted || threadInterrupted || (exception != null)) {
+				for (final CDCLSolver member : members) {
+					member.engine.interrupt();
+				}
+			}
+		}
+		if (threadInterrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (exception != null) {
+			throw exception;
+		}
+		if (winnerIndex < 0) {
+			return SatResult.TIMEOUT;
+		}
+		winner = members[winnerIndex];
+		return results[winnerIndex];
+	}
+
+	/**
+	 * Returns the solution found by the winning member of the last call of
+	 * {@link #hasSolution()}.
+	 */
+	@Override
+	public LiteralList getSolution() {
+		return winner == this ? super.getSolution() : winner.getSolution();
+	}
+
+	@Override
+	public LiteralList getConflictingAssumptions() {
+		return winner == this ? super.getConflictingAssumptions() : winner.getConflictingAssumptions();
+	}
+
+	@Override
+	public LiteralList getImpliedLiterals() {
+		return winner == this ? super.getImpliedLiterals() : winner.getImpliedLiterals();
+	}
+
+	/**
+	 * Aborts a running call of {@link #hasSolution()} on all members.
+	 */
+	@Override
+	public void interrupt() {
+		interrupted = true;
+		super.interrupt();
+	}
+
+	@Override
+	public void setMonitor(InternalMonitor monitor) {
+		super.setMonitor(monitor);
+		for (int i = 1; i < numberOfSolvers; i++) {
+			if (members[i] != null) {
+				members[i].setMonitor(monitor);
+			}
+		}
+	}
+
+	@Override
+	public void setBudget(Budget budget) {
+		super.setBudget(budget);
+		for (int i = 1; i < numberOfSolvers; i++) {
+			if (members[i] != null) {
+				members[i].setBudget(budget);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.util.job.*;
+
+/**
+ * In-process SAT solver based on a {@link CDCLEngine}. Works directly on the
+ * int literals of a {@link CNF}.
+ */
+public class CDCLSolver implements SolutionSolver<LiteralList> {
+
+	protected final CDCLEngine engine;
+	protected final CDCLFormula formula;
+	protected final CDCLAssumptions assumptions;
+	protected final VariableMap variables;
+
+	public CDCLSolver(CNF cnf) {
+		this(cnf.getVariableMap());
+		formula.pushUnchecked(cnf.getClauses());
+	}
+
+	public CDCLSolver(VariableMap variableMap) {
+		variables = variableMap;
+		engine = new CDCLEngine(variableMap.getMaxIndex());
+		formula = new CDCLFormula(engine, variableMap);
+		assumptions = new CDCLAssumptions(variableMap);
+	}
+
+	protected CDCLSolver(CDCLSolver oldSolver) {
+		variables = oldSolver.variables;
+		final IdentityHashMap<CDCLClause, CDCLClause> clauseMapping = new IdentityHashMap<>();
+		engine = new CDCLEngine(oldSolver.engine, clauseMapping);
+		formula = new CDCLFormula(oldSolver.formula, engine, clauseMapping);
+		assumptions = new CDCLAssumptions(oldSolver.assumptions);
+	}
+
+	/**
+	 * Creates an independent copy of this solver including its clauses, learned
+	 * clauses, assumptions, and configuration. Must not be called while the solver
+	 * is solving.
+	 */
+	@Override
+	public CDCLSolver clone() {
+		return new CDCLSolver(this);
+	}
+
+	@Override
+	public CDCLAssumptions getAssumptions() {
+		return assumptions;
+	}
+
+	@Override
+	public Optional<LiteralAssumptions> getLiteralAssumptions() {
+		return Optional.of(assumptions);
+	}
+
+	@Override
+	public CDCLFormula getDynamicFormula() {
+		return formula;
+	}
+
+	@Override
+	public VariableMap getVariables() {
+		return variables;
+	}
+
+	public CDCLEngine getEngine() {
+		return engine;
+	}
+
+	@Override
+	public SatResult hasSolution() {
+		return engine.solve(assumptions.getLiterals(), assumptions.size());
+	}
+
+	/**
+	 * Returns the last solution found by the solver restricted to the variables of
+	 * the {@link VariableMap}.
+	 *
+	 * @return A literal list containing one literal per variable ordered by index.
+	 */
+	@Override
+	public LiteralList getSolution() {
+		final int[] model = engine.getModel();
+		return model == null
+			? null
+			: new LiteralList(Arrays.copyOf(model, variables.getMaxIndex()), Order.INDEX, false);
+	}
+
+	/**
+	 * {@inheritDoc} Contains the literals implied by unit propagation, which
+	 * includes all literals learned to be fixed.
+	 */
+	@Override
+	public LiteralList getImpliedLiterals() {
+		final int[] impliedLiterals = engine.getImpliedLiterals();
+		return impliedLiterals == null ? null : filterVariables(impliedLiterals);
+	}
+
+	/**
+	 * Returns the assumptions that caused the last call of {@link #hasSolution()}
+	 * to be unsatisfiable.
+	 *
+	 * @return A literal list containing a subset of the current assumptions.
+	 */
+	public LiteralList getConflictingAssumptions() {
+		return filterVariables(engine.getCore());
+	}
+
+	/**
+	 * Removes all literals of auxiliary variables of the engine (e.g., selectors)
+	 * from the given literals.
+	 *
+	 * @param engineLiterals literals of the engine in DIMACS notation
+	 * @return a literal list containing only variables of the {@link VariableMap}
+	 */
+	protected LiteralList filterVariables(int[] engineLiterals) {
+		final int[] literals = new int[engineLiterals.length];
+		int size = 0;
+		for (final int literal : engineLiterals) {
+			if (Math.abs(literal) <= variables.getMaxIndex()) {
+				literals[size++] = literal;
+			}
+		}
+		return new LiteralList(Arrays.copyOf(literals, size), Order.UNORDERED, false);
+	}
+
+	/**
+	 * Aborts a running call of {@link #hasSolution()}, which then returns
+	 * {@link SatResult#TIMEOUT}.
+	 */
+	public void interrupt() {
+		engine.interrupt();
+	}
+
+	public InternalMonitor getMonitor() {
+		return engine.getMonitor();
+	}
+
+	/**
+	 * Sets a monitor that is checked for cancellation while solving. A canceled
+	 * call of {@link #hasSolution()} returns {@link SatResult#TIMEOUT}.
+	 *
+	 * @param monitor the monitor or {@code null}
+	 */
+	public void setMonitor(InternalMonitor monitor) {
+		engine.setMonitor(monitor);
+	}
+
+	@Override
+	public Budget getBudget() {
+		return engine.getBudget();
+	}
+
+	/**
+	 * {@inheritDoc} A call of {@link #hasSolution()} with an exhausted budget
+	 * returns {@link SatResult#TIMEOUT}.
+	 */
+	@Override
+	public void setBudget(Budget budget) {
+		engine.setBudget(budget);
+	}
+
+}
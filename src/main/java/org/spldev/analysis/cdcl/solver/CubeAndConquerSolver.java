@@ -0,0 +1,415 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.util.job.*;
+
+/**
+ * Solves hard problems by cube and conquer. A {@link LookaheadCuber} splits
+ * the problem into cubes, which are solved as assumptions on a
+ * {@link ForkJoinPool}. Each worker thread keeps its own copy of the engine of
+ * this solver across cubes and calls, which is recreated only when the clauses
+ * of this solver change. Short learned clauses are shared between the workers.
+ * The first satisfiable cube ends the search. The core of an unsatisfiable
+ * cube prunes all pending cubes that contain it; a core without any cube
+ * literal proves the whole problem unsatisfiable.
+ */
+public class CubeAndConquerSolver extends CDCLSolver {
+
+	private static final int DEFAULT_CUBES_PER_THREAD = 8;
+	private static final int DEFAULT_MAX_SHARED_CLAUSE_SIZE = 3;
+
+	private final int numberOfThreads;
+	private final CDCLEngine[] workers;
+	private long workerRevision = -1;
+	private LookaheadCuber cuber;
+	private long cuberRevision = -1;
+	private ForkJoinPool pool;
+
+	private int maxCubes;
+	private int maxSharedClauseSize = DEFAULT_MAX_SHARED_CLAUSE_SIZE;
+	private final ArrayList<int[]> sharedClauses = new ArrayList<>();
+	private final int[] importedClauseCounts;
+
+	private volatile boolean interrupted;
+	private int[] model;
+	private boolean conquered;
+
+	public CubeAndConquerSolver(CNF cnf) {
+		this(cnf, Runtime.getRuntime().availableProcessors());
+	}
+
+	public CubeAndConquerSolver(CNF cnf, int numberOfThreads) {
+		super(cnf);
+		this.numberOfThreads = checkNumberOfThreads(numberOfThreads);
+		workers = new CDCLEngine[numberOfThreads];
+		importedClauseCounts = new int[numberOfThreads];
+		maxCubes = numberOfThreads * DEFAULT_CUBES_PER_THREAD;
+	}
+
+	public CubeAndConquerSolver(VariableMap variableMap, int numberOfThreads) {
+		super(variableMap);
+		this.numberOfThreads = checkNumberOfThreads(numberOfThreads);
+		workers = new CDCLEngine[numberOfThreads];
+		importedClauseCounts = new int[numberOfThreads];
+		maxCubes = numberOfThreads * DEFAULT_CUBES_PER_THREAD;
+	}
+
+	protected CubeAndConquerSolver(CubeAndConquerSolver oldSolver) {
+		super(oldSolver);
+		numberOfThreads = oldSolver.numberOfThreads;
+		workers = new CDCLEngine[numberOfThreads];
+		importedClauseCounts = new int[numberOfThreads];
+		maxCubes = oldSolver.maxCubes;
+		maxSharedClauseSize = oldSolver.maxSharedClauseSize;
+	}
+
+	private static int checkNumberOfThreads(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("Invalid number of threads: " + numberOfThreads);
+		}
+		return numberOfThreads;
+	}
+
+	@Override
+	public CubeAndConquerSolver clone() {
+		return new CubeAndConquerSolver(this);
+	}
+
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	public int getMaxCubes() {
+		return maxCubes;
+	}
+
+	/**
+	 * Sets the maximum number of cubes per call of {@link #hasSolution()}.
+	 * Defaults to eight cubes per thread.
+	 *
+	 * @param maxCubes a positive number
+	 */
+	public void setMaxCubes(int maxCubes) {
+		if (maxCubes < 1) {
+			throw new IllegalArgumentException(String.valueOf(maxCubes));
+		}
+		this.maxCubes = maxCubes;
+	}
+
+	public int getMaxSharedClauseSize() {
+		return maxSharedClauseSize;
+	}
+
+	/**
+	 * Sets the maximum size of learned clauses that are shared between workers.
+	 *
+	 * @param maxSharedClauseSize a non-negative number ({@code 0} disables
+	 *                            sharing)
+	 */
+	public void setMaxSharedClauseSize(int maxSharedClauseSize) {
+		if (maxSharedClauseSize < 0) {
+			throw new IllegalArgumentException(String.valueOf(maxSharedClauseSize));
+		}
+		this.maxSharedClauseSize = maxSharedClauseSize;
+		workerRevision = -1;
+	}
+
+	private void updateWorkers() {
+		if (workerRevision != engine.getRevision()) {
+			synchronized (sharedClauses) {
+				sharedClauses.clear();
+			}
+			for (int i = 0; i < numberOfThreads; i++) {
+				workers[i] = new CDCLEngine(engine);
+				workers[i].setSeed(engine.getSeed() + i);
+				workers[i].setLearnedClauseConsumer(this::share, maxSharedClauseSize);
+				importedClauseCounts[i] = 0;
+			}
+			workerRevision = engine.getRevision();
+		}
+	}
+
+	private void updateCuber() {
+		if (cuberRevision != engine.getRevision()) {
+			final ArrayList<LiteralList> clauses = new ArrayList<>();
+			for (final CDCLConstraint constraint : formula.getConstraints()) {
+				clauses.addAll(constraint.getClauses());
+			}
+			cuber = new LookaheadCuber(variables.getMaxIndex(), clauses);
+			cuberRevision = engine.getRevision();
+		}
+	}
+
+	private ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(numberOfThreads);
+		}
+		return pool;
+	}
+
+	/**
+	 * Stops the worker threads of this solver. They are started again by the
+	 * next call of {@link #hasSolution()}.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdownNow();
+			pool = null;
+		}
+	}
+
+	private void share(int[] clause) {
+		synchronized (sharedClauses) {
+			sharedClauses.add(clause);
+		}
+	}
+
+	private void importSharedClauses(int worker) {
+		final List<int[]> newClauses;
+		synchronized (sharedClauses) {
+			newClauses = new ArrayList<>(sharedClauses.subList(importedClauseCounts[worker], sharedClauses.size()));
+			importedClauseCounts[worker] = sharedClauses.size();
+		}
+		for (final int[] clause : newClauses) {
+			workers[worker].addClause(clause);
+		}
+	}
+
+	@Override
+	public SatResult hasSolution() {
+		interrupted = false;
+		conquered = false;
+		model = null;
+		if (numberOfThreads == 1) {
+			return super.hasSolution();
+		}
+		final int[] baseAssumptions = Arrays.copyOf(assumptions.getLiterals(), assumptions.size());
+		updateCuber();
+		cuber.setMaxCubes(maxCubes);
+		cuber.setMonitor(engine.getMonitor());
+		final List<LiteralList> cubes;
+		try {
+			cubes = cuber.getCubes(baseAssumptions);
+		} catch (final RuntimeTimeoutException e) {
+			return SatResult.TIMEOUT;
+		}
+		conquered = true;
+		if (cubes.isEmpty()) {
+			return SatResult.FALSE;
+		}
+		updateWorkers();
+		return conquer(cubes, baseAssumptions);
+	}
+
+	private SatResult conquer(List<LiteralList> cubes, int[] baseAssumptions) {
+		final AtomicInteger nextCube = new AtomicInteger();
+		final AtomicReference<SatResult> result = new AtomicReference<>();
+		final AtomicBoolean timeout = new AtomicBoolean();
+		final CopyOnWriteArrayList<int[]> cubeCores = new CopyOnWriteArrayList<>();
+		final List<ForkJoinTask<?>> tasks = new ArrayList<>(numberOfThreads);
+		for (int i = 0; i < numberOfThreads; i++) {
+			final int worker = i;
+			tasks.add(getPool().submit(() -> {
+				final CDCLEngine workerEngine = workers[worker];
+				final int[] literals = new int[baseAssumptions.length + variables.getMaxIndex()];
+				System.arraycopy(baseAssumptions, 0, literals, 0, baseAssumptions.length);
+				int index;
+				while ((result.get() == null) && !interrupted && ((index = nextCube.getAndIncrement()) < cubes
+					.size())) {
+					final int[] cube = cubes.get(index).getLiterals();
+					if (isPruned(cube, cubeCores)) {
+						continue;
+					}
+					importSharedClauses(worker);
+					System.arraycopy(cube, 0, literals, baseAssumptions.length, cube.length);
+					switch (workerEngine.solve(literals, baseAssumptions.length + cube.length)) {
+					case TRUE:
+						if (result.compareAndSet(null, SatResult.TRUE)) {
+							model = workerEngine.getModel();
+							interruptWorkers();
+						}
+						break;
+					case FALSE:
+						final int[] cubeCore = getCubeCore(workerEngine.getCore(), cube);
+						if (cubeCore.length == 0) {
+							if (result.compareAndSet(null, SatResult.FALSE)) {
+								interruptWorkers();
+							}
+						} else {
+							cubeCores.add(cubeCore);
+						}
+						break;
+					default:
+						timeout.set(true);
+						interruptWorkers();
+						break;
+					}
+				}
+			}));
+		}
+		boolean threadInterrupted = false;
+		RuntimeException exception = null;
+		for (final ForkJoinTask<?> task : tasks) {
+			while (true) {
+				try {
+					task.get();
+					break;
+				} catch (final InterruptedException e) {
+					threadInterrupted = true;
+					interrupt();
+				} catch (final ExecutionException e) {
+					interruptWorkers();
+					if (exception == null) {
+						exception = new RuntimeException(e.getCause());
+					}
+					break;
+				}
+			}
+		}
+		if (threadInterrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (exception != null) {
+			throw exception;
+		}
+		if (result.get() != null) {
+			return result.get();
+		}
+		return timeout.get() || interrupted ? SatResult.TIMEOUT : SatResult.FALSE;
+	}
+
+	private static boolean isPruned(int[] cube, List<int[]> cubeCores) {
+		for (final int[] cubeCore : cubeCores) {
+			if (containsAll(cube, cubeCore)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean containsAll(int[] cube, int[] literals) {
+		outer: for (final int literal : literals) {
+			for (final int cubeLiteral : cube) {
+				if (cubeLiteral == literal) {
+					continue outer;
+				}
+			}
+			return false;
+		}
+		return true;
+	}
+
+	private static int[] getCubeCore(int[] core, int[] cube) {
+		final int[] cubeCore = new int[core.length];
+		int size = 0;
+		for (final int literal : core) {
+			for (final int cubeLiteral : cube) {
+				if (cubeLiteral == literal) {
+					cubeCore[size++] = literal;
+					break;
+				}
+			}
+		}
+		return Arrays.copyOf(cubeCore, size);
+	}
+
+	private void interruptWorkers() {
+		for (final CDCLEngine worker : workers) {
+			if (worker != null) {
+				worker.interrupt();
+			}
+		}
+	}
+
+	@Override
+	public LiteralList getSolution() {
+		if (!conquered) {
+			return super.getSolution();
+		}
+		return model == null
+			? null
+			: new LiteralList(Arrays.copyOf(model, variables.getMaxIndex()), Order.INDEX, false);
+	}
+
+	@Override
+	public LiteralList getImpliedLiterals() {
+		if (!conquered) {
+			return super.getImpliedLiterals();
+		}
+		final int[] impliedLiterals = engine.getImpliedLiterals(assumptions.getLiterals(), assumptions.size());
+		return impliedLiterals == null ? null : filterVariables(impliedLiterals);
+	}
+
+	/**
+	 * {@inheritDoc} If the problem was split into cubes, all current assumptions
+	 * are returned.
+	 */
+	@Override
+	public LiteralList getConflictingAssumptions() {
+		if (!conquered) {
+			return super.getConflictingAssumptions();
+		}
+		return new LiteralList(Arrays.copyOf(assumptions.getLiterals(), assumptions.size()), Order.UNORDERED,
+			false);
+	}
+
+	/**
+	 * Aborts a running call of {@link #hasSolution()} on all workers.
+	 */
+	@Override
+	public void interrupt() {
+		interrupted = true;
+		interruptWorkers();
+		super.interrupt();
+	}
+
+	@Override
+	public void setMonitor(InternalMonitor monitor) {
+		super.setMonitor(monitor);
+		for (final CDCLEngine worker : workers) {
+			if (worker != null) {
+				worker.setMonitor(monitor);
+			}
+		}
+	}
+
+	@Override
+	public void setBudget(Budget budget) {
+		super.setBudget(budget);
+		for (final CDCLEngine worker : workers) {
+			if (worker != null) {
+				worker.setBudget(budget);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,592 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.spldev.clauses.*;
+
+/**
+ * Checks a clausal proof in binary DRAT format as written by a
+ * {@link DratProofWriter}. The proof is replayed forward on a clause database
+ * that starts empty. The addition of an input clause (i.e., a clause of the
+ * formula given to the checker) is always accepted, also if it is extended by
+ * literals of variables that do not occur in the formula (e.g., the selectors
+ * of guarded clauses within a {@link CDCLEngine}). Every other added clause
+ * must be a reverse unit propagation (RUP) or resolution asymmetric tautology
+ * (RAT) lemma with respect to the current database. Deletions of clauses that
+ * are not part of the database are ignored.
+ * <p>
+ * After a successful {@link #check(InputStream) check}, the final database
+ * can be queried. It is {@link #isRefuted() refuted} if the proof contains an
+ * empty clause that was not deleted afterwards, which proves the
+ * unsatisfiability of the input clauses. It is
+ * {@link #isContradicting(int...) contradicting} a set of assumptions if the
+ * proof ends with a lemma consisting of negated assumptions, which proves that
+ * the input clauses cannot be satisfied under these assumptions.
+ */
+public class DratProofChecker {
+
+	private static final byte TRUE = 1;
+	private static final byte FALSE = -1;
+	private static final byte UNDEF = 0;
+
+	private static final int NO_REASON = -1;
+
+	private final HashSet<ClauseKey> inputClauses = new HashSet<>();
+	private int maxInputVariable;
+	private final HashMap<ClauseKey, ArrayList<Integer>> clauseIndex = new HashMap<>();
+
+	private int[] arena = new int[1024];
+	private int arenaSize;
+	private int[] clauseStarts = new int[64];
+	private int[] clauseSizes = new int[64];
+	private boolean[] deleted = new boolean[64];
+	private int clauseCount;
+	private int maxClauseSize;
+
+	private int numberOfVariables;
+	private byte[] values = new byte[2];
+	private int[] reasons = new int[1];
+	private int[] trail = new int[1];
+	private int trailSize;
+	private int propagationHead;
+	private boolean conflict;
+
+	private int[][] watches = new int[2][];
+	private int[] watchSizes = new int[2];
+
+	private int[] literalBuffer = new int[16];
+	private int[] resolventBuffer = new int[16];
+
+	private long steps;
+	private long failedStep = -1;
+
+	/**
+	 * Creates a checker for the given input clauses.
+	 *
+	 * @param inputClauses the clauses in DIMACS notation that may be added
+	 *                     without derivation
+	 */
+	public DratProofChecker(Collection<LiteralList> inputClauses) {
+		for (final LiteralList clause : inputClauses) {
+			final int[] literals = clause.getLiterals();
+			final int[] internalLiterals = new int[literals.length];
+			for (int i = 0; i < literals.length; i++) {
+				internalLiterals[i] = CDCLEngine.toInternal(literals[i]);
+				maxInputVariable = Math.max(maxInputVariable, Math.abs(literals[i]));
+			}
+			this.inputClauses.add(new ClauseKey(internalLiterals, internalLiterals.length));
+		}
+	}
+
+	public DratProofChecker(CNF cnf) {
+		this(cnf.getClauses());
+	}
+
+	/**
+	 * Replays the proof in the given file.
+	 *
+	 * @param proof the path of the proof file
+	 * @return {@code true} if every step of the proof is valid
+	 * @throws IOException if the file cannot be read
+	 *
+	 * @see #check(InputStream)
+	 */
+	public boolean check(Path proof) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(proof), 1 << 16)) {
+			return check(in);
+		}
+	}
+
+	/**
+	 * Replays all steps of the given proof until the end of the stream or the
+	 * first invalid step. Multiple proofs can be replayed one after another on
+	 * the same database.
+	 *
+	 * @param proof a stream of steps in binary DRAT format
+	 * @return {@code true} if every step of the proof is valid
+	 * @throws IOException if the stream cannot be read or is malformed
+	 */
+	public boolean check(InputStream proof) throws IOException {
+		int type;
+		while ((type = proof.read()) >= 0) {
+			final int size = readClause(proof);
+			steps++;
+			if (type == DratProofWriter.ADDITION) {
+				if (!add(size)) {
+					failedStep = steps;
+					return false;
+				}
+			} else if (type == DratProofWriter.DELETION) {
+				delete(size);
+			} else {
+				throw new IOException("Invalid step type " + type + " at step " + steps);
+			}
+		}
+		return true;
+	}
+
+	private int readClause(InputStream in) throws IOException {
+		int size = 0;
+		while (true) {
+			int literal = 0;
+			int shift = 0;
+			int b;
+			do {
+				b = in.read();
+				if (b < 0) {
+					throw new IOException("Unexpected end of proof at step " + steps);
+				}
+				literal |= (b & 0x7f) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			if (literal == 0) {
+				return size;
+			}
+			if (literal < 2) {
+				throw new IOException("Invalid literal at step " + steps);
+			}
+			ensureVariables(literal >> 1);
+			if (size == literalBuffer.length) {
+				literalBuffer = Arrays.copyOf(literalBuffer, size << 1);
+			}
+			literalBuffer[size++] = literal;
+		}
+	}
+
+	/**
+	 * Returns the number of steps replayed so far.
+	 *
+	 * @return the number of steps
+	 */
+	public long getNumberOfSteps() {
+		return steps;
+	}
+
+	/**
+	 * Returns the number of the first invalid step (starting with {@code 1}).
+	 *
+	 * @return the step number or {@code -1} if no step was invalid
+	 */
+	public long getFailedStep() {
+		return failedStep;
+	}
+
+	/**
+	 * Returns whether the current database is unsatisfiable by unit propagation
+	 * alone (e.g., because it contains the empty clause).
+	 *
+	 * @return {@code true} if the replayed proof refutes the input clauses
+	 */
+	public boolean isRefuted() {
+		return conflict;
+	}
+
+	/**
+	 * Returns whether the given assumptions lead to a conflict by unit
+	 * propagation on the current database.
+	 *
+	 * @param assumptions literals in DIMACS notation
+	 * @return {@code true} if the replayed proof shows that the input clauses
+	 *         cannot be satisfied under the given assumptions
+	 */
+	public boolean isContradicting(int... assumptions) {
+		final int[] clause = new int[assumptions.length];
+		for (int i = 0; i < assumptions.length; i++) {
+			ensureVariables(Math.abs(assumptions[i]));
+			clause[i] = CDCLEngine.toInternal(-assumptions[i]);
+		}
+		return isRup(clause, clause.length);
+	}
+
+	private boolean add(int size) {
+		final ClauseKey key = new ClauseKey(literalBuffer, size);
+		if (!isInputClause(key) && !isRup(literalBuffer, size) && !isRat(literalBuffer, size)) {
+			return false;
+		}
+		final int id = store(literalBuffer, size);
+		clauseIndex.computeIfAbsent(key, k -> new ArrayList<>(1)).add(id);
+		attach(id);
+		return true;
+	}
+
+	private boolean isInputClause(ClauseKey key) {
+		if (inputClauses.contains(key)) {
+			return true;
+		}
+		final int[] inputLiterals = new int[key.literals.length];
+		int inputSize = 0;
+		for (final int literal : key.literals) {
+			if ((literal >> 1) <= maxInputVariable) {
+				inputLiterals[inputSize++] = literal;
+			}
+		}
+		return (inputSize < key.literals.length) && inputClauses.contains(new ClauseKey(inputLiterals, inputSize));
+	}
+
+	private void delete(int size) {
+		final List<Integer> ids = clauseIndex.get(new ClauseKey(literalBuffer, size));
+		if ((ids == null) || ids.isEmpty()) {
+			return;
+		}
+		final int id = ids.remove(ids.size() - 1);
+		deleted[id] = true;
+		if (conflict || isReason(id)) {
+			reset();
+		}
+	}
+
+	private int store(int[] literals, int size) {
+		if (clauseCount == clauseStarts.length) {
+			final int capacity = clauseCount << 1;
+			clauseStarts = Arrays.copyOf(clauseStarts, capacity);
+			clauseSizes = Arrays.copyOf(clauseSizes, capacity);
+			deleted = Arrays.copyOf(deleted, capacity);
+		}
+		if ((arenaSize + size) > arena.length) {
+			arena = Arrays.copyOf(arena, Math.max(arenaSize + size, arena.length << 1));
+		}
+		final int start = arenaSize;
+		int clauseSize = 0;
+		outer: for (int i = 0; i < size; i++) {
+			final int literal = literals[i];
+			for (int j = start; j < (start + clauseSize); j++) {
+				if (arena[j] == literal) {
+					continue outer;
+				}
+			}
+			arena[start + clauseSize++] = literal;
+		}
+		arenaSize += clauseSize;
+		maxClauseSize = Math.max(maxClauseSize, clauseSize);
+		clauseStarts[clauseCount] = start;
+		clauseSizes[clauseCount] = clauseSize;
+		return clauseCount++;
+	}
+
+	private boolean isReason(int id) {
+		final int start = clauseStarts[id];
+		for (int i = start; i < (start + clauseSizes[id]); i++) {
+			final int literal = arena[i];
+			if ((values[literal] == TRUE) && (reasons[literal >> 1] == id)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Watches the given clause and propagates it on the current root
+	 * assignment. Literals are ordered such that true literals come first and
+	 * false literals last.
+	 */
+	private void attach(int id) {
+		final int start = clauseStarts[id];
+		final int size = clauseSizes[id];
+		if (size == 0) {
+			conflict = true;
+			return;
+		}
+		int front = start;
+		for (int i = start; i < (start + size); i++) {
+			if (values[arena[i]] == TRUE) {
+				swap(i, front++);
+			}
+		}
+		for (int i = front; i < (start + size); i++) {
+			if (values[arena[i]] == UNDEF) {
+				swap(i, front++);
+			}
+		}
+		if ((size > 1) && !isTautology(start, size)) {
+			addWatch(arena[start], id);
+			addWatch(arena[start + 1], id);
+		}
+		if (conflict) {
+			return;
+		}
+		if (values[arena[start]] == FALSE) {
+			conflict = true;
+		} else if ((values[arena[start]] == UNDEF) && ((size == 1) || (values[arena[start + 1]] == FALSE))) {
+			enqueue(arena[start], id);
+			conflict = propagate();
+		}
+	}
+
+	private boolean isTautology(int start, int size) {
+		for (int i = start; i < (start + size); i++) {
+			for (int j = i + 1; j < (start + size); j++) {
+				if (arena[i] == (arena[j] ^ 1)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void swap(int i, int j) {
+		final int literal = arena[i];
+		arena[i] = arena[j];
+		arena[j] = literal;
+	}
+
+	/**
+	 * Recomputes the root assignment from scratch after a clause that it
+	 * depends on was deleted.
+	 */
+	private void reset() {
+		for (int i = 0; i < trailSize; i++) {
+			final int literal = trail[i];
+			values[literal] = UNDEF;
+			values[literal ^ 1] = UNDEF;
+			reasons[literal >> 1] = NO_REASON;
+		}
+		trailSize = 0;
+		propagationHead = 0;
+		conflict = false;
+		for (int id = 0; id < clauseCount; id++) {
+			if (!deleted[id] && (clauseSizes[id] <= 1)) {
+				if (clauseSizes[id] == 0) {
+					conflict = true;
+					return;
+				}
+				final int literal = arena[clauseStarts[id]];
+				if (values[literal] == FALSE) {
+					conflict = true;
+					return;
+				} else if (values[literal] == UNDEF) {
+					enqueue(literal, id);
+				}
+			}
+		}
+		conflict = propagate();
+	}
+
+	private boolean isRup(int[] literals, int size) {
+		if (conflict) {
+			return true;
+		}
+		final int checkpoint = trailSize;
+		boolean result = false;
+		for (int i = 0; i < size; i++) {
+			final int literal = literals[i];
+			if (values[literal] == TRUE) {
+				result = true;
+				break;
+			} else if (values[literal] == UNDEF) {
+				enqueue(literal ^ 1, NO_REASON);
+			}
+		}
+		if (!result) {
+			result = propagate();
+		}
+		undo(checkpoint);
+		return result;
+	}
+
+	private boolean isRat(int[] literals, int size) {
+		if (size == 0) {
+			return false;
+		}
+		final int pivot = literals[0];
+		if (resolventBuffer.length < (size + maxClauseSize)) {
+			resolventBuffer = new int[size + maxClauseSize];
+		}
+		System.arraycopy(literals, 0, resolventBuffer, 0, size);
+		for (int id = 0; id < clauseCount; id++) {
+			if (!deleted[id] && contains(id, pivot ^ 1)) {
+				int resolventSize = size;
+				boolean tautology = false;
+				final int start = clauseStarts[id];
+				for (int i = start; i < (start + clauseSizes[id]); i++) {
+					final int literal = arena[i];
+					if (literal != (pivot ^ 1)) {
+						for (int j = 0; j < size; j++) {
+							if (literals[j] == (literal ^ 1)) {
+								tautology = true;
+							}
+						}
+						resolventBuffer[resolventSize++] = literal;
+					}
+				}
+				if (!tautology && !isRup(resolventBuffer, resolventSize)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean contains(int id, int literal) {
+		final int start = clauseStarts[id];
+		for (int i = start; i < (start + clauseSizes[id]); i++) {
+			if (arena[i] == literal) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void undo(int checkpoint) {
+		for (int i = trailSize - 1; i >= checkpoint; i--) {
+			final int literal = trail[i];
+			values[literal] = UNDEF;
+			values[literal ^ 1] = UNDEF;
+			reasons[literal >> 1] = NO_REASON;
+		}
+		trailSize = checkpoint;
+		propagationHead = checkpoint;
+	}
+
+	private void enqueue(int literal, int reason) {
+		values[literal] = TRUE;
+		values[literal ^ 1] = FALSE;
+		reasons[literal >> 1] = reason;
+		trail[trailSize++] = literal;
+	}
+
+	/**
+	 * Propagates all enqueued literals.
+	 *
+	 * @return {@code true} if a conflict occurred
+	 */
+	private boolean propagate() {
+		while (propagationHead < trailSize) {
+			final int falseLiteral = trail[propagationHead++] ^ 1;
+			final int[] watchList = watches[falseLiteral];
+			final int size = watchSizes[falseLiteral];
+			int i = 0;
+			int j = 0;
+			while (i < size) {
+				final int id = watchList[i++];
+				if (deleted[id]) {
+					continue;
+				}
+				final int start = clauseStarts[id];
+				final int end = start + clauseSizes[id];
+				if (arena[start] == falseLiteral) {
+					arena[start] = arena[start + 1];
+					arena[start + 1] = falseLiteral;
+				}
+				final int first = arena[start];
+				if (values[first] == TRUE) {
+					watchList[j++] = id;
+					continue;
+				}
+				boolean foundWatch = false;
+				for (int k = start + 2; k < end; k++) {
+					final int literal = arena[k];
+					if (values[literal] != FALSE) {
+						arena[start + 1] = literal;
+						arena[k] = falseLiteral;
+						addWatch(literal, id);
+						foundWatch = true;
+						break;
+					}
+				}
+				if (foundWatch) {
+					continue;
+				}
+				watchList[j++] = id;
+				if (values[first] == FALSE) {
+					while (i < size) {
+						watchList[j++] = watchList[i++];
+					}
+					watchSizes[falseLiteral] = j;
+					propagationHead = trailSize;
+					return true;
+				}
+				enqueue(first, id);
+			}
+			watchSizes[falseLiteral] = j;
+		}
+		return false;
+	}
+
+	private void addWatch(int literal, int id) {
+		int[] watchList = watches[literal];
+		final int size = watchSizes[literal];
+		if (watchList == null) {
+			watchList = new int[4];
+			watches[literal] = watchList;
+		} else if (size == watchList.length) {
+			watchList = Arrays.copyOf(watchList, size << 1);
+			watches[literal] = watchList;
+		}
+		watchList[size] = id;
+		watchSizes[literal] = size + 1;
+	}
+
+	private void ensureVariables(int variableCount) {
+		if (variableCount > numberOfVariables) {
+			if (variableCount >= reasons.length) {
+				final int capacity = Math.max(variableCount + 1, reasons.length << 1);
+				values = Arrays.copyOf(values, capacity << 1);
+				final int oldLength = reasons.length;
+				reasons = Arrays.copyOf(reasons, capacity);
+				Arrays.fill(reasons, oldLength, capacity, NO_REASON);
+				trail = Arrays.copyOf(trail, capacity);
+				watches = Arrays.copyOf(watches, capacity << 1);
+				watchSizes = Arrays.copyOf(watchSizes, capacity << 1);
+			}
+			numberOfVariables = variableCount;
+		}
+	}
+
+	/**
+	 * Identifies a clause by its set of literals.
+	 */
+	private static final class ClauseKey {
+
+		private final int[] literals;
+		private final int hashCode;
+
+		ClauseKey(int[] literals, int size) {
+			final int[] sortedLiterals = Arrays.copyOf(literals, size);
+			Arrays.sort(sortedLiterals);
+			int j = 0;
+			for (int i = 0; i < size; i++) {
+				if ((j == 0) || (sortedLiterals[j - 1] != sortedLiterals[i])) {
+					sortedLiterals[j++] = sortedLiterals[i];
+				}
+			}
+			this.literals = j == size ? sortedLiterals : Arrays.copyOf(sortedLiterals, j);
+			hashCode = Arrays.hashCode(this.literals);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof ClauseKey) && Arrays.equals(literals, ((ClauseKey) obj).literals);
+		}
+
+	}
+
+}
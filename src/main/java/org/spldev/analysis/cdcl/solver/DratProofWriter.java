@@ -0,0 +1,167 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * Writes a clausal proof in binary DRAT format to a channel. Each step is a
+ * byte {@code 'a'} (addition) or {@code 'd'} (deletion) followed by the
+ * literals of the clause as variable-length unsigned integers
+ * ({@code 2 * variable} for positive and {@code 2 * variable + 1} for negative
+ * literals) and terminated by {@code 0}. This is the same encoding as used
+ * internally by the {@link CDCLEngine}, so clauses are written directly from
+ * the engine's arrays into a reused buffer without any allocation.
+ *
+ * @see CDCLEngine#setProofWriter(DratProofWriter)
+ * @see DratProofChecker
+ */
+public class DratProofWriter implements Closeable {
+
+	static final byte ADDITION = 'a';
+	static final byte DELETION = 'd';
+
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+	private static final int MAX_LITERAL_BYTES = 5;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+
+	private long additions;
+	private long deletions;
+
+	public DratProofWriter(WritableByteChannel channel) {
+		this(channel, DEFAULT_BUFFER_SIZE);
+	}
+
+	public DratProofWriter(WritableByteChannel channel, int bufferSize) {
+		if (bufferSize < (MAX_LITERAL_BYTES + 1)) {
+			throw new IllegalArgumentException("Buffer too small: " + bufferSize);
+		}
+		this.channel = channel;
+		buffer = ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/**
+	 * Creates a writer for a new file. An existing file is overwritten.
+	 *
+	 * @param path the path of the proof file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public DratProofWriter(Path path) throws IOException {
+		this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING));
+	}
+
+	void add(int[] literals, int size) {
+		begin(ADDITION);
+		for (int i = 0; i < size; i++) {
+			literal(literals[i]);
+		}
+		end();
+	}
+
+	void delete(int[] literals, int size) {
+		begin(DELETION);
+		for (int i = 0; i < size; i++) {
+			literal(literals[i]);
+		}
+		end();
+	}
+
+	void begin(byte type) {
+		ensureCapacity(1);
+		buffer.put(type);
+		if (type == ADDITION) {
+			additions++;
+		} else {
+			deletions++;
+		}
+	}
+
+	void literal(int literal) {
+		ensureCapacity(MAX_LITERAL_BYTES);
+		int value = literal;
+		while ((value & ~0x7f) != 0) {
+			buffer.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	void end() {
+		ensureCapacity(1);
+		buffer.put((byte) 0);
+	}
+
+	private void ensureCapacity(int bytes) {
+		if (buffer.remaining() < bytes) {
+			try {
+				writeBuffer();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	public long getNumberOfAdditions() {
+		return additions;
+	}
+
+	public long getNumberOfDeletions() {
+		return deletions;
+	}
+
+	/**
+	 * Writes all buffered steps to the channel.
+	 *
+	 * @throws IOException if the channel cannot be written
+	 */
+	public void flush() throws IOException {
+		writeBuffer();
+	}
+
+	/**
+	 * Flushes and closes the underlying channel.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			writeBuffer();
+		} finally {
+			channel.close();
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+
+/**
+ * Generalized totalizer encoding of a pseudo-Boolean sum in a
+ * {@link CDCLEngine}. Each node has one output literal per weighted sum its
+ * inputs can reach, which is implied by any assignment reaching at least that
+ * sum. All sums above a fixed limit are merged into a single output. Thus, the
+ * sum can be restricted to any bound below the limit by assuming the negation
+ * of the {@link #getOutputsAbove(long) outputs above the bound}, which allows
+ * the same encoding to be reused for decreasing bounds.
+ */
+class GeneralizedTotalizer {
+
+	private final long[] sums;
+	private final int[] outputs;
+
+	private GeneralizedTotalizer(long[] sums, int[] outputs) {
+		this.sums = sums;
+		this.outputs = outputs;
+	}
+
+	/**
+	 * Encodes the weighted sum of the given literals. Does not modify the engine
+	 * if the encoding would require more than {@code maxClauses} clauses.
+	 *
+	 * @param engine     the engine to add the encoding to
+	 * @param inputs     the input literals in DIMACS notation
+	 * @param weights    the positive weight of each input literal
+	 * @param count      the number of valid entries in {@code inputs} and
+	 *                   {@code weights}
+	 * @param limit      the highest sum that is distinguished from greater sums
+	 * @param maxClauses the maximum number of clauses of the encoding
+	 * @return the encoding or {@code null} if it is too large
+	 */
+	static GeneralizedTotalizer encode(CDCLEngine engine, int[] inputs, long[] weights, int count, long limit,
+		long maxClauses) {
+		if (count == 0) {
+			return new GeneralizedTotalizer(new long[0], new int[0]);
+		}
+		final long[][] nodeSums = new long[(count << 1) - 1][];
+		final long[] clauseCount = { 0 };
+		if (!computeSums(nodeSums, 0, weights, 0, count, limit, clauseCount, maxClauses)) {
+			return null;
+		}
+		final int[][] nodeOutputs = new int[nodeSums.length][];
+		encode(engine, nodeSums, nodeOutputs, 0, inputs, 0, count);
+		return new GeneralizedTotalizer(nodeSums[0], nodeOutputs[0]);
+	}
+
+	private static boolean computeSums(long[][] nodeSums, int node, long[] weights, int from, int to, long limit,
+		long[] clauseCount, long maxClauses) {
+		if ((to - from) == 1) {
+			nodeSums[node] = new long[] { Math.min(weights[from], limit + 1) };
+			return true;
+		}
+		final int middle = (from + to) >>> 1;
+		final int leftNode = node + 1;
+		final int rightNode = node + ((middle - from) << 1);
+		if (!computeSums(nodeSums, leftNode, weights, from, middle, limit, clauseCount, maxClauses)
+			|| !computeSums(nodeSums, rightNode, weights, middle, to, limit, clauseCount, maxClauses)) {
+			return false;
+		}
+		final long[] leftSums = nodeSums[leftNode];
+		final long[] rightSums = nodeSums[rightNode];
+		clauseCount[0] += ((leftSums.length + 1L) * (rightSums.length + 1L)) - 1;
+		if (clauseCount[0] > maxClauses) {
+			return false;
+		}
+		final long[] sums = new long[((leftSums.length + 1) * (rightSums.length + 1)) - 1];
+		int size = 0;
+		for (int i = 0; i <= leftSums.length; i++) {
+			final long leftSum = i == 0 ? 0 : leftSums[i - 1];
+			for (int j = i == 0 ? 1 : 0; j <= rightSums.length; j++) {
+				sums[size++] = Math.min(leftSum + (j == 0 ? 0 : rightSums[j - 1]), limit + 1);
+			}
+		}
+		Arrays.sort(sums);
+		int distinct = 0;
+		for (int i = 0; i < sums.length; i++) {
+			if ((distinct == 0) || (sums[distinct - 1] != sums[i])) {
+				sums[distinct++] = sums[i];
+			}
+		}
+		nodeSums[node] = Arrays.copyOf(sums, distinct);
+		return true;
+	}
+
+	private static void encode(CDCLEngine engine, long[][] nodeSums, int[][] nodeOutputs, int node, int[] inputs,
+		int from, int to) {
+		if ((to - from) == 1) {
+			nodeOutputs[node] = new int[] { inputs[from] };
+			return;
+		}
+		final int middle = (from + to) >>> 1;
+		final int leftNode = node + 1;
+		final int rightNode = node + ((middle - from) << 1);
+		encode(engine, nodeSums, nodeOutputs, leftNode, inputs, from, middle);
+		encode(engine, nodeSums, nodeOutputs, rightNode, inputs, middle, to);
+
+		final long[] sums = nodeSums[node];
+		final int[] outputs = new int[sums.length];
+		for (int i = 0; i < outputs.length; i++) {
+			outputs[i] = engine.newVariable();
+		}
+		nodeOutputs[node] = outputs;
+		final long maxSum = sums[sums.length - 1];
+		final long[] leftSums = nodeSums[leftNode];
+		final long[] rightSums = nodeSums[rightNode];
+		for (int i = 0; i <= leftSums.length; i++) {
+			final long leftSum = i == 0 ? 0 : leftSums[i - 1];
+			for (int j = i == 0 ? 1 : 0; j <= rightSums.length; j++) {
+				final long sum = Math.min(leftSum + (j == 0 ? 0 : rightSums[j - 1]), maxSum);
+				final int output = outputs[Arrays.binarySearch(sums, sum)];
+				if (i == 0) {
+					engine.addClause(-nodeOutputs[rightNode][j - 1], output);
+				} else if (j == 0) {
+					engine.addClause(-nodeOutputs[leftNode][i - 1], output);
+				} else {
+					engine.addClause(-nodeOutputs[leftNode][i - 1], -nodeOutputs[rightNode][j - 1], output);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the outputs for all sums greater than the given bound. Assuming
+	 * their negations restricts the sum to at most {@code bound}.
+	 *
+	 * @param bound a bound smaller than the limit of the encoding
+	 * @return an array of literals in DIMACS notation
+	 */
+	int[] getOutputsAbove(long bound) {
+		int index = Arrays.binarySearch(sums, bound + 1);
+		if (index < 0) {
+			index = -index - 1;
+		}
+		return Arrays.copyOfRange(outputs, index, outputs.length);
+	}
+
+}
@@ -0,0 +1,393 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+
+/**
+ * Answers whether one literal implies another literal with respect to a
+ * formula (i.e., whether there is no solution containing the first literal
+ * and the complement of the second one). Queries are answered by the
+ * following steps, of which only the last one calls a solver:
+ * <ol>
+ * <li>literals that are fixed by unit propagation of the formula,</li>
+ * <li>transitive reachability in the condensed {@link ImplicationGraph binary
+ * implication graph}, which is precomputed for each strongly connected
+ * component as a compressed bitset of reachable components,</li>
+ * <li>a bank of up to 64 solutions, which refutes every implication that one
+ * of the solutions contradicts,</li>
+ * <li>a cache of implications proven by previous solver calls, and</li>
+ * <li>a call of a {@link CDCLEngine}, whose solution is added to the bank.</li>
+ * </ol>
+ * Queries that are decided by the first four steps do not allocate any
+ * memory. An index is not thread-safe.
+ */
+public class ImplicationIndex {
+
+	private static final int MODEL_BANK_SIZE = 64;
+	private static final int INITIAL_MODEL_COUNT = 8;
+
+	private final int variableCount;
+	private final boolean ok;
+	private final CDCLEngine engine;
+	private final boolean[] fixed;
+	private final int[] components;
+
+	// reachable components of component c as sparse bitset: word indexes and
+	// words from reachStarts[c] (inclusive) to reachStarts[c + 1] (exclusive)
+	private final int[] reachStarts;
+	private final int[] reachWordIndexes;
+	private final long[] reachWords;
+
+	private final long[] modelBank;
+	private int modelCount;
+
+	private long[] provenImplications = new long[1024];
+	private int provenImplicationCount;
+
+	private final int[] assumptions = new int[2];
+	private final Random random = new Random(0);
+	private int[] phases;
+	private boolean useSolver = true;
+	private long solverCalls;
+
+	/**
+	 * Creates an index for the clauses of a CNF.
+	 *
+	 * @param cnf the CNF
+	 */
+	public ImplicationIndex(CNF cnf) {
+		variableCount = cnf.getVariableMap().getMaxIndex();
+		engine = new CDCLSolver(cnf).getEngine();
+		final int nodeCount = (variableCount + 1) << 1;
+		fixed = new boolean[nodeCount];
+		modelBank = new long[nodeCount];
+		final int[] impliedLiterals = engine.getImpliedLiterals();
+		ok = impliedLiterals != null;
+		if (!ok) {
+			components = new int[nodeCount];
+			reachStarts = new int[2];
+			reachWordIndexes = new int[0];
+			reachWords = new long[0];
+			return;
+		}
+		final int[] fixedLiterals = new int[impliedLiterals.length];
+		int fixedCount = 0;
+		for (final int literal : impliedLiterals) {
+			if (Math.abs(literal) <= variableCount) {
+				fixed[ImplicationGraph.node(literal)] = true;
+				fixedLiterals[fixedCount++] = literal;
+			}
+		}
+
+		final ImplicationGraph graph = new ImplicationGraph(variableCount, cnf.getClauses(), new LiteralList(Arrays
+			.copyOf(fixedLiterals, fixedCount), LiteralList.Order.UNORDERED, false));
+		components = graph.getComponents();
+		final int componentCount = graph.getComponentCount();
+
+		// sort nodes by component
+		final int[] memberStarts = new int[componentCount + 1];
+		for (int node = 0; node < nodeCount; node++) {
+			memberStarts[components[node] + 1]++;
+		}
+		for (int component = 0; component < componentCount; component++) {
+			memberStarts[component + 1] += memberStarts[component];
+		}
+		final int[] members = new int[nodeCount];
+		final int[] memberEnds = Arrays.copyOf(memberStarts, componentCount);
+		for (int node = 0; node < nodeCount; node++) {
+			members[memberEnds[components[node]]++] = node;
+		}
+
+		// components are numbered in reverse topological order, so all
+		// successors of a component are processed before the component itself
+		final int[] edgeStarts = graph.getEdgeStarts();
+		final int[] edges = graph.getEdges();
+		final long[] denseWords = new long[(componentCount >>> 6) + 1];
+		final int[] touchedWords = new int[denseWords.length];
+		int[] starts = new int[componentCount + 1];
+		int[] wordIndexes = new int[Math.max(16, componentCount)];
+		long[] words = new long[wordIndexes.length];
+		int size = 0;
+		for (int component = 0; component < componentCount; component++) {
+			int touchedCount = 0;
+			final int ownWord = component >>> 6;
+			touchedWords[touchedCount++] = ownWord;
+			denseWords[ownWord] = 1L << component;
+			for (int i = memberStarts[component]; i < memberStarts[component + 1]; i++) {
+				final int node = members[i];
+				for (int j = edgeStarts[node]; j < edgeStarts[node + 1]; j++) {
+					final int successor = components[edges[j]];
+					if (successor != component) {
+						for (int k = starts[successor]; k < starts[successor + 1]; k++) {
+							final int wordIndex = wordIndexes[k];
+							if (denseWords[wordIndex] == 0) {
+								touchedWords[touchedCount++] = wordIndex;
+							}
+							denseWords[wordIndex] |= words[k];
+						}
+					}
+				}
+			}
+			Arrays.sort(touchedWords, 0, touchedCount);
+			if ((size + touchedCount) > wordIndexes.length) {
+				final int capacity = Math.max(size + touchedCount, wordIndexes.length << 1);
+				wordIndexes = Arrays.copyOf(wordIndexes, capacity);
+				words = Arrays.copyOf(words, capacity);
+			}
+			starts[component] = size;
+			for (int i = 0; i < touchedCount; i++) {
+				final int wordIndex = touchedWords[i];
+				wordIndexes[size] = wordIndex;
+				words[size++] = denseWords[wordIndex];
+				denseWords[wordIndex] = 0;
+			}
+			starts[component + 1] = size;
+		}
+		reachStarts = starts;
+		reachWordIndexes = Arrays.copyOf(wordIndexes, size);
+		reachWords = Arrays.copyOf(words, size);
+
+		for (int i = 0; i < INITIAL_MODEL_COUNT; i++) {
+			setRandomPhases();
+			if (engine.solve() != SatResult.TRUE) {
+				break;
+			}
+			addModel(engine.getModel());
+		}
+	}
+
+	public boolean isUseSolver() {
+		return useSolver;
+	}
+
+	/**
+	 * Sets whether queries that cannot be decided without a solver call are
+	 * answered by a solver. Otherwise, such queries are answered with
+	 * {@code false}.
+	 *
+	 * @param useSolver whether to use a solver
+	 */
+	public void setUseSolver(boolean useSolver) {
+		this.useSolver = useSolver;
+	}
+
+	/**
+	 * Returns the engine that is used for queries that cannot be answered by the
+	 * index (e.g., to set a {@link Budget budget}).
+	 *
+	 * @return the engine
+	 */
+	public CDCLEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Returns the number of queries that required a solver call.
+	 */
+	public long getSolverCalls() {
+		return solverCalls;
+	}
+
+	/**
+	 * Checks whether a literal implies another literal.
+	 *
+	 * @param literal        the premise in DIMACS notation
+	 * @param impliedLiteral the conclusion in DIMACS notation
+	 * @return {@code true} if every solution containing {@code literal} also
+	 *         contains {@code impliedLiteral}
+	 *
+	 * @throws RuntimeTimeoutException if the solver timed out
+	 */
+	public boolean implies(int literal, int impliedLiteral) {
+		final int node = toNode(literal);
+		final int impliedNode = toNode(impliedLiteral);
+		if (reaches(node, impliedNode)) {
+			return true;
+		}
+		if ((modelBank[node] & modelBank[impliedNode ^ 1]) != 0) {
+			return false;
+		}
+		if (fixed[node] && fixed[impliedNode ^ 1]) {
+			return false;
+		}
+		final long key = ((long) node << 32) | impliedNode;
+		if (containsProvenImplication(key)) {
+			return true;
+		}
+		if (!useSolver) {
+			return false;
+		}
+		solverCalls++;
+		setRandomPhases();
+		assumptions[0] = literal;
+		assumptions[1] = -impliedLiteral;
+		final SatResult result = engine.solve(assumptions, 2);
+		switch (result) {
+		case FALSE:
+			addProvenImplication(key);
+			return true;
+		case TRUE:
+			addModel(engine.getModel());
+			return false;
+		case TIMEOUT:
+			throw new RuntimeTimeoutException();
+		default:
+			throw new AssertionError(result);
+		}
+	}
+
+	/**
+	 * Checks whether a literal implies another literal by unit propagation and
+	 * the binary clauses of the formula alone. Never calls a solver.
+	 *
+	 * @param literal        the premise in DIMACS notation
+	 * @param impliedLiteral the conclusion in DIMACS notation
+	 * @return {@code true} if the implication follows from the index and
+	 *         {@code false} if it does not follow (but may still hold)
+	 */
+	public boolean impliesByIndex(int literal, int impliedLiteral) {
+		return reaches(toNode(literal), toNode(impliedLiteral));
+	}
+
+	/**
+	 * Checks whether two literals are equivalent with respect to the binary
+	 * clauses of the formula (i.e., they are in the same strongly connected
+	 * component).
+	 *
+	 * @param literal1 a literal in DIMACS notation
+	 * @param literal2 a literal in DIMACS notation
+	 * @return {@code true} if the literals are equivalent
+	 */
+	public boolean isEquivalentByIndex(int literal1, int literal2) {
+		return components[toNode(literal1)] == components[toNode(literal2)];
+	}
+
+	private boolean reaches(int node, int impliedNode) {
+		if (!ok || (node == impliedNode) || fixed[node ^ 1] || fixed[impliedNode]) {
+			return true;
+		}
+		final int component = components[node];
+		final int impliedComponent = components[impliedNode];
+		if (component == impliedComponent) {
+			return true;
+		}
+		final int wordIndex = impliedComponent >>> 6;
+		int low = reachStarts[component];
+		int high = reachStarts[component + 1] - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int middleIndex = reachWordIndexes[middle];
+			if (middleIndex < wordIndex) {
+				low = middle + 1;
+			} else if (middleIndex > wordIndex) {
+				high = middle - 1;
+			} else {
+				return (reachWords[middle] & (1L << impliedComponent)) != 0;
+			}
+		}
+		return false;
+	}
+
+	private int toNode(int literal) {
+		if ((literal == 0) || (Math.abs(literal) > variableCount)) {
+			throw new IllegalArgumentException(String.valueOf(literal));
+		}
+		return ImplicationGraph.node(literal);
+	}
+
+	/**
+	 * Sets random phases, such that the solutions in the bank differ as much as
+	 * possible.
+	 */
+	private void setRandomPhases() {
+		if (phases == null) {
+			phases = new int[variableCount];
+		}
+		for (int variable = 1; variable <= variableCount; variable++) {
+			phases[variable - 1] = random.nextBoolean() ? variable : -variable;
+		}
+		engine.setSavedPhases(phases);
+	}
+
+	/**
+	 * Adds a solution to the bank, replacing the oldest solution if the bank is
+	 * full.
+	 */
+	private void addModel(int[] model) {
+		final int bit = modelCount++ % MODEL_BANK_SIZE;
+		final long mask = 1L << bit;
+		for (int variable = 1; variable <= variableCount; variable++) {
+			final int node = variable << 1;
+			if (model[variable - 1] > 0) {
+				modelBank[node] |= mask;
+				modelBank[node + 1] &= ~mask;
+			} else {
+				modelBank[node] &= ~mask;
+				modelBank[node + 1] |= mask;
+			}
+		}
+	}
+
+	private boolean containsProvenImplication(long key) {
+		final int mask = provenImplications.length - 1;
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+			final long entry = provenImplications[i];
+			if (entry == 0) {
+				return false;
+			} else if (entry == key) {
+				return true;
+			}
+		}
+	}
+
+	private void addProvenImplication(long key) {
+		if (((provenImplicationCount + 1) << 1) > provenImplications.length) {
+			final long[] oldImplications = provenImplications;
+			provenImplications = new long[oldImplications.length << 1];
+			provenImplicationCount = 0;
+			for (final long oldKey : oldImplications) {
+				if (oldKey != 0) {
+					addProvenImplication(oldKey);
+				}
+			}
+		}
+		final int mask = provenImplications.length - 1;
+		int i = hash(key) & mask;
+		while (provenImplications[i] != 0) {
+			i = (i + 1) & mask;
+		}
+		provenImplications[i] = key;
+		provenImplicationCount++;
+	}
+
+	private static int hash(long key) {
+		final long mixed = key * 0x9E3779B97F4A7C15L;
+		return (int) (mixed ^ (mixed >>> 32));
+	}
+
+}
@@ -0,0 +1,250 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.util.job.*;
+
+/**
+ * Partitions the search space of a set of clauses into cubes (i.e.,
+ * conjunctions of literals) by lookahead. At each node of a binary search
+ * tree, a preselection of the most frequent unassigned variables is
+ * propagated in both polarities. A literal that leads to a conflict is a
+ * failed literal, whose negation is assigned at the node. If both polarities
+ * fail, the node is refuted and produces no cube. Otherwise, the variable that
+ * maximizes the product of the numbers of implied literals of both
+ * polarities is used to split the node until the maximum number of cubes is
+ * reached.
+ * <p>
+ * The disjunction of all cubes covers every solution of the clauses (under
+ * the given assumptions). An empty list of cubes means that the clauses are
+ * unsatisfiable.
+ */
+public class LookaheadCuber {
+
+	private final UnitPropagator propagator;
+	private final int[] variablesByScore;
+
+	private int maxCubes = 64;
+	private int maxCandidates = 64;
+	private InternalMonitor monitor;
+
+	private final ArrayList<LiteralList> cubes = new ArrayList<>();
+	private int[] path;
+	private int[] candidates;
+
+	public LookaheadCuber(CNF cnf) {
+		this(cnf.getVariableMap().getMaxIndex(), cnf.getClauses());
+	}
+
+	/**
+	 * Creates a new cuber for the given clauses.
+	 *
+	 * @param numberOfVariables the highest variable index of the clauses
+	 * @param clauses           the clauses
+	 */
+	public LookaheadCuber(int numberOfVariables, List<LiteralList> clauses) {
+		final ArrayList<int[]> clauseLiterals = new ArrayList<>(clauses.size());
+		final int[] scores = new int[numberOfVariables + 1];
+		for (final LiteralList clause : clauses) {
+			final int[] literals = clause.getLiterals();
+			clauseLiterals.add(literals);
+			for (final int literal : literals) {
+				scores[Math.abs(literal)]++;
+			}
+		}
+		propagator = new UnitPropagator(numberOfVariables, clauseLiterals);
+		variablesByScore = new int[numberOfVariables];
+		final Integer[] variables = new Integer[numberOfVariables];
+		for (int i = 0; i < numberOfVariables; i++) {
+			variables[i] = i + 1;
+		}
+		Arrays.sort(variables, (variable1, variable2) -> scores[variable2] - scores[variable1]);
+		for (int i = 0; i < numberOfVariables; i++) {
+			variablesByScore[i] = variables[i];
+		}
+	}
+
+	public int getMaxCubes() {
+		return maxCubes;
+	}
+
+	/**
+	 * Sets the maximum number of cubes. The actual number may be lower if
+	 * branches are refuted or all variables are assigned.
+	 *
+	 * @param maxCubes a positive number
+	 */
+	public void setMaxCubes(int maxCubes) {
+		if (maxCubes < 1) {
+			throw new IllegalArgumentException(String.valueOf(maxCubes));
+		}
+		this.maxCubes = maxCubes;
+	}
+
+	public int getMaxCandidates() {
+		return maxCandidates;
+	}
+
+	/**
+	 * Sets the number of variables that are evaluated by lookahead at each node.
+	 *
+	 * @param maxCandidates a positive number
+	 */
+	public void setMaxCandidates(int maxCandidates) {
+		if (maxCandidates < 1) {
+			throw new IllegalArgumentException(String.valueOf(maxCandidates));
+		}
+		this.maxCandidates = maxCandidates;
+	}
+
+	public void setMonitor(InternalMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Computes cubes that cover all solutions of the clauses.
+	 *
+	 * @param assumptions literals in DIMACS notation that hold in every solution
+	 *                    (not contained in the cubes)
+	 * @return a list of cubes or an empty list if the clauses are unsatisfiable
+	 *         under the assumptions
+	 *
+	 * @throws RuntimeTimeoutException if the monitor was canceled
+	 */
+	public List<LiteralList> getCubes(int... assumptions) throws RuntimeTimeoutException {
+		cubes.clear();
+		final int checkpoint = propagator.getTrailSize();
+		try {
+			for (final int literal : assumptions) {
+				if (!propagator.assign(literal)) {
+					return new ArrayList<>();
+				}
+			}
+			path = new int[propagator.getNumberOfVariables()];
+			candidates = new int[Math.min(maxCandidates, variablesByScore.length)];
+			split(0, maxCubes);
+			return new ArrayList<>(cubes);
+		} finally {
+			propagator.undo(checkpoint);
+			cubes.clear();
+		}
+	}
+
+	private void split(int depth, int budget) {
+		checkCancel();
+		final int checkpoint = propagator.getTrailSize();
+		try {
+			if (budget <= 1) {
+				addCube(depth);
+				return;
+			}
+			int bestVariable = 0;
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+				bestVariable = 0;
+				long bestScore = -1;
+				final int candidateCount = selectCandidates();
+				for (int i = 0; i < candidateCount; i++) {
+					final int variable = candidates[i];
+					if (propagator.getValue(variable) != 0) {
+						continue;
+					}
+					final int positiveCount = lookahead(variable);
+					final int negativeCount = lookahead(-variable);
+					if ((positiveCount < 0) && (negativeCount < 0)) {
+						return;
+					} else if (positiveCount < 0) {
+						if (!propagator.assign(-variable)) {
+							return;
+						}
+						changed = true;
+					} else if (negativeCount < 0) {
+						if (!propagator.assign(variable)) {
+							return;
+						}
+						changed = true;
+					} else {
+						final long score = ((long) positiveCount + 1) * ((long) negativeCount + 1);
+						if (score > bestScore) {
+							bestScore = score;
+							bestVariable = variable;
+						}
+					}
+				}
+			}
+			if (bestVariable == 0) {
+				addCube(depth);
+				return;
+			}
+			for (final int literal : new int[] { bestVariable, -bestVariable }) {
+				final int branchCheckpoint = propagator.getTrailSize();
+				if (propagator.assign(literal)) {
+					path[depth] = literal;
+					split(depth + 1, literal > 0 ? (budget + 1) >> 1 : budget >> 1);
+				}
+				propagator.undo(branchCheckpoint);
+			}
+		} finally {
+			propagator.undo(checkpoint);
+		}
+	}
+
+	private int lookahead(int literal) {
+		final int checkpoint = propagator.getTrailSize();
+		final int count = propagator.assign(literal) ? propagator.getTrailSize() - checkpoint : -1;
+		propagator.undo(checkpoint);
+		return count;
+	}
+
+	private int selectCandidates() {
+		int count = 0;
+		for (int i = 0; (i < variablesByScore.length) && (count < candidates.length); i++) {
+			final int variable = variablesByScore[i];
+			if (propagator.getValue(variable) == 0) {
+				candidates[count++] = variable;
+			}
+		}
+		return count;
+	}
+
+	private void addCube(int depth) {
+		cubes.add(new LiteralList(Arrays.copyOf(path, depth), Order.UNORDERED, false));
+	}
+
+	private void checkCancel() {
+		if (monitor != null) {
+			try {
+				monitor.checkCancel();
+			} catch (final InternalMonitor.MethodCancelException e) {
+				throw new RuntimeTimeoutException(e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,373 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+
+/**
+ * Minimizes a weighted sum of literals (i.e., a weighted partial MaxSAT
+ * problem) on a dedicated {@link CDCLEngine}. The search starts core-guided
+ * (OLL with stratification): each unsatisfiable core increases the lower bound
+ * and is relaxed by an {@link Totalizer incremental totalizer} whose outputs
+ * become new soft literals. Every solution found on the way is a candidate for
+ * the upper bound. After a number of cores, the search switches to a SAT-UNSAT
+ * linear search on the reformulated objective, which restricts the remaining
+ * cost by a {@link GeneralizedTotalizer} and tightens its bound with each
+ * solution. If the linear encoding would be too large, the core-guided search
+ * continues until the bounds meet.
+ */
+class MaxSatSearch {
+
+	private static final int MAX_TRIM_ROUNDS = 3;
+
+	private final CDCLEngine engine;
+	private final int numberOfVariables;
+	private final int[] hardAssumptions;
+
+	private final int[] originalLiterals;
+	private final long[] originalWeights;
+	private int[] softLiterals;
+	private long[] softWeights;
+	private Totalizer[] softTotalizers;
+	private int[] softBounds;
+	private int softCount;
+	private final HashMap<Integer, Integer> softIndices = new HashMap<>();
+
+	private int coreLimit = Integer.MAX_VALUE;
+	private long maxEncodingSize = Long.MAX_VALUE;
+
+	private long lowerBound;
+	private long upperBound = Long.MAX_VALUE;
+	private int[] bestModel;
+	private int[] assumptionBuffer;
+
+	/**
+	 * Creates a new search that minimizes the sum of the weights of all true soft
+	 * literals.
+	 *
+	 * @param engine            the engine to search on, which is extended by
+	 *                          auxiliary variables and clauses
+	 * @param numberOfVariables the number of variables of a solution
+	 * @param hardAssumptions   literals that must hold in every solution
+	 * @param softLiterals      the soft literals in DIMACS notation
+	 * @param softWeights       the positive weight of each soft literal
+	 */
+	MaxSatSearch(CDCLEngine engine, int numberOfVariables, int[] hardAssumptions, int[] softLiterals,
+		long[] softWeights) {
+		this.engine = engine;
+		this.numberOfVariables = numberOfVariables;
+		this.hardAssumptions = hardAssumptions;
+		originalLiterals = softLiterals.clone();
+		originalWeights = softWeights.clone();
+		this.softLiterals = new int[Math.max(16, softLiterals.length << 1)];
+		this.softWeights = new long[this.softLiterals.length];
+		softTotalizers = new Totalizer[this.softLiterals.length];
+		softBounds = new int[this.softLiterals.length];
+		final HashSet<Integer> hardLiterals = new HashSet<>();
+		for (final int literal : hardAssumptions) {
+			hardLiterals.add(literal);
+		}
+		for (int i = 0; i < softLiterals.length; i++) {
+			if (hardLiterals.contains(softLiterals[i])) {
+				lowerBound += softWeights[i];
+			} else if (!hardLiterals.contains(-softLiterals[i])) {
+				addSoft(softLiterals[i], softWeights[i], null, 0);
+			}
+		}
+		assumptionBuffer = new int[hardAssumptions.length + this.softLiterals.length];
+	}
+
+	/**
+	 * Sets the number of cores after which the search switches from core-guided
+	 * to linear search.
+	 *
+	 * @param coreLimit a non-negative number
+	 */
+	void setCoreLimit(int coreLimit) {
+		this.coreLimit = coreLimit;
+	}
+
+	/**
+	 * Sets the maximum number of clauses of the encoding used by the linear
+	 * search.
+	 *
+	 * @param maxEncodingSize a non-negative number
+	 */
+	void setMaxEncodingSize(long maxEncodingSize) {
+		this.maxEncodingSize = maxEncodingSize;
+	}
+
+	/**
+	 * Computes an optimal solution.
+	 *
+	 * @return one literal per variable ordered by index or {@code null} if there
+	 *         is no solution at all
+	 *
+	 * @throws RuntimeTimeoutException if the engine was interrupted or its
+	 *                                 monitor was canceled
+	 */
+	int[] search() throws RuntimeTimeoutException {
+		long threshold = getNextThreshold(Long.MAX_VALUE);
+		int coreCount = 0;
+		boolean linearSearch = true;
+		while (lowerBound < upperBound) {
+			if (linearSearch && (coreCount >= coreLimit)) {
+				if (searchLinear()) {
+					break;
+				}
+				linearSearch = false;
+			}
+			int count = copyHardAssumptions();
+			for (int i = 0; i < softCount; i++) {
+				if ((softWeights[i] > 0) && (softWeights[i] >= threshold)) {
+					assumptionBuffer[count++] = -softLiterals[i];
+				}
+			}
+			if (solve(count) == SatResult.TRUE) {
+				updateUpperBound();
+				final long nextThreshold = getNextThreshold(threshold);
+				if (nextThreshold == 0) {
+					break;
+				}
+				threshold = nextThreshold;
+			} else {
+				final int[] core = getCoreSoftIndices();
+				if (core == null) {
+					return null;
+				}
+				relax(core);
+				coreCount++;
+			}
+		}
+		return bestModel;
+	}
+
+	/**
+	 * Returns the cost of the solution returned by {@link #search()}.
+	 *
+	 * @return the sum of the weights of all soft literals satisfied by the
+	 *         solution
+	 */
+	long getCost() {
+		return upperBound;
+	}
+
+	/**
+	 * Returns the best solution found so far, which is optimal after
+	 * {@link #search()} returned normally.
+	 *
+	 * @return a model or {@code null} if no solution was found yet
+	 */
+	int[] getBestModel() {
+		return bestModel;
+	}
+
+	private void addSoft(int literal, long weight, Totalizer totalizer, int bound) {
+		final Integer index = softIndices.get(literal);
+		if (index != null) {
+			softWeights[index] += weight;
+			return;
+		}
+		if (softCount == softLiterals.length) {
+			final int capacity = softCount << 1;
+			softLiterals = Arrays.copyOf(softLiterals, capacity);
+			softWeights = Arrays.copyOf(softWeights, capacity);
+			softTotalizers = Arrays.copyOf(softTotalizers, capacity);
+			softBounds = Arrays.copyOf(softBounds, capacity);
+		}
+		softLiterals[softCount] = literal;
+		softWeights[softCount] = weight;
+		softTotalizers[softCount] = totalizer;
+		softBounds[softCount] = bound;
+		softIndices.put(literal, softCount);
+		softCount++;
+	}
+
+	private long getNextThreshold(long threshold) {
+		long nextThreshold = 0;
+		for (int i = 0; i < softCount; i++) {
+			final long weight = softWeights[i];
+			if ((weight < threshold) && (weight > nextThreshold)) {
+				nextThreshold = weight;
+			}
+		}
+		return nextThreshold;
+	}
+
+	private int copyHardAssumptions() {
+		final int maxCount = hardAssumptions.length + softCount;
+		if (assumptionBuffer.length < maxCount) {
+			assumptionBuffer = new int[Math.max(maxCount, assumptionBuffer.length << 1)];
+		}
+		System.arraycopy(hardAssumptions, 0, assumptionBuffer, 0, hardAssumptions.length);
+		return hardAssumptions.length;
+	}
+
+	private SatResult solve(int count) {
+		final SatResult result = engine.solve(assumptionBuffer, count);
+		if (result == SatResult.TIMEOUT) {
+			throw new RuntimeTimeoutException();
+		}
+		return result;
+	}
+
+	private void updateUpperBound() {
+		final int[] model = engine.getModel();
+		long cost = 0;
+		for (int i = 0; i < originalLiterals.length; i++) {
+			final int literal = originalLiterals[i];
+			if (model[Math.abs(literal) - 1] == literal) {
+				cost += originalWeights[i];
+			}
+		}
+		if (cost < upperBound) {
+			upperBound = cost;
+			bestModel = Arrays.copyOf(model, numberOfVariables);
+		}
+	}
+
+	/**
+	 * Returns the soft literals of the core of the last call of the engine. The
+	 * core is trimmed by solving it again as long as this reduces its size.
+	 *
+	 * @return the indices of the soft literals or {@code null} if the hard
+	 *         constraints are unsatisfiable
+	 */
+	private int[] getCoreSoftIndices() {
+		int[] core = toSoftIndices(engine.getCore());
+		for (int i = 0; (i < MAX_TRIM_ROUNDS) && (core.length > 1); i++) {
+			int count = copyHardAssumptions();
+			for (final int index : core) {
+				assumptionBuffer[count++] = -softLiterals[index];
+			}
+			solve(count);
+			final int[] trimmedCore = toSoftIndices(engine.getCore());
+			if (trimmedCore.length >= core.length) {
+				break;
+			}
+			core = trimmedCore;
+		}
+		return core.length == 0 ? null : core;
+	}
+
+	private int[] toSoftIndices(int[] core) {
+		final int[] indices = new int[core.length];
+		int size = 0;
+		for (final int literal : core) {
+			final Integer index = softIndices.get(-literal);
+			if (index != null) {
+				indices[size++] = index;
+			}
+		}
+		return Arrays.copyOf(indices, size);
+	}
+
+	/**
+	 * Increases the lower bound by the minimum weight of the given core and
+	 * replaces the core by a totalizer. The totalizer's output for at least two
+	 * violated soft literals becomes a new soft literal. If a soft literal of the
+	 * core is itself the output for at least {@code k} inputs of a totalizer, the
+	 * output for {@code k + 1} inputs becomes a new soft literal as well.
+	 *
+	 * @param core the indices of the soft literals of a core
+	 */
+	private void relax(int[] core) {
+		long minWeight = Long.MAX_VALUE;
+		for (final int index : core) {
+			minWeight = Math.min(minWeight, softWeights[index]);
+		}
+		lowerBound += minWeight;
+		final int[] inputs = new int[core.length];
+		for (int i = 0; i < core.length; i++) {
+			final int index = core[i];
+			softWeights[index] -= minWeight;
+			inputs[i] = softLiterals[index];
+		}
+		if (core.length == 1) {
+			engine.addClause(inputs[0]);
+			return;
+		}
+		for (final int index : core) {
+			final Totalizer totalizer = softTotalizers[index];
+			final int bound = softBounds[index] + 1;
+			if ((totalizer != null) && (bound <= totalizer.size())) {
+				addSoft(totalizer.getOutput(bound), minWeight, totalizer, bound);
+			}
+		}
+		final Totalizer totalizer = new Totalizer(engine, inputs);
+		addSoft(totalizer.getOutput(2), minWeight, totalizer, 2);
+	}
+
+	/**
+	 * Searches for solutions with decreasing cost of the remaining soft literals
+	 * until the lower bound is reached or no better solution exists.
+	 *
+	 * @return {@code true} if the search is complete and {@code false} if the
+	 *         encoding of the remaining soft literals is too large
+	 */
+	private boolean searchLinear() {
+		if (bestModel == null) {
+			if (solve(copyHardAssumptions()) == SatResult.FALSE) {
+				return true;
+			}
+			updateUpperBound();
+		}
+		final int[] literals = new int[softCount];
+		final long[] weights = new long[softCount];
+		int count = 0;
+		for (int i = 0; i < softCount; i++) {
+			if (softWeights[i] > 0) {
+				literals[count] = softLiterals[i];
+				weights[count++] = softWeights[i];
+			}
+		}
+		if (upperBound <= lowerBound) {
+			return true;
+		}
+		final GeneralizedTotalizer encoding = GeneralizedTotalizer.encode(engine, literals, weights, count,
+			upperBound - lowerBound - 1, maxEncodingSize);
+		if (encoding == null) {
+			return false;
+		}
+		while (upperBound > lowerBound) {
+			final int[] outputs = encoding.getOutputsAbove(upperBound - lowerBound - 1);
+			int assumptionCount = copyHardAssumptions();
+			if (assumptionBuffer.length < (assumptionCount + outputs.length)) {
+				assumptionBuffer = Arrays.copyOf(assumptionBuffer, assumptionCount + outputs.length);
+			}
+			for (final int output : outputs) {
+				assumptionBuffer[assumptionCount++] = -output;
+			}
+			if (solve(assumptionCount) == SatResult.FALSE) {
+				lowerBound = upperBound;
+			} else {
+				updateUpperBound();
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,402 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+
+/**
+ * Extracts minimal unsatisfiable and maximal satisfiable subsets of groups of
+ * clauses. Each group is guarded by an activation variable in a dedicated
+ * {@link CDCLEngine}, such that arbitrary subsets of groups can be checked
+ * incrementally by assuming their activation variables.
+ */
+class MusExtractor {
+
+	private static final byte REMOVED = 0;
+	private static final byte UNKNOWN = 1;
+	private static final byte CRITICAL = 2;
+
+	private final CDCLEngine engine;
+	private final int numberOfVariables;
+	private final int[][][] groups;
+	private final int[][] groupsOfVariable;
+	private final int[] hardAssumptions;
+	private final boolean[] assumed;
+
+	private final byte[] status;
+	private final int[] marks;
+	private int mark;
+	private int[] assumptionBuffer;
+
+	/**
+	 * Creates a new extractor.
+	 *
+	 * @param numberOfVariables the number of variables of the clauses
+	 * @param constraints       the groups of clauses
+	 * @param hardAssumptions   literals that must hold in every checked subset
+	 */
+	MusExtractor(int numberOfVariables, List<CDCLConstraint> constraints, int[] hardAssumptions) {
+		this.numberOfVariables = numberOfVariables;
+		this.hardAssumptions = hardAssumptions;
+		groups = new int[constraints.size()][][];
+		engine = new CDCLEngine(numberOfVariables + groups.length);
+		final int[] occurrenceCounts = new int[numberOfVariables + 1];
+		for (int i = 0; i < groups.length; i++) {
+			final List<LiteralList> clauses = constraints.get(i).getClauses();
+			final int activation = getActivation(i);
+			groups[i] = new int[clauses.size()][];
+			for (int j = 0; j < groups[i].length; j++) {
+				final int[] literals = clauses.get(j).getLiterals();
+				groups[i][j] = literals;
+				final int[] guardedLiterals = Arrays.copyOf(literals, literals.length + 1);
+				guardedLiterals[literals.length] = -activation;
+				engine.addClause(guardedLiterals);
+			}
+			for (final int variable : getVariables(groups[i])) {
+				occurrenceCounts[variable]++;
+			}
+		}
+		groupsOfVariable = new int[numberOfVariables + 1][];
+		for (int variable = 1; variable <= numberOfVariables; variable++) {
+			groupsOfVariable[variable] = new int[occurrenceCounts[variable]];
+		}
+		for (int i = 0; i < groups.length; i++) {
+			for (final int variable : getVariables(groups[i])) {
+				groupsOfVariable[variable][--occurrenceCounts[variable]] = i;
+			}
+		}
+		assumed = new boolean[numberOfVariables + 1];
+		for (final int literal : hardAssumptions) {
+			if (Math.abs(literal) <= numberOfVariables) {
+				assumed[Math.abs(literal)] = true;
+			}
+		}
+		status = new byte[groups.length];
+		marks = new int[groups.length];
+		assumptionBuffer = new int[hardAssumptions.length + groups.length];
+	}
+
+	/**
+	 * Creates an independent copy of an extractor that keeps all clauses learned
+	 * so far.
+	 *
+	 * @param other the extractor to copy
+	 */
+	MusExtractor(MusExtractor other) {
+		engine = new CDCLEngine(other.engine);
+		numberOfVariables = other.numberOfVariables;
+		groups = other.groups;
+		groupsOfVariable = other.groupsOfVariable;
+		hardAssumptions = other.hardAssumptions;
+		assumed = other.assumed;
+		status = new byte[groups.length];
+		marks = new int[groups.length];
+		assumptionBuffer = new int[other.assumptionBuffer.length];
+	}
+
+	private int[] getVariables(int[][] clauses) {
+		final LinkedHashSet<Integer> variables = new LinkedHashSet<>();
+		for (final int[] clause : clauses) {
+			for (final int literal : clause) {
+				variables.add(Math.abs(literal));
+			}
+		}
+		return variables.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	CDCLEngine getEngine() {
+		return engine;
+	}
+
+	int getNumberOfGroups() {
+		return groups.length;
+	}
+
+	private int getActivation(int group) {
+		return numberOfVariables + 1 + group;
+	}
+
+	/**
+	 * Checks whether the hard assumptions and the given groups are satisfiable.
+	 *
+	 * @param groupIndices the indices of the groups
+	 * @param count        the number of valid entries in {@code groupIndices}
+	 * @return {@link SatResult#TRUE} or {@link SatResult#FALSE}
+	 *
+	 * @throws RuntimeTimeoutException if the engine was interrupted or its
+	 *                                 monitor was canceled
+	 */
+	SatResult solve(int[] groupIndices, int count) throws RuntimeTimeoutException {
+		System.arraycopy(hardAssumptions, 0, assumptionBuffer, 0, hardAssumptions.length);
+		for (int i = 0; i < count; i++) {
+			assumptionBuffer[hardAssumptions.length + i] = getActivation(groupIndices[i]);
+		}
+		final SatResult result = engine.solve(assumptionBuffer, hardAssumptions.length + count);
+		if (result == SatResult.TIMEOUT) {
+			throw new RuntimeTimeoutException();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the groups whose activation variables are contained in the core of
+	 * the last unsatisfiable call of {@link #solve(int[], int)}.
+	 *
+	 * @return the indices of the groups
+	 */
+	int[] getCoreGroups() {
+		final int[] core = engine.getCore();
+		final int[] coreGroups = new int[core.length];
+		int size = 0;
+		for (final int literal : core) {
+			if (literal > numberOfVariables) {
+				coreGroups[size++] = literal - numberOfVariables - 1;
+			}
+		}
+		return Arrays.copyOf(coreGroups, size);
+	}
+
+	/**
+	 * Returns the solution of the last satisfiable call of
+	 * {@link #solve(int[], int)}.
+	 *
+	 * @return one literal per original variable ordered by index
+	 */
+	int[] getModel() {
+		return Arrays.copyOf(engine.getModel(), numberOfVariables);
+	}
+
+	/**
+	 * Computes a minimal unsatisfiable subset of the given unsatisfiable groups by
+	 * deletion. After each unsatisfiable check, all groups outside the core are
+	 * removed at once (clause-set refinement). After each satisfiable check, the
+	 * model is rotated to identify further critical groups without calling the
+	 * solver.
+	 *
+	 * @param groupIndices the indices of unsatisfiable groups
+	 * @return the indices of the groups of a minimal unsatisfiable subset
+	 *
+	 * @throws IllegalStateException   if the given groups are satisfiable
+	 * @throws RuntimeTimeoutException if the engine was interrupted or its
+	 *                                 monitor was canceled
+	 */
+	int[] shrink(int[] groupIndices) throws RuntimeTimeoutException {
+		if (solve(groupIndices, groupIndices.length) == SatResult.TRUE) {
+			throw new IllegalStateException("Groups are satisfiable");
+		}
+		int[] unknown = getCoreGroups();
+		int unknownCount = unknown.length;
+		for (int i = 0; i < unknownCount; i++) {
+			status[unknown[i]] = UNKNOWN;
+		}
+		final int[] critical = new int[unknownCount];
+		int criticalCount = 0;
+		final int[] candidates = new int[unknownCount];
+		try {
+			while (unknownCount > 0) {
+				final int group = unknown[--unknownCount];
+				if (status[group] != UNKNOWN) {
+					continue;
+				}
+				status[group] = REMOVED;
+				System.arraycopy(critical, 0, candidates, 0, criticalCount);
+				int candidateCount = criticalCount;
+				for (int i = 0; i < unknownCount; i++) {
+					if (status[unknown[i]] == UNKNOWN) {
+						candidates[candidateCount++] = unknown[i];
+					}
+				}
+				if (solve(candidates, candidateCount) == SatResult.FALSE) {
+					nextMark();
+					for (final int coreGroup : getCoreGroups()) {
+						marks[coreGroup] = mark;
+					}
+					int newUnknownCount = 0;
+					for (int i = 0; i < unknownCount; i++) {
+						final int unknownGroup = unknown[i];
+						if (status[unknownGroup] == UNKNOWN) {
+							if (marks[unknownGroup] == mark) {
+								unknown[newUnknownCount++] = unknownGroup;
+							} else {
+								status[unknownGroup] = REMOVED;
+							}
+						}
+					}
+					unknownCount = newUnknownCount;
+				} else {
+					status[group] = CRITICAL;
+					critical[criticalCount++] = group;
+					criticalCount = rotate(group, getModel(), critical, criticalCount);
+				}
+			}
+			final int[] mus = Arrays.copyOf(critical, criticalCount);
+			Arrays.sort(mus);
+			return mus;
+		} finally {
+			for (final int group : groupIndices) {
+				status[group] = REMOVED;
+			}
+		}
+	}
+
+	/**
+	 * Recursive model rotation. Given a model that falsifies exactly one critical
+	 * group of the current candidate set, flips single variables of the falsified
+	 * clauses. If the flipped model falsifies exactly one other candidate group,
+	 * this group is critical as well, and the rotation continues from there.
+	 */
+	private int rotate(int group, int[] model, int[] critical, int criticalCount) {
+		final ArrayDeque<Integer> groupQueue = new ArrayDeque<>();
+		final ArrayDeque<int[]> modelQueue = new ArrayDeque<>();
+		groupQueue.add(group);
+		modelQueue.add(model);
+		while (!groupQueue.isEmpty()) {
+			final int falsifiedGroup = groupQueue.poll();
+			final int[] currentModel = modelQueue.poll();
+			for (final int[] clause : groups[falsifiedGroup]) {
+				if (isSatisfied(clause, currentModel)) {
+					continue;
+				}
+				for (final int literal : clause) {
+					final int variable = Math.abs(literal);
+					if (assumed[variable]) {
+						continue;
+					}
+					currentModel[variable - 1] = literal;
+					final int newCritical = getSingleFalsifiedGroup(falsifiedGroup, variable, currentModel);
+					if ((newCritical >= 0) && (status[newCritical] == UNKNOWN)) {
+						status[newCritical] = CRITICAL;
+						critical[criticalCount++] = newCritical;
+						groupQueue.add(newCritical);
+						modelQueue.add(currentModel.clone());
+					}
+					currentModel[variable - 1] = -literal;
+				}
+			}
+		}
+		return criticalCount;
+	}
+
+	/**
+	 * Returns the only candidate group that is falsified by a model after
+	 * flipping a variable, or {@code -1} if there is no such unique group.
+	 */
+	private int getSingleFalsifiedGroup(int previousGroup, int flippedVariable, int[] model) {
+		int falsifiedGroup = -1;
+		if (isCandidate(previousGroup) && !isSatisfied(groups[previousGroup], model)) {
+			falsifiedGroup = previousGroup;
+		}
+		for (final int group : groupsOfVariable[flippedVariable]) {
+			if ((group != previousGroup) && isCandidate(group) && !isSatisfied(groups[group], model)) {
+				if (falsifiedGroup >= 0) {
+					return -1;
+				}
+				falsifiedGroup = group;
+			}
+		}
+		return falsifiedGroup;
+	}
+
+	private boolean isCandidate(int group) {
+		return status[group] != REMOVED;
+	}
+
+	/**
+	 * Computes a maximal satisfiable subset that contains the given satisfiable
+	 * groups. All groups that are satisfied by a found model are added at once.
+	 *
+	 * @param groupIndices the indices of satisfiable groups
+	 * @return the indices of the groups of a maximal satisfiable subset
+	 *
+	 * @throws IllegalStateException   if the given groups are unsatisfiable
+	 * @throws RuntimeTimeoutException if the engine was interrupted or its
+	 *                                 monitor was canceled
+	 */
+	int[] grow(int[] groupIndices) throws RuntimeTimeoutException {
+		if (solve(groupIndices, groupIndices.length) == SatResult.FALSE) {
+			throw new IllegalStateException("Groups are unsatisfiable");
+		}
+		final boolean[] contained = new boolean[groups.length];
+		final int[] subset = new int[groups.length];
+		int subsetCount = 0;
+		for (final int group : groupIndices) {
+			if (!contained[group]) {
+				contained[group] = true;
+				subset[subsetCount++] = group;
+			}
+		}
+		subsetCount = addSatisfiedGroups(getModel(), contained, subset, subsetCount);
+		for (int group = 0; group < groups.length; group++) {
+			if (!contained[group]) {
+				subset[subsetCount] = group;
+				if (solve(subset, subsetCount + 1) == SatResult.TRUE) {
+					contained[group] = true;
+					subsetCount = addSatisfiedGroups(getModel(), contained, subset, subsetCount + 1);
+				}
+			}
+		}
+		final int[] mss = Arrays.copyOf(subset, subsetCount);
+		Arrays.sort(mss);
+		return mss;
+	}
+
+	private int addSatisfiedGroups(int[] model, boolean[] contained, int[] subset, int subsetCount) {
+		for (int group = 0; group < groups.length; group++) {
+			if (!contained[group] && isSatisfied(groups[group], model)) {
+				contained[group] = true;
+				subset[subsetCount++] = group;
+			}
+		}
+		return subsetCount;
+	}
+
+	private static boolean isSatisfied(int[][] clauses, int[] model) {
+		for (final int[] clause : clauses) {
+			if (!isSatisfied(clause, model)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isSatisfied(int[] clause, int[] model) {
+		for (final int literal : clause) {
+			if (model[Math.abs(literal) - 1] == literal) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void nextMark() {
+		if (++mark == Integer.MAX_VALUE) {
+			Arrays.fill(marks, 0);
+			mark = 1;
+		}
+	}
+
+}
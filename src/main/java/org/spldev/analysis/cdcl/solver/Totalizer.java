@@ -0,0 +1,116 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+
+/**
+ * Incremental totalizer encoding of a cardinality constraint in a
+ * {@link CDCLEngine}. For each {@code k} up to the current bound, there is an
+ * output literal that is implied by any assignment with at least {@code k} true
+ * inputs. Outputs above the bound are only encoded when
+ * {@link #getOutput(int) requested}, which adds just the missing clauses to
+ * the existing encoding.
+ */
+class Totalizer {
+
+	private final CDCLEngine engine;
+	private final Totalizer left, right;
+	private final int size;
+	private int[] outputs;
+	private int bound;
+
+	/**
+	 * Creates a totalizer for the given input literals. Initially, no outputs
+	 * are encoded.
+	 *
+	 * @param engine the engine to add the encoding to
+	 * @param inputs the input literals in DIMACS notation
+	 */
+	Totalizer(CDCLEngine engine, int[] inputs) {
+		this(engine, inputs, 0, inputs.length);
+	}
+
+	private Totalizer(CDCLEngine engine, int[] inputs, int from, int to) {
+		this.engine = engine;
+		size = to - from;
+		if (size == 1) {
+			left = null;
+			right = null;
+			outputs = new int[] { inputs[from] };
+			bound = 1;
+		} else {
+			final int middle = (from + to) >>> 1;
+			left = new Totalizer(engine, inputs, from, middle);
+			right = new Totalizer(engine, inputs, middle, to);
+			outputs = new int[0];
+			bound = 0;
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the literal that is implied if at least {@code k} inputs are
+	 * true. Encodes all outputs up to {@code k} if necessary.
+	 *
+	 * @param k a number between {@code 1} and {@link #size()}
+	 * @return a literal in DIMACS notation
+	 */
+	int getOutput(int k) {
+		if ((k < 1) || (k > size)) {
+			throw new IllegalArgumentException(String.valueOf(k));
+		}
+		extend(k);
+		return outputs[k - 1];
+	}
+
+	private void extend(int newBound) {
+		newBound = Math.min(newBound, size);
+		if (newBound <= bound) {
+			return;
+		}
+		left.extend(newBound);
+		right.extend(newBound);
+		final int oldBound = bound;
+		outputs = Arrays.copyOf(outputs, newBound);
+		for (int k = oldBound; k < newBound; k++) {
+			outputs[k] = engine.newVariable();
+		}
+		for (int i = 0; i <= left.bound; i++) {
+			for (int j = Math.max(0, oldBound + 1 - i); (j <= right.bound) && (i + j <= newBound); j++) {
+				if (i == 0) {
+					engine.addClause(-right.outputs[j - 1], outputs[j - 1]);
+				} else if (j == 0) {
+					engine.addClause(-left.outputs[i - 1], outputs[i - 1]);
+				} else {
+					engine.addClause(-left.outputs[i - 1], -right.outputs[j - 1], outputs[i + j - 1]);
+				}
+			}
+		}
+		bound = newBound;
+	}
+
+}
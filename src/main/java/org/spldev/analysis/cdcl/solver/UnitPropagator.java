@@ -0,0 +1,415 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.cdcl.solver;
+
+import java.util.*;
+
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+
+/**
+ * Boolean constraint propagation on a fixed set of clauses without any search.
+ * Uses two watched literals per clause, which are stored in a flat literal
+ * array. Literals can be assigned one after another; each assignment
+ * propagates all implied literals. Any assignment can be undone by resetting
+ * the trail to a previous size (i.e., a {@link #getTrailSize() checkpoint}),
+ * which does not require any changes of the watches.
+ * <p>
+ * Propagation is incomplete: a conflict proves that the clauses and the
+ * assigned literals are unsatisfiable, but the absence of a conflict does not
+ * prove satisfiability, and a satisfiable assignment may imply more literals
+ * than propagation finds. Thus, a propagator is suited as a cheap pre-filter
+ * before calling a {@link CDCLSolver}. A propagator is not thread-safe.
+ */
+public class UnitPropagator {
+
+	private static final byte TRUE = 1;
+	private static final byte FALSE = -1;
+	private static final byte UNDEF = 0;
+
+	private final int numberOfVariables;
+	private final int[] clauseLiterals;
+	private final int[] clauseStarts;
+	private final int[][] watches;
+	private final int[] watchSizes;
+
+	private final byte[] values;
+	private final int[] trail;
+	private int trailSize;
+	private int propagationHead;
+	private int rootTrailSize;
+	private int conflictClause = -1;
+	private boolean ok = true;
+
+	/**
+	 * Creates a new propagator for the clauses of a CNF and propagates all unit
+	 * clauses.
+	 *
+	 * @param cnf the CNF
+	 */
+	public UnitPropagator(CNF cnf) {
+		this(cnf.getVariableMap().getMaxIndex(), getLiterals(cnf.getClauses()));
+	}
+
+	private static List<int[]> getLiterals(List<LiteralList> clauses) {
+		final ArrayList<int[]> literals = new ArrayList<>(clauses.size());
+		for (final LiteralList clause : clauses) {
+			literals.add(clause.getLiterals());
+		}
+		return literals;
+	}
+
+	/**
+	 * Creates a new propagator and propagates all unit clauses.
+	 *
+	 * @param numberOfVariables the highest variable index of the clauses
+	 * @param clauses           the clauses in DIMACS notation
+	 */
+	public UnitPropagator(int numberOfVariables, List<int[]> clauses) {
+		this.numberOfVariables = numberOfVariables;
+		values = new byte[(numberOfVariables + 1) << 1];
+		trail = new int[numberOfVariables];
+		watches = new int[values.length][];
+		watchSizes = new int[values.length];
+
+		int literalCount = 0;
+		for (final int[] clause : clauses) {
+			literalCount += clause.length;
+		}
+		final int[] literals = new int[literalCount];
+		final int[] starts = new int[clauses.size() + 1];
+		final int[] units = new int[clauses.size()];
+		int unitCount = 0;
+		int clauseCount = 0;
+		int size = 0;
+		clauses: for (final int[] clause : clauses) {
+			final int start = size;
+			literals: for (final int literal : clause) {
+				final int internalLiteral = CDCLEngine.toInternal(literal);
+				for (int i = start; i < size; i++) {
+					if (literals[i] == internalLiteral) {
+						continue literals;
+					} else if (literals[i] == (internalLiteral ^ 1)) {
+						size = start;
+						continue clauses;
+					}
+				}
+				literals[size++] = internalLiteral;
+			}
+			switch (size - start) {
+			case 0:
+				ok = false;
+				break;
+			case 1:
+				units[unitCount++] = literals[start];
+				size = start;
+				break;
+			default:
+				starts[clauseCount++] = start;
+				break;
+			}
+		}
+		starts[clauseCount] = size;
+		clauseLiterals = Arrays.copyOf(literals, size);
+		clauseStarts = Arrays.copyOf(starts, clauseCount + 1);
+		for (int i = 0; i < clauseCount; i++) {
+			addWatch(clauseLiterals[clauseStarts[i]], i);
+			addWatch(clauseLiterals[clauseStarts[i] + 1], i);
+		}
+		for (int i = 0; (i < unitCount) && ok; i++) {
+			ok = assignInternal(units[i]);
+		}
+		rootTrailSize = trailSize;
+	}
+
+	private void addWatch(int literal, int clause) {
+		int[] list = watches[literal];
+		if (list == null) {
+			list = new int[4];
+			watches[literal] = list;
+		} else if (watchSizes[literal] == list.length) {
+			list = Arrays.copyOf(list, list.length << 1);
+			watches[literal] = list;
+		}
+		list[watchSizes[literal]++] = clause;
+	}
+
+	public int getNumberOfVariables() {
+		return numberOfVariables;
+	}
+
+	/**
+	 * Returns whether the clauses are consistent with all literals implied
+	 * without any assignments.
+	 *
+	 * @return {@code false} if propagation alone refutes the clauses
+	 */
+	public boolean isOk() {
+		return ok;
+	}
+
+	/**
+	 * Returns the current size of the trail, which can be used as a checkpoint
+	 * to {@link #undo(int) undo} all subsequent assignments.
+	 *
+	 * @return the number of assigned literals
+	 */
+	public int getTrailSize() {
+		return trailSize;
+	}
+
+	/**
+	 * Returns the number of literals on the trail that are implied without any
+	 * assignments. These are never undone.
+	 *
+	 * @return the size of the root trail
+	 */
+	public int getRootTrailSize() {
+		return rootTrailSize;
+	}
+
+	/**
+	 * Returns a literal of the trail.
+	 *
+	 * @param index the position on the trail
+	 * @return a literal in DIMACS notation
+	 */
+	public int getTrailLiteral(int index) {
+		return CDCLEngine.toExternal(trail[index]);
+	}
+
+	/**
+	 * Returns the current value of a literal.
+	 *
+	 * @param literal a literal in DIMACS notation
+	 * @return {@code 1} if the literal is true, {@code -1} if it is false, and
+	 *         {@code 0} otherwise
+	 */
+	public int getValue(int literal) {
+		return values[CDCLEngine.toInternal(literal)];
+	}
+
+	/**
+	 * Assigns a literal and propagates all implied literals. In case of a
+	 * conflict, the assignments made so far remain on the trail until they are
+	 * {@link #undo(int) undone}.
+	 *
+	 * @param literal a literal in DIMACS notation
+	 * @return {@code false} if the assignment leads to a conflict
+	 *
+	 * @see #getConflictClause()
+	 */
+	public boolean assign(int literal) {
+		if ((literal == 0) || (Math.abs(literal) > numberOfVariables)) {
+			throw new IllegalArgumentException(String.valueOf(literal));
+		}
+		return ok && assignInternal(CDCLEngine.toInternal(literal));
+	}
+
+	/**
+	 * Assigns literals one after another and propagates all implied literals.
+	 * Stops at the first conflict.
+	 *
+	 * @param literals literals in DIMACS notation
+	 * @param count    the number of valid entries in {@code literals}
+	 * @return {@code false} if the assignments lead to a conflict
+	 *
+	 * @see #assign(int)
+	 */
+	public boolean assignAll(int[] literals, int count) {
+		if (!ok) {
+			return false;
+		}
+		for (int i = 0; i < count; i++) {
+			if (!assign(literals[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes all literals implied by propagation of the clauses and the given
+	 * assumptions. The state of this propagator is unchanged afterwards.
+	 *
+	 * @param assumptions literals in DIMACS notation
+	 * @return a literal list containing the assumptions and all implied literals
+	 *         or {@code null} if propagation results in a conflict
+	 *
+	 * @see #getConflictClause()
+	 */
+	public LiteralList getImpliedLiterals(LiteralList assumptions) {
+		return getImpliedLiterals(assumptions.getLiterals(), assumptions.size());
+	}
+
+	/**
+	 * Computes all literals implied by propagation of the clauses and the given
+	 * assumptions. The state of this propagator is unchanged afterwards.
+	 *
+	 * @param assumptions literals in DIMACS notation
+	 * @param count       the number of valid entries in {@code assumptions}
+	 * @return a literal list containing the assumptions and all implied literals
+	 *         or {@code null} if propagation results in a conflict
+	 *
+	 * @see #getConflictClause()
+	 */
+	public LiteralList getImpliedLiterals(int[] assumptions, int count) {
+		final int checkpoint = trailSize;
+		try {
+			if (!assignAll(assumptions, count)) {
+				return null;
+			}
+			final int[] impliedLiterals = new int[trailSize];
+			for (int i = 0; i < trailSize; i++) {
+				impliedLiterals[i] = CDCLEngine.toExternal(trail[i]);
+			}
+			return new LiteralList(impliedLiterals, Order.UNORDERED, false);
+		} finally {
+			undo(checkpoint);
+		}
+	}
+
+	/**
+	 * Checks whether propagation of the clauses and the given assumptions
+	 * results in a conflict, which proves that there is no solution. The state
+	 * of this propagator is unchanged afterwards.
+	 *
+	 * @param assumptions literals in DIMACS notation
+	 * @param count       the number of valid entries in {@code assumptions}
+	 * @return {@code true} if propagation results in a conflict
+	 */
+	public boolean isConflicting(int[] assumptions, int count) {
+		final int checkpoint = trailSize;
+		try {
+			return !assignAll(assumptions, count);
+		} finally {
+			undo(checkpoint);
+		}
+	}
+
+	/**
+	 * Returns the clause that became falsified by the last conflict.
+	 *
+	 * @return a literal list containing the literals of the clause or
+	 *         {@code null} if the last conflict was caused by assigning a
+	 *         literal whose complement was already assigned or if there was no
+	 *         conflict
+	 */
+	public LiteralList getConflictClause() {
+		if (conflictClause < 0) {
+			return null;
+		}
+		final int start = clauseStarts[conflictClause];
+		final int end = clauseStarts[conflictClause + 1];
+		final int[] literals = new int[end - start];
+		for (int i = start; i < end; i++) {
+			literals[i - start] = CDCLEngine.toExternal(clauseLiterals[i]);
+		}
+		return new LiteralList(literals, Order.UNORDERED, false);
+	}
+
+	private boolean assignInternal(int literal) {
+		conflictClause = -1;
+		final byte value = values[literal];
+		if (value != UNDEF) {
+			return value == TRUE;
+		}
+		enqueue(literal);
+		return propagate();
+	}
+
+	/**
+	 * Undoes all assignments after the given position on the trail. Literals
+	 * implied without any assignments are kept.
+	 *
+	 * @param trailSize a previous size of the trail
+	 */
+	public void undo(int trailSize) {
+		final int newSize = Math.max(trailSize, rootTrailSize);
+		for (int i = this.trailSize - 1; i >= newSize; i--) {
+			final int literal = trail[i];
+			values[literal] = UNDEF;
+			values[literal ^ 1] = UNDEF;
+		}
+		this.trailSize = Math.min(this.trailSize, newSize);
+		propagationHead = this.trailSize;
+	}
+
+	private void enqueue(int literal) {
+		values[literal] = TRUE;
+		values[literal ^ 1] = FALSE;
+		trail[trailSize++] = literal;
+	}
+
+	private boolean propagate() {
+		while (propagationHead < trailSize) {
+			final int falseLiteral = trail[propagationHead++] ^ 1;
+			final int[] list = watches[falseLiteral];
+			final int listSize = watchSizes[falseLiteral];
+			int i = 0;
+			int j = 0;
+			while (i < listSize) {
+				final int clause = list[i++];
+				final int start = clauseStarts[clause];
+				final int end = clauseStarts[clause + 1];
+				if (clauseLiterals[start] == falseLiteral) {
+					clauseLiterals[start] = clauseLiterals[start + 1];
+					clauseLiterals[start + 1] = falseLiteral;
+				}
+				final int first = clauseLiterals[start];
+				if (values[first] == TRUE) {
+					list[j++] = clause;
+					continue;
+				}
+				boolean moved = false;
+				for (int k = start + 2; k < end; k++) {
+					final int literal = clauseLiterals[k];
+					if (values[literal] != FALSE) {
+						clauseLiterals[start + 1] = literal;
+						clauseLiterals[k] = falseLiteral;
+						addWatch(literal, clause);
+						moved = true;
+						break;
+					}
+				}
+				if (moved) {
+					continue;
+				}
+				list[j++] = clause;
+				if (values[first] == FALSE) {
+					while (i < listSize) {
+						list[j++] = list[i++];
+					}
+					watchSizes[falseLiteral] = j;
+					propagationHead = trailSize;
+					conflictClause = clause;
+					return false;
+				}
+				enqueue(first);
+			}
+			watchSizes[falseLiteral] = j;
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,184 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.ddnnf.solver;
+
+import java.util.*;
+
+/**
+ * Smooth decision-DNNF circuit stored as an int-array node table. Each node is
+ * identified by an index. Children always have a smaller index than their
+ * parents, such that a single pass over all nodes in index order evaluates the
+ * circuit. Every variable of the formula occurs in each branch of a decision,
+ * either as a literal or as a free variable (i.e., a node that is satisfied by
+ * both polarities of the variable).
+ * <p>
+ * For each node, the table stores its type followed by its payload: the literal
+ * in DIMACS notation for {@link #LITERAL} nodes, the variable for {@link #FREE}
+ * nodes, or the number of children followed by the child indices for
+ * {@link #AND} and {@link #OR} nodes.
+ */
+public class DDNNF {
+
+	public static final int FALSE_NODE = 0;
+	public static final int TRUE_NODE = 1;
+
+	public static final int FALSE = 0;
+	public static final int TRUE = 1;
+	public static final int LITERAL = 2;
+	public static final int FREE = 3;
+	public static final int AND = 4;
+	public static final int OR = 5;
+
+	private final int numberOfVariables;
+	private final int[] offsets;
+	private final int[] table;
+	private final int root;
+
+	/**
+	 * Creates a new circuit.
+	 *
+	 * @param numberOfVariables the number of variables of the formula
+	 * @param offsets           the position of each node within the table
+	 * @param table             the node table
+	 * @param root              the index of the root node
+	 */
+	public DDNNF(int numberOfVariables, int[] offsets, int[] table, int root) {
+		this.numberOfVariables = numberOfVariables;
+		this.offsets = offsets;
+		this.table = table;
+		this.root = root;
+	}
+
+	public int getNumberOfVariables() {
+		return numberOfVariables;
+	}
+
+	public int getNumberOfNodes() {
+		return offsets.length;
+	}
+
+	/**
+	 * Returns the number of edges between inner nodes and their children.
+	 *
+	 * @return the number of edges
+	 */
+	public int getNumberOfEdges() {
+		int edges = 0;
+		for (int node = 0; node < offsets.length; node++) {
+			final int type = getType(node);
+			if ((type == AND) || (type == OR)) {
+				edges += getNumberOfChildren(node);
+			}
+		}
+		return edges;
+	}
+
+	public int getRoot() {
+		return root;
+	}
+
+	public int getType(int node) {
+		return table[offsets[node]];
+	}
+
+	/**
+	 * Returns the literal of a {@link #LITERAL} node or the variable of a
+	 * {@link #FREE} node.
+	 *
+	 * @param node the index of the node
+	 * @return a literal in DIMACS notation or a variable index
+	 */
+	public int getLiteral(int node) {
+		return table[offsets[node] + 1];
+	}
+
+	public int getNumberOfChildren(int node) {
+		return table[offsets[node] + 1];
+	}
+
+	public int getChild(int node, int index) {
+		return table[offsets[node] + 2 + index];
+	}
+
+	int[] getOffsets() {
+		return offsets;
+	}
+
+	int[] getTable() {
+		return table;
+	}
+
+	@Override
+	public String toString() {
+		return "DDNNF [variables=" + numberOfVariables + ", nodes=" + offsets.length + ", edges="
+			+ getNumberOfEdges() + "]";
+	}
+
+	/**
+	 * Incrementally builds the node table of a circuit.
+	 */
+	static class Builder {
+
+		private int[] offsets = new int[1024];
+		private int[] table = new int[4096];
+		private int nodeCount;
+		private int size;
+
+		Builder() {
+			addNode(FALSE, 0);
+			addNode(TRUE, 0);
+		}
+
+		int addLeaf(int type, int value) {
+			final int node = addNode(type, 1);
+			table[size++] = value;
+			return node;
+		}
+
+		int addInner(int type, int[] children, int childCount) {
+			final int node = addNode(type, childCount + 1);
+			table[size++] = childCount;
+			System.arraycopy(children, 0, table, size, childCount);
+			size += childCount;
+			return node;
+		}
+
+		private int addNode(int type, int payloadSize) {
+			if (nodeCount == offsets.length) {
+				offsets = Arrays.copyOf(offsets, nodeCount << 1);
+			}
+			if ((size + payloadSize + 1) > table.length) {
+				table = Arrays.copyOf(table, Math.max(table.length << 1, size + payloadSize + 1));
+			}
+			offsets[nodeCount] = size;
+			table[size++] = type;
+			return nodeCount++;
+		}
+
+		DDNNF build(int numberOfVariables, int root) {
+			return new DDNNF(numberOfVariables, Arrays.copyOf(offsets, nodeCount), Arrays.copyOf(table, size), root);
+		}
+
+	}
+
+}
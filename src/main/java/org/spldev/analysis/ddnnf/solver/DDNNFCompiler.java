@@ -0,0 +1,180 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.ddnnf.solver;
+
+import java.util.*;
+
+import org.spldev.analysis.sharpsat.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+
+/**
+ * Compiles clauses in DIMACS notation into a smooth {@link DDNNF decision-DNNF}
+ * circuit. Uses the same component-based search as the
+ * {@link CountingEngine exact model counter}, but records the search space as
+ * circuit nodes instead of counting it. Independent components become
+ * conjunctions, decisions become disjunctions, and cached components are shared
+ * between all their occurrences in the circuit.
+ *
+ * @see AbstractComponentEngine
+ */
+public class DDNNFCompiler extends AbstractComponentEngine<Integer> {
+
+	private static final Integer FALSE_NODE = DDNNF.FALSE_NODE;
+	private static final Integer TRUE_NODE = DDNNF.TRUE_NODE;
+	private static final long NODE_SIZE = 16;
+
+	private DDNNF.Builder builder;
+	private int[] literalNodes;
+	private int[] freeNodes;
+	private int[] children = new int[64];
+
+	/**
+	 * Creates a new compiler. Tautological clauses are ignored.
+	 *
+	 * @param numberOfVariables the number of variables of the formula
+	 * @param clauses           the clauses of the formula
+	 */
+	public DDNNFCompiler(int numberOfVariables, List<LiteralList> clauses) {
+		this(numberOfVariables, clauses, new ComponentCache<>(Long.MAX_VALUE));
+	}
+
+	/**
+	 * Creates a new compiler. Tautological clauses are ignored. Evicting entries
+	 * from a bounded cache does not affect the correctness of the circuit, but may
+	 * increase its size.
+	 *
+	 * @param numberOfVariables the number of variables of the formula
+	 * @param clauses           the clauses of the formula
+	 * @param cache             the cache for compiled components
+	 */
+	public DDNNFCompiler(int numberOfVariables, List<LiteralList> clauses, ComponentCache<Integer> cache) {
+		super(numberOfVariables, clauses, cache);
+	}
+
+	/**
+	 * Compiles the clauses into a circuit. The circuit is defined over all
+	 * variables of the formula.
+	 *
+	 * @return the compiled circuit
+	 *
+	 * @throws RuntimeTimeoutException if compiling was interrupted or the monitor
+	 *                                 was canceled
+	 */
+	public DDNNF compile() throws RuntimeTimeoutException {
+		final int numberOfVariables = getNumberOfVariables();
+		builder = new DDNNF.Builder();
+		literalNodes = new int[(numberOfVariables + 1) << 1];
+		freeNodes = new int[numberOfVariables + 1];
+		getCache().clear();
+		try {
+			final int root = search(new int[0], 0);
+			return builder.build(numberOfVariables, root);
+		} finally {
+			builder = null;
+			literalNodes = null;
+			freeNodes = null;
+			getCache().clear();
+		}
+	}
+
+	@Override
+	protected Integer zero() {
+		return FALSE_NODE;
+	}
+
+	@Override
+	protected boolean isZero(Integer result) {
+		return result == DDNNF.FALSE_NODE;
+	}
+
+	@Override
+	protected Integer conjoin(int[] trail, int from, int to, List<Integer> components, int[] freeVariables) {
+		int childCount = 0;
+		ensureChildCapacity((to - from) + components.size() + freeVariables.length);
+		for (int i = from; i < to; i++) {
+			children[childCount++] = getLiteralNode(trail[i]);
+		}
+		for (final Integer component : components) {
+			if (component != DDNNF.TRUE_NODE) {
+				children[childCount++] = component;
+			}
+		}
+		for (final int variable : freeVariables) {
+			children[childCount++] = getFreeNode(variable);
+		}
+		switch (childCount) {
+		case 0:
+			return TRUE_NODE;
+		case 1:
+			return children[0];
+		default:
+			return builder.addInner(DDNNF.AND, children, childCount);
+		}
+	}
+
+	@Override
+	protected Integer decide(int variable, Integer positive, Integer negative) {
+		if (positive == DDNNF.FALSE_NODE) {
+			return negative;
+		} else if (negative == DDNNF.FALSE_NODE) {
+			return positive;
+		} else {
+			ensureChildCapacity(2);
+			children[0] = positive;
+			children[1] = negative;
+			return builder.addInner(DDNNF.OR, children, 2);
+		}
+	}
+
+	@Override
+	protected long sizeOf(Integer result) {
+		return NODE_SIZE;
+	}
+
+	private int getLiteralNode(int internalLiteral) {
+		int node = literalNodes[internalLiteral];
+		if (node == 0) {
+			final int variable = internalLiteral >>> 1;
+			node = builder.addLeaf(DDNNF.LITERAL, (internalLiteral & 1) == 0 ? variable : -variable);
+			literalNodes[internalLiteral] = node;
+		}
+		return node;
+	}
+
+	private int getFreeNode(int variable) {
+		int node = freeNodes[variable];
+		if (node == 0) {
+			node = builder.addLeaf(DDNNF.FREE, variable);
+			freeNodes[variable] = node;
+		}
+		return node;
+	}
+
+	private void ensureChildCapacity(int size) {
+		if (children.length < size) {
+			children = new int[Math.max(children.length << 1, size)];
+		}
+	}
+
+}
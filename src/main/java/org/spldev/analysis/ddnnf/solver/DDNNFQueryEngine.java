@@ -0,0 +1,240 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.ddnnf.solver;
+
+import java.math.*;
+
+import org.spldev.clauses.*;
+
+/**
+ * Answers queries on a {@link DDNNF} circuit under assumptions. Each query
+ * evaluates all nodes once in index order and thus takes time linear in the
+ * size of the circuit. Assumptions condition the circuit: literal nodes that
+ * contradict an assumption evaluate to false and free variables that are
+ * fixed by an assumption contribute only one instead of two solutions.
+ * <p>
+ * An instance reuses its evaluation buffers between queries and must not be
+ * used by multiple threads concurrently. Multiple engines can share the same
+ * circuit.
+ */
+public class DDNNFQueryEngine {
+
+	private static final BigInteger TWO = BigInteger.valueOf(2);
+
+	private final DDNNF ddnnf;
+	private final int[] offsets;
+	private final int[] table;
+
+	private final byte[] assumed;
+	private boolean[] satisfiable;
+	private BigInteger[] counts;
+	private BigInteger unconditionedCount;
+
+	public DDNNFQueryEngine(DDNNF ddnnf) {
+		this.ddnnf = ddnnf;
+		offsets = ddnnf.getOffsets();
+		table = ddnnf.getTable();
+		assumed = new byte[ddnnf.getNumberOfVariables() + 1];
+	}
+
+	public DDNNF getDDNNF() {
+		return ddnnf;
+	}
+
+	public boolean hasSolution(LiteralList assumptions) {
+		final int[] literals = assumptions.getLiterals();
+		return hasSolution(literals, literals.length);
+	}
+
+	public boolean hasSolution(int... assumptions) {
+		return hasSolution(assumptions, assumptions.length);
+	}
+
+	/**
+	 * Checks whether the circuit has a solution that contains the first
+	 * {@code count} literals of the given array.
+	 *
+	 * @param assumptions literals in DIMACS notation
+	 * @param count       the number of valid entries in {@code assumptions}
+	 * @return {@code true} if there is a solution, {@code false} otherwise
+	 */
+	public boolean hasSolution(int[] assumptions, int count) {
+		if (!assume(assumptions, count)) {
+			return false;
+		}
+		try {
+			if (satisfiable == null) {
+				satisfiable = new boolean[offsets.length];
+			}
+			for (int node = 0; node < offsets.length; node++) {
+				final int offset = offsets[node];
+				switch (table[offset]) {
+				case DDNNF.FALSE:
+					satisfiable[node] = false;
+					break;
+				case DDNNF.TRUE:
+				case DDNNF.FREE:
+					satisfiable[node] = true;
+					break;
+				case DDNNF.LITERAL:
+					satisfiable[node] = isConsistent(table[offset + 1]);
+					break;
+				case DDNNF.AND: {
+					boolean result = true;
+					for (int i = offset + 2, end = i + table[offset + 1]; i < end; i++) {
+						if (!satisfiable[table[i]]) {
+							result = false;
+							break;
+						}
+					}
+					satisfiable[node] = result;
+					break;
+				}
+				case DDNNF.OR: {
+					boolean result = false;
+					for (int i = offset + 2, end = i + table[offset + 1]; i < end; i++) {
+						if (satisfiable[table[i]]) {
+							result = true;
+							break;
+						}
+					}
+					satisfiable[node] = result;
+					break;
+				}
+				default:
+					throw new IllegalStateException(String.valueOf(table[offset]));
+				}
+			}
+			return satisfiable[ddnnf.getRoot()];
+		} finally {
+			unassume(assumptions, count);
+		}
+	}
+
+	public BigInteger countSolutions(LiteralList assumptions) {
+		final int[] literals = assumptions.getLiterals();
+		return countSolutions(literals, literals.length);
+	}
+
+	public BigInteger countSolutions(int... assumptions) {
+		return countSolutions(assumptions, assumptions.length);
+	}
+
+	/**
+	 * Counts the solutions of the circuit that contain the first {@code count}
+	 * literals of the given array. The count without assumptions is computed only
+	 * once.
+	 *
+	 * @param assumptions literals in DIMACS notation
+	 * @param count       the number of valid entries in {@code assumptions}
+	 * @return the number of solutions
+	 */
+	public BigInteger countSolutions(int[] assumptions, int count) {
+		if ((count == 0) && (unconditionedCount != null)) {
+			return unconditionedCount;
+		}
+		if (!assume(assumptions, count)) {
+			return BigInteger.ZERO;
+		}
+		try {
+			if (counts == null) {
+				counts = new BigInteger[offsets.length];
+			}
+			for (int node = 0; node < offsets.length; node++) {
+				final int offset = offsets[node];
+				switch (table[offset]) {
+				case DDNNF.FALSE:
+					counts[node] = BigInteger.ZERO;
+					break;
+				case DDNNF.TRUE:
+					counts[node] = BigInteger.ONE;
+					break;
+				case DDNNF.FREE:
+					counts[node] = assumed[table[offset + 1]] == 0 ? TWO : BigInteger.ONE;
+					break;
+				case DDNNF.LITERAL:
+					counts[node] = isConsistent(table[offset + 1]) ? BigInteger.ONE : BigInteger.ZERO;
+					break;
+				case DDNNF.AND: {
+					BigInteger result = BigInteger.ONE;
+					for (int i = offset + 2, end = i + table[offset + 1]; i < end; i++) {
+						final BigInteger childCount = counts[table[i]];
+						if (childCount.signum() == 0) {
+							result = BigInteger.ZERO;
+							break;
+						}
+						result = result.multiply(childCount);
+					}
+					counts[node] = result;
+					break;
+				}
+				case DDNNF.OR: {
+					BigInteger result = BigInteger.ZERO;
+					for (int i = offset + 2, end = i + table[offset + 1]; i < end; i++) {
+						result = result.add(counts[table[i]]);
+					}
+					counts[node] = result;
+					break;
+				}
+				default:
+					throw new IllegalStateException(String.valueOf(table[offset]));
+				}
+			}
+			final BigInteger result = counts[ddnnf.getRoot()];
+			if (count == 0) {
+				unconditionedCount = result;
+			}
+			return result;
+		} finally {
+			unassume(assumptions, count);
+		}
+	}
+
+	private boolean isConsistent(int literal) {
+		return literal > 0 ? assumed[literal] >= 0 : assumed[-literal] <= 0;
+	}
+
+	private boolean assume(int[] assumptions, int count) {
+		for (int i = 0; i < count; i++) {
+			final int literal = assumptions[i];
+			final int variable = Math.abs(literal);
+			final byte value = literal > 0 ? (byte) 1 : (byte) -1;
+			if (variable >= assumed.length) {
+				unassume(assumptions, i);
+				throw new IllegalArgumentException(String.valueOf(literal));
+			} else if (assumed[variable] == -value) {
+				unassume(assumptions, i);
+				return false;
+			}
+			assumed[variable] = value;
+		}
+		return true;
+	}
+
+	private void unassume(int[] assumptions, int count) {
+		for (int i = 0; i < count; i++) {
+			assumed[Math.abs(assumptions[i])] = 0;
+		}
+	}
+
+}
@@ -0,0 +1,273 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.ddnnf.solver;
+
+import java.math.*;
+import java.util.*;
+
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.sharpsat.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.util.job.*;
+
+/**
+ * Knowledge-compilation based solver. Compiles the permanent clauses of the
+ * formula into a {@link DDNNF decision-DNNF} circuit on the first query and
+ * answers all subsequent satisfiability and counting queries on the circuit in
+ * time linear in its size, regardless of the assumptions. The formula and the
+ * assumptions are managed by an underlying {@link CDCLSolver}. The circuit is
+ * recompiled only if the permanent clauses change. Pushed constraints are not
+ * compiled. Satisfiability under pushed constraints is checked by the
+ * {@link CDCLSolver}, counts are computed by {@link InclusionExclusion
+ * inclusion-exclusion} on the circuit. Only if more than
+ * {@link InclusionExclusion#MAX_CLAUSES} clauses are pushed, a separate circuit
+ * is compiled for all clauses.
+ */
+public class DDNNFSolver implements SharpSatSolver {
+
+	protected final CDCLSolver solver;
+	private DDNNFQueryEngine queryEngine;
+	private long queryEngineRevision = -1;
+	private DDNNFQueryEngine guardedQueryEngine;
+	private long guardedQueryEngineRevision = -1;
+	private DDNNFCompiler compiler;
+	private long maxCacheMemory = Runtime.getRuntime().maxMemory() / 4;
+	private InternalMonitor monitor;
+
+	public DDNNFSolver(CNF cnf) {
+		solver = new CDCLSolver(cnf);
+	}
+
+	public DDNNFSolver(VariableMap variableMap) {
+		solver = new CDCLSolver(variableMap);
+	}
+
+	@Override
+	public CDCLAssumptions getAssumptions() {
+		return solver.getAssumptions();
+	}
+
+	@Override
+	public Optional<LiteralAssumptions> getLiteralAssumptions() {
+		return solver.getLiteralAssumptions();
+	}
+
+	@Override
+	public CDCLFormula getDynamicFormula() {
+		return solver.getDynamicFormula();
+	}
+
+	@Override
+	public VariableMap getVariables() {
+		return solver.getVariables();
+	}
+
+	public CDCLSolver getSatSolver() {
+		return solver;
+	}
+
+	/**
+	 * Checks satisfiability of the current formula under the current assumptions
+	 * using the compiled circuit. If constraints were pushed, the
+	 * {@link CDCLSolver} is used instead.
+	 *
+	 * @throws RuntimeTimeoutException if compiling was canceled via the monitor or
+	 *                                 the budget is exhausted
+	 */
+	@Override
+	public SatResult hasSolution() throws RuntimeTimeoutException {
+		if (!solver.getDynamicFormula().getGuardedClauses().isEmpty()) {
+			return solver.hasSolution();
+		}
+		final LiteralAssumptions assumptions = solver.getAssumptions();
+		return getQueryEngine().hasSolution(assumptions.getLiterals(), assumptions.size()) ? SatResult.TRUE
+			: SatResult.FALSE;
+	}
+
+	/**
+	 * Counts the solutions of the current formula under the current assumptions
+	 * using the compiled circuit.
+	 *
+	 * @throws RuntimeTimeoutException if compiling was canceled via the monitor or
+	 *                                 the budget is exhausted
+	 */
+	@Override
+	public BigInteger countSolutions() throws RuntimeTimeoutException {
+		final LiteralAssumptions assumptions = solver.getAssumptions();
+		return countSolutions(assumptions.getLiterals(), assumptions.size());
+	}
+
+	/**
+	 * Counts the solutions of the current formula under the current assumptions
+	 * and the given additional literals using the compiled circuit.
+	 *
+	 * @param assumptions additional literals
+	 * @return the number of solutions
+	 *
+	 * @throws RuntimeTimeoutException if compiling was canceled via the monitor or
+	 *                                 the budget is exhausted
+	 */
+	public BigInteger countSolutions(LiteralList assumptions) throws RuntimeTimeoutException {
+		final int[] literals = joinAssumptions(assumptions);
+		return countSolutions(literals, literals.length);
+	}
+
+	private BigInteger countSolutions(int[] literals, int count) throws RuntimeTimeoutException {
+		final List<LiteralList> guardedClauses = solver.getDynamicFormula().getGuardedClauses();
+		if (guardedClauses.isEmpty()) {
+			return getQueryEngine().countSolutions(literals, count);
+		} else if (guardedClauses.size() > InclusionExclusion.MAX_CLAUSES) {
+			return getGuardedQueryEngine().countSolutions(literals, count);
+		}
+		final DDNNFQueryEngine engine = getQueryEngine();
+		return InclusionExclusion.count(literals, count, guardedClauses, engine::countSolutions);
+	}
+
+	private int[] joinAssumptions(LiteralList additionalAssumptions) {
+		final LiteralAssumptions assumptions = solver.getAssumptions();
+		final int size = assumptions.size();
+		final int[] additionalLiterals = additionalAssumptions.getLiterals();
+		final int[] literals = Arrays.copyOf(assumptions.getLiterals(), size + additionalLiterals.length);
+		System.arraycopy(additionalLiterals, 0, literals, size, additionalLiterals.length);
+		return literals;
+	}
+
+	/**
+	 * Returns the circuit for the permanent clauses of the formula. The clauses
+	 * are (re-)compiled if they changed since the last call. Pushed constraints
+	 * are not part of the circuit.
+	 *
+	 * @return the compiled circuit
+	 *
+	 * @throws RuntimeTimeoutException if compiling was canceled via the monitor or
+	 *                                 the budget is exhausted
+	 */
+	public DDNNF getDDNNF() throws RuntimeTimeoutException {
+		return getQueryEngine().getDDNNF();
+	}
+
+	/**
+	 * Returns a query engine for the circuit of the permanent clauses of the
+	 * formula. The clauses are (re-)compiled if they changed since the last call.
+	 * Pushing and popping constraints keeps the circuit.
+	 *
+	 * @return the query engine
+	 *
+	 * @throws RuntimeTimeoutException if compiling was canceled via the monitor or
+	 *                                 the budget is exhausted
+	 */
+	public DDNNFQueryEngine getQueryEngine() throws RuntimeTimeoutException {
+		final CDCLFormula formula = solver.getDynamicFormula();
+		final long revision = formula.getPermanentRevision();
+		if ((queryEngine == null) || (queryEngineRevision != revision)) {
+			queryEngine = new DDNNFQueryEngine(compile(formula.getPermanentClauses()));
+			queryEngineRevision = revision;
+		}
+		return queryEngine;
+	}
+
+	private DDNNFQueryEngine getGuardedQueryEngine() throws RuntimeTimeoutException {
+		final long revision = solver.getEngine().getRevision();
+		if ((guardedQueryEngine == null) || (guardedQueryEngineRevision != revision)) {
+			final ArrayList<LiteralList> clauses = new ArrayList<>();
+			for (final CDCLConstraint constraint : solver.getDynamicFormula().getConstraints()) {
+				clauses.addAll(constraint.getClauses());
+			}
+			guardedQueryEngine = new DDNNFQueryEngine(compile(clauses));
+			guardedQueryEngineRevision = revision;
+		}
+		return guardedQueryEngine;
+	}
+
+	private DDNNF compile(List<LiteralList> clauses) throws RuntimeTimeoutException {
+		compiler = new DDNNFCompiler(getVariables().getMaxIndex(), clauses, new ComponentCache<>(maxCacheMemory));
+		compiler.setMonitor(monitor);
+		compiler.setBudget(solver.getBudget());
+		try {
+			return compiler.compile();
+		} finally {
+			compiler = null;
+		}
+	}
+
+	public long getMaxCacheMemory() {
+		return maxCacheMemory;
+	}
+
+	/**
+	 * Sets the estimated memory in bytes that the component cache of the compiler
+	 * may occupy. Takes effect for the next compilation. Evicting components
+	 * does not affect the correctness of the circuit, but may increase its size.
+	 *
+	 * @param maxCacheMemory the memory limit
+	 */
+	public void setMaxCacheMemory(long maxCacheMemory) {
+		this.maxCacheMemory = maxCacheMemory;
+	}
+
+	public InternalMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Sets a monitor that is checked for cancellation while compiling.
+	 *
+	 * @param monitor the monitor or {@code null}
+	 */
+	public void setMonitor(InternalMonitor monitor) {
+		this.monitor = monitor;
+		solver.setMonitor(monitor);
+	}
+
+	@Override
+	public Budget getBudget() {
+		return solver.getBudget();
+	}
+
+	/**
+	 * Sets a budget that limits the underlying {@link CDCLSolver} as well as
+	 * the compiler, which charges its propagated literals to the budget. If the
+	 * budget is exhausted, compiling is aborted with a
+	 * {@link RuntimeTimeoutException}. Queries on a compiled circuit are not
+	 * limited.
+	 *
+	 * @param budget the budget or {@code null}
+	 */
+	@Override
+	public void setBudget(Budget budget) {
+		solver.setBudget(budget);
+	}
+
+	/**
+	 * Aborts a running compilation.
+	 */
+	public void interrupt() {
+		final DDNNFCompiler currentCompiler = compiler;
+		if (currentCompiler != null) {
+			currentCompiler.interrupt();
+		}
+	}
+
+}
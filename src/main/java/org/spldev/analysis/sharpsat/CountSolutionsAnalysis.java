@@ -0,0 +1,80 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.sharpsat;
+
+import java.math.*;
+
+import org.spldev.analysis.*;
+import org.spldev.analysis.sharpsat.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.util.data.*;
+import org.spldev.util.job.*;
+
+/**
+ * Counts the number of solutions of a given formula.
+ */
+public class CountSolutionsAnalysis extends AbstractAnalysis<BigInteger, CountingSolver, CNF> {
+
+	public static final Identifier<BigInteger> identifier = new Identifier<>();
+
+	@Override
+	public Identifier<BigInteger> getIdentifier() {
+		return identifier;
+	}
+
+	public CountSolutionsAnalysis() {
+		super();
+		solverInputProvider = CNFProvider.fromFormula();
+	}
+
+	public CountSolutionsAnalysis(CountingSolver solver) {
+		this();
+		this.solver = solver;
+	}
+
+	@Override
+	protected CountingSolver createSolver(CNF input) throws RuntimeContradictionException {
+		return new CountingSolver(input);
+	}
+
+	/**
+	 * {@inheritDoc} The given monitor is checked for cancellation while counting.
+	 */
+	@Override
+	public BigInteger execute(CountingSolver solver, InternalMonitor monitor) {
+		final InternalMonitor oldMonitor = solver.getMonitor();
+		solver.setMonitor(monitor);
+		try {
+			return super.execute(solver, monitor);
+		} finally {
+			solver.setMonitor(oldMonitor);
+		}
+	}
+
+	@Override
+	protected BigInteger analyze(CountingSolver solver, InternalMonitor monitor) throws Exception {
+		return solver.countSolutions();
+	}
+
+}
@@ -0,0 +1,796 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.sharpsat.solver;
+
+import java.util.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.util.job.*;
+
+/**
+ * DPLL search over clauses in DIMACS notation without clause learning that
+ * splits the residual formula into independent components after each decision
+ * (dynamic decomposition). The results of components are stored in a
+ * {@link ComponentCache}. Before branching on a component, literals of clauses
+ * that just became binary are probed (implicit BCP) and their failed polarity
+ * is excluded.
+ * <p>
+ * Subclasses define the result of a search by combining the results of
+ * independent parts ({@link #conjoin(int[], int, int, List, int[])}) and of
+ * both branches of a decision ({@link #decide(int, Object, Object)}).
+ *
+ * @param <T> type of the search result
+ */
+public abstract class AbstractComponentEngine<T> {
+
+	private static final byte TRUE = 1;
+	private static final byte FALSE = -1;
+	private static final byte UNDEF = 0;
+
+	private static final int MONITOR_INTERVAL = 1024;
+	private static final int[] NO_VARIABLES = new int[0];
+
+	private static final class Component {
+
+		private final int[] variables;
+		private final int[] clauses;
+
+		private Component(int[] variables, int[] clauses) {
+			this.variables = variables;
+			this.clauses = clauses;
+		}
+
+		private int[] getKey() {
+			final int[] key = new int[1 + variables.length + clauses.length];
+			key[0] = variables.length;
+			System.arraycopy(variables, 0, key, 1, variables.length);
+			System.arraycopy(clauses, 0, key, 1 + variables.length, clauses.length);
+			return key;
+		}
+
+	}
+
+	private final int numberOfVariables;
+	private final int[][] clauses;
+	private final int[][] occurrences;
+	private final int[][] watches;
+	private final int[] watchSizes;
+	private final int[] units;
+	private final boolean emptyClause;
+
+	private final byte[] values;
+	private final int[] trail;
+	private final int[] trailPositions;
+	private int trailSize;
+	private int propagationHead;
+
+	private final int[] variableStamps;
+	private final int[] clauseStamps;
+	private int stamp;
+	private final int[] scores;
+	private final int[] queue;
+	private final int[] clauseBuffer;
+
+	private final ComponentCache<T> cache;
+	private boolean implicitBCP = true;
+	private InternalMonitor monitor;
+	private Budget budget;
+	private volatile boolean interrupted;
+
+	private long nodes;
+	private long decisions;
+	private long propagations;
+	private long chargedPropagations;
+	private long implicitImplications;
+
+	/**
+	 * Creates a new engine. Tautological clauses are ignored.
+	 *
+	 * @param numberOfVariables the number of variables of the formula
+	 * @param clauses           the clauses of the formula
+	 * @param cache             the cache for component results
+	 */
+	protected AbstractComponentEngine(int numberOfVariables, List<LiteralList> clauses, ComponentCache<T> cache) {
+		this.cache = cache;
+		int variableCount = numberOfVariables;
+		for (final LiteralList clause : clauses) {
+			for (final int literal : clause.getLiterals()) {
+				variableCount = Math.max(variableCount, Math.abs(literal));
+			}
+		}
+		this.numberOfVariables = variableCount;
+		values = new byte[(variableCount + 1) << 1];
+		trail = new int[variableCount];
+		trailPositions = new int[variableCount + 1];
+		variableStamps = new int[variableCount + 1];
+		scores = new int[variableCount + 1];
+		queue = new int[variableCount];
+
+		final int[] literalStamps = new int[values.length];
+		final ArrayList<int[]> clauseList = new ArrayList<>(clauses.size());
+		final ArrayList<Integer> unitList = new ArrayList<>();
+		boolean emptyClause = false;
+		int clauseStamp = 0;
+		clauseLoop: for (final LiteralList clause : clauses) {
+			clauseStamp++;
+			final int[] literals = clause.getLiterals();
+			final int[] internalLiterals = new int[literals.length];
+			int size = 0;
+			for (final int literal : literals) {
+				final int internalLiteral = literal > 0 ? literal << 1 : ((-literal) << 1) | 1;
+				if (literalStamps[internalLiteral ^ 1] == clauseStamp) {
+					continue clauseLoop;
+				}
+				if (literalStamps[internalLiteral] != clauseStamp) {
+					literalStamps[internalLiteral] = clauseStamp;
+					internalLiterals[size++] = internalLiteral;
+				}
+			}
+			if (size == 0) {
+				emptyClause = true;
+			} else if (size == 1) {
+				unitList.add(internalLiterals[0]);
+			} else {
+				clauseList.add(size == literals.length ? internalLiterals : Arrays.copyOf(internalLiterals, size));
+			}
+		}
+		this.emptyClause = emptyClause;
+		this.clauses = clauseList.toArray(new int[0][]);
+		units = unitList.stream().mapToInt(Integer::intValue).toArray();
+		clauseStamps = new int[this.clauses.length];
+		clauseBuffer = new int[this.clauses.length];
+
+		final int[] occurrenceCounts = new int[variableCount + 1];
+		watchSizes = new int[values.length];
+		for (final int[] clause : this.clauses) {
+			for (final int literal : clause) {
+				occurrenceCounts[literal >> 1]++;
+			}
+			watchSizes[clause[0]]++;
+			watchSizes[clause[1]]++;
+		}
+		occurrences = new int[variableCount + 1][];
+		for (int variable = 1; variable <= variableCount; variable++) {
+			occurrences[variable] = new int[occurrenceCounts[variable]];
+			occurrenceCounts[variable] = 0;
+		}
+		watches = new int[values.length][];
+		for (int literal = 2; literal < values.length; literal++) {
+			watches[literal] = new int[Math.max(4, watchSizes[literal])];
+			watchSizes[literal] = 0;
+		}
+		for (int i = 0; i < this.clauses.length; i++) {
+			final int[] clause = this.clauses[i];
+			for (final int literal : clause) {
+				final int variable = literal >> 1;
+				occurrences[variable][occurrenceCounts[variable]++] = i;
+			}
+			addWatch(clause[0], i);
+			addWatch(clause[1], i);
+		}
+	}
+
+	public int getNumberOfVariables() {
+		return numberOfVariables;
+	}
+
+	public ComponentCache<T> getCache() {
+		return cache;
+	}
+
+	public boolean isImplicitBCP() {
+		return implicitBCP;
+	}
+
+	public void setImplicitBCP(boolean implicitBCP) {
+		this.implicitBCP = implicitBCP;
+	}
+
+	public InternalMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Sets a monitor that is checked periodically while searching. If the monitor
+	 * is canceled, the search is aborted with a {@link RuntimeTimeoutException}.
+	 *
+	 * @param monitor the monitor or {@code null}
+	 */
+	public void setMonitor(InternalMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	public Budget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Sets a budget that limits all subsequent searches. Propagated literals are
+	 * charged to the budget periodically. If the budget is exhausted, the search
+	 * is aborted with a {@link RuntimeTimeoutException}.
+	 *
+	 * @param budget the budget or {@code null}
+	 */
+	public void setBudget(Budget budget) {
+		this.budget = budget;
+		chargedPropagations = propagations;
+	}
+
+	/**
+	 * Aborts a running search. Can be called from any thread.
+	 */
+	public void interrupt() {
+		interrupted = true;
+	}
+
+	public long getDecisions() {
+		return decisions;
+	}
+
+	public long getImplicitImplications() {
+		return implicitImplications;
+	}
+
+	public long getPropagations() {
+		return propagations;
+	}
+
+	/**
+	 * Returns the result for an unsatisfiable (part of the) formula.
+	 *
+	 * @return the neutral element of {@link #decide(int, Object, Object)}
+	 */
+	protected abstract T zero();
+
+	protected abstract boolean isZero(T result);
+
+	/**
+	 * Combines the results of independent parts of the formula.
+	 *
+	 * @param trail         the trail of assigned literals (internal encoding)
+	 * @param from          the position of the first literal on the trail that
+	 *                      was assigned in the current part
+	 * @param to            the position after the last literal assigned in the
+	 *                      current part
+	 * @param components    the results of all independent components
+	 * @param freeVariables all unassigned variables that do not occur in any
+	 *                      unsatisfied clause
+	 * @return the combined result
+	 */
+	protected abstract T conjoin(int[] trail, int from, int to, List<T> components, int[] freeVariables);
+
+	/**
+	 * Combines the results of both branches of a decision.
+	 *
+	 * @param variable the decision variable
+	 * @param positive the result of the positive branch
+	 * @param negative the result of the negative branch
+	 * @return the combined result
+	 */
+	protected abstract T decide(int variable, T positive, T negative);
+
+	/**
+	 * Estimates the memory in bytes occupied by a result in the cache.
+	 *
+	 * @param result the result
+	 * @return the estimated size
+	 */
+	protected abstract long sizeOf(T result);
+
+	/**
+	 * Searches the formula with the first {@code count} literals of the given
+	 * array as additional unit clauses. The search is aborted if the current
+	 * thread is interrupted.
+	 *
+	 * @param assumptions literals in DIMACS notation
+	 * @param count       the number of valid entries in {@code assumptions}
+	 * @return the result of the search
+	 *
+	 * @throws RuntimeTimeoutException if the search was interrupted, the monitor
+	 *                                 was canceled, or the budget is exhausted
+	 */
+	protected T search(int[] assumptions, int count) throws RuntimeTimeoutException {
+		interrupted = false;
+		if ((budget != null) && budget.isExhausted()) {
+			throw new RuntimeTimeoutException();
+		}
+		try {
+			return searchAll(assumptions, count);
+		} finally {
+			if (budget != null) {
+				chargeBudget();
+			}
+		}
+	}
+
+	private T searchAll(int[] assumptions, int count) {
+		undo(0);
+		if (emptyClause) {
+			return zero();
+		}
+		try {
+			for (final int unit : units) {
+				if (!assign(unit)) {
+					return zero();
+				}
+			}
+			for (int i = 0; i < count; i++) {
+				final int literal = assumptions[i];
+				if ((literal == 0) || (Math.abs(literal) > numberOfVariables)) {
+					throw new IllegalArgumentException("Invalid literal: " + literal);
+				}
+				if (!assign(literal > 0 ? literal << 1 : ((-literal) << 1) | 1)) {
+					return zero();
+				}
+			}
+			if (!propagate()) {
+				return zero();
+			}
+			final int[] variables = new int[numberOfVariables - trailSize];
+			int size = 0;
+			for (int variable = 1; variable <= numberOfVariables; variable++) {
+				if (values[variable << 1] == UNDEF) {
+					variables[size++] = variable;
+				}
+			}
+			return searchResidual(variables, 0);
+		} finally {
+			undo(0);
+		}
+	}
+
+	/**
+	 * Searches the unassigned variables within the given set of variables. As the
+	 * depth of the search is bounded by the number of variables only, the search
+	 * keeps its frames on an explicit stack instead of the call stack.
+	 *
+	 * @param variables a set of variables that does not share unsatisfied clauses
+	 *                  with other unassigned variables
+	 * @param from      the trail position of the last decision
+	 * @return the combined result of all components
+	 */
+	private T searchResidual(int[] variables, int from) {
+		final ArrayList<Frame> stack = new ArrayList<>();
+		Frame frame = new ResidualFrame(variables, from);
+		T childResult = null;
+		while (true) {
+			final Frame child = frame.resume(childResult);
+			if (child != null) {
+				stack.add(frame);
+				frame = child;
+				childResult = null;
+			} else if (stack.isEmpty()) {
+				return frame.result;
+			} else {
+				childResult = frame.result;
+				frame = stack.remove(stack.size() - 1);
+			}
+		}
+	}
+
+	/**
+	 * A step of the search, which may depend on the results of nested steps.
+	 */
+	private abstract class Frame {
+
+		private T result;
+
+		/**
+		 * Continues this step.
+		 *
+		 * @param childResult the result of the nested step that was returned by the
+		 *                    previous call or {@code null} for the first call
+		 * @return a nested step that must be completed before this step can
+		 *         continue or {@code null} if this step is completed
+		 */
+		protected abstract Frame resume(T childResult);
+
+		protected Frame complete(T result) {
+			this.result = result;
+			return null;
+		}
+
+	}
+
+	/**
+	 * Searches all components of a set of variables and combines their results.
+	 */
+	private final class ResidualFrame extends Frame {
+
+		private final int from;
+		private final ArrayList<Component> components = new ArrayList<>();
+		private final int[] freeVariables;
+		private final ArrayList<T> results;
+		private int next;
+
+		private ResidualFrame(int[] variables, int from) {
+			this.from = from;
+			freeVariables = decompose(variables, components);
+			components.sort(Comparator.comparingInt(component -> component.variables.length));
+			results = new ArrayList<>(components.size());
+		}
+
+		@Override
+		protected Frame resume(T childResult) {
+			if (next > 0) {
+				if (isZero(childResult)) {
+					return complete(zero());
+				}
+				results.add(childResult);
+			}
+			if (next < components.size()) {
+				return new ComponentFrame(components.get(next++), from);
+			}
+			return complete(conjoin(trail, from, trailSize, results, freeVariables));
+		}
+
+	}
+
+	/**
+	 * Searches a single component by implicit BCP and branching on one of its
+	 * variables.
+	 */
+	private final class ComponentFrame extends Frame {
+
+		private static final int START = 0;
+		private static final int IMPLIED = 1;
+		private static final int POSITIVE = 2;
+		private static final int NEGATIVE = 3;
+
+		private final Component component;
+		private final int from;
+		private int[] key;
+		private int checkpoint;
+		private int variable;
+		private T positive;
+		private int state = START;
+
+		private ComponentFrame(Component component, int from) {
+			this.component = component;
+			this.from = from;
+		}
+
+		@Override
+		protected Frame resume(T childResult) {
+			switch (state) {
+			case START:
+				key = component.getKey();
+				final T cachedResult = cache.get(key);
+				if (cachedResult != null) {
+					return complete(cachedResult);
+				}
+				checkTimeout();
+
+				checkpoint = trailSize;
+				if (implicitBCP) {
+					if (!implicitBCP(component, from)) {
+						undo(checkpoint);
+						return store(zero());
+					} else if (trailSize > checkpoint) {
+						state = IMPLIED;
+						return new ResidualFrame(component.variables, checkpoint);
+					}
+					undo(checkpoint);
+				}
+				variable = pickBranchVariable(component);
+				positive = zero();
+				return branch(variable << 1, POSITIVE);
+			case IMPLIED:
+				undo(checkpoint);
+				return store(childResult);
+			case POSITIVE:
+				positive = childResult;
+				undo(checkpoint);
+				return branch((variable << 1) | 1, NEGATIVE);
+			case NEGATIVE:
+				undo(checkpoint);
+				return store(decide(variable, positive, childResult));
+			default:
+				throw new IllegalStateException(String.valueOf(state));
+			}
+		}
+
+		private Frame branch(int literal, int branchState) {
+			enqueue(literal);
+			if (propagate()) {
+				state = branchState;
+				return new ResidualFrame(component.variables, checkpoint);
+			}
+			undo(checkpoint);
+			return branchState == POSITIVE ? branch((variable << 1) | 1, NEGATIVE)
+				: store(decide(variable, positive, zero()));
+		}
+
+		private Frame store(T result) {
+			cache.put(key, result, sizeOf(result));
+			return complete(result);
+		}
+
+	}
+
+	/**
+	 * Splits the unassigned variables of the given set into connected components
+	 * with respect to the unsatisfied clauses.
+	 *
+	 * @param variables  the variables to split
+	 * @param components the list to which all non-trivial components are added
+	 * @return the unassigned variables that do not occur in any unsatisfied
+	 *         clause
+	 */
+	private int[] decompose(int[] variables, List<Component> components) {
+		newStamp();
+		int[] freeVariables = null;
+		int freeVariableCount = 0;
+		for (final int root : variables) {
+			if ((values[root << 1] != UNDEF) || (variableStamps[root] == stamp)) {
+				continue;
+			}
+			variableStamps[root] = stamp;
+			queue[0] = root;
+			int head = 0;
+			int tail = 1;
+			int clauseCount = 0;
+			while (head < tail) {
+				for (final int clauseIndex : occurrences[queue[head++]]) {
+					if (clauseStamps[clauseIndex] != stamp) {
+						clauseStamps[clauseIndex] = stamp;
+						final int[] literals = clauses[clauseIndex];
+						if (!isSatisfied(literals)) {
+							clauseBuffer[clauseCount++] = clauseIndex;
+							for (final int literal : literals) {
+								final int variable = literal >> 1;
+								if ((values[literal] == UNDEF) && (variableStamps[variable] != stamp)) {
+									variableStamps[variable] = stamp;
+									queue[tail++] = variable;
+								}
+							}
+						}
+					}
+				}
+			}
+			if (clauseCount == 0) {
+				if (freeVariables == null) {
+					freeVariables = new int[variables.length];
+				}
+				freeVariables[freeVariableCount++] = root;
+			} else {
+				final int[] componentVariables = Arrays.copyOf(queue, tail);
+				final int[] componentClauses = Arrays.copyOf(clauseBuffer, clauseCount);
+				Arrays.sort(componentVariables);
+				Arrays.sort(componentClauses);
+				components.add(new Component(componentVariables, componentClauses));
+			}
+		}
+		return freeVariables == null ? NO_VARIABLES : Arrays.copyOf(freeVariables, freeVariableCount);
+	}
+
+	/**
+	 * Probes both polarities of all variables in clauses of the component that
+	 * became binary since the last decision. If one polarity leads to a conflict,
+	 * the other one is assigned.
+	 *
+	 * @param component the current component
+	 * @param from      the trail position of the last decision
+	 * @return {@code false} if the component is unsatisfiable
+	 */
+	private boolean implicitBCP(Component component, int from) {
+		newStamp();
+		int candidateCount = 0;
+		for (final int clauseIndex : component.clauses) {
+			final int[] literals = clauses[clauseIndex];
+			int unassignedCount = 0;
+			int first = 0;
+			int second = 0;
+			boolean recent = false;
+			for (final int literal : literals) {
+				final byte value = values[literal];
+				if (value == UNDEF) {
+					if (unassignedCount++ == 0) {
+						first = literal >> 1;
+					} else {
+						second = literal >> 1;
+					}
+				} else if (value == FALSE) {
+					recent |= trailPositions[literal >> 1] >= from;
+				}
+			}
+			if (recent && (unassignedCount == 2)) {
+				if (variableStamps[first] != stamp) {
+					variableStamps[first] = stamp;
+					queue[candidateCount++] = first;
+				}
+				if (variableStamps[second] != stamp) {
+					variableStamps[second] = stamp;
+					queue[candidateCount++] = second;
+				}
+			}
+		}
+		for (int i = 0; i < candidateCount; i++) {
+			final int variable = queue[i];
+			if (values[variable << 1] == UNDEF) {
+				for (int literal = variable << 1; literal <= ((variable << 1) | 1); literal++) {
+					final int checkpoint = trailSize;
+					enqueue(literal);
+					final boolean consistent = propagate();
+					undo(checkpoint);
+					if (!consistent) {
+						implicitImplications++;
+						enqueue(literal ^ 1);
+						if (!propagate()) {
+							return false;
+						}
+						break;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private int pickBranchVariable(Component component) {
+		for (final int clauseIndex : component.clauses) {
+			for (final int literal : clauses[clauseIndex]) {
+				if (values[literal] == UNDEF) {
+					scores[literal >> 1]++;
+				}
+			}
+		}
+		int bestVariable = 0;
+		int bestScore = -1;
+		for (final int variable : component.variables) {
+			if (scores[variable] > bestScore) {
+				bestScore = scores[variable];
+				bestVariable = variable;
+			}
+			scores[variable] = 0;
+		}
+		decisions++;
+		return bestVariable;
+	}
+
+	private void checkTimeout() {
+		if ((++nodes % MONITOR_INTERVAL) == 0) {
+			if (Thread.currentThread().isInterrupted()) {
+				interrupted = true;
+			} else if ((budget != null) && chargeBudget()) {
+				interrupted = true;
+			} else if (monitor != null) {
+				try {
+					monitor.checkCancel();
+				} catch (final InternalMonitor.MethodCancelException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			throw new RuntimeTimeoutException();
+		}
+	}
+
+	private boolean chargeBudget() {
+		final boolean exhausted = budget.consume(0, propagations - chargedPropagations);
+		chargedPropagations = propagations;
+		return exhausted;
+	}
+
+	private boolean isSatisfied(int[] literals) {
+		for (final int literal : literals) {
+			if (values[literal] == TRUE) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void newStamp() {
+		if (++stamp == Integer.MAX_VALUE) {
+			Arrays.fill(variableStamps, 0);
+			Arrays.fill(clauseStamps, 0);
+			stamp = 1;
+		}
+	}
+
+	private void addWatch(int literal, int clauseIndex) {
+		int[] watchList = watches[literal];
+		final int size = watchSizes[literal];
+		if (size == watchList.length) {
+			watchList = Arrays.copyOf(watchList, size << 1);
+			watches[literal] = watchList;
+		}
+		watchList[size] = clauseIndex;
+		watchSizes[literal] = size + 1;
+	}
+
+	private boolean assign(int literal) {
+		final byte value = values[literal];
+		if (value == UNDEF) {
+			enqueue(literal);
+			return true;
+		}
+		return value == TRUE;
+	}
+
+	private void enqueue(int literal) {
+		values[literal] = TRUE;
+		values[literal ^ 1] = FALSE;
+		trailPositions[literal >> 1] = trailSize;
+		trail[trailSize++] = literal;
+	}
+
+	private void undo(int checkpoint) {
+		for (int i = trailSize - 1; i >= checkpoint; i--) {
+			final int literal = trail[i];
+			values[literal] = UNDEF;
+			values[literal ^ 1] = UNDEF;
+		}
+		trailSize = Math.min(trailSize, checkpoint);
+		propagationHead = trailSize;
+	}
+
+	private boolean propagate() {
+		while (propagationHead < trailSize) {
+			final int falseLiteral = trail[propagationHead++] ^ 1;
+			propagations++;
+			final int[] watchList = watches[falseLiteral];
+			final int size = watchSizes[falseLiteral];
+			int i = 0;
+			int j = 0;
+			watchLoop: while (i < size) {
+				final int clauseIndex = watchList[i++];
+				final int[] literals = clauses[clauseIndex];
+				if (literals[0] == falseLiteral) {
+					literals[0] = literals[1];
+					literals[1] = falseLiteral;
+				}
+				final int first = literals[0];
+				if (values[first] == TRUE) {
+					watchList[j++] = clauseIndex;
+					continue;
+				}
+				for (int k = 2; k < literals.length; k++) {
+					final int literal = literals[k];
+					if (values[literal] != FALSE) {
+						literals[1] = literal;
+						literals[k] = falseLiteral;
+						addWatch(literal, clauseIndex);
+						continue watchLoop;
+					}
+				}
+				watchList[j++] = clauseIndex;
+				if (values[first] == FALSE) {
+					while (i < size) {
+						watchList[j++] = watchList[i++];
+					}
+					watchSizes[falseLiteral] = j;
+					propagationHead = trailSize;
+					return false;
+				}
+				enqueue(first);
+			}
+			watchSizes[falseLiteral] = j;
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,162 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.sharpsat.solver;
+
+import java.util.*;
+
+/**
+ * Bounded cache for the results of formula components. A component is
+ * identified by the sorted indices of its variables and clauses. If the
+ * estimated memory of all entries exceeds the limit, the least recently used
+ * entries are evicted.
+ *
+ * @param <T> type of the cached results
+ */
+public class ComponentCache<T> {
+
+	private static final long ENTRY_OVERHEAD = 96;
+
+	private static final class Key {
+
+		private final int[] data;
+		private final int hashCode;
+
+		private Key(int[] data) {
+			this.data = data;
+			hashCode = Arrays.hashCode(data);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof Key) && (((Key) obj).hashCode == hashCode) && Arrays.equals(((Key) obj).data,
+				data);
+		}
+
+	}
+
+	private static final class Entry<T> {
+
+		private final T value;
+		private final long size;
+
+		private Entry(T value, long size) {
+			this.value = value;
+			this.size = size;
+		}
+
+	}
+
+	private final LinkedHashMap<Key, Entry<T>> entries = new LinkedHashMap<>(1024, 0.75f, true);
+	private final long maxMemory;
+	private long memory;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param maxMemory the estimated memory in bytes the cache may occupy
+	 */
+	public ComponentCache(long maxMemory) {
+		this.maxMemory = maxMemory;
+	}
+
+	/**
+	 * Returns the result of a component.
+	 *
+	 * @param key the identifying key of the component
+	 * @return the result or {@code null} if the component is not cached
+	 */
+	public T get(int[] key) {
+		final Entry<T> entry = entries.get(new Key(key));
+		if (entry == null) {
+			misses++;
+			return null;
+		} else {
+			hits++;
+			return entry.value;
+		}
+	}
+
+	/**
+	 * Stores the result of a component and evicts old entries if necessary.
+	 *
+	 * @param key       the identifying key of the component (must not be
+	 *                  modified afterwards)
+	 * @param value     the result of the component
+	 * @param valueSize the estimated memory in bytes occupied by the result
+	 */
+	public void put(int[] key, T value, long valueSize) {
+		final long size = ENTRY_OVERHEAD + (4L * key.length) + valueSize;
+		if (size > maxMemory) {
+			return;
+		}
+		final Entry<T> oldEntry = entries.put(new Key(key), new Entry<>(value, size));
+		memory += oldEntry == null ? size : size - oldEntry.size;
+		if (memory > maxMemory) {
+			final Iterator<Entry<T>> iterator = entries.values().iterator();
+			while ((memory > maxMemory) && iterator.hasNext()) {
+				memory -= iterator.next().size;
+				iterator.remove();
+				evictions++;
+			}
+		}
+	}
+
+	public void clear() {
+		entries.clear();
+		memory = 0;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getMemory() {
+		return memory;
+	}
+
+	public long getMaxMemory() {
+		return maxMemory;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+}
@@ -0,0 +1,94 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.sharpsat.solver;
+
+import java.math.*;
+import java.util.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+
+/**
+ * Exact model counter for clauses in DIMACS notation. Multiplies the counts of
+ * independent components and adds the counts of both branches of a decision.
+ *
+ * @see AbstractComponentEngine
+ */
+public class CountingEngine extends AbstractComponentEngine<BigInteger> {
+
+	/**
+	 * Creates a new engine. Tautological clauses are ignored.
+	 *
+	 * @param numberOfVariables the number of variables to count over
+	 * @param clauses           the clauses of the formula
+	 * @param cache             the cache for component counts
+	 */
+	public CountingEngine(int numberOfVariables, List<LiteralList> clauses, ComponentCache<BigInteger> cache) {
+		super(numberOfVariables, clauses, cache);
+	}
+
+	/**
+	 * Counts the solutions of the clauses that contain the first {@code count}
+	 * literals of the given array.
+	 *
+	 * @param assumptions literals in DIMACS notation
+	 * @param count       the number of valid entries in {@code assumptions}
+	 * @return the number of solutions
+	 *
+	 * @throws RuntimeTimeoutException if counting was interrupted or the monitor
+	 *                                 was canceled
+	 */
+	public BigInteger count(int[] assumptions, int count) throws RuntimeTimeoutException {
+		return search(assumptions, count);
+	}
+
+	@Override
+	protected BigInteger zero() {
+		return BigInteger.ZERO;
+	}
+
+	@Override
+	protected boolean isZero(BigInteger result) {
+		return result.signum() == 0;
+	}
+
+	@Override
+	protected BigInteger conjoin(int[] trail, int from, int to, List<BigInteger> components, int[] freeVariables) {
+		BigInteger result = BigInteger.ONE;
+		for (final BigInteger count : components) {
+			result = result.multiply(count);
+		}
+		return result.shiftLeft(freeVariables.length);
+	}
+
+	@Override
+	protected BigInteger decide(int variable, BigInteger positive, BigInteger negative) {
+		return positive.add(negative);
+	}
+
+	@Override
+	protected long sizeOf(BigInteger result) {
+		return result.bitLength() >> 3;
+	}
+
+}
@@ -0,0 +1,233 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.sharpsat.solver;
+
+import java.math.*;
+import java.util.*;
+
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.util.job.*;
+
+/**
+ * Exact model counter based on a {@link CountingEngine}. The formula and the
+ * assumptions are managed by an underlying {@link CDCLSolver}, which also
+ * answers satisfiability queries. The counting engine is created for the
+ * permanent clauses of the formula. It and its component cache are kept as long
+ * as these clauses do not change, such that repeated counts under different
+ * assumptions can reuse cached components. Pushed constraints are taken into
+ * account by {@link InclusionExclusion inclusion-exclusion} over the same
+ * engine. Only if more than {@link InclusionExclusion#MAX_CLAUSES} clauses are
+ * pushed, a separate engine is created for all clauses.
+ */
+public class CountingSolver implements SharpSatSolver {
+
+	protected final CDCLSolver solver;
+	private CountingEngine engine;
+	private long engineRevision = -1;
+	private CountingEngine guardedEngine;
+	private long guardedEngineRevision = -1;
+	private long maxCacheMemory = Runtime.getRuntime().maxMemory() / 4;
+	private boolean implicitBCP = true;
+	private InternalMonitor monitor;
+
+	public CountingSolver(CNF cnf) {
+		solver = new CDCLSolver(cnf);
+	}
+
+	public CountingSolver(VariableMap variableMap) {
+		solver = new CDCLSolver(variableMap);
+	}
+
+	@Override
+	public CDCLAssumptions getAssumptions() {
+		return solver.getAssumptions();
+	}
+
+	@Override
+	public Optional<LiteralAssumptions> getLiteralAssumptions() {
+		return solver.getLiteralAssumptions();
+	}
+
+	@Override
+	public CDCLFormula getDynamicFormula() {
+		return solver.getDynamicFormula();
+	}
+
+	@Override
+	public VariableMap getVariables() {
+		return solver.getVariables();
+	}
+
+	public CDCLSolver getSatSolver() {
+		return solver;
+	}
+
+	@Override
+	public SatResult hasSolution() {
+		return solver.hasSolution();
+	}
+
+	/**
+	 * Counts the solutions of the current formula under the current assumptions.
+	 *
+	 * @throws RuntimeTimeoutException if counting was canceled via the monitor or
+	 *                                 the budget is exhausted
+	 */
+	@Override
+	public BigInteger countSolutions() throws RuntimeTimeoutException {
+		final LiteralAssumptions assumptions = solver.getAssumptions();
+		final List<LiteralList> guardedClauses = solver.getDynamicFormula().getGuardedClauses();
+		if (guardedClauses.size() > InclusionExclusion.MAX_CLAUSES) {
+			final CountingEngine countingEngine = getGuardedCountingEngine();
+			countingEngine.setMonitor(monitor);
+			countingEngine.setBudget(solver.getBudget());
+			return countingEngine.count(assumptions.getLiterals(), assumptions.size());
+		}
+		final CountingEngine countingEngine = getCountingEngine();
+		countingEngine.setMonitor(monitor);
+		countingEngine.setBudget(solver.getBudget());
+		if (guardedClauses.isEmpty()) {
+			return countingEngine.count(assumptions.getLiterals(), assumptions.size());
+		}
+		return InclusionExclusion.count(assumptions.getLiterals(), assumptions.size(), guardedClauses,
+			literals -> countingEngine.count(literals, literals.length));
+	}
+
+	/**
+	 * Returns the counting engine for the permanent clauses of the formula. A new
+	 * engine (with an empty cache) is created if these clauses changed since the
+	 * last call. Pushing and popping constraints keeps the engine.
+	 *
+	 * @return the counting engine
+	 */
+	public CountingEngine getCountingEngine() {
+		final CDCLFormula formula = solver.getDynamicFormula();
+		final long revision = formula.getPermanentRevision();
+		if ((engine == null) || (engineRevision != revision)) {
+			engine = createCountingEngine(formula.getPermanentClauses());
+			engineRevision = revision;
+		}
+		return engine;
+	}
+
+	private CountingEngine getGuardedCountingEngine() {
+		final long revision = solver.getEngine().getRevision();
+		if ((guardedEngine == null) || (guardedEngineRevision != revision)) {
+			final ArrayList<LiteralList> clauses = new ArrayList<>();
+			for (final CDCLConstraint constraint : solver.getDynamicFormula().getConstraints()) {
+				clauses.addAll(constraint.getClauses());
+			}
+			guardedEngine = createCountingEngine(clauses);
+			guardedEngineRevision = revision;
+		}
+		return guardedEngine;
+	}
+
+	private CountingEngine createCountingEngine(List<LiteralList> clauses) {
+		final CountingEngine countingEngine = new CountingEngine(getVariables().getMaxIndex(), clauses,
+			new ComponentCache<>(maxCacheMemory));
+		countingEngine.setImplicitBCP(implicitBCP);
+		return countingEngine;
+	}
+
+	public long getMaxCacheMemory() {
+		return maxCacheMemory;
+	}
+
+	/**
+	 * Sets the estimated memory in bytes that the component cache may occupy.
+	 * Takes effect for the next created counting engine.
+	 *
+	 * @param maxCacheMemory the memory limit
+	 */
+	public void setMaxCacheMemory(long maxCacheMemory) {
+		this.maxCacheMemory = maxCacheMemory;
+		engine = null;
+		guardedEngine = null;
+	}
+
+	public boolean isImplicitBCP() {
+		return implicitBCP;
+	}
+
+	public void setImplicitBCP(boolean implicitBCP) {
+		this.implicitBCP = implicitBCP;
+		if (engine != null) {
+			engine.setImplicitBCP(implicitBCP);
+		}
+		if (guardedEngine != null) {
+			guardedEngine.setImplicitBCP(implicitBCP);
+		}
+	}
+
+	public InternalMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Sets a monitor that is checked for cancellation while solving and counting.
+	 *
+	 * @param monitor the monitor or {@code null}
+	 */
+	public void setMonitor(InternalMonitor monitor) {
+		this.monitor = monitor;
+		solver.setMonitor(monitor);
+	}
+
+	@Override
+	public Budget getBudget() {
+		return solver.getBudget();
+	}
+
+	/**
+	 * Sets a budget that limits the underlying {@link CDCLSolver} as well as
+	 * the counting engine, which charges its propagated literals to the budget.
+	 * If the budget is exhausted, counting is aborted with a
+	 * {@link RuntimeTimeoutException}.
+	 *
+	 * @param budget the budget or {@code null}
+	 */
+	@Override
+	public void setBudget(Budget budget) {
+		solver.setBudget(budget);
+	}
+
+	/**
+	 * Aborts a running call of {@link #hasSolution()} or {@link #countSolutions()}.
+	 */
+	public void interrupt() {
+		solver.interrupt();
+		final CountingEngine currentEngine = engine;
+		if (currentEngine != null) {
+			currentEngine.interrupt();
+		}
+		final CountingEngine currentGuardedEngine = guardedEngine;
+		if (currentGuardedEngine != null) {
+			currentGuardedEngine.interrupt();
+		}
+	}
+
+}
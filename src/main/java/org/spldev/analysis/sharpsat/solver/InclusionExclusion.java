@@ -0,0 +1,102 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.sharpsat.solver;
+
+import java.math.*;
+import java.util.*;
+import java.util.function.*;
+
+import org.spldev.clauses.*;
+
+/**
+ * Counts the solutions of a formula conjoined with additional clauses without
+ * adding the clauses to the formula. By inclusion-exclusion, the count is the
+ * alternating sum of the counts of the formula under the negations of all
+ * subsets of the clauses. As the negation of a clause is a set of literals,
+ * each of these counts is a count of the formula under assumptions. Thus,
+ * counters that compiled or cached the formula can answer queries with a few
+ * additional clauses without recompiling.
+ */
+public final class InclusionExclusion {
+
+	/**
+	 * The maximum number of additional clauses. The number of counts grows
+	 * exponentially with the number of clauses.
+	 */
+	public static final int MAX_CLAUSES = 8;
+
+	private InclusionExclusion() {
+	}
+
+	/**
+	 * Counts the solutions of a formula under the given assumptions that satisfy
+	 * all given clauses.
+	 *
+	 * @param assumptions     literals in DIMACS notation
+	 * @param assumptionCount the number of valid entries in {@code assumptions}
+	 * @param clauses         at most {@link #MAX_CLAUSES} additional clauses
+	 * @param counter         counts the solutions of the formula under the given
+	 *                        literals
+	 * @return the number of solutions
+	 */
+	public static BigInteger count(int[] assumptions, int assumptionCount, List<LiteralList> clauses,
+		Function<int[], BigInteger> counter) {
+		if (clauses.size() > MAX_CLAUSES) {
+			throw new IllegalArgumentException("Too many clauses: " + clauses.size());
+		}
+		int size = assumptionCount;
+		for (final LiteralList clause : clauses) {
+			size += clause.size();
+		}
+		final int[] literals = Arrays.copyOf(assumptions, size);
+		return count(literals, assumptionCount, clauses, 0, counter);
+	}
+
+	private static BigInteger count(int[] literals, int size, List<LiteralList> clauses, int index,
+		Function<int[], BigInteger> counter) {
+		if (index == clauses.size()) {
+			return counter.apply(Arrays.copyOf(literals, size));
+		}
+		final BigInteger count = count(literals, size, clauses, index + 1, counter);
+		int newSize = size;
+		for (final int literal : clauses.get(index).getLiterals()) {
+			if (contains(literals, newSize, literal)) {
+				return count;
+			}
+			if (!contains(literals, newSize, -literal)) {
+				literals[newSize++] = -literal;
+			}
+		}
+		return count.subtract(count(literals, newSize, clauses, index + 1, counter));
+	}
+
+	private static boolean contains(int[] literals, int size, int literal) {
+		for (int i = 0; i < size; i++) {
+			if (literals[i] == literal) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
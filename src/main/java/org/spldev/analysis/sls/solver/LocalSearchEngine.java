@@ -0,0 +1,833 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.sls.solver;
+
+import java.util.*;
+
+import org.spldev.analysis.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.util.job.*;
+
+/**
+ * Stochastic local search engine in the style of ProbSAT and WalkSAT working
+ * directly on int literals in DIMACS notation. Starting from a random
+ * assignment, the search repeatedly picks a random unsatisfied clause and flips
+ * one of its variables until all clauses are satisfied. All clauses are stored
+ * in one flat array. For each variable, the engine maintains its break count
+ * (i.e., the number of clauses that become unsatisfied by flipping it) and its
+ * make count (i.e., the number of unsatisfied clauses that become satisfied)
+ * incrementally with each flip.
+ * <p>
+ * Assumptions and unit clauses are fixed by unit propagation before the search
+ * and are never flipped. As the search is incomplete, it only proves
+ * unsatisfiability if unit propagation results in a conflict. If the number of
+ * unsatisfied clauses has not decreased for a {@link #setStallLimit(long)
+ * number of flips}, the search stalls and restarts from a new random
+ * assignment.
+ */
+public class LocalSearchEngine {
+
+	public enum Strategy {
+		/**
+		 * Picks a variable of the clause with a probability polynomially decreasing
+		 * with its break count.
+		 */
+		PROBSAT,
+		/**
+		 * Picks a variable of the clause with break count zero if possible,
+		 * otherwise a random variable with the probability of the noise and a
+		 * variable with minimal break count (and maximal make count) else.
+		 */
+		WALKSAT
+	}
+
+	private static final int CHECK_INTERVAL = 1024;
+
+	private int numberOfVariables;
+	private int numberOfClauses;
+	private int[] clauseStarts;
+	private int[] clauseLiterals;
+	private int[] occurrenceStarts;
+	private int[] occurrences;
+	private int[] unitLiterals;
+	private boolean emptyClause;
+	private int maxClauseSize;
+
+	private boolean[] fixed;
+	private int[] fixedLiterals;
+	private int fixedCount;
+	private int[] freeCounts;
+	private boolean[] satisfied;
+
+	private int searchClauseCount;
+	private int[] searchStarts;
+	private int[] searchLiterals;
+	private int[] searchOccurrenceStarts;
+	private int[] searchOccurrences;
+	private double[] probabilities;
+	private double[] scores;
+
+	private boolean[] values;
+	private int[] trueCounts;
+	private int[] criticalVariables;
+	private int[] breakCounts;
+	private int[] makeCounts;
+	private int[] unsatisfiedClauses;
+	private int[] unsatisfiedPositions;
+	private int unsatisfiedCount;
+
+	private int[] flipLog;
+	private int flipLogSize;
+	private boolean[] tryBestValues;
+	private boolean tryBestValuesValid;
+	private int tryBestCount;
+	private boolean[] bestValues;
+	private int bestUnsatisfiedCount;
+
+	private int[] model;
+	private boolean contradiction;
+	private boolean stopped;
+	private long flips;
+	private long chargedFlips;
+	private int restarts;
+
+	private Strategy strategy = Strategy.PROBSAT;
+	private double cb = 2.06;
+	private double eps = 0.9;
+	private double noise = 0.567;
+	private long stallLimit = 100_000;
+	private int maxRestarts = 10;
+	private long maxFlips = Long.MAX_VALUE;
+	private final Random random = new Random(0);
+
+	private volatile boolean interrupted;
+	private InternalMonitor monitor;
+	private Budget budget;
+
+	/**
+	 * Creates an engine for the given clauses.
+	 *
+	 * @param numberOfVariables the maximal variable index
+	 * @param clauses           the clauses
+	 */
+	public LocalSearchEngine(int numberOfVariables, List<LiteralList> clauses) {
+		setClauses(numberOfVariables, clauses);
+	}
+
+	/**
+	 * Replaces all clauses of this engine. Tautologies are discarded and
+	 * duplicate literals are removed.
+	 *
+	 * @param numberOfVariables the maximal variable index
+	 * @param clauses           the clauses
+	 */
+	public void setClauses(int numberOfVariables, List<LiteralList> clauses) {
+		for (final LiteralList clause : clauses) {
+			for (final int literal : clause.getLiterals()) {
+				numberOfVariables = Math.max(numberOfVariables, Math.abs(literal));
+			}
+		}
+		this.numberOfVariables = numberOfVariables;
+		final int literalCount = (numberOfVariables + 1) << 1;
+		final int[] stamps = new int[literalCount];
+		int totalSize = 0;
+		for (final LiteralList clause : clauses) {
+			totalSize += clause.size();
+		}
+		clauseStarts = new int[clauses.size() + 1];
+		clauseLiterals = new int[totalSize];
+		final int[] units = new int[clauses.size()];
+		int unitCount = 0;
+		numberOfClauses = 0;
+		emptyClause = false;
+		maxClauseSize = 0;
+		int size = 0;
+		int stamp = 0;
+		outer: for (final LiteralList clause : clauses) {
+			stamp++;
+			final int start = size;
+			for (final int literal : clause.getLiterals()) {
+				final int internalLiteral = toInternal(literal);
+				if (stamps[internalLiteral ^ 1] == stamp) {
+					size = start;
+					continue outer;
+				} else if (stamps[internalLiteral] != stamp) {
+					stamps[internalLiteral] = stamp;
+					clauseLiterals[size++] = internalLiteral;
+				}
+			}
+			final int clauseSize = size - start;
+			if (clauseSize == 0) {
+				emptyClause = true;
+			} else if (clauseSize == 1) {
+				units[unitCount++] = clauseLiterals[start];
+			}
+			maxClauseSize = Math.max(maxClauseSize, clauseSize);
+			clauseStarts[++numberOfClauses] = size;
+		}
+		unitLiterals = Arrays.copyOf(units, unitCount);
+
+		occurrenceStarts = new int[literalCount + 1];
+		occurrences = new int[size];
+		countingSort(numberOfClauses, clauseStarts, clauseLiterals, occurrenceStarts, occurrences);
+
+		fixed = new boolean[literalCount];
+		fixedLiterals = new int[numberOfVariables];
+		freeCounts = new int[numberOfClauses];
+		satisfied = new boolean[numberOfClauses];
+		searchStarts = new int[numberOfClauses + 1];
+		searchLiterals = new int[size];
+		searchOccurrenceStarts = new int[literalCount + 1];
+		searchOccurrences = new int[size];
+		scores = new double[maxClauseSize];
+		values = new boolean[numberOfVariables + 1];
+		trueCounts = new int[numberOfClauses];
+		criticalVariables = new int[numberOfClauses];
+		breakCounts = new int[numberOfVariables + 1];
+		makeCounts = new int[numberOfVariables + 1];
+		unsatisfiedClauses = new int[numberOfClauses];
+		unsatisfiedPositions = new int[numberOfClauses];
+		flipLog = new int[Math.max(1 << 12, numberOfVariables + 1)];
+		tryBestValues = new boolean[numberOfVariables + 1];
+		bestValues = new boolean[numberOfVariables + 1];
+		model = null;
+		contradiction = false;
+	}
+
+	private static void countingSort(int clauseCount, int[] starts, int[] literals, int[] literalStarts,
+		int[] literalOccurrences) {
+		Arrays.fill(literalStarts, 0);
+		for (int i = 0, end = starts[clauseCount]; i < end; i++) {
+			literalStarts[literals[i] + 1]++;
+		}
+		for (int i = 1; i < literalStarts.length; i++) {
+			literalStarts[i] += literalStarts[i - 1];
+		}
+		for (int clause = clauseCount - 1; clause >= 0; clause--) {
+			for (int i = starts[clause]; i < starts[clause + 1]; i++) {
+				literalOccurrences[--literalStarts[literals[i] + 1]] = clause;
+			}
+		}
+		System.arraycopy(literalStarts, 1, literalStarts, 0, literalStarts.length - 1);
+		literalStarts[literalStarts.length - 1] = starts[clauseCount];
+	}
+
+	static int toInternal(int literal) {
+		return literal > 0 ? literal << 1 : ((-literal) << 1) | 1;
+	}
+
+	static int toExternal(int internalLiteral) {
+		return (internalLiteral & 1) == 0 ? internalLiteral >>> 1 : -(internalLiteral >>> 1);
+	}
+
+	public int getNumberOfVariables() {
+		return numberOfVariables;
+	}
+
+	public int getNumberOfClauses() {
+		return numberOfClauses;
+	}
+
+	public Strategy getStrategy() {
+		return strategy;
+	}
+
+	public void setStrategy(Strategy strategy) {
+		this.strategy = Objects.requireNonNull(strategy);
+	}
+
+	public double getCb() {
+		return cb;
+	}
+
+	/**
+	 * Sets the exponent of the polynomial break function of
+	 * {@link Strategy#PROBSAT}. A variable with break count {@code b} is picked
+	 * with a probability proportional to {@code (eps + b)^-cb}.
+	 *
+	 * @param cb a positive number
+	 */
+	public void setCb(double cb) {
+		if (!(cb > 0)) {
+			throw new IllegalArgumentException(String.valueOf(cb));
+		}
+		this.cb = cb;
+	}
+
+	public double getEps() {
+		return eps;
+	}
+
+	/**
+	 * Sets the base of the polynomial break function of {@link Strategy#PROBSAT}.
+	 *
+	 * @param eps a positive number
+	 *
+	 * @see #setCb(double)
+	 */
+	public void setEps(double eps) {
+		if (!(eps > 0)) {
+			throw new IllegalArgumentException(String.valueOf(eps));
+		}
+		this.eps = eps;
+	}
+
+	public double getNoise() {
+		return noise;
+	}
+
+	/**
+	 * Sets the probability of a random walk step of {@link Strategy#WALKSAT}.
+	 *
+	 * @param noise a probability between {@code 0} and {@code 1}
+	 */
+	public void setNoise(double noise) {
+		if (!((noise >= 0) && (noise <= 1))) {
+			throw new IllegalArgumentException(String.valueOf(noise));
+		}
+		this.noise = noise;
+	}
+
+	public long getStallLimit() {
+		return stallLimit;
+	}
+
+	/**
+	 * Sets the number of flips without a decrease of the number of unsatisfied
+	 * clauses after which the search is considered to stall.
+	 *
+	 * @param stallLimit a positive number
+	 */
+	public void setStallLimit(long stallLimit) {
+		if (stallLimit <= 0) {
+			throw new IllegalArgumentException(String.valueOf(stallLimit));
+		}
+		this.stallLimit = stallLimit;
+	}
+
+	public int getMaxRestarts() {
+		return maxRestarts;
+	}
+
+	/**
+	 * Sets the number of restarts from a new random assignment after the search
+	 * stalled. If the search stalls once more, {@link #search(int[], int)}
+	 * returns {@link SatResult#TIMEOUT}.
+	 *
+	 * @param maxRestarts a non-negative number
+	 */
+	public void setMaxRestarts(int maxRestarts) {
+		if (maxRestarts < 0) {
+			throw new IllegalArgumentException(String.valueOf(maxRestarts));
+		}
+		this.maxRestarts = maxRestarts;
+	}
+
+	public long getMaxFlips() {
+		return maxFlips;
+	}
+
+	/**
+	 * Sets the maximum number of flips of each call of
+	 * {@link #search(int[], int)} over all restarts.
+	 *
+	 * @param maxFlips a non-negative number
+	 */
+	public void setMaxFlips(long maxFlips) {
+		if (maxFlips < 0) {
+			throw new IllegalArgumentException(String.valueOf(maxFlips));
+		}
+		this.maxFlips = maxFlips;
+	}
+
+	/**
+	 * Sets the seed of the random number generator used for initial assignments
+	 * and for picking clauses and variables. Subsequent calls with the same
+	 * clauses, assumptions, and configuration behave deterministically.
+	 *
+	 * @param seed the seed
+	 */
+	public void setSeed(long seed) {
+		random.setSeed(seed);
+	}
+
+	/**
+	 * Searches for an assignment that satisfies all clauses and the given
+	 * assumptions.
+	 *
+	 * @param assumptions literals in DIMACS notation
+	 * @param count       the number of valid entries in {@code assumptions}
+	 * @return {@link SatResult#TRUE} if a satisfying assignment was found,
+	 *         {@link SatResult#FALSE} if unit propagation of the clauses and
+	 *         assumptions results in a conflict, and {@link SatResult#TIMEOUT}
+	 *         if the search stalled after all restarts, reached the maximum
+	 *         number of flips, exhausted its budget, or was interrupted
+	 */
+	public SatResult search(int[] assumptions, int count) {
+		interrupted = false;
+		stopped = false;
+		model = null;
+		flips = 0;
+		chargedFlips = 0;
+		restarts = 0;
+		bestUnsatisfiedCount = Integer.MAX_VALUE;
+		contradiction = !propagate(assumptions, count);
+		if (contradiction) {
+			return SatResult.FALSE;
+		}
+		if ((budget != null) && budget.isExhausted()) {
+			return SatResult.TIMEOUT;
+		}
+		buildSearchClauses();
+		try {
+			while (true) {
+				initializeAssignment();
+				if (walk()) {
+					model = new int[numberOfVariables];
+					for (int variable = 1; variable <= numberOfVariables; variable++) {
+						model[variable - 1] = values[variable] ? variable : -variable;
+					}
+					bestUnsatisfiedCount = 0;
+					System.arraycopy(values, 0, bestValues, 0, values.length);
+					return SatResult.TRUE;
+				}
+				saveBestValues();
+				if (stopped || (restarts >= maxRestarts)) {
+					return SatResult.TIMEOUT;
+				}
+				restarts++;
+			}
+		} finally {
+			if (budget != null) {
+				budget.consume(0, flips - chargedFlips);
+			}
+		}
+	}
+
+	private boolean propagate(int[] assumptions, int count) {
+		Arrays.fill(fixed, false);
+		fixedCount = 0;
+		if (emptyClause) {
+			return false;
+		}
+		for (int clause = 0; clause < numberOfClauses; clause++) {
+			freeCounts[clause] = clauseStarts[clause + 1] - clauseStarts[clause];
+		}
+		Arrays.fill(satisfied, false);
+		for (final int literal : unitLiterals) {
+			if (!fix(literal)) {
+				return false;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			final int literal = assumptions[i];
+			if ((literal == 0) || (Math.abs(literal) > numberOfVariables)) {
+				throw new IllegalArgumentException(String.valueOf(literal));
+			}
+			if (!fix(toInternal(literal))) {
+				return false;
+			}
+		}
+		for (int head = 0; head < fixedCount; head++) {
+			final int literal = fixedLiterals[head];
+			for (int i = occurrenceStarts[literal], end = occurrenceStarts[literal + 1]; i < end; i++) {
+				satisfied[occurrences[i]] = true;
+			}
+			final int negatedLiteral = literal ^ 1;
+			for (int i = occurrenceStarts[negatedLiteral], end = occurrenceStarts[negatedLiteral + 1]; i < end; i++) {
+				final int clause = occurrences[i];
+				if (!satisfied[clause]) {
+					final int freeCount = --freeCounts[clause];
+					if (freeCount == 0) {
+						return false;
+					} else if (freeCount == 1) {
+						for (int j = clauseStarts[clause], clauseEnd = clauseStarts[clause + 1]; j < clauseEnd; j++) {
+							final int clauseLiteral = clauseLiterals[j];
+							if (!fixed[clauseLiteral ^ 1]) {
+								fix(clauseLiteral);
+								break;
+							}
+						}
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean fix(int literal) {
+		if (fixed[literal]) {
+			return true;
+		} else if (fixed[literal ^ 1]) {
+			return false;
+		}
+		fixed[literal] = true;
+		fixedLiterals[fixedCount++] = literal;
+		return true;
+	}
+
+	private void buildSearchClauses() {
+		searchClauseCount = 0;
+		int size = 0;
+		for (int clause = 0; clause < numberOfClauses; clause++) {
+			if (!satisfied[clause]) {
+				for (int i = clauseStarts[clause], end = clauseStarts[clause + 1]; i < end; i++) {
+					final int literal = clauseLiterals[i];
+					if (!fixed[literal ^ 1]) {
+						searchLiterals[size++] = literal;
+					}
+				}
+				searchStarts[++searchClauseCount] = size;
+			}
+		}
+		countingSort(searchClauseCount, searchStarts, searchLiterals, searchOccurrenceStarts, searchOccurrences);
+		int maxBreak = 0;
+		for (int literal = 2; literal < fixed.length; literal++) {
+			maxBreak = Math.max(maxBreak, searchOccurrenceStarts[literal + 1] - searchOccurrenceStarts[literal]);
+		}
+		if ((probabilities == null) || (probabilities.length <= maxBreak)) {
+			probabilities = new double[maxBreak + 1];
+		}
+		for (int breakCount = 0; breakCount <= maxBreak; breakCount++) {
+			probabilities[breakCount] = Math.pow(eps + breakCount, -cb);
+		}
+	}
+
+	private void initializeAssignment() {
+		for (int variable = 1; variable <= numberOfVariables; variable++) {
+			final int literal = variable << 1;
+			values[variable] = fixed[literal] || (!fixed[literal | 1] && random.nextBoolean());
+		}
+		Arrays.fill(breakCounts, 0);
+		Arrays.fill(makeCounts, 0);
+		unsatisfiedCount = 0;
+		for (int clause = 0; clause < searchClauseCount; clause++) {
+			int trueCount = 0;
+			int criticalVariable = 0;
+			final int start = searchStarts[clause];
+			final int end = searchStarts[clause + 1];
+			for (int i = start; i < end; i++) {
+				final int literal = searchLiterals[i];
+				if (values[literal >>> 1] == ((literal & 1) == 0)) {
+					trueCount++;
+					criticalVariable ^= literal >>> 1;
+				}
+			}
+			trueCounts[clause] = trueCount;
+			criticalVariables[clause] = criticalVariable;
+			if (trueCount == 0) {
+				addUnsatisfied(clause);
+				for (int i = start; i < end; i++) {
+					makeCounts[searchLiterals[i] >>> 1]++;
+				}
+			} else if (trueCount == 1) {
+				breakCounts[criticalVariable]++;
+			}
+		}
+		flipLogSize = 0;
+		tryBestValuesValid = false;
+	}
+
+	/**
+	 * Flips variables until all clauses are satisfied or the search stalls or
+	 * stops.
+	 *
+	 * @return {@code true} if all clauses are satisfied
+	 */
+	private boolean walk() {
+		tryBestCount = unsatisfiedCount;
+		long stalledFlips = 0;
+		while (unsatisfiedCount > 0) {
+			if (stalledFlips >= stallLimit) {
+				return false;
+			}
+			if ((flips >= maxFlips) || (((flips & (CHECK_INTERVAL - 1)) == 0) && isStopped())) {
+				stopped = true;
+				return false;
+			}
+			final int clause = unsatisfiedClauses[random.nextInt(unsatisfiedCount)];
+			final int variable = strategy == Strategy.PROBSAT ? pickProbSat(clause) : pickWalkSat(clause);
+			flip(variable);
+			flips++;
+			if (unsatisfiedCount < tryBestCount) {
+				tryBestCount = unsatisfiedCount;
+				stalledFlips = 0;
+				flipLogSize = 0;
+				tryBestValuesValid = false;
+			} else {
+				stalledFlips++;
+				logFlip(variable);
+			}
+		}
+		return true;
+	}
+
+	private boolean isStopped() {
+		if (interrupted) {
+			return true;
+		}
+		if (monitor != null) {
+			try {
+				monitor.checkCancel();
+			} catch (final InternalMonitor.MethodCancelException e) {
+				return true;
+			}
+		}
+		if (budget != null) {
+			budget.consume(0, flips - chargedFlips);
+			chargedFlips = flips;
+			return budget.isExhausted();
+		}
+		return false;
+	}
+
+	/**
+	 * Records a flip since the best assignment of the current try. If the log is
+	 * full, the best assignment is restored once into a separate array, such
+	 * that saving the best assignment costs amortized constant time per flip.
+	 */
+	private void logFlip(int variable) {
+		if (flipLogSize == flipLog.length) {
+			if (!tryBestValuesValid) {
+				restoreTryBestValues();
+				tryBestValuesValid = true;
+			}
+			flipLogSize = 0;
+		}
+		flipLog[flipLogSize++] = variable;
+	}
+
+	private void restoreTryBestValues() {
+		System.arraycopy(values, 0, tryBestValues, 0, values.length);
+		for (int i = flipLogSize - 1; i >= 0; i--) {
+			final int variable = flipLog[i];
+			tryBestValues[variable] = !tryBestValues[variable];
+		}
+	}
+
+	private void saveBestValues() {
+		if (!tryBestValuesValid) {
+			restoreTryBestValues();
+		}
+		if (tryBestCount < bestUnsatisfiedCount) {
+			bestUnsatisfiedCount = tryBestCount;
+			System.arraycopy(tryBestValues, 0, bestValues, 0, tryBestValues.length);
+		}
+	}
+
+	private int pickProbSat(int clause) {
+		final int start = searchStarts[clause];
+		final int end = searchStarts[clause + 1];
+		double sum = 0;
+		for (int i = start; i < end; i++) {
+			final double score = probabilities[breakCounts[searchLiterals[i] >>> 1]];
+			scores[i - start] = score;
+			sum += score;
+		}
+		double threshold = random.nextDouble() * sum;
+		for (int i = start; i < end - 1; i++) {
+			threshold -= scores[i - start];
+			if (threshold <= 0) {
+				return searchLiterals[i] >>> 1;
+			}
+		}
+		return searchLiterals[end - 1] >>> 1;
+	}
+
+	private int pickWalkSat(int clause) {
+		final int start = searchStarts[clause];
+		final int end = searchStarts[clause + 1];
+		int bestVariable = 0;
+		int bestBreakCount = Integer.MAX_VALUE;
+		int bestMakeCount = -1;
+		for (int i = start; i < end; i++) {
+			final int variable = searchLiterals[i] >>> 1;
+			final int breakCount = breakCounts[variable];
+			if ((breakCount < bestBreakCount) || ((breakCount == bestBreakCount)
+				&& (makeCounts[variable] > bestMakeCount))) {
+				bestVariable = variable;
+				bestBreakCount = breakCount;
+				bestMakeCount = makeCounts[variable];
+			}
+		}
+		if ((bestBreakCount > 0) && (random.nextDouble() < noise)) {
+			return searchLiterals[start + random.nextInt(end - start)] >>> 1;
+		}
+		return bestVariable;
+	}
+
+	private void flip(int variable) {
+		final boolean value = !values[variable];
+		values[variable] = value;
+		final int trueLiteral = value ? variable << 1 : (variable << 1) | 1;
+		for (int i = searchOccurrenceStarts[trueLiteral], end = searchOccurrenceStarts[trueLiteral + 1]; i < end; i++) {
+			final int clause = searchOccurrences[i];
+			final int trueCount = trueCounts[clause]++;
+			if (trueCount == 0) {
+				removeUnsatisfied(clause);
+				breakCounts[variable]++;
+				for (int j = searchStarts[clause], clauseEnd = searchStarts[clause + 1]; j < clauseEnd; j++) {
+					makeCounts[searchLiterals[j] >>> 1]--;
+				}
+			} else if (trueCount == 1) {
+				breakCounts[criticalVariables[clause]]--;
+			}
+			criticalVariables[clause] ^= variable;
+		}
+		final int falseLiteral = trueLiteral ^ 1;
+		for (int i = searchOccurrenceStarts[falseLiteral], end = searchOccurrenceStarts[falseLiteral + 1]; i < end; i++) {
+			final int clause = searchOccurrences[i];
+			final int trueCount = --trueCounts[clause];
+			criticalVariables[clause] ^= variable;
+			if (trueCount == 0) {
+				addUnsatisfied(clause);
+				breakCounts[variable]--;
+				for (int j = searchStarts[clause], clauseEnd = searchStarts[clause + 1]; j < clauseEnd; j++) {
+					makeCounts[searchLiterals[j] >>> 1]++;
+				}
+			} else if (trueCount == 1) {
+				breakCounts[criticalVariables[clause]]++;
+			}
+		}
+	}
+
+	private void addUnsatisfied(int clause) {
+		unsatisfiedPositions[clause] = unsatisfiedCount;
+		unsatisfiedClauses[unsatisfiedCount++] = clause;
+	}
+
+	private void removeUnsatisfied(int clause) {
+		final int lastClause = unsatisfiedClauses[--unsatisfiedCount];
+		final int position = unsatisfiedPositions[clause];
+		unsatisfiedClauses[position] = lastClause;
+		unsatisfiedPositions[lastClause] = position;
+	}
+
+	/**
+	 * Returns the satisfying assignment found by the last call of
+	 * {@link #search(int[], int)}.
+	 *
+	 * @return an array containing one literal per variable (ordered by index) or
+	 *         {@code null} if the last call did not find a solution
+	 */
+	public int[] getModel() {
+		return model;
+	}
+
+	/**
+	 * Returns the assignment with the fewest unsatisfied clauses found by the
+	 * last call of {@link #search(int[], int)}. This is the
+	 * {@link #getModel() model} if the search was successful.
+	 *
+	 * @return an array containing one literal per variable (ordered by index) or
+	 *         {@code null} if the last call did not search
+	 */
+	public int[] getBestAssignment() {
+		if (bestUnsatisfiedCount == Integer.MAX_VALUE) {
+			return null;
+		}
+		final int[] assignment = new int[numberOfVariables];
+		for (int variable = 1; variable <= numberOfVariables; variable++) {
+			assignment[variable - 1] = bestValues[variable] ? variable : -variable;
+		}
+		return assignment;
+	}
+
+	/**
+	 * Returns the number of clauses that are not satisfied by the
+	 * {@link #getBestAssignment() best assignment}.
+	 *
+	 * @return the number of unsatisfied clauses or {@link Integer#MAX_VALUE} if
+	 *         the last call did not search
+	 */
+	public int getBestUnsatisfiedCount() {
+		return bestUnsatisfiedCount;
+	}
+
+	/**
+	 * Returns all literals fixed by unit propagation of the clauses and the
+	 * assumptions of the last call of {@link #search(int[], int)}, including
+	 * the assumptions.
+	 *
+	 * @return an array of literals in DIMACS notation or {@code null} if unit
+	 *         propagation results in a conflict
+	 */
+	public int[] getFixedLiterals() {
+		if (contradiction) {
+			return null;
+		}
+		final int[] literals = new int[fixedCount];
+		for (int i = 0; i < fixedCount; i++) {
+			literals[i] = toExternal(fixedLiterals[i]);
+		}
+		return literals;
+	}
+
+	public long getNumberOfFlips() {
+		return flips;
+	}
+
+	public int getNumberOfRestarts() {
+		return restarts;
+	}
+
+	/**
+	 * Aborts a running call of {@link #search(int[], int)}. Can be called from
+	 * any thread.
+	 */
+	public void interrupt() {
+		interrupted = true;
+	}
+
+	public InternalMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Sets a monitor that is checked periodically while searching. If the
+	 * monitor is canceled, the current call of {@link #search(int[], int)}
+	 * returns {@link SatResult#TIMEOUT}.
+	 *
+	 * @param monitor the monitor or {@code null}
+	 */
+	public void setMonitor(InternalMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	public Budget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Sets a budget that limits all subsequent calls of
+	 * {@link #search(int[], int)}. Each flip is charged as one propagation. If
+	 * the budget is exhausted, a call returns {@link SatResult#TIMEOUT}.
+	 *
+	 * @param budget the budget or {@code null}
+	 */
+	public void setBudget(Budget budget) {
+		this.budget = budget;
+	}
+
+}
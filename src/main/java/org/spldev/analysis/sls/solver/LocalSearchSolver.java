@@ -0,0 +1,251 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.sls.solver;
+
+import java.util.*;
+
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.util.job.*;
+
+/**
+ * Incomplete solver based on a {@link LocalSearchEngine} for finding some
+ * solution quickly (e.g., for sampling or for completing partial
+ * configurations). The formula and the assumptions are managed by an
+ * underlying {@link CDCLSolver}. The engine is rebuilt only if the clauses of
+ * the formula change.
+ * <p>
+ * Without the {@link #setHybrid(boolean) hybrid mode}, a call in which the
+ * local search stalls returns {@link SatResult#TIMEOUT}. In hybrid mode, such a
+ * call is handed over to the CDCL solver, which starts from the best
+ * assignment found by the local search as its saved phases and thus gives a
+ * definite answer.
+ */
+public class LocalSearchSolver implements SolutionSolver<LiteralList> {
+
+	protected final CDCLSolver solver;
+	private final LocalSearchEngine engine;
+	private long engineRevision;
+	private boolean hybrid;
+	private boolean handedOver;
+	private volatile boolean interrupted;
+	private LiteralList solution;
+
+	public LocalSearchSolver(CNF cnf) {
+		this(new CDCLSolver(cnf));
+	}
+
+	public LocalSearchSolver(VariableMap variableMap) {
+		this(new CDCLSolver(variableMap));
+	}
+
+	private LocalSearchSolver(CDCLSolver solver) {
+		this.solver = solver;
+		engineRevision = solver.getEngine().getRevision();
+		engine = new LocalSearchEngine(solver.getVariables().getMaxIndex(), getClauses());
+	}
+
+	@Override
+	public CDCLAssumptions getAssumptions() {
+		return solver.getAssumptions();
+	}
+
+	@Override
+	public Optional<LiteralAssumptions> getLiteralAssumptions() {
+		return solver.getLiteralAssumptions();
+	}
+
+	@Override
+	public CDCLFormula getDynamicFormula() {
+		return solver.getDynamicFormula();
+	}
+
+	@Override
+	public VariableMap getVariables() {
+		return solver.getVariables();
+	}
+
+	/**
+	 * Returns the underlying CDCL solver, which is also used in hybrid mode.
+	 *
+	 * @return the CDCL solver
+	 */
+	public CDCLSolver getSatSolver() {
+		return solver;
+	}
+
+	/**
+	 * Returns the local search engine, which can be used to configure the
+	 * search.
+	 *
+	 * @return the engine
+	 */
+	public LocalSearchEngine getEngine() {
+		return engine;
+	}
+
+	public boolean isHybrid() {
+		return hybrid;
+	}
+
+	/**
+	 * Sets whether calls in which the local search stalls are handed over to the
+	 * CDCL solver.
+	 *
+	 * @param hybrid {@code true} for the hybrid mode
+	 */
+	public void setHybrid(boolean hybrid) {
+		this.hybrid = hybrid;
+	}
+
+	/**
+	 * Returns whether the last call of {@link #hasSolution()} was answered by the
+	 * CDCL solver in hybrid mode.
+	 *
+	 * @return {@code true} if the last call was handed over
+	 */
+	public boolean isHandedOver() {
+		return handedOver;
+	}
+
+	/**
+	 * Seeds the random number generator of the local search.
+	 *
+	 * @param seed the seed
+	 *
+	 * @see LocalSearchEngine#setSeed(long)
+	 */
+	public void setSeed(long seed) {
+		engine.setSeed(seed);
+	}
+
+	/**
+	 * {@inheritDoc} Without the hybrid mode, unsatisfiability is only detected
+	 * if unit propagation of the clauses and the assumptions results in a
+	 * conflict. Otherwise, a call for an unsatisfiable formula returns
+	 * {@link SatResult#TIMEOUT}.
+	 */
+	@Override
+	public SatResult hasSolution() {
+		interrupted = false;
+		handedOver = false;
+		solution = null;
+		final long revision = solver.getEngine().getRevision();
+		if (engineRevision != revision) {
+			engine.setClauses(solver.getVariables().getMaxIndex(), getClauses());
+			engineRevision = revision;
+		}
+		final CDCLAssumptions assumptions = solver.getAssumptions();
+		SatResult result = engine.search(assumptions.getLiterals(), assumptions.size());
+		if (result == SatResult.TRUE) {
+			solution = new LiteralList(engine.getModel(), Order.INDEX, false);
+		} else if ((result == SatResult.TIMEOUT) && hybrid && !interrupted) {
+			handedOver = true;
+			final int[] bestAssignment = engine.getBestAssignment();
+			if (bestAssignment != null) {
+				solver.getEngine().setSavedPhases(bestAssignment);
+			}
+			result = solver.hasSolution();
+			if (result == SatResult.TRUE) {
+				solution = solver.getSolution();
+			}
+		}
+		return result;
+	}
+
+	private List<LiteralList> getClauses() {
+		final ArrayList<LiteralList> clauses = new ArrayList<>();
+		for (final CDCLConstraint constraint : solver.getDynamicFormula().getConstraints()) {
+			clauses.addAll(constraint.getClauses());
+		}
+		return clauses;
+	}
+
+	/**
+	 * Returns the last solution found by the solver.
+	 *
+	 * @return A literal list containing one literal per variable ordered by index.
+	 */
+	@Override
+	public LiteralList getSolution() {
+		return solution;
+	}
+
+	/**
+	 * {@inheritDoc} Contains the literals fixed by unit propagation before the
+	 * local search or, if the last call was handed over, the implied literals of
+	 * the CDCL solver.
+	 */
+	@Override
+	public LiteralList getImpliedLiterals() {
+		if (handedOver) {
+			return solver.getImpliedLiterals();
+		}
+		final int[] fixedLiterals = engine.getFixedLiterals();
+		return fixedLiterals == null ? null : new LiteralList(fixedLiterals, Order.UNORDERED, false);
+	}
+
+	/**
+	 * Aborts a running call of {@link #hasSolution()}, which then returns
+	 * {@link SatResult#TIMEOUT}.
+	 */
+	public void interrupt() {
+		interrupted = true;
+		engine.interrupt();
+		solver.interrupt();
+	}
+
+	public InternalMonitor getMonitor() {
+		return engine.getMonitor();
+	}
+
+	/**
+	 * Sets a monitor that is checked for cancellation while solving. A canceled
+	 * call of {@link #hasSolution()} returns {@link SatResult#TIMEOUT}.
+	 *
+	 * @param monitor the monitor or {@code null}
+	 */
+	public void setMonitor(InternalMonitor monitor) {
+		engine.setMonitor(monitor);
+		solver.setMonitor(monitor);
+	}
+
+	@Override
+	public Budget getBudget() {
+		return engine.getBudget();
+	}
+
+	/**
+	 * {@inheritDoc} Each flip of the local search is charged as one
+	 * propagation. The budget is shared with the CDCL solver of the hybrid mode.
+	 */
+	@Override
+	public void setBudget(Budget budget) {
+		engine.setBudget(budget);
+		solver.setBudget(budget);
+	}
+
+}
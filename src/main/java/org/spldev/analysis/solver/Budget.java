@@ -0,0 +1,221 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.solver;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Limits the resources of solver calls by a number of conflicts, a number of
+ * propagations, and a wall-clock deadline. A budget is consumed by all calls
+ * of all solvers using it and can be shared between threads. Once any limit
+ * is exceeded, solver calls return {@link SatSolver.SatResult#TIMEOUT} (or
+ * throw a {@link RuntimeTimeoutException}) with partial results where
+ * available.
+ * <p>
+ * Budgets can be nested via {@link #createChild(long, long, long)}. Resources
+ * consumed by a child are charged to all its ancestors, and a child is
+ * exhausted as soon as any of its ancestors is exhausted. Thus, a batch of
+ * analyses can share one overall budget while each analysis gets its own
+ * limits.
+ * <p>
+ * Solvers report their consumption in chunks and read the clock only
+ * periodically, such that a limit may be exceeded slightly.
+ */
+public class Budget {
+
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
+	private final Budget parent;
+	private final long maxConflicts;
+	private final long maxPropagations;
+	private final long deadline;
+	private final AtomicLong conflicts = new AtomicLong();
+	private final AtomicLong propagations = new AtomicLong();
+	private volatile boolean exhausted;
+
+	/**
+	 * Creates a new budget.
+	 *
+	 * @param maxConflicts    the maximum number of conflicts or
+	 *                        {@link #UNLIMITED}
+	 * @param maxPropagations the maximum number of propagated literals or
+	 *                        {@link #UNLIMITED}
+	 * @param maxNanos        the maximum wall-clock time in nanoseconds from now
+	 *                        or {@link #UNLIMITED}
+	 */
+	public Budget(long maxConflicts, long maxPropagations, long maxNanos) {
+		this(null, maxConflicts, maxPropagations, maxNanos);
+	}
+
+	private Budget(Budget parent, long maxConflicts, long maxPropagations, long maxNanos) {
+		if ((maxConflicts < 0) || (maxPropagations < 0) || (maxNanos < 0)) {
+			throw new IllegalArgumentException("Negative limit");
+		}
+		this.parent = parent;
+		this.maxConflicts = maxConflicts;
+		this.maxPropagations = maxPropagations;
+		if (maxNanos == UNLIMITED) {
+			deadline = parent == null ? UNLIMITED : parent.deadline;
+		} else {
+			final long ownDeadline = System.nanoTime() + maxNanos;
+			deadline = (parent == null) || (parent.deadline == UNLIMITED) || ((ownDeadline - parent.deadline) < 0)
+				? ownDeadline
+				: parent.deadline;
+		}
+	}
+
+	public static Budget ofConflicts(long maxConflicts) {
+		return new Budget(maxConflicts, UNLIMITED, UNLIMITED);
+	}
+
+	public static Budget ofPropagations(long maxPropagations) {
+		return new Budget(UNLIMITED, maxPropagations, UNLIMITED);
+	}
+
+	public static Budget ofNanos(long maxNanos) {
+		return new Budget(UNLIMITED, UNLIMITED, maxNanos);
+	}
+
+	/**
+	 * Creates a budget with additional limits that consumes resources of this
+	 * budget.
+	 *
+	 * @param maxConflicts    the maximum number of conflicts of the child or
+	 *                        {@link #UNLIMITED}
+	 * @param maxPropagations the maximum number of propagated literals of the
+	 *                        child or {@link #UNLIMITED}
+	 * @param maxNanos        the maximum wall-clock time of the child in
+	 *                        nanoseconds from now or {@link #UNLIMITED}
+	 * @return the new budget
+	 */
+	public Budget createChild(long maxConflicts, long maxPropagations, long maxNanos) {
+		return new Budget(this, maxConflicts, maxPropagations, maxNanos);
+	}
+
+	public Budget getParent() {
+		return parent;
+	}
+
+	public long getMaxConflicts() {
+		return maxConflicts;
+	}
+
+	public long getMaxPropagations() {
+		return maxPropagations;
+	}
+
+	/**
+	 * Returns the deadline of this budget, which is the earliest deadline of
+	 * this budget and its ancestors.
+	 *
+	 * @return a value of {@link System#nanoTime()} or {@link #UNLIMITED}
+	 */
+	public long getDeadline() {
+		return deadline;
+	}
+
+	public long getConsumedConflicts() {
+		return conflicts.get();
+	}
+
+	public long getConsumedPropagations() {
+		return propagations.get();
+	}
+
+	/**
+	 * Returns the number of conflicts that can still be consumed without
+	 * exceeding the limit of this budget or any of its ancestors.
+	 *
+	 * @return a non-negative number or {@link #UNLIMITED}
+	 */
+	public long getRemainingConflicts() {
+		long remaining = UNLIMITED;
+		for (Budget budget = this; budget != null; budget = budget.parent) {
+			if (budget.maxConflicts != UNLIMITED) {
+				remaining = Math.min(remaining, Math.max(0, budget.maxConflicts - budget.conflicts.get()));
+			}
+		}
+		return remaining;
+	}
+
+	/**
+	 * Returns the number of propagations that can still be consumed without
+	 * exceeding the limit of this budget or any of its ancestors.
+	 *
+	 * @return a non-negative number or {@link #UNLIMITED}
+	 */
+	public long getRemainingPropagations() {
+		long remaining = UNLIMITED;
+		for (Budget budget = this; budget != null; budget = budget.parent) {
+			if (budget.maxPropagations != UNLIMITED) {
+				remaining = Math.min(remaining, Math.max(0, budget.maxPropagations - budget.propagations.get()));
+			}
+		}
+		return remaining;
+	}
+
+	/**
+	 * Charges the given resources to this budget and all its ancestors.
+	 *
+	 * @param consumedConflicts    the number of conflicts
+	 * @param consumedPropagations the number of propagated literals
+	 * @return {@code true} if this budget is exhausted afterwards
+	 */
+	public boolean consume(long consumedConflicts, long consumedPropagations) {
+		for (Budget budget = this; budget != null; budget = budget.parent) {
+			final long totalConflicts = budget.conflicts.addAndGet(consumedConflicts);
+			final long totalPropagations = budget.propagations.addAndGet(consumedPropagations);
+			if ((totalConflicts >= budget.maxConflicts) || (totalPropagations >= budget.maxPropagations)) {
+				budget.exhausted = true;
+			}
+		}
+		return isExhausted();
+	}
+
+	/**
+	 * Returns whether any limit of this budget or its ancestors is exceeded.
+	 * Reads the clock if there is a deadline.
+	 *
+	 * @return {@code true} if no further resources may be consumed
+	 */
+	public boolean isExhausted() {
+		for (Budget budget = this; budget != null; budget = budget.parent) {
+			if (budget.exhausted) {
+				return true;
+			}
+		}
+		if ((deadline != UNLIMITED) && ((System.nanoTime() - deadline) >= 0)) {
+			exhausted = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Marks this budget as exhausted, which also exhausts all its children.
+	 */
+	public void exhaust() {
+		exhausted = true;
+	}
+
+}
@@ -0,0 +1,219 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.solver;
+
+import java.util.*;
+
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.formula.structure.atomic.*;
+import org.spldev.util.data.*;
+
+/**
+ * Assumptions stored as int literals (in DIMACS notation) on a primitive
+ * trail. Pushing and popping literals takes constant time and does not box any
+ * values. Additionally, the assumptions can be accessed as an
+ * {@link Assignment}, which maps a variable index to {@link Boolean}.
+ */
+public class LiteralAssumptions implements Assignment {
+
+	protected int[] literals;
+	protected int size;
+
+	public LiteralAssumptions() {
+		this(16);
+	}
+
+	public LiteralAssumptions(int capacity) {
+		literals = new int[Math.max(capacity, 1)];
+	}
+
+	protected LiteralAssumptions(LiteralAssumptions oldAssumptions) {
+		literals = Arrays.copyOf(oldAssumptions.literals, oldAssumptions.literals.length);
+		size = oldAssumptions.size;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > literals.length) {
+			literals = Arrays.copyOf(literals, Math.max(capacity, literals.length << 1));
+		}
+	}
+
+	public void push(int literal) {
+		if (size == literals.length) {
+			literals = Arrays.copyOf(literals, size << 1);
+		}
+		literals[size++] = literal;
+	}
+
+	public void pushAll(int... literals) {
+		ensureCapacity(size + literals.length);
+		System.arraycopy(literals, 0, this.literals, size, literals.length);
+		size += literals.length;
+	}
+
+	public void pushAll(LiteralList literals) {
+		pushAll(literals.getLiterals());
+	}
+
+	public void pushAll(LiteralAssumptions assumptions) {
+		ensureCapacity(size + assumptions.size);
+		System.arraycopy(assumptions.literals, 0, literals, size, assumptions.size);
+		size += assumptions.size;
+	}
+
+	public int peek() {
+		return literals[size - 1];
+	}
+
+	public int pop() {
+		return literals[--size];
+	}
+
+	public void pop(int count) {
+		size = Math.max(0, size - count);
+	}
+
+	public void replaceLast(int literal) {
+		literals[size - 1] = literal;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Removes all literals that were pushed after the trail had the given size.
+	 *
+	 * @param newSize the size of the trail after this call
+	 */
+	public void clear(int newSize) {
+		if (newSize < size) {
+			size = Math.max(0, newSize);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int getLiteral(int index) {
+		return literals[index];
+	}
+
+	/**
+	 * Returns the backing array of this trail. Only the first {@link #size()}
+	 * entries are valid. The array must not be modified.
+	 *
+	 * @return the backing array
+	 */
+	public int[] getLiterals() {
+		return literals;
+	}
+
+	public int[] toArray() {
+		return Arrays.copyOf(literals, size);
+	}
+
+	public LiteralList toLiteralList() {
+		return new LiteralList(toArray(), Order.UNORDERED, false);
+	}
+
+	/**
+	 * Assumes the given value for a variable. An existing assumption for the
+	 * variable is replaced in place, otherwise the literal is pushed on the trail.
+	 *
+	 * @param index      the index of the variable
+	 * @param assignment a {@link Boolean} or {@code null} to remove the assumption
+	 *
+	 * @throws IllegalArgumentException if the index is not positive or the value
+	 *                                  is not a {@link Boolean}
+	 */
+	@Override
+	public void set(int index, Object assignment) {
+		if (index <= 0) {
+			throw new IllegalArgumentException("Invalid variable index: " + index);
+		}
+		if (assignment == null) {
+			unset(index);
+		} else if (assignment instanceof Boolean) {
+			final int literal = (Boolean) assignment ? index : -index;
+			for (int i = 0; i < size; i++) {
+				if (Math.abs(literals[i]) == index) {
+					literals[i] = literal;
+					return;
+				}
+			}
+			push(literal);
+		} else {
+			throw new IllegalArgumentException("Invalid value for variable " + index + ": " + assignment);
+		}
+	}
+
+	@Override
+	public void unset(int index) {
+		for (int i = size - 1; i >= 0; i--) {
+			if (Math.abs(literals[i]) == index) {
+				System.arraycopy(literals, i + 1, literals, i, size - i - 1);
+				size--;
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void unsetAll() {
+		clear();
+	}
+
+	@Override
+	public Optional<Object> get(int index) {
+		for (int i = size - 1; i >= 0; i--) {
+			final int literal = literals[i];
+			if (Math.abs(literal) == index) {
+				return Optional.of(literal > 0);
+			}
+		}
+		return Optional.empty();
+	}
+
+	@Override
+	public List<Pair<Integer, Object>> getAll() {
+		final List<Pair<Integer, Object>> assignments = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			final int literal = literals[i];
+			assignments.add(new Pair<>(Math.abs(literal), literal > 0));
+		}
+		return assignments;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " " + Arrays.toString(toArray());
+	}
+
+}
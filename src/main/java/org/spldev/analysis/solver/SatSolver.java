@@ -22,6 +22,11 @@
  */
 package org.spldev.analysis.solver;
 
+import java.util.*;
+
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.atomic.*;
+
 /**
  * Sat solver interface.
  *
@@ -47,4 +52,70 @@ public interface SatSolver extends Solver {
 	 */
 	SatResult hasSolution();
 
+	/**
+	 * Checks whether there is a satisfying solution considering the clauses of the
+	 * solver and the given literals as additional assumptions. The assumptions
+	 * are only valid for this call.
+	 *
+	 * @param assumptions literals in DIMACS notation
+	 * @return A {@link SatResult}.
+	 *
+	 * @see #getLiteralAssumptions()
+	 */
+	default SatResult hasSolution(int... assumptions) {
+		final Optional<LiteralAssumptions> literalAssumptions = getLiteralAssumptions();
+		if (literalAssumptions.isPresent()) {
+			final LiteralAssumptions trail = literalAssumptions.get();
+			final int oldSize = trail.size();
+			trail.pushAll(assumptions);
+			try {
+				return hasSolution();
+			} finally {
+				trail.clear(oldSize);
+			}
+		} else {
+			final Assignment assignment = getAssumptions();
+			final Object[] oldValues = new Object[assumptions.length];
+			for (int i = 0; i < assumptions.length; i++) {
+				final int variable = Math.abs(assumptions[i]);
+				oldValues[i] = assignment.get(variable).orElse(null);
+				assignment.set(variable, assumptions[i] > 0);
+			}
+			try {
+				return hasSolution();
+			} finally {
+				for (int i = assumptions.length - 1; i >= 0; i--) {
+					assignment.set(Math.abs(assumptions[i]), oldValues[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks whether there is a satisfying solution considering the clauses of the
+	 * solver and the given literals as additional assumptions.
+	 *
+	 * @param assumptions literals in DIMACS notation
+	 * @return A {@link SatResult}.
+	 *
+	 * @see #hasSolution(int...)
+	 */
+	default SatResult hasSolution(LiteralList assumptions) {
+		return hasSolution(assumptions.getLiterals());
+	}
+
+	/**
+	 * Returns literals that hold in every solution under the assumptions of the
+	 * last call of {@link #hasSolution()} as far as the solver knows them. This is
+	 * a partial result if the last call returned {@link SatResult#TIMEOUT} (e.g.,
+	 * due to an exhausted {@link Budget budget}).
+	 *
+	 * @return A literal list, which is empty if the solver does not derive
+	 *         implied literals, or {@code null} if the solver found the
+	 *         assumptions to be contradicting.
+	 */
+	default LiteralList getImpliedLiterals() {
+		return new LiteralList();
+	}
+
 }
@@ -0,0 +1,226 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.solver;
+
+import java.util.*;
+import java.util.stream.*;
+
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.util.job.*;
+
+/**
+ * Lazily enumerates all distinct solutions of a {@link SolutionSolver}, which
+ * are only computed when requested. Optionally, the solutions are projected
+ * onto a subset of the variables, such that each projected assignment is
+ * returned exactly once.
+ * <p>
+ * Instead of adding a blocking clause per solution, the enumeration traverses
+ * the assignments of the (projected) variables in depth-first order via
+ * assumptions. The literals of the last solution form a path, of which the
+ * deepest literal that was not flipped yet is flipped to find the next
+ * solution. The memory required is therefore independent of the number of
+ * solutions and the clauses of the solver are never modified. The current
+ * assumptions of the solver are respected and restored after each call. The
+ * solver is expected to return solutions with one literal per variable ordered
+ * by index, in which unassigned variables are treated as false.
+ */
+public class SolutionEnumerator implements Iterator<LiteralList> {
+
+	private final SolutionSolver<LiteralList> solver;
+	private final int[] variables;
+	private final boolean projected;
+	private final int[] path;
+	private final boolean[] flipped;
+	private int depth;
+
+	private InternalMonitor monitor;
+	private LiteralList next;
+	private boolean started;
+	private boolean finished;
+
+	/**
+	 * Creates an enumerator for all solutions of the given solver. The solutions
+	 * contain one literal per variable ordered by index.
+	 *
+	 * @param solver the solver
+	 */
+	public SolutionEnumerator(SolutionSolver<LiteralList> solver) {
+		this.solver = solver;
+		variables = IntStream.rangeClosed(1, solver.getVariables().getMaxIndex()).toArray();
+		projected = false;
+		path = new int[variables.length];
+		flipped = new boolean[variables.length];
+	}
+
+	/**
+	 * Creates an enumerator for all solutions of the given solver projected onto
+	 * the given variables. The projected solutions contain one literal per
+	 * variable ordered by index.
+	 *
+	 * @param solver     the solver
+	 * @param projection the variables to project onto (the sign of each literal is
+	 *                   ignored)
+	 */
+	public SolutionEnumerator(SolutionSolver<LiteralList> solver, LiteralList projection) {
+		this.solver = solver;
+		variables = Arrays.stream(projection.getLiterals()).map(Math::abs).distinct().sorted().toArray();
+		projected = true;
+		path = new int[variables.length];
+		flipped = new boolean[variables.length];
+	}
+
+	/**
+	 * Creates a sequential stream of the remaining solutions of the given
+	 * enumerator.
+	 *
+	 * @param enumerator the enumerator
+	 * @return a stream of distinct solutions
+	 */
+	public static Stream<LiteralList> stream(SolutionEnumerator enumerator) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(enumerator, Spliterator.ORDERED
+			| Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Creates a sequential stream of the remaining solutions of this enumerator.
+	 *
+	 * @return a stream of distinct solutions
+	 *
+	 * @see #stream(SolutionEnumerator)
+	 */
+	public Stream<LiteralList> stream() {
+		return stream(this);
+	}
+
+	public InternalMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Sets a monitor that is checked for cancellation before each call of the
+	 * solver.
+	 *
+	 * @param monitor the monitor or {@code null}
+	 */
+	public void setMonitor(InternalMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws RuntimeTimeoutException if the monitor was canceled or the solver
+	 *                                 timed out
+	 */
+	@Override
+	public boolean hasNext() {
+		if ((next == null) && !finished) {
+			next = findNext();
+			finished = next == null;
+		}
+		return next != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws RuntimeTimeoutException if the monitor was canceled or the solver
+	 *                                 timed out
+	 */
+	@Override
+	public LiteralList next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final LiteralList solution = next;
+		next = null;
+		return solution;
+	}
+
+	private LiteralList findNext() {
+		if (!started) {
+			started = true;
+			if (solve() == SatResult.TRUE) {
+				return extendPath();
+			}
+			return null;
+		}
+		while (true) {
+			while ((depth > 0) && flipped[depth - 1]) {
+				depth--;
+			}
+			if (depth == 0) {
+				return null;
+			}
+			path[depth - 1] = -path[depth - 1];
+			flipped[depth - 1] = true;
+			if (solve() == SatResult.TRUE) {
+				return extendPath();
+			}
+		}
+	}
+
+	private SatResult solve() {
+		if (monitor != null) {
+			try {
+				monitor.checkCancel();
+			} catch (final InternalMonitor.MethodCancelException e) {
+				throw new RuntimeTimeoutException(e);
+			}
+		}
+		final SatResult result;
+		final Optional<LiteralAssumptions> literalAssumptions = solver.getLiteralAssumptions();
+		if (literalAssumptions.isPresent()) {
+			final LiteralAssumptions trail = literalAssumptions.get();
+			final int oldSize = trail.size();
+			for (int i = 0; i < depth; i++) {
+				trail.push(path[i]);
+			}
+			try {
+				result = solver.hasSolution();
+			} finally {
+				trail.clear(oldSize);
+			}
+		} else {
+			result = solver.hasSolution(Arrays.copyOf(path, depth));
+		}
+		if (result == SatResult.TIMEOUT) {
+			throw new RuntimeTimeoutException();
+		}
+		return result;
+	}
+
+	private LiteralList extendPath() {
+		final int[] literals = solver.getSolution().getLiterals();
+		for (int i = depth; i < variables.length; i++) {
+			final int literal = literals[variables[i] - 1];
+			path[i] = literal != 0 ? literal : -variables[i];
+			flipped[i] = false;
+		}
+		depth = variables.length;
+		return new LiteralList(Arrays.copyOf(path, path.length), projected ? Order.UNORDERED : Order.INDEX, false);
+	}
+
+}
@@ -22,6 +22,8 @@
  */
 package org.spldev.analysis.solver;
 
+import java.util.*;
+
 import org.spldev.formula.structure.atomic.*;
 import org.spldev.formula.structure.atomic.literal.*;
 
@@ -34,8 +36,41 @@ public interface Solver extends Cloneable {
 
 	Assignment getAssumptions();
 
+	/**
+	 * Returns the assumptions of this solver as a primitive literal trail. Solvers
+	 * that support this channel read their assumptions directly from the int
+	 * literals on the trail, which avoids boxing every literal. The trail and
+	 * {@link #getAssumptions()} refer to the same assumptions.
+	 *
+	 * @return An {@link Optional optional} containing the trail or an empty
+	 *         optional if the solver does not support primitive assumptions.
+	 */
+	default Optional<LiteralAssumptions> getLiteralAssumptions() {
+		return Optional.empty();
+	}
+
 	DynamicFormula<?> getDynamicFormula();
 
+	/**
+	 * Sets a budget that limits the resources of all subsequent solver calls. If
+	 * the budget is exhausted, a call returns a timeout result or throws a
+	 * {@link RuntimeTimeoutException}.
+	 *
+	 * @param budget the budget or {@code null} for no limits
+	 *
+	 * @throws UnsupportedOperationException if the solver does not support
+	 *                                       budgets
+	 */
+	default void setBudget(Budget budget) {
+		if (budget != null) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	default Budget getBudget() {
+		return null;
+	}
+
 	VariableMap getVariables();
 
 	default void reset() {
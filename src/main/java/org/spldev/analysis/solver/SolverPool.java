@@ -0,0 +1,152 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis.solver;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * Thread-safe, bounded pool of solvers for the same problem. Solvers are
+ * created lazily as clones of a template solver and are reused after they have
+ * been returned. At most {@link #getMaxSize()} solvers are borrowed at the same
+ * time; further calls of {@link #borrow()} block until a solver is returned.
+ * <p>
+ * A returned solver becomes the new template, so that later clones inherit its
+ * learned clauses. This is only safe if the solver was returned in its
+ * original state (i.e., all assumptions and pushed constraints of the borrower
+ * were removed). Solvers in any other state are discarded.
+ *
+ * @param <S> the type of the solvers
+ */
+public class SolverPool<S extends Solver> {
+
+	private final UnaryOperator<S> cloner;
+	private final int maxSize;
+	private final Semaphore permits;
+	private final ConcurrentLinkedDeque<S> idleSolvers = new ConcurrentLinkedDeque<>();
+	private final int formulaSize;
+	private final int assumptionCount;
+	private S template;
+	private int size;
+
+	/**
+	 * Creates a new pool. The template solver is owned by the pool afterwards
+	 * and must not be used elsewhere.
+	 *
+	 * @param template the solver whose state is cloned
+	 * @param cloner   a function that creates an independent copy of a solver
+	 *                 (e.g., {@code CDCLSolver::clone})
+	 * @param maxSize  the maximum number of borrowed solvers
+	 */
+	public SolverPool(S template, UnaryOperator<S> cloner, int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Invalid pool size: " + maxSize);
+		}
+		this.template = template;
+		this.cloner = cloner;
+		this.maxSize = maxSize;
+		permits = new Semaphore(maxSize);
+		formulaSize = template.getDynamicFormula().size();
+		assumptionCount = getAssumptionCount(template);
+	}
+
+	private static int getAssumptionCount(Solver solver) {
+		return solver.getLiteralAssumptions().map(LiteralAssumptions::size).orElse(-1);
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns the number of solvers that are currently borrowed or idle (not
+	 * counting the template).
+	 *
+	 * @return the number of solvers
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Borrows a solver from the pool. Blocks while all solvers are borrowed. The
+	 * solver must be {@link #release(Solver) returned} afterwards.
+	 *
+	 * @return a solver that is not used by any other thread
+	 *
+	 * @throws RuntimeTimeoutException if the current thread is interrupted while
+	 *                                 waiting
+	 */
+	public S borrow() throws RuntimeTimeoutException {
+		try {
+			permits.acquire();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeTimeoutException(e);
+		}
+		final S solver = idleSolvers.pollFirst();
+		if (solver != null) {
+			return solver;
+		}
+		try {
+			synchronized (this) {
+				final S newSolver = cloner.apply(template);
+				size++;
+				return newSolver;
+			}
+		} catch (final RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a borrowed solver to the pool.
+	 *
+	 * @param solver a solver that was borrowed from this pool
+	 */
+	public void release(S solver) {
+		if ((solver.getDynamicFormula().size() == formulaSize) && (getAssumptionCount(solver) == assumptionCount)) {
+			synchronized (this) {
+				idleSolvers.offerFirst(template);
+				template = solver;
+			}
+		} else {
+			synchronized (this) {
+				size--;
+			}
+		}
+		permits.release();
+	}
+
+	/**
+	 * Discards all solvers that are currently not borrowed.
+	 */
+	public synchronized void clear() {
+		while (idleSolvers.pollFirst() != null) {
+			size--;
+		}
+	}
+
+}
@@ -0,0 +1,247 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.clauses;
+
+import java.util.*;
+
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.formula.structure.atomic.literal.*;
+
+/**
+ * The difference between two versions of a {@link CNF}, such as two versions
+ * of an evolving feature model. Variables of both versions are matched by
+ * their names. Clauses are compared after mapping the clauses of the old
+ * version to the variables of the new version, ignoring the order of literals
+ * and clauses.
+ * <p>
+ * Added clauses and variables are given with respect to the variables of the
+ * new version, removed clauses and variables with respect to the variables of
+ * the old version. All clauses containing a removed variable are removed
+ * clauses. The variables are matched when creating a delta, whereas the
+ * clauses are compared when they are first requested.
+ */
+public class CNFDelta {
+
+	private final CNF oldCNF;
+	private final CNF newCNF;
+	private final int[] variableMapping;
+	private List<LiteralList> addedClauses;
+	private List<LiteralList> removedClauses;
+	private final LiteralList addedVariables;
+	private final LiteralList removedVariables;
+
+	public CNFDelta(CNF oldCNF, CNF newCNF) {
+		this.oldCNF = oldCNF;
+		this.newCNF = newCNF;
+		final VariableMap oldVariables = oldCNF.getVariableMap();
+		final VariableMap newVariables = newCNF.getVariableMap();
+
+		variableMapping = new int[oldVariables.getMaxIndex() + 1];
+		final boolean[] mappedVariables = new boolean[newVariables.getMaxIndex() + 1];
+		final ArrayList<Integer> removed = new ArrayList<>();
+		for (int variable = 1; variable < variableMapping.length; variable++) {
+			final int newVariable = oldVariables.getName(variable).flatMap(newVariables::getIndex).orElse(0);
+			variableMapping[variable] = newVariable;
+			if (newVariable != 0) {
+				mappedVariables[newVariable] = true;
+			} else if (oldVariables.hasVariable(variable)) {
+				removed.add(variable);
+			}
+		}
+		final ArrayList<Integer> added = new ArrayList<>();
+		for (int variable = 1; variable < mappedVariables.length; variable++) {
+			if (!mappedVariables[variable] && newVariables.hasVariable(variable)) {
+				added.add(variable);
+			}
+		}
+		addedVariables = new LiteralList(added);
+		removedVariables = new LiteralList(removed);
+	}
+
+	private synchronized void compareClauses() {
+		if (addedClauses != null) {
+			return;
+		}
+		addedClauses = new ArrayList<>();
+		removedClauses = new ArrayList<>();
+		final List<LiteralList> oldClauseList = oldCNF.getClauses();
+		final LiteralList[] mappedClauses = new LiteralList[oldClauseList.size()];
+		final HashSet<LiteralList> oldClauses = new HashSet<>();
+		for (int i = 0; i < mappedClauses.length; i++) {
+			mappedClauses[i] = mapClause(oldClauseList.get(i));
+			if (mappedClauses[i] != null) {
+				oldClauses.add(mappedClauses[i]);
+			}
+		}
+		final HashSet<LiteralList> newClauses = new HashSet<>();
+		for (final LiteralList clause : newCNF.getClauses()) {
+			final LiteralList sortedClause = new LiteralList(clause.getLiterals(), Order.NATURAL);
+			if (newClauses.add(sortedClause) && !oldClauses.contains(sortedClause)) {
+				addedClauses.add(clause);
+			}
+		}
+		for (int i = 0; i < mappedClauses.length; i++) {
+			final LiteralList mappedClause = mappedClauses[i];
+			if ((mappedClause == null) || (!newClauses.contains(mappedClause) && oldClauses.remove(mappedClause))) {
+				removedClauses.add(oldClauseList.get(i));
+			}
+		}
+	}
+
+	private LiteralList mapClause(LiteralList clause) {
+		final int[] literals = clause.getLiterals();
+		final int[] mappedLiterals = new int[literals.length];
+		for (int i = 0; i < literals.length; i++) {
+			final int mappedLiteral = mapLiteral(literals[i]);
+			if (mappedLiteral == 0) {
+				return null;
+			}
+			mappedLiterals[i] = mappedLiteral;
+		}
+		return new LiteralList(mappedLiterals, Order.NATURAL);
+	}
+
+	public CNF getOldCNF() {
+		return oldCNF;
+	}
+
+	public CNF getNewCNF() {
+		return newCNF;
+	}
+
+	/**
+	 * Returns the index of a variable of the old version in the new version.
+	 *
+	 * @param oldVariable the index of the variable in the old version
+	 * @return the index of the variable in the new version or {@code 0} if the
+	 *         variable was removed
+	 */
+	public int mapVariable(int oldVariable) {
+		return (oldVariable > 0) && (oldVariable < variableMapping.length) ? variableMapping[oldVariable] : 0;
+	}
+
+	/**
+	 * Returns the corresponding literal of a literal of the old version in the
+	 * new version.
+	 *
+	 * @param oldLiteral a literal in the old version
+	 * @return the literal in the new version or {@code 0} if its variable was
+	 *         removed
+	 */
+	public int mapLiteral(int oldLiteral) {
+		final int newVariable = mapVariable(Math.abs(oldLiteral));
+		return oldLiteral < 0 ? -newVariable : newVariable;
+	}
+
+	/**
+	 * Maps literals of the old version to the new version. Literals of removed
+	 * variables are omitted.
+	 *
+	 * @param oldLiterals literals in the old version
+	 * @return a new {@link LiteralList} ordered like the given list
+	 */
+	public LiteralList mapLiterals(LiteralList oldLiterals) {
+		final int[] literals = oldLiterals.getLiterals();
+		final int[] mappedLiterals = new int[literals.length];
+		int size = 0;
+		for (final int literal : literals) {
+			final int mappedLiteral = mapLiteral(literal);
+			if (mappedLiteral != 0) {
+				mappedLiterals[size++] = mappedLiteral;
+			}
+		}
+		return new LiteralList(Arrays.copyOf(mappedLiterals, size), oldLiterals.getOrder());
+	}
+
+	public List<LiteralList> getAddedClauses() {
+		compareClauses();
+		return Collections.unmodifiableList(addedClauses);
+	}
+
+	public List<LiteralList> getRemovedClauses() {
+		compareClauses();
+		return Collections.unmodifiableList(removedClauses);
+	}
+
+	public LiteralList getAddedVariables() {
+		return addedVariables;
+	}
+
+	public LiteralList getRemovedVariables() {
+		return removedVariables;
+	}
+
+	/**
+	 * Returns all variables of the new version whose constraints changed, which
+	 * are all added variables and all variables of the new version that occur in
+	 * an added or removed clause.
+	 *
+	 * @return a {@link LiteralList} containing the variables in ascending order
+	 */
+	public LiteralList getChangedVariables() {
+		compareClauses();
+		final boolean[] changed = new boolean[newCNF.getVariableMap().getMaxIndex() + 1];
+		for (final int variable : addedVariables.getLiterals()) {
+			changed[variable] = true;
+		}
+		for (final LiteralList clause : addedClauses) {
+			for (final int literal : clause.getLiterals()) {
+				changed[Math.abs(literal)] = true;
+			}
+		}
+		for (final LiteralList clause : removedClauses) {
+			for (final int literal : clause.getLiterals()) {
+				final int variable = mapVariable(Math.abs(literal));
+				if (variable != 0) {
+					changed[variable] = true;
+				}
+			}
+		}
+		final ArrayList<Integer> variables = new ArrayList<>();
+		for (int variable = 1; variable < changed.length; variable++) {
+			if (changed[variable]) {
+				variables.add(variable);
+			}
+		}
+		return new LiteralList(variables);
+	}
+
+	/**
+	 * Returns whether both versions contain the same variables and clauses.
+	 *
+	 * @return {@code true} if there are no changes
+	 */
+	public boolean isEmpty() {
+		compareClauses();
+		return addedClauses.isEmpty() && removedClauses.isEmpty() && addedVariables.isEmpty() && removedVariables
+			.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		compareClauses();
+		return "CNFDelta [addedClauses=" + addedClauses.size() + ", removedClauses=" + removedClauses.size()
+			+ ", addedVariables=" + addedVariables.size() + ", removedVariables=" + removedVariables.size() + "]";
+	}
+
+}
@@ -0,0 +1,261 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.clauses;
+
+import java.util.*;
+
+/**
+ * The binary implication graph of a set of clauses. Each literal is a node and
+ * each clause with two literals {@code (a, b)} contributes the edges
+ * {@code -a -> b} and {@code -b -> a}. Nodes are numbered as {@code 2v} for the
+ * positive and {@code 2v + 1} for the negative literal of variable {@code v}.
+ * The graph is stored in compressed sparse row format.
+ */
+public class ImplicationGraph {
+
+	private final int variableCount;
+	private final int[] edgeStarts;
+	private final int[] edges;
+	private int[] components;
+	private int componentCount;
+
+	/**
+	 * Creates the implication graph of the given clauses.
+	 *
+	 * @param variableCount the highest variable index
+	 * @param clauses       the clauses
+	 */
+	public ImplicationGraph(int variableCount, Collection<LiteralList> clauses) {
+		this(variableCount, clauses, null);
+	}
+
+	/**
+	 * Creates the implication graph of the given clauses after removing all
+	 * clauses satisfied by the given literals and all literals contradicting
+	 * them. Thus, longer clauses may become binary clauses of the graph. Fixed
+	 * variables have no edges.
+	 *
+	 * @param variableCount the highest variable index
+	 * @param clauses       the clauses
+	 * @param fixedLiterals literals that hold in all solutions or {@code null}
+	 */
+	public ImplicationGraph(int variableCount, Collection<LiteralList> clauses, LiteralList fixedLiterals) {
+		this.variableCount = variableCount;
+		final int nodeCount = (variableCount + 1) << 1;
+		final boolean[] fixed = new boolean[nodeCount];
+		if (fixedLiterals != null) {
+			for (final int literal : fixedLiterals.getLiterals()) {
+				fixed[node(literal)] = true;
+			}
+		}
+		final int[] binaryClauses = new int[clauses.size() << 1];
+		int binaryCount = 0;
+		for (final LiteralList clause : clauses) {
+			int first = -1;
+			int second = -1;
+			boolean ignored = false;
+			for (final int literal : clause.getLiterals()) {
+				final int node = node(literal);
+				if (fixed[node]) {
+					ignored = true;
+					break;
+				} else if (!fixed[node ^ 1] && (node != first) && (node != second)) {
+					if (first < 0) {
+						first = node;
+					} else if (second < 0) {
+						second = node;
+					} else {
+						ignored = true;
+						break;
+					}
+				}
+			}
+			if (!ignored && (second >= 0) && (first != (second ^ 1))) {
+				binaryClauses[binaryCount++] = first;
+				binaryClauses[binaryCount++] = second;
+			}
+		}
+
+		edgeStarts = new int[nodeCount + 1];
+		for (int i = 0; i < binaryCount; i++) {
+			edgeStarts[binaryClauses[i] ^ 1]++;
+		}
+		for (int node = 0, sum = 0; node <= nodeCount; node++) {
+			final int count = node < nodeCount ? edgeStarts[node] : 0;
+			edgeStarts[node] = sum;
+			sum += count;
+		}
+		edges = new int[binaryCount];
+		final int[] edgeEnds = Arrays.copyOf(edgeStarts, nodeCount);
+		for (int i = 0; i < binaryCount; i += 2) {
+			edges[edgeEnds[binaryClauses[i] ^ 1]++] = binaryClauses[i + 1];
+			edges[edgeEnds[binaryClauses[i + 1] ^ 1]++] = binaryClauses[i];
+		}
+	}
+
+	/**
+	 * Returns the node of a literal.
+	 *
+	 * @param literal a literal in DIMACS notation
+	 * @return the node index
+	 */
+	public static int node(int literal) {
+		return literal > 0 ? literal << 1 : ((-literal) << 1) | 1;
+	}
+
+	/**
+	 * Returns the literal of a node.
+	 *
+	 * @param node a node index
+	 * @return the literal in DIMACS notation
+	 */
+	public static int literal(int node) {
+		return (node & 1) == 0 ? node >>> 1 : -(node >>> 1);
+	}
+
+	public int getVariableCount() {
+		return variableCount;
+	}
+
+	public int getNodeCount() {
+		return edgeStarts.length - 1;
+	}
+
+	public int getEdgeCount() {
+		return edges.length;
+	}
+
+	/**
+	 * Returns the position of the first successor of a node in the array of
+	 * {@link #getEdges() edges}. The successors of node {@code n} are stored from
+	 * {@code getEdgeStarts()[n]} (inclusive) to {@code getEdgeStarts()[n + 1]}
+	 * (exclusive).
+	 *
+	 * @return the internal array, which must not be modified
+	 */
+	public int[] getEdgeStarts() {
+		return edgeStarts;
+	}
+
+	/**
+	 * Returns the successors of all nodes.
+	 *
+	 * @return the internal array, which must not be modified
+	 *
+	 * @see #getEdgeStarts()
+	 */
+	public int[] getEdges() {
+		return edges;
+	}
+
+	/**
+	 * Returns the strongly connected component of each node. Two literals are
+	 * in the same component if and only if they are equivalent with respect to
+	 * the binary clauses. Components are numbered in reverse topological order,
+	 * so each edge leads to a component with a lower or the same number.
+	 *
+	 * @return the internal array, which must not be modified
+	 */
+	public int[] getComponents() {
+		if (components == null) {
+			components = computeComponents(getNodeCount(), edgeStarts, edges);
+			componentCount = 0;
+			for (final int component : components) {
+				componentCount = Math.max(componentCount, component + 1);
+			}
+		}
+		return components;
+	}
+
+	public int getComponentCount() {
+		getComponents();
+		return componentCount;
+	}
+
+	/**
+	 * Computes the strongly connected components of a graph in compressed sparse
+	 * row format using an iterative version of Tarjan's algorithm. Components are
+	 * numbered in reverse topological order.
+	 *
+	 * @param nodeCount  the number of nodes
+	 * @param edgeStarts the position of the first successor of each node in
+	 *                   {@code edges} followed by the total number of edges
+	 * @param edges      the successors of all nodes
+	 * @return the component of each node
+	 */
+	public static int[] computeComponents(int nodeCount, int[] edgeStarts, int[] edges) {
+		final int[] indexes = new int[nodeCount];
+		final int[] lowLinks = new int[nodeCount];
+		final int[] components = new int[nodeCount];
+		final boolean[] onStack = new boolean[nodeCount];
+		final int[] stack = new int[nodeCount];
+		final int[] callStack = new int[nodeCount];
+		final int[] edgePositions = new int[nodeCount];
+		int stackSize = 0;
+		int index = 0;
+		int componentCount = 0;
+		for (int root = 0; root < nodeCount; root++) {
+			if (indexes[root] != 0) {
+				continue;
+			}
+			int callStackSize = 0;
+			callStack[callStackSize++] = root;
+			indexes[root] = lowLinks[root] = ++index;
+			edgePositions[root] = edgeStarts[root];
+			stack[stackSize++] = root;
+			onStack[root] = true;
+			while (callStackSize > 0) {
+				final int node = callStack[callStackSize - 1];
+				if (edgePositions[node] < edgeStarts[node + 1]) {
+					final int successor = edges[edgePositions[node]++];
+					if (indexes[successor] == 0) {
+						indexes[successor] = lowLinks[successor] = ++index;
+						edgePositions[successor] = edgeStarts[successor];
+						stack[stackSize++] = successor;
+						onStack[successor] = true;
+						callStack[callStackSize++] = successor;
+					} else if (onStack[successor]) {
+						lowLinks[node] = Math.min(lowLinks[node], indexes[successor]);
+					}
+				} else {
+					callStackSize--;
+					if (callStackSize > 0) {
+						final int parent = callStack[callStackSize - 1];
+						lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[node]);
+					}
+					if (lowLinks[node] == indexes[node]) {
+						int member;
+						do {
+							member = stack[--stackSize];
+							onStack[member] = false;
+							components[member] = componentCount;
+						} while (member != node);
+						componentCount++;
+					}
+				}
+			}
+		}
+		return components;
+	}
+
+}
@@ -0,0 +1,232 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.clauses.preprocessing;
+
+import java.util.*;
+
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.util.job.*;
+
+/**
+ * Simplifies a {@link CNF} while preserving its satisfiability. The following
+ * techniques are applied repeatedly until the formula does not change anymore
+ * or the maximum number of rounds is reached:
+ * <ul>
+ * <li>unit propagation of root-level units,</li>
+ * <li>substitution of equivalent literals, which are found as strongly
+ * connected components of the binary implication graph,</li>
+ * <li>failed-literal probing,</li>
+ * <li>subsumption and self-subsuming resolution, and</li>
+ * <li>bounded variable elimination.</li>
+ * </ul>
+ * Variables that are removed from the formula are recorded on a
+ * {@link ReconstructionStack}, such that every solution of the preprocessed
+ * formula can be {@link PreprocessedCNF#reconstruct(LiteralList) extended} to
+ * a solution of the original formula. Frozen variables are never removed, so
+ * the preprocessed formula has exactly the same solutions as the original
+ * formula when projected onto the frozen variables.
+ */
+public class CNFPreprocessor implements MonitorableFunction<CNF, PreprocessedCNF> {
+
+	private boolean subsumption = true;
+	private boolean variableElimination = true;
+	private boolean failedLiteralProbing = true;
+	private boolean equivalentLiteralSubstitution = true;
+	private Collection<String> frozenVariables = Collections.emptySet();
+	private int maxResolventSize = 20;
+	private int maxRounds = 10;
+
+	public static PreprocessedCNF preprocess(CNF cnf) {
+		return Executor.run(new CNFPreprocessor(), cnf).get();
+	}
+
+	public boolean isSubsumption() {
+		return subsumption;
+	}
+
+	public void setSubsumption(boolean subsumption) {
+		this.subsumption = subsumption;
+	}
+
+	public boolean isVariableElimination() {
+		return variableElimination;
+	}
+
+	public void setVariableElimination(boolean variableElimination) {
+		this.variableElimination = variableElimination;
+	}
+
+	public boolean isFailedLiteralProbing() {
+		return failedLiteralProbing;
+	}
+
+	public void setFailedLiteralProbing(boolean failedLiteralProbing) {
+		this.failedLiteralProbing = failedLiteralProbing;
+	}
+
+	public boolean isEquivalentLiteralSubstitution() {
+		return equivalentLiteralSubstitution;
+	}
+
+	public void setEquivalentLiteralSubstitution(boolean equivalentLiteralSubstitution) {
+		this.equivalentLiteralSubstitution = equivalentLiteralSubstitution;
+	}
+
+	public Collection<String> getFrozenVariables() {
+		return frozenVariables;
+	}
+
+	/**
+	 * Sets the names of the variables that must not be removed from the formula
+	 * (e.g., the features of a feature model). Fixed frozen variables are kept as
+	 * unit clauses.
+	 *
+	 * @param frozenVariables the variable names
+	 */
+	public void setFrozenVariables(Collection<String> frozenVariables) {
+		this.frozenVariables = Objects.requireNonNull(frozenVariables);
+	}
+
+	public int getMaxResolventSize() {
+		return maxResolventSize;
+	}
+
+	/**
+	 * Sets the maximum size of a clause that is created by variable elimination.
+	 *
+	 * @param maxResolventSize a positive number
+	 */
+	public void setMaxResolventSize(int maxResolventSize) {
+		if (maxResolventSize < 1) {
+			throw new IllegalArgumentException(String.valueOf(maxResolventSize));
+		}
+		this.maxResolventSize = maxResolventSize;
+	}
+
+	public int getMaxRounds() {
+		return maxRounds;
+	}
+
+	/**
+	 * Sets the maximum number of times all techniques are applied.
+	 *
+	 * @param maxRounds a positive number
+	 */
+	public void setMaxRounds(int maxRounds) {
+		if (maxRounds < 1) {
+			throw new IllegalArgumentException(String.valueOf(maxRounds));
+		}
+		this.maxRounds = maxRounds;
+	}
+
+	@Override
+	public PreprocessedCNF execute(CNF cnf, InternalMonitor monitor) {
+		final VariableMap variables = cnf.getVariableMap();
+		final int variableCount = variables.getMaxIndex();
+		final boolean[] frozen = new boolean[variableCount + 1];
+		for (final String name : frozenVariables) {
+			variables.getIndex(name).ifPresent(index -> frozen[index] = true);
+		}
+
+		final ReconstructionStack reconstructionStack = new ReconstructionStack();
+		final Simplifier simplifier = new Simplifier(variableCount, frozen, reconstructionStack, monitor);
+		simplifier.setMaxResolventSize(maxResolventSize);
+		for (final LiteralList clause : cnf.getClauses()) {
+			simplifier.addClause(clause.getLiterals());
+		}
+		long modifications;
+		int round = 0;
+		do {
+			modifications = simplifier.getModifications();
+			simplifier.propagate();
+			if (equivalentLiteralSubstitution) {
+				simplifier.substituteEquivalentLiterals();
+			}
+			if (failedLiteralProbing) {
+				simplifier.probeFailedLiterals();
+			}
+			if (subsumption) {
+				simplifier.subsume();
+			}
+			if (variableElimination) {
+				simplifier.eliminateVariables();
+			}
+			simplifier.propagate();
+			monitor.checkCancel();
+		} while (!simplifier.isContradiction() && (modifications != simplifier.getModifications())
+			&& (++round < maxRounds));
+
+		if (simplifier.isContradiction()) {
+			final ClauseList clauses = new ClauseList();
+			clauses.add(new LiteralList());
+			return new PreprocessedCNF(cnf, new CNF(variables, clauses), reconstructionStack, new LiteralList(),
+				null, null);
+		}
+
+		final int[] fixedLiterals = new int[simplifier.getFixedCount()];
+		for (int i = 0; i < fixedLiterals.length; i++) {
+			final int literal = simplifier.getFixedLiteral(i);
+			fixedLiterals[i] = literal;
+			if (!frozen[Math.abs(literal)]) {
+				reconstructionStack.push(new int[] { literal }, literal);
+			}
+		}
+
+		final ArrayList<Integer> removedVariables = new ArrayList<>();
+		final int[] reducedIndexes = new int[variableCount + 1];
+		final int[] originalIndexes = new int[variableCount + 1];
+		int reducedCount = 0;
+		for (int variable = 1; variable <= variableCount; variable++) {
+			if (simplifier.isRemoved(variable) || (!frozen[variable] && (simplifier.getFixedValue(variable) != 0))) {
+				removedVariables.add(variable);
+			} else {
+				reducedIndexes[variable] = ++reducedCount;
+				originalIndexes[reducedCount] = variable;
+			}
+		}
+
+		final ClauseList clauses = new ClauseList();
+		for (final int literal : fixedLiterals) {
+			if (frozen[Math.abs(literal)]) {
+				clauses.add(new LiteralList(new int[] { reduce(literal, reducedIndexes) }, Order.NATURAL));
+			}
+		}
+		for (final int[] clause : simplifier.getClauses()) {
+			for (int i = 0; i < clause.length; i++) {
+				clause[i] = reduce(clause[i], reducedIndexes);
+			}
+			clauses.add(new LiteralList(clause, Order.NATURAL));
+		}
+		return new PreprocessedCNF(cnf, new CNF(VariableMap.withoutIndexes(variables, removedVariables), clauses),
+			reconstructionStack, new LiteralList(fixedLiterals, Order.NATURAL), reducedIndexes, Arrays.copyOf(
+				originalIndexes, reducedCount + 1));
+	}
+
+	private static int reduce(int literal, int[] reducedIndexes) {
+		final int index = reducedIndexes[Math.abs(literal)];
+		return literal > 0 ? index : -index;
+	}
+
+}
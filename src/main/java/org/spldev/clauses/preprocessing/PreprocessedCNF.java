@@ -0,0 +1,151 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.clauses.preprocessing;
+
+import java.util.*;
+
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.formula.structure.atomic.literal.*;
+
+/**
+ * The result of a {@link CNFPreprocessor}. Contains the preprocessed formula,
+ * whose variables are a subset of the original variables with new indexes, and
+ * the information for mapping solutions of the preprocessed formula back to
+ * solutions of the original formula.
+ */
+public class PreprocessedCNF {
+
+	private final CNF originalCNF;
+	private final CNF cnf;
+	private final ReconstructionStack reconstructionStack;
+	private final LiteralList fixedLiterals;
+	private final int[] reducedIndexes;
+	private final int[] originalIndexes;
+
+	PreprocessedCNF(CNF originalCNF, CNF cnf, ReconstructionStack reconstructionStack, LiteralList fixedLiterals,
+		int[] reducedIndexes, int[] originalIndexes) {
+		this.originalCNF = originalCNF;
+		this.cnf = cnf;
+		this.reconstructionStack = reconstructionStack;
+		this.fixedLiterals = fixedLiterals;
+		this.reducedIndexes = reducedIndexes;
+		this.originalIndexes = originalIndexes;
+	}
+
+	/**
+	 * Returns the preprocessed formula. If preprocessing found a contradiction,
+	 * the formula consists of the original variables and a single empty clause.
+	 */
+	public CNF getCNF() {
+		return cnf;
+	}
+
+	public CNF getOriginalCNF() {
+		return originalCNF;
+	}
+
+	public VariableMap getOriginalVariables() {
+		return originalCNF.getVariableMap();
+	}
+
+	public ReconstructionStack getReconstructionStack() {
+		return reconstructionStack;
+	}
+
+	/**
+	 * Returns the literals that are implied by the original formula and were
+	 * found during preprocessing.
+	 *
+	 * @return a literal list containing literals of the original variables
+	 */
+	public LiteralList getFixedLiterals() {
+		return fixedLiterals;
+	}
+
+	/**
+	 * Returns whether preprocessing proved the original formula to be
+	 * unsatisfiable.
+	 */
+	public boolean isContradiction() {
+		return reducedIndexes == null;
+	}
+
+	/**
+	 * Translates a literal of the original formula into a literal of the
+	 * preprocessed formula.
+	 *
+	 * @param literal a literal of the original formula
+	 * @return the corresponding literal or {@code 0} if the variable was removed
+	 *         by preprocessing
+	 */
+	public int getReducedLiteral(int literal) {
+		if (reducedIndexes == null) {
+			return literal;
+		}
+		final int index = reducedIndexes[Math.abs(literal)];
+		return literal > 0 ? index : -index;
+	}
+
+	/**
+	 * Translates a literal of the preprocessed formula into a literal of the
+	 * original formula.
+	 *
+	 * @param literal a literal of the preprocessed formula
+	 * @return the corresponding literal
+	 */
+	public int getOriginalLiteral(int literal) {
+		if (originalIndexes == null) {
+			return literal;
+		}
+		final int index = originalIndexes[Math.abs(literal)];
+		return literal > 0 ? index : -index;
+	}
+
+	/**
+	 * Extends a solution of the preprocessed formula to a solution of the
+	 * original formula. Variables that do not occur in the given solution are
+	 * assumed to be false.
+	 *
+	 * @param solution a solution of the preprocessed formula
+	 * @return a literal list containing one literal per original variable ordered
+	 *         by index
+	 */
+	public LiteralList reconstruct(LiteralList solution) {
+		final int variableCount = originalCNF.getVariableMap().getMaxIndex();
+		final int[] originalSolution = new int[variableCount + 1];
+		for (int variable = 1; variable <= variableCount; variable++) {
+			originalSolution[variable] = -variable;
+		}
+		for (final int literal : solution.getLiterals()) {
+			if (literal != 0) {
+				final int originalLiteral = getOriginalLiteral(literal);
+				originalSolution[Math.abs(originalLiteral)] = originalLiteral;
+			}
+		}
+		reconstructionStack.extend(originalSolution);
+		return new LiteralList(Arrays.copyOfRange(originalSolution, 1, originalSolution.length), Order.INDEX,
+			false);
+	}
+
+}
@@ -0,0 +1,101 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.clauses.preprocessing;
+
+import java.util.*;
+
+/**
+ * Records the information that is required to extend a solution of a
+ * preprocessed formula to a solution of the original formula. Each entry
+ * consists of a clause and a witness literal contained in this clause. When
+ * {@link #extend(int[]) extending} a solution, the entries are processed in
+ * reverse order and the witness literal of an entry is set to true if its
+ * clause is not satisfied by the current solution.
+ * <p>
+ * All literals refer to the variables of the original formula.
+ */
+public class ReconstructionStack {
+
+	private int[] entries = new int[64];
+	private int size;
+	private int entryCount;
+
+	/**
+	 * Adds an entry to this stack.
+	 *
+	 * @param clause  the literals of the clause
+	 * @param witness the literal that is set to true if the clause is not
+	 *                satisfied
+	 */
+	public void push(int[] clause, int witness) {
+		final int requiredSize = size + clause.length + 2;
+		if (requiredSize > entries.length) {
+			entries = Arrays.copyOf(entries, Math.max(requiredSize, entries.length << 1));
+		}
+		System.arraycopy(clause, 0, entries, size, clause.length);
+		size += clause.length;
+		entries[size++] = witness;
+		entries[size++] = clause.length;
+		entryCount++;
+	}
+
+	/**
+	 * Returns the number of entries on this stack.
+	 */
+	public int size() {
+		return entryCount;
+	}
+
+	public boolean isEmpty() {
+		return entryCount == 0;
+	}
+
+	/**
+	 * Extends a solution by processing all entries in reverse order.
+	 *
+	 * @param solution the literal of each variable of the original formula
+	 *                 indexed by the variable (index {@code 0} is ignored)
+	 */
+	public void extend(int[] solution) {
+		int position = size;
+		while (position > 0) {
+			final int clauseLength = entries[--position];
+			final int witness = entries[--position];
+			position -= clauseLength;
+			if (!isSatisfied(solution, position, clauseLength)) {
+				solution[Math.abs(witness)] = witness;
+			}
+		}
+	}
+
+	private boolean isSatisfied(int[] solution, int start, int length) {
+		for (int i = start, end = start + length; i < end; i++) {
+			final int literal = entries[i];
+			if (solution[Math.abs(literal)] == literal) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
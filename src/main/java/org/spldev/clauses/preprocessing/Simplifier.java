@@ -0,0 +1,748 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.clauses.preprocessing;
+
+import java.util.*;
+
+import org.spldev.clauses.*;
+import org.spldev.util.job.*;
+
+/**
+ * Mutable clause database of a {@link CNFPreprocessor}. Clauses are stored as
+ * arrays of internal literals (i.e., {@code 2v} for a positive and
+ * {@code 2v + 1} for a negative literal of variable {@code v}). Occurrence
+ * lists are cleaned lazily, whereas the number of occurrences of each literal
+ * is always exact. Root-level units are not stored as clauses, but fixed
+ * immediately and propagated through the database.
+ */
+class Simplifier {
+
+	private static final byte TRUE = 1;
+	private static final byte FALSE = -1;
+	private static final byte UNDEF = 0;
+
+	private static final int CHECK_INTERVAL = 1024;
+	private static final long MAX_SUBSUMPTION_STEPS = 100_000_000L;
+	private static final long MAX_PROBING_STEPS = 20_000_000L;
+	private static final long MAX_RESOLUTION_PAIRS = 1000;
+
+	private final int numberOfVariables;
+	private final boolean[] frozen;
+	private final ReconstructionStack reconstructionStack;
+	private final InternalMonitor monitor;
+	private int maxResolventSize = 20;
+
+	private int[][] clauses = new int[16][];
+	private long[] signatures = new long[16];
+	private boolean[] queued = new boolean[16];
+	private int clauseSlots;
+	private int[] queue = new int[16];
+	private int queueHead;
+	private int queueSize;
+
+	private final int[][] occurrences;
+	private final int[] occurrenceSizes;
+	private final int[] occurrenceCounts;
+	private final int[] stamps;
+	private int stamp;
+
+	private final byte[] values;
+	private final int[] fixedLiterals;
+	private int fixedCount;
+	private int propagationHead;
+	private final boolean[] removed;
+	private boolean contradiction;
+	private long modifications;
+	private int checkCounter;
+
+	/**
+	 * @param numberOfVariables   the highest variable index
+	 * @param frozen              whether a variable must remain in the formula,
+	 *                            indexed by variable
+	 * @param reconstructionStack the stack that receives the information for
+	 *                            reconstructing removed variables
+	 * @param monitor             the monitor that is checked for cancellation
+	 */
+	Simplifier(int numberOfVariables, boolean[] frozen, ReconstructionStack reconstructionStack,
+		InternalMonitor monitor) {
+		this.numberOfVariables = numberOfVariables;
+		this.frozen = frozen;
+		this.reconstructionStack = reconstructionStack;
+		this.monitor = monitor;
+		final int literalCount = (numberOfVariables + 1) << 1;
+		occurrences = new int[literalCount][];
+		occurrenceSizes = new int[literalCount];
+		occurrenceCounts = new int[literalCount];
+		stamps = new int[literalCount];
+		values = new byte[literalCount];
+		fixedLiterals = new int[numberOfVariables];
+		removed = new boolean[numberOfVariables + 1];
+	}
+
+	static int toInternal(int literal) {
+		return literal > 0 ? literal << 1 : ((-literal) << 1) | 1;
+	}
+
+	static int toExternal(int internalLiteral) {
+		return (internalLiteral & 1) == 0 ? internalLiteral >>> 1 : -(internalLiteral >>> 1);
+	}
+
+	void setMaxResolventSize(int maxResolventSize) {
+		this.maxResolventSize = maxResolventSize;
+	}
+
+	boolean isContradiction() {
+		return contradiction;
+	}
+
+	/**
+	 * Returns whether a variable was removed by variable elimination or
+	 * equivalent-literal substitution.
+	 */
+	boolean isRemoved(int variable) {
+		return removed[variable];
+	}
+
+	/**
+	 * Returns the value of a variable fixed at root level.
+	 *
+	 * @return {@code 1} for true, {@code -1} for false, and {@code 0} if the
+	 *         variable is not fixed
+	 */
+	int getFixedValue(int variable) {
+		return values[variable << 1];
+	}
+
+	int getFixedCount() {
+		return fixedCount;
+	}
+
+	int getFixedLiteral(int index) {
+		return toExternal(fixedLiterals[index]);
+	}
+
+	long getModifications() {
+		return modifications;
+	}
+
+	/**
+	 * Returns all current clauses in DIMACS notation.
+	 */
+	List<int[]> getClauses() {
+		final ArrayList<int[]> currentClauses = new ArrayList<>();
+		for (int id = 0; id < clauseSlots; id++) {
+			final int[] clause = clauses[id];
+			if (clause != null) {
+				final int[] literals = new int[clause.length];
+				for (int i = 0; i < literals.length; i++) {
+					literals[i] = toExternal(clause[i]);
+				}
+				currentClauses.add(literals);
+			}
+		}
+		return currentClauses;
+	}
+
+	/**
+	 * Adds a clause in DIMACS notation.
+	 */
+	void addClause(int[] literals) {
+		final int[] internalLiterals = new int[literals.length];
+		for (int i = 0; i < literals.length; i++) {
+			internalLiterals[i] = toInternal(literals[i]);
+		}
+		addInternal(internalLiterals);
+	}
+
+	/**
+	 * Adds a clause of internal literals after removing false and duplicate
+	 * literals. Satisfied clauses and tautologies are discarded and units are
+	 * fixed.
+	 */
+	private void addInternal(int[] literals) {
+		if (contradiction) {
+			return;
+		}
+		stamp++;
+		final int[] clause = new int[literals.length];
+		int size = 0;
+		for (final int literal : literals) {
+			if ((values[literal] == TRUE) || (stamps[literal ^ 1] == stamp)) {
+				return;
+			} else if ((values[literal] == UNDEF) && (stamps[literal] != stamp)) {
+				stamps[literal] = stamp;
+				clause[size++] = literal;
+			}
+		}
+		modifications++;
+		if (size == 0) {
+			contradiction = true;
+		} else if (size == 1) {
+			fix(clause[0]);
+		} else {
+			store(size == clause.length ? clause : Arrays.copyOf(clause, size));
+		}
+	}
+
+	private void store(int[] clause) {
+		final int id = clauseSlots++;
+		if (id == clauses.length) {
+			final int capacity = id << 1;
+			clauses = Arrays.copyOf(clauses, capacity);
+			signatures = Arrays.copyOf(signatures, capacity);
+			queued = Arrays.copyOf(queued, capacity);
+		}
+		clauses[id] = clause;
+		signatures[id] = signature(clause);
+		for (final int literal : clause) {
+			addOccurrence(literal, id);
+			occurrenceCounts[literal]++;
+		}
+		enqueue(id);
+	}
+
+	private static long signature(int[] clause) {
+		long signature = 0;
+		for (final int literal : clause) {
+			signature |= 1L << ((literal >>> 1) & 63);
+		}
+		return signature;
+	}
+
+	private void addOccurrence(int literal, int id) {
+		int[] list = occurrences[literal];
+		if (list == null) {
+			list = new int[4];
+			occurrences[literal] = list;
+		} else if (occurrenceSizes[literal] == list.length) {
+			list = Arrays.copyOf(list, list.length << 1);
+			occurrences[literal] = list;
+		}
+		list[occurrenceSizes[literal]++] = id;
+	}
+
+	private void enqueue(int id) {
+		if (!queued[id]) {
+			queued[id] = true;
+			if (queueSize == queue.length) {
+				if (queueHead > 0) {
+					System.arraycopy(queue, queueHead, queue, 0, queueSize - queueHead);
+					queueSize -= queueHead;
+					queueHead = 0;
+				} else {
+					queue = Arrays.copyOf(queue, queue.length << 1);
+				}
+			}
+			queue[queueSize++] = id;
+		}
+	}
+
+	private void removeClause(int id) {
+		for (final int literal : clauses[id]) {
+			occurrenceCounts[literal]--;
+		}
+		clauses[id] = null;
+		modifications++;
+	}
+
+	/**
+	 * Removes a literal from a clause. If the clause becomes a unit, it is
+	 * removed and its literal is fixed.
+	 */
+	private void strengthen(int id, int literal) {
+		final int[] clause = clauses[id];
+		final int[] newClause = new int[clause.length - 1];
+		int size = 0;
+		for (final int clauseLiteral : clause) {
+			if (clauseLiteral != literal) {
+				newClause[size++] = clauseLiteral;
+			}
+		}
+		occurrenceCounts[literal]--;
+		clauses[id] = newClause;
+		modifications++;
+		if (newClause.length == 1) {
+			removeClause(id);
+			fix(newClause[0]);
+		} else {
+			signatures[id] = signature(newClause);
+			enqueue(id);
+		}
+	}
+
+	/**
+	 * Returns the ids of all clauses containing a literal and removes stale
+	 * entries from its occurrence list.
+	 */
+	private int[] collect(int literal) {
+		final int[] list = occurrences[literal];
+		if (list == null) {
+			return new int[0];
+		}
+		int size = 0;
+		for (int i = 0, end = occurrenceSizes[literal]; i < end; i++) {
+			final int id = list[i];
+			final int[] clause = clauses[id];
+			if ((clause != null) && contains(clause, literal)) {
+				list[size++] = id;
+			}
+		}
+		occurrenceSizes[literal] = size;
+		return Arrays.copyOf(list, size);
+	}
+
+	private static boolean contains(int[] clause, int literal) {
+		for (final int clauseLiteral : clause) {
+			if (clauseLiteral == literal) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void fix(int literal) {
+		if (values[literal] == TRUE) {
+			return;
+		} else if (values[literal] == FALSE) {
+			contradiction = true;
+			return;
+		}
+		values[literal] = TRUE;
+		values[literal ^ 1] = FALSE;
+		fixedLiterals[fixedCount++] = literal;
+		modifications++;
+	}
+
+	/**
+	 * Removes all clauses satisfied by fixed literals and all false literals from
+	 * the remaining clauses.
+	 *
+	 * @return {@code false} if the clauses are unsatisfiable
+	 */
+	boolean propagate() {
+		while (!contradiction && (propagationHead < fixedCount)) {
+			final int literal = fixedLiterals[propagationHead++];
+			for (final int id : collect(literal)) {
+				removeClause(id);
+			}
+			for (final int id : collect(literal ^ 1)) {
+				if (clauses[id] != null) {
+					strengthen(id, literal ^ 1);
+				}
+			}
+			occurrences[literal] = null;
+			occurrences[literal ^ 1] = null;
+			occurrenceSizes[literal] = 0;
+			occurrenceSizes[literal ^ 1] = 0;
+		}
+		return !contradiction;
+	}
+
+	private void checkCancel() {
+		if ((++checkCounter % CHECK_INTERVAL) == 0) {
+			monitor.checkCancel();
+		}
+	}
+
+	/**
+	 * Replaces equivalent literals by a representative of their equivalence
+	 * class. The classes are the strongly connected components of the binary
+	 * implication graph. A frozen variable is preferred as representative and is
+	 * never replaced by another literal.
+	 */
+	void substituteEquivalentLiterals() {
+		if (!propagate()) {
+			return;
+		}
+		final int nodeCount = (numberOfVariables + 1) << 1;
+		final int[] edgeStarts = new int[nodeCount + 1];
+		for (int id = 0; id < clauseSlots; id++) {
+			final int[] clause = clauses[id];
+			if ((clause != null) && (clause.length == 2)) {
+				edgeStarts[clause[0] ^ 1]++;
+				edgeStarts[clause[1] ^ 1]++;
+			}
+		}
+		for (int node = 0, sum = 0; node <= nodeCount; node++) {
+			final int count = node < nodeCount ? edgeStarts[node] : 0;
+			edgeStarts[node] = sum;
+			sum += count;
+		}
+		final int[] edges = new int[edgeStarts[nodeCount]];
+		if (edges.length == 0) {
+			return;
+		}
+		final int[] edgeEnds = Arrays.copyOf(edgeStarts, nodeCount);
+		for (int id = 0; id < clauseSlots; id++) {
+			final int[] clause = clauses[id];
+			if ((clause != null) && (clause.length == 2)) {
+				edges[edgeEnds[clause[0] ^ 1]++] = clause[1];
+				edges[edgeEnds[clause[1] ^ 1]++] = clause[0];
+			}
+		}
+
+		final int[] components = ImplicationGraph.computeComponents(nodeCount, edgeStarts, edges);
+		final int[] representatives = new int[nodeCount];
+		Arrays.fill(representatives, -1);
+		for (int pass = 0; pass < 2; pass++) {
+			for (int variable = 1; variable <= numberOfVariables; variable++) {
+				final int literal = variable << 1;
+				if (((pass == 1) || frozen[variable]) && (representatives[components[literal]] < 0)) {
+					if (components[literal] == components[literal ^ 1]) {
+						contradiction = true;
+						return;
+					}
+					representatives[components[literal]] = literal;
+					representatives[components[literal ^ 1]] = literal ^ 1;
+				}
+			}
+		}
+
+		for (int variable = 1; variable <= numberOfVariables; variable++) {
+			final int literal = variable << 1;
+			final int representative = representatives[components[literal]];
+			if (!frozen[variable] && !removed[variable] && (representative != literal)) {
+				reconstructionStack.push(new int[] { variable, -toExternal(representative) }, variable);
+				reconstructionStack.push(new int[] { -variable }, -variable);
+				removed[variable] = true;
+				for (final int id : collect(literal)) {
+					substitute(id, representatives, components);
+				}
+				for (final int id : collect(literal ^ 1)) {
+					substitute(id, representatives, components);
+				}
+				checkCancel();
+			}
+		}
+		propagate();
+	}
+
+	private void substitute(int id, int[] representatives, int[] components) {
+		final int[] clause = clauses[id];
+		if (clause != null) {
+			removeClause(id);
+			final int[] newClause = new int[clause.length];
+			for (int i = 0; i < clause.length; i++) {
+				final int literal = clause[i];
+				newClause[i] = frozen[literal >>> 1] ? literal : representatives[components[literal]];
+			}
+			addInternal(newClause);
+		}
+	}
+
+	/**
+	 * Propagates both literals of each variable. If propagating a literal results
+	 * in a conflict, its complement is fixed. Literals that are implied by both
+	 * literals of a variable are fixed as well.
+	 */
+	void probeFailedLiterals() {
+		if (!propagate()) {
+			return;
+		}
+		final byte[] probeValues = new byte[values.length];
+		final int[] trail = new int[numberOfVariables];
+		final int[] implied = new int[values.length];
+		long steps = 0;
+		for (int variable = 1; (variable <= numberOfVariables) && (steps < MAX_PROBING_STEPS); variable++) {
+			final int literal = variable << 1;
+			if ((values[literal] != UNDEF) || removed[variable] || (occurrenceCounts[literal] == 0)
+				|| (occurrenceCounts[literal ^ 1] == 0)) {
+				continue;
+			}
+			checkCancel();
+			final int positiveSize = probe(literal, probeValues, trail);
+			steps += Math.abs(positiveSize);
+			if (positiveSize < 0) {
+				undoProbe(probeValues, trail, -positiveSize);
+				fix(literal ^ 1);
+			} else {
+				stamp++;
+				for (int i = 1; i < positiveSize; i++) {
+					implied[trail[i]] = stamp;
+				}
+				undoProbe(probeValues, trail, positiveSize);
+				final int negativeSize = probe(literal ^ 1, probeValues, trail);
+				steps += Math.abs(negativeSize);
+				if (negativeSize < 0) {
+					undoProbe(probeValues, trail, -negativeSize);
+					fix(literal);
+				} else {
+					for (int i = 1; i < negativeSize; i++) {
+						if (implied[trail[i]] == stamp) {
+							fix(trail[i]);
+						}
+					}
+					undoProbe(probeValues, trail, negativeSize);
+				}
+			}
+			if (!propagate()) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Propagates a literal on top of the fixed literals.
+	 *
+	 * @return the size of the resulting trail, or its negated size if propagation
+	 *         results in a conflict
+	 */
+	private int probe(int literal, byte[] probeValues, int[] trail) {
+		int trailSize = 0;
+		probeValues[literal] = TRUE;
+		probeValues[literal ^ 1] = FALSE;
+		trail[trailSize++] = literal;
+		for (int head = 0; head < trailSize; head++) {
+			final int falseLiteral = trail[head] ^ 1;
+			final int[] list = occurrences[falseLiteral];
+			for (int i = 0, end = occurrenceSizes[falseLiteral]; i < end; i++) {
+				final int[] clause = clauses[list[i]];
+				if (clause == null) {
+					continue;
+				}
+				int unassigned = -1;
+				boolean satisfied = false;
+				boolean containsLiteral = false;
+				for (final int clauseLiteral : clause) {
+					if (clauseLiteral == falseLiteral) {
+						containsLiteral = true;
+					}
+					final byte value = probeValues[clauseLiteral];
+					if (value == TRUE) {
+						satisfied = true;
+						break;
+					} else if (value == UNDEF) {
+						if (unassigned >= 0) {
+							unassigned = -2;
+						} else if (unassigned == -1) {
+							unassigned = clauseLiteral;
+						}
+					}
+				}
+				if (satisfied || (unassigned == -2) || !containsLiteral) {
+					continue;
+				} else if (unassigned == -1) {
+					return -trailSize;
+				} else {
+					probeValues[unassigned] = TRUE;
+					probeValues[unassigned ^ 1] = FALSE;
+					trail[trailSize++] = unassigned;
+				}
+			}
+		}
+		return trailSize;
+	}
+
+	private static void undoProbe(byte[] probeValues, int[] trail, int trailSize) {
+		for (int i = 0; i < trailSize; i++) {
+			probeValues[trail[i]] = UNDEF;
+			probeValues[trail[i] ^ 1] = UNDEF;
+		}
+	}
+
+	/**
+	 * Removes subsumed clauses and strengthens clauses by self-subsuming
+	 * resolution. Only clauses that were added or modified since the last call
+	 * are used for subsumption checks.
+	 */
+	void subsume() {
+		if (!propagate()) {
+			return;
+		}
+		long steps = 0;
+		while ((queueHead < queueSize) && (steps < MAX_SUBSUMPTION_STEPS)) {
+			final int id = queue[queueHead++];
+			queued[id] = false;
+			final int[] clause = clauses[id];
+			if (clause == null) {
+				continue;
+			}
+			checkCancel();
+			int minLiteral = clause[0];
+			for (final int literal : clause) {
+				if ((occurrenceCounts[literal] + occurrenceCounts[literal ^ 1]) < (occurrenceCounts[minLiteral]
+					+ occurrenceCounts[minLiteral ^ 1])) {
+					minLiteral = literal;
+				}
+			}
+			stamp++;
+			for (final int literal : clause) {
+				stamps[literal] = stamp;
+			}
+			final long signature = signatures[id];
+			for (int polarity = 0; polarity < 2; polarity++) {
+				for (final int otherId : collect(minLiteral ^ polarity)) {
+					final int[] otherClause = clauses[otherId];
+					if ((otherId == id) || (otherClause == null) || (otherClause.length < clause.length)
+						|| ((signature & ~signatures[otherId]) != 0)) {
+						continue;
+					}
+					steps += otherClause.length;
+					int matches = 0;
+					int negatedLiteral = -1;
+					for (final int otherLiteral : otherClause) {
+						if (stamps[otherLiteral] == stamp) {
+							matches++;
+						} else if (stamps[otherLiteral ^ 1] == stamp) {
+							if (negatedLiteral >= 0) {
+								negatedLiteral = -2;
+								break;
+							}
+							negatedLiteral = otherLiteral;
+						}
+					}
+					if (negatedLiteral == -1) {
+						if (matches == clause.length) {
+							removeClause(otherId);
+						}
+					} else if ((negatedLiteral >= 0) && (matches == (clause.length - 1))) {
+						strengthen(otherId, negatedLiteral);
+						if (contradiction) {
+							return;
+						}
+					}
+				}
+			}
+		}
+		if (queueHead == queueSize) {
+			queueHead = 0;
+			queueSize = 0;
+		}
+		propagate();
+	}
+
+	/**
+	 * Eliminates variables by clause distribution if this does not increase the
+	 * number of clauses. Frozen variables are never eliminated.
+	 */
+	void eliminateVariables() {
+		if (!propagate()) {
+			return;
+		}
+		final ArrayList<Integer> candidates = new ArrayList<>();
+		final long[] costs = new long[numberOfVariables + 1];
+		for (int variable = 1; variable <= numberOfVariables; variable++) {
+			final int literal = variable << 1;
+			if (!frozen[variable] && !removed[variable] && (values[literal] == UNDEF)
+				&& ((occurrenceCounts[literal] + occurrenceCounts[literal ^ 1]) > 0)) {
+				costs[variable] = (long) occurrenceCounts[literal] * occurrenceCounts[literal ^ 1];
+				if (costs[variable] <= MAX_RESOLUTION_PAIRS) {
+					candidates.add(variable);
+				}
+			}
+		}
+		candidates.sort(Comparator.comparingLong(variable -> costs[variable]));
+		final ArrayList<int[]> resolvents = new ArrayList<>();
+		for (final int variable : candidates) {
+			final int literal = variable << 1;
+			if (values[literal] != UNDEF) {
+				continue;
+			}
+			checkCancel();
+			final int[] positive = collect(literal);
+			final int[] negative = collect(literal ^ 1);
+			if (((long) positive.length * negative.length) > MAX_RESOLUTION_PAIRS) {
+				continue;
+			}
+			if (resolve(positive, negative, literal, resolvents)) {
+				final int[] storedIds = positive.length > negative.length ? negative : positive;
+				final int witness = positive.length > negative.length ? -variable : variable;
+				for (final int id : storedIds) {
+					final int[] clause = clauses[id];
+					final int[] literals = new int[clause.length];
+					for (int i = 0; i < literals.length; i++) {
+						literals[i] = toExternal(clause[i]);
+					}
+					reconstructionStack.push(literals, witness);
+				}
+				reconstructionStack.push(new int[] { -witness }, -witness);
+				removed[variable] = true;
+				for (final int id : positive) {
+					removeClause(id);
+				}
+				for (final int id : negative) {
+					removeClause(id);
+				}
+				for (final int[] resolvent : resolvents) {
+					addInternal(resolvent);
+				}
+				if (!propagate()) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes all non-tautological resolvents of the given clauses.
+	 *
+	 * @return {@code true} if the number of resolvents does not exceed the number
+	 *         of the given clauses and no resolvent is too large
+	 */
+	private boolean resolve(int[] positive, int[] negative, int literal, List<int[]> resolvents) {
+		resolvents.clear();
+		final int limit = positive.length + negative.length;
+		final int[] buffer = new int[maxResolventSize];
+		for (final int positiveId : positive) {
+			final int[] positiveClause = clauses[positiveId];
+			stamp++;
+			for (final int positiveLiteral : positiveClause) {
+				stamps[positiveLiteral] = stamp;
+			}
+			for (final int negativeId : negative) {
+				final int[] negativeClause = clauses[negativeId];
+				int size = 0;
+				boolean tautology = false;
+				for (final int positiveLiteral : positiveClause) {
+					if (positiveLiteral != literal) {
+						if (size == maxResolventSize) {
+							return false;
+						}
+						buffer[size++] = positiveLiteral;
+					}
+				}
+				for (final int negativeLiteral : negativeClause) {
+					if (negativeLiteral != (literal ^ 1)) {
+						if (stamps[negativeLiteral ^ 1] == stamp) {
+							tautology = true;
+							break;
+						} else if (stamps[negativeLiteral] != stamp) {
+							if (size == maxResolventSize) {
+								return false;
+							}
+							buffer[size++] = negativeLiteral;
+						}
+					}
+				}
+				if (!tautology) {
+					if (resolvents.size() == limit) {
+						return false;
+					}
+					resolvents.add(Arrays.copyOf(buffer, size));
+				}
+			}
+		}
+		return true;
+	}
+
+}
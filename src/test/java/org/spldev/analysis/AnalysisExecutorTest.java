@@ -0,0 +1,198 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.util.data.*;
+import org.spldev.util.job.*;
+
+public class AnalysisExecutorTest {
+
+	/**
+	 * Checks for a solution after a latch was released and counts its
+	 * executions.
+	 */
+	private static class BlockingAnalysis extends AbstractCDCLAnalysis<Boolean> {
+
+		private final CountDownLatch latch;
+		private final AtomicInteger executionCount;
+		private final AtomicBoolean canceled;
+
+		public BlockingAnalysis(CDCLSolver solver, CountDownLatch latch, AtomicInteger executionCount,
+			AtomicBoolean canceled) {
+			super(solver);
+			this.latch = latch;
+			this.executionCount = executionCount;
+			this.canceled = canceled;
+		}
+
+		@Override
+		protected Boolean analyze(CDCLSolver solver, InternalMonitor monitor) throws Exception {
+			executionCount.incrementAndGet();
+			try {
+				while (!latch.await(1, TimeUnit.MILLISECONDS)) {
+					monitor.checkCancel();
+				}
+			} catch (final InternalMonitor.MethodCancelException e) {
+				canceled.set(true);
+				throw e;
+			}
+			return solver.hasSolution() == SatResult.TRUE;
+		}
+
+	}
+
+	@Test
+	public void results() throws Exception {
+		final CNF cnf = createCNF(3, new int[] { -1, 2 }, new int[] { -2, -3 });
+		final AnalysisExecutor executor = new AnalysisExecutor(2);
+		try {
+			final Cache cache = new Cache();
+			final List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+			final int[][] assumptions = { {}, { 1 }, { 1, 3 }, { -2, 3 }, { 2, 3 } };
+			for (final int[] literals : assumptions) {
+				final HasSolutionAnalysis analysis = new HasSolutionAnalysis(new CDCLSolver(cnf));
+				analysis.getLiteralAssumptions().pushAll(literals);
+				futures.add(executor.submit(analysis, cache));
+			}
+			final List<Boolean> results = new ArrayList<>();
+			for (final CompletableFuture<Boolean> future : futures) {
+				results.add(future.get(10, TimeUnit.SECONDS));
+			}
+			assertEquals(Arrays.asList(true, true, false, true, false), results);
+			assertEquals(5, executor.getComputationCount());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void deduplication() throws Exception {
+		final CNF cnf = createCNF(3, new int[] { -1, 2 }, new int[] { -2, -3 });
+		final AnalysisExecutor executor = new AnalysisExecutor(4);
+		try {
+			final Cache cache = new Cache();
+			final CountDownLatch latch = new CountDownLatch(1);
+			final AtomicInteger executionCount = new AtomicInteger();
+			final AtomicBoolean canceled = new AtomicBoolean();
+			final List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+			for (int i = 0; i < 5; i++) {
+				final BlockingAnalysis analysis = new BlockingAnalysis(new CDCLSolver(cnf), latch, executionCount,
+					canceled);
+				analysis.getLiteralAssumptions().pushAll(i % 2 == 0 ? new int[] { 1, 3 } : new int[] { 3, 1 });
+				futures.add(executor.submit(analysis, cache));
+			}
+			final BlockingAnalysis otherAssumptions = new BlockingAnalysis(new CDCLSolver(cnf), latch,
+				executionCount, canceled);
+			otherAssumptions.getLiteralAssumptions().push(1);
+			final CompletableFuture<Boolean> otherAssumptionsFuture = executor.submit(otherAssumptions, cache);
+			final BlockingAnalysis otherModel = new BlockingAnalysis(new CDCLSolver(cnf), latch, executionCount,
+				canceled);
+			otherModel.getLiteralAssumptions().pushAll(1, 3);
+			final CompletableFuture<Boolean> otherModelFuture = executor.submit(otherModel, new Cache());
+			assertEquals(3, executor.getRunningCount());
+			assertEquals(3, executor.getComputationCount());
+			assertEquals(7, executor.getRequestCount());
+
+			latch.countDown();
+			for (final CompletableFuture<Boolean> future : futures) {
+				assertFalse(future.get(10, TimeUnit.SECONDS));
+			}
+			assertTrue(otherAssumptionsFuture.get(10, TimeUnit.SECONDS));
+			assertFalse(otherModelFuture.get(10, TimeUnit.SECONDS));
+			assertEquals(3, executionCount.get());
+			assertFalse(canceled.get());
+			assertEquals(0, executor.getRunningCount());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void cancellation() throws Exception {
+		final CNF cnf = createCNF(2, new int[] { 1, 2 });
+		final AnalysisExecutor executor = new AnalysisExecutor(1);
+		try {
+			final Cache cache = new Cache();
+			final CountDownLatch latch = new CountDownLatch(1);
+			final AtomicInteger executionCount = new AtomicInteger();
+			final AtomicBoolean canceled = new AtomicBoolean();
+			final CompletableFuture<Boolean> first = executor.submit(new BlockingAnalysis(new CDCLSolver(cnf), latch,
+				executionCount, canceled), cache);
+			final CompletableFuture<Boolean> second = executor.submit(new BlockingAnalysis(new CDCLSolver(cnf),
+				latch, executionCount, canceled), cache);
+			assertEquals(1, executor.getComputationCount());
+
+			first.cancel(true);
+			assertTrue(first.isCancelled());
+			Thread.sleep(20);
+			assertFalse(canceled.get());
+			assertFalse(second.isDone());
+
+			second.cancel(true);
+			final long end = System.currentTimeMillis() + 10_000;
+			while (!canceled.get() && (System.currentTimeMillis() < end)) {
+				Thread.sleep(1);
+			}
+			assertTrue(canceled.get());
+			assertEquals(1, executionCount.get());
+
+			final CompletableFuture<Boolean> third = executor.submit(new BlockingAnalysis(new CDCLSolver(cnf), latch,
+				executionCount, canceled), cache);
+			latch.countDown();
+			assertTrue(third.get(10, TimeUnit.SECONDS));
+			assertEquals(2, executor.getComputationCount());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void provider() {
+		final AnalysisExecutor executor = new AnalysisExecutor(2);
+		try {
+			final HasSolutionAnalysis analysis = new HasSolutionAnalysis(new CDCLSolver(createCNF(2, new int[] { 1,
+				2 })));
+			analysis.setExecutor(executor);
+			analysis.getLiteralAssumptions().pushAll(-1, -2);
+			assertFalse(analysis.apply(new Cache(), new NullMonitor()).get());
+			analysis.getLiteralAssumptions().clear();
+			assertTrue(analysis.apply(new Cache(), new NullMonitor()).get());
+			assertEquals(2, executor.getComputationCount());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
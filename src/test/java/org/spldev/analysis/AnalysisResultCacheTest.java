@@ -0,0 +1,163 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.formula.structure.term.bool.*;
+import org.spldev.util.data.*;
+import org.spldev.util.job.*;
+
+public class AnalysisResultCacheTest {
+
+	@Test
+	public void repeatedAnalyses() {
+		final CNF cnf = createCNF(3, new int[] { -1, 2 }, new int[] { -2, -3 });
+		final AnalysisResultCache resultCache = new AnalysisResultCache(16);
+
+		final HasSolutionAnalysis analysis = new HasSolutionAnalysis(new CDCLSolver(cnf));
+		analysis.setResultCache(resultCache);
+		analysis.getLiteralAssumptions().pushAll(1, 3);
+		assertFalse(analysis.execute(new Cache(), new NullMonitor()));
+		assertEquals(0, resultCache.getHitCount());
+		assertEquals(1, resultCache.getMissCount());
+		assertEquals(1, resultCache.size());
+
+		final HasSolutionAnalysis otherAnalysis = new HasSolutionAnalysis();
+		otherAnalysis.setResultCache(resultCache);
+		otherAnalysis.getLiteralAssumptions().pushAll(3, 1);
+		assertFalse(otherAnalysis.execute(new Cache(), new NullMonitor()));
+		assertEquals(1, resultCache.getHitCount());
+		assertEquals(1, resultCache.getMissCount());
+
+		analysis.getLiteralAssumptions().clear();
+		analysis.getLiteralAssumptions().push(1);
+		assertTrue(analysis.execute(new Cache(), new NullMonitor()));
+		assertTrue(analysis.execute(new Cache(), new NullMonitor()));
+		assertEquals(2, resultCache.getHitCount());
+		assertEquals(2, resultCache.getMissCount());
+		assertEquals(2, resultCache.size());
+
+		resultCache.resetStatistics();
+		resultCache.clear();
+		assertEquals(0, resultCache.getHitCount());
+		assertEquals(0, resultCache.size());
+	}
+
+	@Test
+	public void analysisParameters() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(3, new int[] { 1 }, new int[] { -1, -2 }));
+		final AnalysisResultCache resultCache = new AnalysisResultCache(16);
+
+		final CoreDeadAnalysis coreDead = new CoreDeadAnalysis(solver);
+		coreDead.setResultCache(resultCache);
+		assertEquals(new LiteralList(1, -2), new LiteralList(coreDead.execute(solver, new NullMonitor())
+			.getLiterals()));
+		coreDead.setVariables(new LiteralList(2, 3));
+		assertEquals(new LiteralList(-2), coreDead.execute(solver, new NullMonitor()));
+		assertEquals(0, resultCache.getHitCount());
+		assertEquals(2, resultCache.getMissCount());
+
+		final HasSolutionAnalysis hasSolution = new HasSolutionAnalysis(solver);
+		hasSolution.setResultCache(resultCache);
+		assertTrue(hasSolution.execute(solver, new NullMonitor()));
+		assertEquals(0, resultCache.getHitCount());
+		assertEquals(3, resultCache.size());
+
+		final CoreDeadAnalysis otherCoreDead = new CoreDeadAnalysis(solver, new LiteralList(2, 3));
+		otherCoreDead.setResultCache(resultCache);
+		assertEquals(new LiteralList(-2), otherCoreDead.execute(solver, new NullMonitor()));
+		assertEquals(1, resultCache.getHitCount());
+	}
+
+	@Test
+	public void timeouts() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(3, new int[] { -1, 2 }, new int[] { -2, 3 }));
+		final AnalysisResultCache resultCache = new AnalysisResultCache(16);
+		final HasSolutionAnalysis analysis = new HasSolutionAnalysis(solver);
+		analysis.setResultCache(resultCache);
+		analysis.setBudget(Budget.ofConflicts(0));
+		analysis.setThrowTimeoutException(false);
+		analysis.getLiteralAssumptions().push(1);
+		assertFalse(analysis.execute(solver, new NullMonitor()));
+		assertTrue(analysis.isTimeoutOccured());
+		assertEquals(0, resultCache.size());
+
+		analysis.setBudget(null);
+		assertTrue(analysis.execute(solver, new NullMonitor()));
+		assertEquals(1, resultCache.size());
+		analysis.setBudget(Budget.ofConflicts(0));
+		assertTrue(analysis.execute(solver, new NullMonitor()));
+		assertEquals(1, resultCache.getHitCount());
+	}
+
+	@Test
+	public void eviction() {
+		final AnalysisResultCache resultCache = new AnalysisResultCache(2);
+		resultCache.put(new AnalysisResult<>("a", new LiteralList(1), true));
+		resultCache.put(new AnalysisResult<>("a", new LiteralList(2), false));
+		assertEquals(Boolean.TRUE, resultCache.get(new AnalysisResult<>("a", new LiteralList(1), null)).getResult());
+		resultCache.put(new AnalysisResult<>("a", new LiteralList(3), true));
+		assertEquals(2, resultCache.size());
+		assertEquals(1, resultCache.getEvictionCount());
+		assertNull(resultCache.get(new AnalysisResult<>("a", new LiteralList(2), null)));
+		assertNotNull(resultCache.get(new AnalysisResult<>("a", new LiteralList(1), null)));
+		assertNotNull(resultCache.get(new AnalysisResult<>("a", new LiteralList(3), null)));
+		assertNull(resultCache.get(new AnalysisResult<>("b", new LiteralList(3), null)));
+		assertEquals(3, resultCache.getHitCount());
+		assertEquals(2, resultCache.getMissCount());
+		assertThrows(IllegalArgumentException.class, () -> new AnalysisResultCache(0));
+	}
+
+	@Test
+	public void resultKeys() {
+		final VariableMap variables = VariableMap.fixedSize(2);
+		final List<Formula> constraints = Arrays.asList(new LiteralPredicate((BoolVariable) variables.getVariable(
+			"1").get(), true));
+		final List<Formula> otherConstraints = Arrays.asList(new LiteralPredicate((BoolVariable) variables
+			.getVariable("2").get(), true));
+		final AnalysisResult<Boolean> result = new AnalysisResult<>("a", new LiteralList(1), constraints, null,
+			true);
+		assertEquals(result, new AnalysisResult<>("a", new LiteralList(1), new ArrayList<>(constraints), null,
+			null));
+		assertEquals(result.hashCode(), new AnalysisResult<>("a", new LiteralList(1), new ArrayList<>(constraints),
+			null, null).hashCode());
+		assertNotEquals(result, new AnalysisResult<>("a", new LiteralList(1), otherConstraints, null, true));
+		assertNotEquals(result, new AnalysisResult<>("a", new LiteralList(1), Collections.emptyList(), null,
+			true));
+		assertNotEquals(result, new AnalysisResult<>("a", new LiteralList(1), constraints, new LiteralList(2),
+			true));
+		assertNotEquals(result, new AnalysisResult<>("a", new LiteralList(-1), constraints, null, true));
+	}
+
+}
@@ -0,0 +1,175 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.io.*;
+import java.math.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.formula.structure.term.bool.*;
+import org.spldev.util.data.*;
+import org.spldev.util.job.*;
+
+public class AnalysisResultStoreTest {
+
+	@Test
+	public void cnfHash() {
+		final CNF cnf = createCNF(Arrays.asList("a", "b", "c"), new int[] { -1, 2 }, new int[] { -2, -3 });
+		final String hash = AnalysisResultStore.computeHash(cnf);
+		assertEquals(64, hash.length());
+		assertEquals(hash, AnalysisResultStore.computeHash(createCNF(Arrays.asList("a", "b", "c"), new int[] {
+			-3, -2 }, new int[] { 2, -1 }, new int[] { -2, -3 })));
+		assertNotEquals(hash, AnalysisResultStore.computeHash(createCNF(Arrays.asList("a", "c", "b"), new int[] {
+			-1, 2 }, new int[] { -2, -3 })));
+		assertNotEquals(hash, AnalysisResultStore.computeHash(createCNF(Arrays.asList("a", "b", "c"), new int[] {
+			-1, 2 })));
+	}
+
+	@Test
+	public void persistence() throws IOException {
+		final Path directory = Files.createTempDirectory("results");
+		try {
+			final AnalysisResult<LiteralList> result = new AnalysisResult<>("core", new LiteralList(1, -2),
+				Collections.emptyList(), new LiteralList(1, 2, 3), new LiteralList(-3));
+			try (AnalysisResultStore store = new AnalysisResultStore(directory)) {
+				assertEquals(0, store.size());
+				assertTrue(store.put("cnf", result));
+				assertFalse(store.put("cnf", result));
+				assertTrue(store.put("cnf", new AnalysisResult<>("count", new LiteralList(), BigInteger.TEN)));
+				assertTrue(store.put("cnf", new AnalysisResult<>("dead", new LiteralList(), null)));
+				final VariableMap variables = VariableMap.fixedSize(1);
+				final List<Formula> constraints = Arrays.asList(new LiteralPredicate((BoolVariable) variables
+					.getVariable("1").get(), true));
+				assertFalse(store.put("cnf", new AnalysisResult<>("core", new LiteralList(), constraints, null,
+					new LiteralList())));
+				assertFalse(store.put("cnf", new AnalysisResult<>("object", new LiteralList(), new Object())));
+				assertEquals(3, store.size());
+			}
+			try (AnalysisResultStore store = new AnalysisResultStore(directory)) {
+				assertEquals(3, store.size());
+				final AnalysisResult<LiteralList> storedResult = store.get("cnf", new AnalysisResult<>("core",
+					new LiteralList(-2, 1), Collections.emptyList(), new LiteralList(1, 2, 3), null));
+				assertNotNull(storedResult);
+				assertEquals(new LiteralList(-3), storedResult.getResult());
+				assertEquals(BigInteger.TEN, store.get("cnf", new AnalysisResult<>("count", new LiteralList(), null))
+					.getResult());
+				assertNull(store.get("cnf", new AnalysisResult<>("dead", new LiteralList(), null)).getResult());
+				assertNull(store.get("other", new AnalysisResult<>("count", new LiteralList(), null)));
+				assertNull(store.get("cnf", new AnalysisResult<>("count", new LiteralList(1), null)));
+				assertNull(store.get("cnf", new AnalysisResult<>("core", new LiteralList(1, -2), Collections
+					.emptyList(), new LiteralList(1, 2), null)));
+			}
+			Files.write(directory.resolve(AnalysisResultStore.INDEX_FILE_NAME), new byte[] { 1, 2, 3, 4, 5, 6, 7,
+				8 });
+			assertThrows(IOException.class, () -> new AnalysisResultStore(directory));
+		} finally {
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void deserializationFilter() throws IOException {
+		final Path directory = Files.createTempDirectory("results");
+		try {
+			try (AnalysisResultStore store = new AnalysisResultStore(directory)) {
+				final List<LiteralList> atomicSets = new ArrayList<>(Arrays.asList(new LiteralList(1, 2),
+					new LiteralList(3)));
+				assertTrue(store.put("cnf", new AnalysisResult<>("atomic", new LiteralList(), atomicSets)));
+				assertTrue(store.put("cnf", new AnalysisResult<>("file", new LiteralList(), new File("results"))));
+				assertTrue(store.put("cnf", new AnalysisResult<>("nested", new LiteralList(), new ArrayList<>(
+					Arrays.asList(new File("results"))))));
+			}
+			try (AnalysisResultStore store = new AnalysisResultStore(directory)) {
+				final AnalysisResult<List<LiteralList>> result = store.get("cnf", new AnalysisResult<>("atomic",
+					new LiteralList(), null));
+				assertNotNull(result);
+				assertEquals(Arrays.asList(new LiteralList(1, 2), new LiteralList(3)), result.getResult());
+				assertNull(store.get("cnf", new AnalysisResult<>("file", new LiteralList(), null)));
+				assertNull(store.get("cnf", new AnalysisResult<>("nested", new LiteralList(), null)));
+			}
+		} finally {
+			delete(directory);
+		}
+	}
+
+	@Test
+	public void analyses() throws IOException {
+		final Path directory = Files.createTempDirectory("results");
+		try {
+			final CNF cnf = createCNF(Arrays.asList("a", "b", "c", "d"), new int[] { 1 }, new int[] { -1, 2 },
+				new int[] { -2, -3 }, new int[] { 3, 4 });
+			final String hash = AnalysisResultStore.computeHash(cnf);
+			final LiteralList expected;
+			try (AnalysisResultStore store = new AnalysisResultStore(directory)) {
+				final AnalysisResultCache resultCache = new AnalysisResultCache(16, store, hash);
+				final CoreDeadAnalysis analysis = new CoreDeadAnalysis(new CDCLSolver(cnf));
+				analysis.setResultCache(resultCache);
+				expected = analysis.execute(new Cache(), new NullMonitor());
+				assertEquals(new LiteralList(1, 2, -3, 4), expected);
+				final AtomicSetAnalysis atomicSetAnalysis = new AtomicSetAnalysis(new CDCLSolver(cnf));
+				atomicSetAnalysis.setResultCache(resultCache);
+				atomicSetAnalysis.execute(new Cache(), new NullMonitor());
+				assertEquals(2, store.size());
+			}
+			try (AnalysisResultStore store = new AnalysisResultStore(directory)) {
+				final AnalysisResultCache resultCache = new AnalysisResultCache(16, store, hash);
+				final CoreDeadAnalysis analysis = new CoreDeadAnalysis();
+				analysis.setResultCache(resultCache);
+				assertEquals(expected, analysis.execute(new Cache(), new NullMonitor()));
+				assertEquals(expected, analysis.execute(new Cache(), new NullMonitor()));
+				assertEquals(1, resultCache.getStoreHitCount());
+				assertEquals(2, resultCache.getHitCount());
+				assertEquals(0, resultCache.getMissCount());
+
+				final CoreDeadAnalysis otherAnalysis = new CoreDeadAnalysis(new CDCLSolver(cnf));
+				otherAnalysis.setResultCache(resultCache);
+				otherAnalysis.getLiteralAssumptions().push(-4);
+				assertNull(otherAnalysis.execute(new Cache(), new NullMonitor()));
+				assertEquals(1, resultCache.getMissCount());
+				assertEquals(3, store.size());
+			}
+		} finally {
+			delete(directory);
+		}
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (final Path file : files) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+}
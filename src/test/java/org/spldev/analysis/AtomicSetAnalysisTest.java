@@ -0,0 +1,158 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.*;
+import org.spldev.util.job.*;
+
+public class AtomicSetAnalysisTest {
+
+	private static final Path modelDirectory = Paths.get("src/test/resources/testFeatureModels");
+
+	@Test
+	public void atomicSets() {
+		final CNF cnf = createCNF(7, new int[] { 1 }, new int[] { -2, 3 }, new int[] { -3, 2 }, new int[] { -3, 4 },
+			new int[] { -4, 5, 6 }, new int[] { -5, 3 }, new int[] { -6, 3 }, new int[] { -5, -6 }, new int[] { 7,
+				-7 });
+		final CDCLSolver solver = new CDCLSolver(cnf);
+		final List<LiteralList> result = new AtomicSetAnalysis(solver).execute(solver, new NullMonitor());
+		assertEquals(Arrays.asList(new LiteralList(1), new LiteralList(2, 3, 4), new LiteralList(5), new LiteralList(
+			6), new LiteralList(7)), result);
+	}
+
+	@Test
+	public void assumptions() {
+		final CNF cnf = createCNF(4, new int[] { -1, 2 }, new int[] { -2, 1, 3 }, new int[] { -3, 4 });
+		final CDCLSolver solver = new CDCLSolver(cnf);
+		final AtomicSetAnalysis analysis = new AtomicSetAnalysis(solver);
+		assertEquals(5, analysis.execute(solver, new NullMonitor()).size());
+
+		analysis.getLiteralAssumptions().push(-3);
+		assertEquals(Arrays.asList(new LiteralList(-3), new LiteralList(1, 2), new LiteralList(4)), analysis.execute(
+			solver, new NullMonitor()));
+
+		analysis.getLiteralAssumptions().push(-4);
+		analysis.getLiteralAssumptions().push(1);
+		assertEquals(Arrays.asList(new LiteralList(1, 2, -3, -4)), analysis.execute(solver, new NullMonitor()));
+
+		analysis.getLiteralAssumptions().push(-2);
+		assertNull(analysis.execute(solver, new NullMonitor()));
+		assertEquals(0, solver.getAssumptions().size());
+	}
+
+	@Test
+	public void mergedCNF() {
+		final CNF cnf = createCNF(5, new int[] { 1 }, new int[] { -1, 2, 4 }, new int[] { -2, 3 }, new int[] { -3,
+			2 }, new int[] { -4, 5 }, new int[] { -5, 4 }, new int[] { -2, -4 });
+		final CDCLSolver solver = new CDCLSolver(cnf);
+		final List<LiteralList> atomicSets = new AtomicSetAnalysis(solver).execute(solver, new NullMonitor());
+		assertEquals(Arrays.asList(new LiteralList(1), new LiteralList(2, 3), new LiteralList(4, 5)), atomicSets);
+
+		final CNF mergedCNF = AtomicSetAnalysis.createMergedCNF(cnf, atomicSets);
+		assertEquals(Arrays.asList("2", "4"), mergedCNF.getVariableMap().getNames());
+		assertEquals(new HashSet<>(Arrays.asList(new LiteralList(1, 2), new LiteralList(-1, -2))), new HashSet<>(
+			mergedCNF.getClauses()));
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 500; i++) {
+			final int variableCount = 1 + random.nextInt(10);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(3 * variableCount), random);
+			final List<LiteralList> solutions = getAllSolutions(cnf);
+			final CDCLSolver solver = new CDCLSolver(cnf);
+			final List<LiteralList> atomicSets = new AtomicSetAnalysis(solver).execute(solver, new NullMonitor());
+			if (solutions.isEmpty()) {
+				assertNull(atomicSets, String.valueOf(i));
+				continue;
+			}
+			assertEquals(computeAtomicSets(solutions, variableCount), atomicSets, String.valueOf(i));
+			assertEquals(solutions.size(), getAllSolutions(AtomicSetAnalysis.createMergedCNF(cnf, atomicSets))
+				.size(), String.valueOf(i));
+		}
+	}
+
+	@Test
+	public void featureModels() {
+		for (final String name : Arrays.asList("basic", "simple", "car", "gpl_medium_model", "berkeley_db_model")) {
+			final ModelRepresentation rep = ModelRepresentation.load(modelDirectory.resolve(name + ".xml"))
+				.orElseThrow();
+			final CNF cnf = rep.get(CNFProvider.fromFormula());
+			final CDCLSolver solver = new CDCLSolver(cnf);
+			final List<LiteralList> atomicSets = new AtomicSetAnalysis(solver).execute(solver, new NullMonitor());
+			int variableCount = 0;
+			for (final LiteralList atomicSet : atomicSets) {
+				variableCount += atomicSet.size();
+			}
+			assertEquals(cnf.getVariableMap().getMaxIndex(), variableCount, name);
+			for (final LiteralList atomicSet : atomicSets.subList(1, atomicSets.size())) {
+				for (final int literal : atomicSet.getLiterals()) {
+					assertEquals(SatResult.FALSE, solver.getEngine().solve(atomicSet.get(0), -literal), name);
+					assertEquals(SatResult.FALSE, solver.getEngine().solve(-atomicSet.get(0), literal), name);
+				}
+			}
+			final CDCLSolver mergedSolver = new CDCLSolver(AtomicSetAnalysis.createMergedCNF(cnf, atomicSets));
+			assertEquals(SatResult.TRUE, mergedSolver.hasSolution(), name);
+		}
+	}
+
+	/**
+	 * Groups the variables by their values in all solutions.
+	 */
+	private static List<LiteralList> computeAtomicSets(List<LiteralList> solutions, int variableCount) {
+		final List<Integer> coreDead = new ArrayList<>();
+		final LinkedHashMap<String, List<Integer>> groups = new LinkedHashMap<>();
+		for (int variable = 1; variable <= variableCount; variable++) {
+			final StringBuilder values = new StringBuilder();
+			for (final LiteralList solution : solutions) {
+				values.append(solution.get(variable - 1) > 0 ? '1' : '0');
+			}
+			if (values.indexOf("0") < 0) {
+				coreDead.add(variable);
+			} else if (values.indexOf("1") < 0) {
+				coreDead.add(-variable);
+			} else {
+				groups.computeIfAbsent(values.toString(), key -> new ArrayList<>()).add(variable);
+			}
+		}
+		final List<LiteralList> atomicSets = new ArrayList<>();
+		atomicSets.add(new LiteralList(coreDead));
+		for (final List<Integer> group : groups.values()) {
+			atomicSets.add(new LiteralList(group));
+		}
+		return atomicSets;
+	}
+
+}
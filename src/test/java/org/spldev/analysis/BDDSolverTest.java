@@ -0,0 +1,190 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.math.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.bdd.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.*;
+import org.spldev.formula.structure.atomic.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.formula.structure.compound.*;
+import org.spldev.formula.structure.term.bool.*;
+
+public class BDDSolverTest {
+
+	@Test
+	public void simpleFormulas() {
+		assertEquals(BigInteger.valueOf(8), new BDDSolver(createCNF(3)).countSolutions());
+		assertEquals(BigInteger.valueOf(3), new BDDSolver(createCNF(2, new int[] { 1, 2 })).countSolutions());
+		assertEquals(BigInteger.ZERO, new BDDSolver(createCNF(1, new int[] { 1 }, new int[] { -1 }))
+			.countSolutions());
+		assertEquals(SatResult.FALSE, new BDDSolver(createCNF(1, new int[] { 1 }, new int[] { -1 }))
+			.hasSolution());
+		assertEquals(BigInteger.valueOf(8), new BDDSolver(createCNF(3, new int[] { 1, -1 }))
+			.countSolutions());
+	}
+
+	@Test
+	public void assumptions() {
+		final BDDSolver solver = new BDDSolver(createCNF(3, new int[] { 1, 2 }, new int[] { -1, 3 }));
+		assertEquals(BigInteger.valueOf(4), solver.countSolutions());
+		assertEquals(new LiteralList(), solver.getImpliedLiterals());
+		solver.getAssumptions().push(1);
+		assertEquals(BigInteger.valueOf(2), solver.countSolutions());
+		assertEquals(new LiteralList(1, 3), solver.getImpliedLiterals());
+		assertEquals(SatResult.TRUE, solver.hasSolution());
+		assertTrue(solver.getSolution().containsAll(new LiteralList(1, 3)));
+		solver.getAssumptions().push(-3);
+		assertEquals(SatResult.FALSE, solver.hasSolution());
+		assertNull(solver.getImpliedLiterals());
+		solver.getAssumptions().clear();
+		final BDD bdd = solver.getBDD();
+		final int root = solver.getRoot();
+		solver.getDynamicFormula().push(new LiteralList(-2));
+		assertEquals(BigInteger.ONE, solver.countSolutions());
+		assertEquals(new LiteralList(1, -2, 3), solver.getImpliedLiterals());
+		solver.getDynamicFormula().pop();
+		assertEquals(BigInteger.valueOf(4), solver.countSolutions());
+		assertSame(bdd, solver.getBDD());
+		assertEquals(root, solver.getRoot());
+	}
+
+	@Test
+	public void pushedConstraints() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 100; i++) {
+			final int variableCount = 1 + random.nextInt(10);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 2), random);
+			final BDDSolver solver = new BDDSolver(cnf);
+			final BDD bdd = solver.getBDD();
+			final ArrayList<LiteralList> pushedClauses = new ArrayList<>();
+			for (int j = 0; j < 12; j++) {
+				if (!pushedClauses.isEmpty() && (random.nextInt(3) == 0)) {
+					solver.getDynamicFormula().pop();
+					pushedClauses.remove(pushedClauses.size() - 1);
+				} else {
+					final LiteralList clause = new LiteralList(createRandomLiterals(variableCount, 1 + random
+						.nextInt(3), random));
+					try {
+						solver.getDynamicFormula().push(clause);
+					} catch (final RuntimeContradictionException e) {
+						continue;
+					}
+					pushedClauses.add(clause);
+				}
+				final CNF currentCNF = new CNF(cnf.getVariableMap());
+				currentCNF.addClauses(cnf.getClauses());
+				currentCNF.addClauses(pushedClauses);
+				final int[] assumptions = createRandomLiterals(variableCount, random.nextInt(3), random);
+				solver.getAssumptions().clear();
+				solver.getAssumptions().pushAll(assumptions);
+				final long count = countBruteForce(currentCNF, assumptions);
+				assertEquals(BigInteger.valueOf(count), solver.countSolutions());
+				assertEquals(count > 0 ? SatResult.TRUE : SatResult.FALSE, solver.hasSolution());
+			}
+			assertSame(bdd, solver.getBDD());
+		}
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(0);
+		for (int i = 0; i < 200; i++) {
+			final int variableCount = 1 + random.nextInt(12);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 3), random);
+			final BDDSolver solver = new BDDSolver(cnf);
+			if (random.nextBoolean()) {
+				solver.setVariableOrder(VariableOrder.natural());
+			}
+			for (int j = 0; j < 3; j++) {
+				final int[] assumptions = createRandomLiterals(variableCount, random.nextInt(3), random);
+				solver.getAssumptions().clear();
+				solver.getAssumptions().pushAll(assumptions);
+				final long count = countBruteForce(cnf, assumptions);
+				assertEquals(BigInteger.valueOf(count), solver.countSolutions());
+				final LiteralList impliedLiterals = solver.getImpliedLiterals();
+				if (count == 0) {
+					assertNull(impliedLiterals);
+				} else {
+					for (int variable = 1; variable <= variableCount; variable++) {
+						for (final int literal : new int[] { variable, -variable }) {
+							final int[] extendedAssumptions = Arrays.copyOf(assumptions, assumptions.length + 1);
+							extendedAssumptions[assumptions.length] = -literal;
+							assertEquals(countBruteForce(cnf, extendedAssumptions) == 0,
+								impliedLiterals.containsAllLiterals(literal));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void formulas() {
+		final VariableMap map = VariableMap.fromNames(Arrays.asList("p", "q", "r", "s"));
+		final Literal p = new LiteralPredicate((BoolVariable) map.getVariable("p").get(), true);
+		final Literal q = new LiteralPredicate((BoolVariable) map.getVariable("q").get(), true);
+		final Literal r = new LiteralPredicate((BoolVariable) map.getVariable("r").get(), true);
+		final Literal s = new LiteralPredicate((BoolVariable) map.getVariable("s").get(), true);
+		final List<Formula> formulas = Arrays.asList(
+			new Implies(new And(new Or(p, q), r), s.flip()),
+			new Biimplies(new Or(p, new Not(q)), new And(r, s)),
+			new AtMost(Arrays.asList(p, q, r, s.flip()), 2),
+			new AtLeast(Arrays.asList(p, new And(q, r), s), 2),
+			new Choose(Arrays.asList(p, q, new Implies(r, s)), 1),
+			new Between(Arrays.asList(p, q, r, s), 1, 3),
+			new And(new Choose(Arrays.asList(p, q), 1), new Biimplies(q, new Not(r)), Literal.True),
+			new Or(new And(p, new Not(p)), Literal.False));
+
+		final BDD bdd = new BDD(map.getMaxIndex(), new int[] { 4, 2, 1, 3 });
+		final BDDCompiler compiler = new BDDCompiler(bdd, map);
+		for (final Formula formula : formulas) {
+			final int root = compiler.compile(formula);
+			final Assignment assignment = new VariableAssignment(map);
+			final int[] literals = new int[map.getMaxIndex()];
+			long count = 0;
+			for (int i = 0; i < (1 << literals.length); i++) {
+				for (int j = 0; j < literals.length; j++) {
+					final boolean value = ((i >> j) & 1) == 1;
+					assignment.set(j + 1, value);
+					literals[j] = value ? j + 1 : -(j + 1);
+				}
+				final boolean expected = (Boolean) Formulas.evaluate(formula, assignment).get();
+				assertEquals(expected, bdd.hasSolution(root, literals, literals.length), formula.toString());
+				count += expected ? 1 : 0;
+			}
+			assertEquals(BigInteger.valueOf(count), bdd.countSolutions(root, new int[0], 0), formula.toString());
+			bdd.deref(root);
+		}
+	}
+
+}
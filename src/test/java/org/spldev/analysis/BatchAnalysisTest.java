@@ -0,0 +1,109 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.util.job.*;
+
+public class BatchAnalysisTest {
+
+	@Test
+	public void hasSolution() {
+		final CNF cnf = createCNF(4, new int[] { -1, 2 }, new int[] { -2, -3 }, new int[] { 3, 4 });
+		final CDCLSolver solver = new CDCLSolver(cnf);
+		final HasSolutionAnalysis analysis = new HasSolutionAnalysis(solver);
+		final List<LiteralList> assumptionSets = Arrays.asList(new LiteralList(1, 3), new LiteralList(1),
+			new LiteralList(), new LiteralList(-4, 1), new LiteralList(1, -4, 3), new LiteralList(-4, 2));
+		assertEquals(Arrays.asList(false, true, true, false, false, false), analysis.executeBatch(assumptionSets,
+			solver, new NullMonitor()));
+
+		analysis.getLiteralAssumptions().push(-2);
+		assertEquals(Arrays.asList(false, false, true, true, false, true), analysis.executeBatch(Arrays.asList(
+			new LiteralList(1), new LiteralList(2), new LiteralList(3), new LiteralList(-1, 4), new LiteralList(
+				-4, -3), new LiteralList()), solver, new NullMonitor()));
+		assertEquals(1, analysis.getLiteralAssumptions().size());
+		assertEquals(0, solver.getAssumptions().size());
+		assertFalse(solver.getEngine().isReuseTrail());
+		assertTrue(analysis.executeBatch(Collections.emptyList(), solver, new NullMonitor()).isEmpty());
+	}
+
+	@Test
+	public void resultCache() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(3, new int[] { -1, 2 }, new int[] { -2, -3 }));
+		final AnalysisResultCache resultCache = new AnalysisResultCache(16);
+		final HasSolutionAnalysis analysis = new HasSolutionAnalysis(solver);
+		analysis.setResultCache(resultCache);
+		analysis.getLiteralAssumptions().push(1);
+		assertTrue(analysis.execute(solver, new NullMonitor()));
+		assertEquals(Arrays.asList(true, false, true), analysis.executeBatch(Arrays.asList(new LiteralList(),
+			new LiteralList(3), new LiteralList(-3)), solver, new NullMonitor()));
+		assertEquals(1, resultCache.getHitCount());
+		assertEquals(3, resultCache.size());
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 200; i++) {
+			final int variableCount = 2 + random.nextInt(8);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(3 * variableCount), random);
+			final List<LiteralList> assumptionSets = new ArrayList<>();
+			for (int j = random.nextInt(30); j >= 0; j--) {
+				assumptionSets.add(new LiteralList(createRandomLiterals(variableCount, random.nextInt(4), random)));
+			}
+			final List<Boolean> expectedSolutions = new ArrayList<>();
+			final List<LiteralList> expectedCoreDead = new ArrayList<>();
+			for (final LiteralList assumptionSet : assumptionSets) {
+				final CDCLSolver solver = new CDCLSolver(cnf);
+				final HasSolutionAnalysis hasSolution = new HasSolutionAnalysis(solver);
+				hasSolution.getLiteralAssumptions().pushAll(assumptionSet);
+				expectedSolutions.add(hasSolution.execute(solver, new NullMonitor()));
+				final CoreDeadAnalysis coreDead = new CoreDeadAnalysis(solver);
+				coreDead.getLiteralAssumptions().pushAll(assumptionSet);
+				expectedCoreDead.add(coreDead.execute(solver, new NullMonitor()));
+			}
+
+			final CDCLSolver solver = new CDCLSolver(cnf);
+			assertEquals(expectedSolutions, new HasSolutionAnalysis(solver).executeBatch(assumptionSets, solver,
+				new NullMonitor()), String.valueOf(i));
+			assertEquals(expectedCoreDead, new CoreDeadAnalysis(solver).executeBatch(assumptionSets, solver,
+				new NullMonitor()), String.valueOf(i));
+
+			final SolverPool<CDCLSolver> solverPool = new SolverPool<>(new CDCLSolver(cnf), CDCLSolver::clone, 2);
+			assertEquals(expectedSolutions, AbstractAnalysis.executeBatch(assumptionSets, HasSolutionAnalysis::new,
+				solverPool, 3, new NullMonitor()), String.valueOf(i));
+			assertEquals(expectedCoreDead, AbstractAnalysis.executeBatch(assumptionSets, CoreDeadAnalysis::new,
+				solverPool, 2, new NullMonitor()), String.valueOf(i));
+		}
+	}
+
+}
@@ -0,0 +1,159 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.math.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.bdd.solver.*;
+import org.spldev.analysis.cdcl.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.ddnnf.solver.*;
+import org.spldev.analysis.sharpsat.*;
+import org.spldev.analysis.sharpsat.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.util.job.*;
+
+public class BudgetTest {
+
+	@Test
+	public void conflictBudget() {
+		final CDCLSolver solver = new CDCLSolver(createRandom3CNF(200, 920, new Random(1)));
+		final Budget budget = Budget.ofConflicts(100);
+		solver.setBudget(budget);
+		assertSame(budget, solver.getBudget());
+		assertEquals(SatResult.TIMEOUT, solver.hasSolution());
+		assertTrue(budget.isExhausted());
+		assertEquals(Long.valueOf(100), Long.valueOf(budget.getConsumedConflicts()));
+		assertEquals(Long.valueOf(0), Long.valueOf(budget.getRemainingConflicts()));
+
+		assertEquals(SatResult.TIMEOUT, solver.hasSolution());
+		assertEquals(Long.valueOf(100), Long.valueOf(budget.getConsumedConflicts()));
+	}
+
+	@Test
+	public void timeBudget() {
+		final CDCLSolver solver = new CDCLSolver(createRandom3CNF(200, 920, new Random(1)));
+		final Budget budget = Budget.ofNanos(20_000_000L);
+		solver.setBudget(budget);
+		final long start = System.nanoTime();
+		assertEquals(SatResult.TIMEOUT, solver.hasSolution());
+		assertTrue((System.nanoTime() - start) < 5_000_000_000L);
+		assertTrue(budget.isExhausted());
+	}
+
+	@Test
+	public void childBudgets() {
+		final Budget parent = Budget.ofConflicts(150);
+		final Budget first = parent.createChild(100, Budget.UNLIMITED, Budget.UNLIMITED);
+		final Budget second = parent.createChild(100, Budget.UNLIMITED, Budget.UNLIMITED);
+		assertSame(parent, first.getParent());
+		assertThrows(IllegalArgumentException.class, () -> new Budget(-1, 0, 0));
+
+		final CDCLSolver solver = new CDCLSolver(createRandom3CNF(200, 920, new Random(1)));
+		solver.setBudget(first);
+		assertEquals(SatResult.TIMEOUT, solver.hasSolution());
+		assertEquals(Long.valueOf(100), Long.valueOf(first.getConsumedConflicts()));
+		assertEquals(Long.valueOf(100), Long.valueOf(parent.getConsumedConflicts()));
+		assertEquals(Long.valueOf(50), Long.valueOf(second.getRemainingConflicts()));
+
+		solver.setBudget(second);
+		assertEquals(SatResult.TIMEOUT, solver.hasSolution());
+		assertEquals(Long.valueOf(50), Long.valueOf(second.getConsumedConflicts()));
+		assertTrue(parent.isExhausted());
+		assertTrue(second.isExhausted());
+	}
+
+	@Test
+	public void impliedLiteralsAfterTimeout() {
+		final CNF cnf = createRandom3CNF(200, 920, new Random(1));
+		cnf.addClause(new LiteralList(new int[] { -1, 2 }));
+		cnf.addClause(new LiteralList(new int[] { -2, -3 }));
+		final CDCLSolver solver = new CDCLSolver(cnf);
+		solver.setBudget(Budget.ofConflicts(0));
+		solver.getAssumptions().push(1);
+		assertEquals(SatResult.TIMEOUT, solver.hasSolution());
+		final LiteralList impliedLiterals = solver.getImpliedLiterals();
+		assertNotNull(impliedLiterals);
+		assertTrue(impliedLiterals.containsAllLiterals(1, 2, -3));
+
+		solver.getAssumptions().push(3);
+		assertEquals(SatResult.TIMEOUT, solver.hasSolution());
+		assertNull(solver.getImpliedLiterals());
+	}
+
+	@Test
+	public void analysisBudget() {
+		final CDCLSolver solver = new CDCLSolver(createRandom3CNF(200, 920, new Random(1)));
+		final Budget solverBudget = Budget.ofConflicts(Budget.UNLIMITED);
+		solver.setBudget(solverBudget);
+		final HasSolutionAnalysis analysis = new HasSolutionAnalysis(solver);
+		analysis.setBudget(Budget.ofConflicts(50));
+		analysis.setThrowTimeoutException(false);
+		assertFalse(analysis.execute(solver, new NullMonitor()));
+		assertTrue(analysis.isTimeoutOccured());
+		assertSame(solverBudget, solver.getBudget());
+		assertEquals(Long.valueOf(50), Long.valueOf(analysis.getBudget().getConsumedConflicts()));
+	}
+
+	@Test
+	public void countingBudget() {
+		final CNF cnf = createRandom3CNF(40, 80, new Random(1));
+		final CountingSolver solver = new CountingSolver(cnf);
+		final CountSolutionsAnalysis analysis = new CountSolutionsAnalysis(solver);
+		analysis.setBudget(Budget.ofPropagations(100));
+		final RuntimeException exception = assertThrows(RuntimeException.class, () -> analysis.execute(solver,
+			new NullMonitor()));
+		assertTrue(exception.getCause() instanceof RuntimeTimeoutException);
+		assertTrue(analysis.getBudget().isExhausted());
+		assertTrue(analysis.getBudget().getConsumedPropagations() >= 100);
+		assertNull(solver.getBudget());
+
+		analysis.setBudget(Budget.ofPropagations(Budget.UNLIMITED));
+		assertEquals(new CountingSolver(cnf).countSolutions(), analysis.execute(solver, new NullMonitor()));
+	}
+
+	@Test
+	public void compilingBudget() {
+		final CNF cnf = createRandom3CNF(40, 80, new Random(1));
+		final DDNNFSolver ddnnfSolver = new DDNNFSolver(cnf);
+		ddnnfSolver.setBudget(Budget.ofNanos(0));
+		assertThrows(RuntimeTimeoutException.class, ddnnfSolver::countSolutions);
+		ddnnfSolver.setBudget(null);
+		final BigInteger count = ddnnfSolver.countSolutions();
+
+		final BDDSolver bddSolver = new BDDSolver(cnf);
+		bddSolver.setBudget(Budget.ofNanos(0));
+		assertSame(bddSolver.getBudget(), bddSolver.getSatSolver().getBudget());
+		assertThrows(RuntimeTimeoutException.class, bddSolver::countSolutions);
+		bddSolver.setBudget(null);
+		assertEquals(count, bddSolver.countSolutions());
+	}
+
+}
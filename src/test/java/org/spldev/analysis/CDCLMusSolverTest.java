@@ -0,0 +1,143 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.clauses.*;
+
+public class CDCLMusSolverTest {
+
+	@Test
+	public void simpleFormulas() {
+		final CDCLMusSolver solver = new CDCLMusSolver(createCNF(3, new int[] { 1 }, new int[] { -1, 2 },
+			new int[] { 3 }, new int[] { -2 }, new int[] { -1 }));
+		assertEquals(new HashSet<>(Arrays.asList(toSet(0, 1, 3), toSet(0, 4))), toSets(solver,
+			solver.getAllMinimalUnsatisfiableSubsets()));
+		final Set<Integer> mus = toSet(solver, solver.getMinimalUnsatisfiableSubset());
+		assertTrue(mus.equals(toSet(0, 1, 3)) || mus.equals(toSet(0, 4)));
+
+		final CDCLMusSolver satisfiableSolver = new CDCLMusSolver(createCNF(2, new int[] { 1, 2 }));
+		assertThrows(IllegalStateException.class, satisfiableSolver::getMinimalUnsatisfiableSubset);
+		assertThrows(IllegalStateException.class, satisfiableSolver::getAllMinimalUnsatisfiableSubsets);
+	}
+
+	@Test
+	public void assumptions() {
+		final CDCLMusSolver solver = new CDCLMusSolver(createCNF(3, new int[] { -1, 2 }, new int[] { -2, 3 },
+			new int[] { -1, 3 }, new int[] { 1, 2 }));
+		assertThrows(IllegalStateException.class, solver::getMinimalUnsatisfiableSubset);
+		solver.getAssumptions().push(1);
+		solver.getAssumptions().push(-3);
+		assertEquals(new HashSet<>(Arrays.asList(toSet(0, 1), toSet(2))), toSets(solver,
+			solver.getAllMinimalUnsatisfiableSubsets()));
+		solver.getAssumptions().clear();
+		solver.getDynamicFormula().push(new LiteralList(-3));
+		solver.getDynamicFormula().push(new LiteralList(-2));
+		assertEquals(new HashSet<>(Arrays.asList(toSet(0, 3, 5), toSet(2, 3, 4, 5), toSet(0, 1, 3, 4),
+			toSet(1, 2, 3, 4))), toSets(solver, solver.getAllMinimalUnsatisfiableSubsets()));
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(0);
+		int tested = 0;
+		while (tested < 200) {
+			final int variableCount = 1 + random.nextInt(5);
+			final CNF cnf = createRandomCNF(variableCount, 1 + random.nextInt(10), 2, random);
+			final int[] assumptions = createRandomLiterals(variableCount, random.nextInt(2), random);
+			final Set<Set<Integer>> expected = findAllBruteForce(cnf, assumptions);
+			if (expected.isEmpty()) {
+				continue;
+			}
+			tested++;
+			final CDCLMusSolver solver = new CDCLMusSolver(cnf);
+			solver.setNumberOfThreads(1 + random.nextInt(3));
+			solver.getAssumptions().pushAll(assumptions);
+			assertTrue(expected.contains(toSet(solver, solver.getMinimalUnsatisfiableSubset())));
+			assertEquals(expected, toSets(solver, solver.getAllMinimalUnsatisfiableSubsets()));
+		}
+	}
+
+	private static Set<Integer> toSet(int... indices) {
+		final HashSet<Integer> set = new HashSet<>();
+		for (final int index : indices) {
+			set.add(index);
+		}
+		return set;
+	}
+
+	private static Set<Integer> toSet(CDCLMusSolver solver, List<CDCLConstraint> subset) {
+		final HashSet<Integer> set = new HashSet<>();
+		for (final CDCLConstraint constraint : subset) {
+			set.add(solver.getDynamicFormula().getConstraints().indexOf(constraint));
+		}
+		return set;
+	}
+
+	private static Set<Set<Integer>> toSets(CDCLMusSolver solver, List<List<CDCLConstraint>> subsets) {
+		final HashSet<Set<Integer>> sets = new HashSet<>();
+		for (final List<CDCLConstraint> subset : subsets) {
+			assertTrue(sets.add(toSet(solver, subset)));
+		}
+		return sets;
+	}
+
+	private static Set<Set<Integer>> findAllBruteForce(CNF cnf, int[] assumptions) {
+		final List<LiteralList> clauses = cnf.getClauses();
+		final boolean[] unsatisfiable = new boolean[1 << clauses.size()];
+		for (int subset = 0; subset < unsatisfiable.length; subset++) {
+			final CNF subsetCNF = new CNF(cnf.getVariableMap());
+			for (int i = 0; i < clauses.size(); i++) {
+				if ((subset & (1 << i)) != 0) {
+					subsetCNF.addClause(clauses.get(i));
+				}
+			}
+			unsatisfiable[subset] = countBruteForce(subsetCNF, assumptions) == 0;
+		}
+		final Set<Set<Integer>> muses = new HashSet<>();
+		subsets: for (int subset = 0; subset < unsatisfiable.length; subset++) {
+			if (unsatisfiable[subset]) {
+				for (int i = 0; i < clauses.size(); i++) {
+					if (((subset & (1 << i)) != 0) && unsatisfiable[subset & ~(1 << i)]) {
+						continue subsets;
+					}
+				}
+				final Set<Integer> mus = new HashSet<>();
+				for (int i = 0; i < clauses.size(); i++) {
+					if ((subset & (1 << i)) != 0) {
+						mus.add(i);
+					}
+				}
+				muses.add(mus);
+			}
+		}
+		return muses;
+	}
+
+}
@@ -0,0 +1,142 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.clauses.*;
+
+public class CDCLOptSolverTest {
+
+	@Test
+	public void simpleFormulas() {
+		final CDCLOptSolver solver = new CDCLOptSolver(createCNF(3, new int[] { 1, 2 }, new int[] { -1, 3 }));
+		final long[] weights = { 0, 5, 3, 1 };
+		assertArrayEquals(new int[] { -1, 2, -3 }, solver.minimum(weights).getLiterals());
+		assertEquals(3, solver.getOptimum());
+		assertArrayEquals(new int[] { 1, 2, 3 }, solver.maximum(weights).getLiterals());
+		assertEquals(9, solver.getOptimum());
+
+		assertEquals(0, new CDCLOptSolver(createCNF(2)).minimum(new long[] { 0, 1, 1 }).countPositive());
+		assertNull(new CDCLOptSolver(createCNF(1, new int[] { 1 }, new int[] { -1 })).minimum(new long[] { 0,
+			1 }));
+		assertThrows(IllegalArgumentException.class, () -> solver.minimum(new long[] { 1, 1, 1 }));
+	}
+
+	@Test
+	public void assumptions() {
+		final CDCLOptSolver solver = new CDCLOptSolver(createCNF(3, new int[] { 1, 2 }, new int[] { -1, 3 }));
+		final long[] weights = { 0, 5, -3, 1 };
+		solver.minimum(weights);
+		assertEquals(-3, solver.getOptimum());
+		solver.getAssumptions().push(1);
+		solver.minimum(weights);
+		assertEquals(3, solver.getOptimum());
+		solver.getAssumptions().push(-3);
+		assertNull(solver.minimum(weights));
+		solver.getAssumptions().clear();
+		solver.getDynamicFormula().push(new LiteralList(-2));
+		assertArrayEquals(new int[] { 1, -2, 3 }, solver.maximum(weights).getLiterals());
+		solver.getDynamicFormula().pop();
+		assertArrayEquals(new int[] { 1, -2, 3 }, solver.maximum(weights).getLiterals());
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(0);
+		for (int i = 0; i < 500; i++) {
+			final int variableCount = 1 + random.nextInt(10);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 4), random);
+			final long[] weights = new long[variableCount + 1];
+			final boolean unweighted = random.nextBoolean();
+			for (int variable = 1; variable <= variableCount; variable++) {
+				weights[variable] = unweighted ? 1 : random.nextInt(21) - 10;
+			}
+			final int[] assumptions = createRandomLiterals(variableCount, random.nextInt(2), random);
+			final CDCLOptSolver solver = new CDCLOptSolver(cnf);
+			solver.setCoreLimit(Arrays.asList(0, 2, Integer.MAX_VALUE).get(random.nextInt(3)));
+			if (random.nextInt(4) == 0) {
+				solver.setMaxEncodingSize(random.nextInt(20));
+			}
+			solver.getAssumptions().pushAll(assumptions);
+			final long[] expected = optimizeBruteForce(cnf, assumptions, weights);
+
+			final LiteralList minimum = solver.minimum(weights);
+			final long minimumValue = solver.getOptimum();
+			final LiteralList maximum = solver.maximum(weights);
+			if (expected == null) {
+				assertNull(minimum);
+				assertNull(maximum);
+			} else {
+				assertEquals(expected[0], minimumValue);
+				assertEquals(Long.valueOf(expected[0]), evaluate(cnf, assumptions, weights, minimum.getLiterals()));
+				assertEquals(expected[1], solver.getOptimum());
+				assertEquals(Long.valueOf(expected[1]), evaluate(cnf, assumptions, weights, maximum.getLiterals()));
+			}
+		}
+	}
+
+	private static long[] optimizeBruteForce(CNF cnf, int[] assumptions, long[] weights) {
+		final int variableCount = cnf.getVariableMap().getMaxIndex();
+		long[] optimum = null;
+		for (int assignment = 0; assignment < (1 << variableCount); assignment++) {
+			final int[] literals = new int[variableCount];
+			for (int i = 0; i < variableCount; i++) {
+				literals[i] = ((assignment >> i) & 1) == 1 ? i + 1 : -(i + 1);
+			}
+			final Long value = evaluate(cnf, assumptions, weights, literals);
+			if (value != null) {
+				optimum = optimum == null
+					? new long[] { value, value }
+					: new long[] { Math.min(optimum[0], value), Math.max(optimum[1], value) };
+			}
+		}
+		return optimum;
+	}
+
+	private static Long evaluate(CNF cnf, int[] assumptions, long[] weights, int[] literals) {
+		for (final int literal : assumptions) {
+			if (literals[Math.abs(literal) - 1] != literal) {
+				return null;
+			}
+		}
+		for (final LiteralList clause : cnf.getClauses()) {
+			if (Arrays.stream(clause.getLiterals()).noneMatch(literal -> literals[Math.abs(literal) - 1] == literal)) {
+				return null;
+			}
+		}
+		long value = 0;
+		for (final int literal : literals) {
+			if (literal > 0) {
+				value += weights[literal];
+			}
+		}
+		return value;
+	}
+
+}
@@ -0,0 +1,328 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.formula.structure.term.bool.*;
+import org.spldev.util.job.*;
+
+public class CDCLSolverTest {
+
+	private static final Path modelDirectory = Paths.get("src/test/resources/testFeatureModels");
+
+	@Test
+	public void satisfiable() {
+		final CNF cnf = createCNF(3, new int[] { 1, 2 }, new int[] { -1, 3 }, new int[] { -2, -3 });
+		final CDCLSolver solver = new CDCLSolver(cnf);
+		assertEquals(SatResult.TRUE, solver.hasSolution());
+		assertTrue(isSolution(solver.getSolution(), cnf));
+	}
+
+	@Test
+	public void unsatisfiable() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(2, new int[] { 1, 2 }, new int[] { -1, 2 },
+			new int[] { 1, -2 }, new int[] { -1, -2 }));
+		assertEquals(SatResult.FALSE, solver.hasSolution());
+		assertNull(solver.getSolution());
+	}
+
+	@Test
+	public void assumptions() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(3, new int[] { -1, 2 }, new int[] { -2, 3 }));
+		solver.getAssumptions().set(1, Boolean.TRUE);
+		assertEquals(SatResult.TRUE, solver.hasSolution());
+		assertEquals(3, solver.getSolution().get(2));
+
+		solver.getAssumptions().set(3, Boolean.FALSE);
+		assertEquals(SatResult.FALSE, solver.hasSolution());
+		final LiteralList conflict = solver.getConflictingAssumptions();
+		assertTrue(conflict.containsAllLiterals(1, -3));
+
+		solver.getAssumptions().unset(1);
+		assertEquals(SatResult.TRUE, solver.hasSolution());
+		assertEquals(-1, solver.getSolution().get(0));
+	}
+
+	@Test
+	public void literalAssumptions() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(3, new int[] { -1, 2 }, new int[] { -2, 3 }));
+		final LiteralAssumptions trail = solver.getLiteralAssumptions().orElseThrow();
+		trail.push(1);
+		assertEquals(SatResult.TRUE, solver.hasSolution());
+		assertEquals(SatResult.FALSE, solver.hasSolution(-3));
+		assertEquals(1, trail.size());
+		assertEquals(Optional.of(Boolean.TRUE), solver.getAssumptions().get(1));
+		trail.pop();
+		assertEquals(SatResult.TRUE, solver.hasSolution(new LiteralList(-3)));
+		assertTrue(trail.isEmpty());
+
+		assertThrows(IllegalArgumentException.class, () -> trail.set(0, Boolean.TRUE));
+		assertThrows(IllegalArgumentException.class, () -> trail.set(-1, Boolean.TRUE));
+		assertThrows(IllegalArgumentException.class, () -> trail.set(1, 1));
+		assertTrue(trail.isEmpty());
+	}
+
+	@Test
+	public void pushAndPop() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(2, new int[] { 1, 2 }, new int[] { -1, 2 },
+			new int[] { 1, -2 }));
+		solver.getDynamicFormula().push(new LiteralList(-1, -2));
+		assertEquals(SatResult.FALSE, solver.hasSolution());
+		solver.getDynamicFormula().pop();
+		assertEquals(SatResult.TRUE, solver.hasSolution());
+		assertEquals(3, solver.getDynamicFormula().size());
+	}
+
+	@Test
+	public void pushContradiction() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(2, new int[] { 1, 2 }, new int[] { -1 }));
+		assertThrows(RuntimeContradictionException.class, () -> solver.getDynamicFormula().push(new LiteralList(
+			-2)));
+		assertEquals(2, solver.getDynamicFormula().size());
+		assertEquals(SatResult.TRUE, solver.hasSolution());
+		assertEquals(2, solver.getSolution().get(1));
+
+		final CDCLSolver solver2 = new CDCLSolver(createCNF(2, new int[] { 1, 2 }));
+		solver2.getDynamicFormula().push(new LiteralList(-1));
+		solver2.getDynamicFormula().push(new LiteralList(-2));
+		assertEquals(SatResult.FALSE, solver2.hasSolution());
+		assertTrue(solver2.getConflictingAssumptions().isEmpty());
+		solver2.getDynamicFormula().pop();
+		assertEquals(SatResult.TRUE, solver2.hasSolution());
+		assertEquals(2, solver2.getSolution().get(1));
+	}
+
+	@Test
+	public void contradictingAssumedConstraint() {
+		final CNF cnf = createCNF(2, new int[] { 1 }, new int[] { -1, 2 });
+		final CDCLSolver solver = new CDCLSolver(cnf);
+		final HasSolutionAnalysis analysis = new HasSolutionAnalysis(solver);
+		analysis.getLiteralAssumptions().push(-2);
+		analysis.getAssumedConstraints().add(new LiteralPredicate((BoolVariable) cnf.getVariableMap().getVariable(
+			"1").get(), false));
+		assertThrows(RuntimeContradictionException.class, () -> analysis.execute(solver, new NullMonitor()));
+		assertEquals(0, solver.getAssumptions().size());
+		assertEquals(2, solver.getDynamicFormula().size());
+		assertTrue(new HasSolutionAnalysis(solver).execute(solver, new NullMonitor()));
+
+		analysis.getLiteralAssumptions().clear();
+		analysis.getAssumedConstraints().clear();
+		assertTrue(analysis.execute(solver, new NullMonitor()));
+	}
+
+	@Test
+	public void guardedConstraints() {
+		final Random random = new Random(0);
+		final int variableCount = 8;
+		final CNF cnf = createCNF(variableCount, new int[] { 1, 2, 3 }, new int[] { -1, 4 }, new int[] { -2, 5 });
+		final CDCLSolver solver = new CDCLSolver(cnf);
+		final CDCLFormula formula = solver.getDynamicFormula();
+		for (int i = 0; i < 2000; i++) {
+			if ((formula.size() > 3) && random.nextBoolean()) {
+				formula.pop();
+			} else {
+				final int[] clause = createRandomLiterals(variableCount, 1 + random.nextInt(3), random);
+				try {
+					formula.push(new LiteralList(clause));
+				} catch (final RuntimeContradictionException e) {
+					continue;
+				}
+			}
+			final CNF currentCNF = new CNF(cnf.getVariableMap());
+			formula.getConstraints().stream().flatMap(constraint -> constraint.getClauses().stream())
+				.forEach(currentCNF::addClause);
+			final SatResult result = solver.hasSolution();
+			assertEquals(countBruteForce(currentCNF) > 0 ? SatResult.TRUE : SatResult.FALSE, result);
+			if (result == SatResult.TRUE) {
+				assertTrue(isSolution(solver.getSolution(), currentCNF));
+			}
+		}
+		assertTrue(solver.getEngine().getNumberOfVariables() < (variableCount + 1000));
+	}
+
+	@Test
+	public void cloneIsIndependent() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(3, new int[] { 1, 2, 3 }, new int[] { -1, 2 }));
+		solver.getDynamicFormula().push(new LiteralList(-2));
+		final CDCLSolver clone = solver.clone();
+		assertEquals(SatResult.TRUE, clone.hasSolution());
+		clone.getDynamicFormula().push(new LiteralList(-3));
+		assertEquals(SatResult.FALSE, clone.hasSolution());
+		assertEquals(SatResult.TRUE, solver.hasSolution());
+		assertEquals(3, solver.getSolution().get(2));
+		solver.getDynamicFormula().pop();
+		assertEquals(SatResult.FALSE, clone.hasSolution());
+		clone.getDynamicFormula().pop();
+		assertEquals(SatResult.TRUE, clone.hasSolution(3));
+		assertEquals(-1, clone.getSolution().get(0));
+	}
+
+	@Test
+	public void reuseTrail() {
+		final Random random = new Random(2);
+		for (int i = 0; i < 200; i++) {
+			final int variableCount = 3 + random.nextInt(8);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 4), random);
+			final CDCLEngine engine = new CDCLSolver(cnf).getEngine();
+			final CDCLEngine referenceEngine = new CDCLSolver(cnf).getEngine();
+			engine.setReuseTrail(true);
+			int[] assumptions = new int[0];
+			for (int j = 0; j < 20; j++) {
+				assumptions = Arrays.copyOf(assumptions, random.nextInt(assumptions.length + 1) + random.nextInt(3));
+				for (int k = 0; k < assumptions.length; k++) {
+					if ((assumptions[k] == 0) || (random.nextInt(8) == 0)) {
+						final int variable = 1 + random.nextInt(variableCount);
+						assumptions[k] = random.nextBoolean() ? variable : -variable;
+					}
+				}
+				final SatResult result = engine.solve(assumptions);
+				assertEquals(referenceEngine.solve(assumptions), result);
+				if (result == SatResult.TRUE) {
+					for (final int literal : assumptions) {
+						assertEquals(literal, engine.getModel()[Math.abs(literal) - 1]);
+					}
+				}
+				for (int literal = -variableCount; literal <= variableCount; literal++) {
+					if ((literal != 0) && engine.isFixed(literal)) {
+						assertEquals(SatResult.FALSE, referenceEngine.solve(-literal));
+					}
+				}
+				if (random.nextInt(5) == 0) {
+					assertEquals(result, new CDCLEngine(engine).solve(assumptions));
+				}
+			}
+			engine.setReuseTrail(false);
+		}
+	}
+
+	@Test
+	public void addLearnedClause() {
+		final CDCLEngine engine = new CDCLSolver(createCNF(4, new int[] { -1, 2 }, new int[] { -2, 3 },
+			new int[] { 4 })).getEngine();
+		assertTrue(engine.addLearnedClause(-1, 3));
+		assertFalse(engine.addLearnedClause(1, 3));
+		assertFalse(engine.addLearnedClause(4, 1));
+		assertTrue(engine.addLearnedClause(-1, 3, -4));
+		assertEquals(2, engine.getLearnedClauses().size());
+		assertEquals(new LiteralList(-1, 3), engine.getLearnedClauses().get(1).getLiterals());
+		assertEquals(SatResult.FALSE, engine.solve(1, -3));
+
+		final Random random = new Random(3);
+		for (int i = 0; i < 200; i++) {
+			final int variableCount = 3 + random.nextInt(8);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 4), random);
+			final CDCLEngine learningEngine = new CDCLSolver(cnf).getEngine();
+			final CDCLEngine referenceEngine = new CDCLSolver(cnf).getEngine();
+			for (int j = 0; j < 20; j++) {
+				final int[] clause = createRandomLiterals(variableCount, 1 + random.nextInt(3), random);
+				final boolean implied = referenceEngine.solve(new LiteralList(clause).negate().getLiterals())
+					== SatResult.FALSE;
+				if (learningEngine.addLearnedClause(clause)) {
+					assertTrue(implied);
+				}
+				assertEquals(referenceEngine.solve(), learningEngine.solve());
+			}
+		}
+	}
+
+	@Test
+	public void portfolio() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 100; i++) {
+			final int variableCount = 3 + random.nextInt(8);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 5), random);
+			final CDCLPortfolioSolver solver = new CDCLPortfolioSolver(cnf, 3);
+			try {
+				final SatResult result = solver.hasSolution();
+				assertEquals(countBruteForce(cnf) > 0 ? SatResult.TRUE : SatResult.FALSE, result);
+				if (result == SatResult.TRUE) {
+					assertTrue(isSolution(solver.getSolution(), cnf));
+				}
+			} finally {
+				solver.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void portfolioThreadsTerminate() throws InterruptedException {
+		final CNF cnf = createCNF(3, new int[] { 1, 2 }, new int[] { -1, 3 });
+		for (int i = 0; i < 20; i++) {
+			final CDCLPortfolioSolver solver = new CDCLPortfolioSolver(cnf, 4);
+			assertEquals(SatResult.TRUE, solver.hasSolution());
+			assertEquals(SatResult.TRUE, solver.clone().hasSolution());
+		}
+		final long deadline = System.currentTimeMillis() + 10_000;
+		while (countPortfolioThreads() > 0) {
+			assertTrue(System.currentTimeMillis() < deadline, "Portfolio threads are still alive");
+			Thread.sleep(100);
+		}
+	}
+
+	private static long countPortfolioThreads() {
+		return Thread.getAllStackTraces().keySet().stream().filter(thread -> thread.isAlive() && "CDCLPortfolioSolver"
+			.equals(thread.getName())).count();
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(0);
+		for (int i = 0; i < 500; i++) {
+			final int variableCount = 3 + random.nextInt(8);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 5), random);
+			final CDCLSolver solver = new CDCLSolver(cnf);
+			final SatResult result = solver.hasSolution();
+			assertEquals(countBruteForce(cnf) > 0 ? SatResult.TRUE : SatResult.FALSE, result);
+			if (result == SatResult.TRUE) {
+				assertTrue(isSolution(solver.getSolution(), cnf));
+			}
+		}
+	}
+
+	@Test
+	public void featureModels() {
+		for (final String name : Arrays.asList("basic", "simple", "car", "gpl_medium_model", "berkeley_db_model")) {
+			final ModelRepresentation rep = ModelRepresentation.load(modelDirectory.resolve(name + ".xml"))
+				.orElseThrow();
+			final CNF cnf = rep.get(CNFProvider.fromFormula());
+			final CDCLSolver solver = new CDCLSolver(cnf);
+			assertEquals(SatResult.TRUE, solver.hasSolution(), name);
+			assertTrue(isSolution(solver.getSolution(), cnf), name);
+			assertTrue(rep.get(new HasSolutionAnalysis()), name);
+		}
+	}
+
+}
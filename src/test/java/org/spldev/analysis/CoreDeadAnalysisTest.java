@@ -0,0 +1,158 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.*;
+import org.spldev.util.job.*;
+
+public class CoreDeadAnalysisTest {
+
+	private static final Path modelDirectory = Paths.get("src/test/resources/testFeatureModels");
+
+	@Test
+	public void coreAndDead() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(6, new int[] { 1 }, new int[] { -1, 2 }, new int[] { -3,
+			-2 }, new int[] { 4, 5 }, new int[] { -6, 4 }, new int[] { -6, -4 }));
+		final CoreDeadAnalysis analysis = new CoreDeadAnalysis(solver);
+		final LiteralList result = analysis.execute(solver, new NullMonitor());
+		assertEquals(new LiteralList(1, 2, -3, -6), result);
+
+		analysis.getLiteralAssumptions().push(-4);
+		assertEquals(new LiteralList(1, 2, -3, -4, 5, -6), analysis.execute(solver, new NullMonitor()));
+
+		analysis.getLiteralAssumptions().push(-5);
+		assertNull(analysis.execute(solver, new NullMonitor()));
+		assertEquals(0, solver.getAssumptions().size());
+	}
+
+	@Test
+	public void variables() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(4, new int[] { 1 }, new int[] { -1, 2 }, new int[] { -3,
+			-2 }, new int[] { 4, 3 }));
+		final CoreDeadAnalysis analysis = new CoreDeadAnalysis(solver, new LiteralList(2, 4));
+		assertEquals(new LiteralList(2, 4), analysis.execute(solver, new NullMonitor()));
+		analysis.setVariables(null);
+		assertEquals(new LiteralList(1, 2, -3, 4), analysis.execute(solver, new NullMonitor()));
+	}
+
+	@Test
+	public void resultCache() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(3, new int[] { -1, 2 }, new int[] { -2, 3 }));
+		final AnalysisResultCache resultCache = new AnalysisResultCache(16);
+		final CoreDeadAnalysis analysis = new CoreDeadAnalysis(solver);
+		analysis.setResultCache(resultCache);
+		analysis.getLiteralAssumptions().push(1);
+		final LiteralList result = analysis.execute(solver, new NullMonitor());
+		assertEquals(new LiteralList(1, 2, 3), result);
+		assertSame(result, analysis.execute(solver, new NullMonitor()));
+
+		analysis.getLiteralAssumptions().clear();
+		final LiteralList emptyResult = analysis.execute(solver, new NullMonitor());
+		assertEquals(0, emptyResult.size());
+		final CDCLSolver clonedSolver = solver.clone();
+		final CoreDeadAnalysis otherAnalysis = new CoreDeadAnalysis(clonedSolver);
+		otherAnalysis.setResultCache(resultCache);
+		otherAnalysis.getLiteralAssumptions().push(1);
+		assertSame(result, otherAnalysis.execute(clonedSolver, new NullMonitor()));
+
+		analysis.getLiteralAssumptions().push(1);
+		analysis.setVariables(new LiteralList(1, 3));
+		assertEquals(new LiteralList(1, 3), analysis.execute(solver, new NullMonitor()));
+		assertEquals(2, resultCache.getHitCount());
+		assertEquals(3, resultCache.getMissCount());
+	}
+
+	@Test
+	public void threads() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 50; i++) {
+			final CNF cnf = createRandomCNF(40, 60 + random.nextInt(60), random);
+			final LiteralList expected = computeBackbone(cnf);
+			final CDCLSolver solver = new CDCLSolver(cnf);
+			final CoreDeadAnalysis analysis = new CoreDeadAnalysis(solver);
+			analysis.setThreadCount(3);
+			assertEquals(expected, analysis.execute(solver, new NullMonitor()), String.valueOf(i));
+		}
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(2);
+		for (int i = 0; i < 500; i++) {
+			final int variableCount = 1 + random.nextInt(40);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(3 * variableCount), random);
+			final LiteralList expected = computeBackbone(cnf);
+			final CDCLSolver solver = new CDCLSolver(cnf);
+			final CoreDeadAnalysis analysis = new CoreDeadAnalysis(solver);
+			if (random.nextBoolean()) {
+				analysis.setUnitPropagator(new UnitPropagator(cnf));
+			}
+			assertEquals(expected, analysis.execute(solver, new NullMonitor()), String.valueOf(i));
+		}
+	}
+
+	@Test
+	public void featureModels() {
+		for (final String name : Arrays.asList("basic", "simple", "car", "gpl_medium_model", "berkeley_db_model")) {
+			final ModelRepresentation rep = ModelRepresentation.load(modelDirectory.resolve(name + ".xml"))
+				.orElseThrow();
+			final CNF cnf = rep.get(CNFProvider.fromFormula());
+			final LiteralList expected = computeBackbone(cnf);
+			final CDCLSolver solver = new CDCLSolver(cnf);
+			final CoreDeadAnalysis analysis = new CoreDeadAnalysis(solver);
+			assertEquals(expected, analysis.execute(solver, new NullMonitor()), name);
+			analysis.setThreadCount(2);
+			assertEquals(expected, analysis.execute(solver, new NullMonitor()), name);
+		}
+	}
+
+	/**
+	 * Computes the backbone by testing each literal of a solution separately.
+	 */
+	private static LiteralList computeBackbone(CNF cnf) {
+		final CDCLSolver solver = new CDCLSolver(cnf);
+		if (solver.hasSolution() != SatResult.TRUE) {
+			return null;
+		}
+		final int[] solution = solver.getSolution().getLiterals();
+		final List<Integer> backbone = new ArrayList<>();
+		for (final int literal : solution) {
+			if (solver.getEngine().solve(-literal) == SatResult.FALSE) {
+				backbone.add(literal);
+			}
+		}
+		return new LiteralList(backbone);
+	}
+
+}
@@ -0,0 +1,169 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.math.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.sharpsat.*;
+import org.spldev.analysis.sharpsat.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.*;
+
+public class CountingSolverTest {
+
+	private static final Path modelDirectory = Paths.get("src/test/resources/testFeatureModels");
+
+	@Test
+	public void simpleFormulas() {
+		assertEquals(BigInteger.valueOf(8), new CountingSolver(createCNF(3)).countSolutions());
+		assertEquals(BigInteger.valueOf(3), new CountingSolver(createCNF(2, new int[] { 1, 2 })).countSolutions());
+		assertEquals(BigInteger.ZERO, new CountingSolver(createCNF(1, new int[] { 1 }, new int[] { -1 }))
+			.countSolutions());
+		assertEquals(BigInteger.valueOf(8), new CountingSolver(createCNF(3, new int[] { 1, -1 }))
+			.countSolutions());
+	}
+
+	@Test
+	public void assumptions() {
+		final CountingSolver solver = new CountingSolver(createCNF(3, new int[] { 1, 2 }, new int[] { -1, 3 }));
+		assertEquals(BigInteger.valueOf(4), solver.countSolutions());
+		solver.getAssumptions().push(1);
+		assertEquals(BigInteger.valueOf(2), solver.countSolutions());
+		solver.getAssumptions().push(-3);
+		assertEquals(BigInteger.ZERO, solver.countSolutions());
+		solver.getAssumptions().clear();
+		final CountingEngine engine = solver.getCountingEngine();
+		solver.getDynamicFormula().push(new LiteralList(-2));
+		assertEquals(BigInteger.ONE, solver.countSolutions());
+		solver.getDynamicFormula().pop();
+		assertEquals(BigInteger.valueOf(4), solver.countSolutions());
+		assertSame(engine, solver.getCountingEngine());
+	}
+
+	@Test
+	public void pushedConstraints() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 100; i++) {
+			final int variableCount = 1 + random.nextInt(10);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 2), random);
+			final CNF currentCNF = new CNF(cnf.getVariableMap());
+			currentCNF.addClauses(cnf.getClauses());
+			final CountingSolver solver = new CountingSolver(cnf);
+			final CountingEngine engine = solver.getCountingEngine();
+			for (int j = 0; j < 12; j++) {
+				final LiteralList clause = new LiteralList(createRandomLiterals(variableCount, 1 + random.nextInt(3),
+					random));
+				try {
+					solver.getDynamicFormula().push(clause);
+				} catch (final RuntimeContradictionException e) {
+					continue;
+				}
+				currentCNF.addClause(clause);
+				final int[] assumptions = createRandomLiterals(variableCount, random.nextInt(3), random);
+				solver.getAssumptions().clear();
+				solver.getAssumptions().pushAll(assumptions);
+				assertEquals(BigInteger.valueOf(countBruteForce(currentCNF, assumptions)), solver.countSolutions());
+			}
+			assertSame(engine, solver.getCountingEngine());
+		}
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(0);
+		for (int i = 0; i < 300; i++) {
+			final int variableCount = 1 + random.nextInt(12);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 3), random);
+			final CountingSolver solver = new CountingSolver(cnf);
+			solver.setImplicitBCP(random.nextBoolean());
+			if (random.nextBoolean()) {
+				solver.setMaxCacheMemory(500);
+			}
+			for (int j = 0; j < 3; j++) {
+				final int[] assumptions = createRandomLiterals(variableCount, random.nextInt(3), random);
+				solver.getAssumptions().clear();
+				solver.getAssumptions().pushAll(assumptions);
+				assertEquals(BigInteger.valueOf(countBruteForce(cnf, assumptions)), solver.countSolutions());
+			}
+		}
+	}
+
+	@Test
+	public void deepSearch() throws InterruptedException {
+		// each variable of the chain is decided separately, such that the search
+		// depth grows with the number of variables
+		final int variableCount = 2000;
+		final CNF cnf = createCNF(variableCount);
+		for (int i = 1; (i + 2) <= variableCount; i++) {
+			cnf.addClause(new LiteralList(i, i + 1, i + 2));
+		}
+		BigInteger[] counts = { BigInteger.ONE, BigInteger.valueOf(2), BigInteger.valueOf(4) };
+		for (int i = 3; i <= variableCount; i++) {
+			counts = new BigInteger[] { counts[1], counts[2], counts[0].add(counts[1]).add(counts[2]) };
+		}
+		final BigInteger expected = counts[2];
+
+		final Object[] result = new Object[1];
+		final Thread thread = new Thread(null, () -> {
+			try {
+				result[0] = new CountingSolver(cnf).countSolutions();
+			} catch (final Throwable e) {
+				result[0] = e;
+			}
+		}, "deepSearch", 1L << 17);
+		thread.start();
+		thread.join();
+		assertEquals(expected, result[0]);
+	}
+
+	@Test
+	public void featureModels() {
+		for (final String name : Arrays.asList("basic", "simple", "car", "gpl_medium_model", "berkeley_db_model")) {
+			final ModelRepresentation rep = ModelRepresentation.load(modelDirectory.resolve(name + ".xml"))
+				.orElseThrow();
+			final CNF cnf = rep.get(CNFProvider.fromFormula());
+			final CountingSolver solver = new CountingSolver(cnf);
+			final BigInteger count = solver.countSolutions();
+			assertTrue(count.signum() > 0, name);
+			assertEquals(count, rep.get(new CountSolutionsAnalysis()), name);
+
+			final int variable = 1 + new Random(0).nextInt(cnf.getVariableMap().getMaxIndex());
+			solver.getAssumptions().push(variable);
+			final BigInteger positiveCount = solver.countSolutions();
+			solver.getAssumptions().replaceLast(-variable);
+			final BigInteger negativeCount = solver.countSolutions();
+			assertEquals(count, positiveCount.add(negativeCount), name);
+			if (cnf.getVariableMap().getMaxIndex() <= 20) {
+				assertEquals(BigInteger.valueOf(countBruteForce(cnf)), count, name);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.*;
+
+public class CubeAndConquerSolverTest {
+
+	private static final Path modelDirectory = Paths.get("src/test/resources/testFeatureModels");
+
+	@Test
+	public void cubesPartitionSolutions() {
+		final Random random = new Random(0);
+		for (int i = 0; i < 300; i++) {
+			final int variableCount = 1 + random.nextInt(12);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 5), random);
+			final int[] assumptions = createRandomLiterals(variableCount, random.nextInt(3), random);
+			final LookaheadCuber cuber = new LookaheadCuber(cnf);
+			cuber.setMaxCubes(1 + random.nextInt(16));
+			final List<LiteralList> cubes = cuber.getCubes(assumptions);
+			assertTrue(cubes.size() <= cuber.getMaxCubes());
+			long count = 0;
+			for (final LiteralList cube : cubes) {
+				count += countBruteForce(cnf, concat(assumptions, cube.getLiterals()));
+			}
+			assertEquals(countBruteForce(cnf, assumptions), count);
+		}
+	}
+
+	@Test
+	public void unsatisfiable() {
+		final CubeAndConquerSolver solver = new CubeAndConquerSolver(createCNF(3, new int[] { 1, 2 },
+			new int[] { -1, 2 }, new int[] { 1, -2 }, new int[] { -1, -2, 3 }, new int[] { -1, -2, -3 }), 2);
+		try {
+			assertEquals(SatResult.FALSE, solver.hasSolution());
+			assertNull(solver.getSolution());
+		} finally {
+			solver.shutdown();
+		}
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 300; i++) {
+			final int variableCount = 1 + random.nextInt(12);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 5), random);
+			final CubeAndConquerSolver solver = new CubeAndConquerSolver(cnf, 1 + random.nextInt(4));
+			solver.setMaxCubes(1 + random.nextInt(16));
+			try {
+				for (int j = 0; j < 3; j++) {
+					final int[] assumptions = createRandomLiterals(variableCount, random.nextInt(3), random);
+					solver.getAssumptions().clear();
+					solver.getAssumptions().pushAll(assumptions);
+					final SatResult result = solver.hasSolution();
+					assertEquals(countBruteForce(cnf, assumptions) > 0 ? SatResult.TRUE : SatResult.FALSE, result);
+					if (result == SatResult.TRUE) {
+						final LiteralList solution = solver.getSolution();
+						assertTrue(solution.containsAllLiterals(assumptions));
+						assertTrue(isSolution(solution, cnf));
+					}
+				}
+			} finally {
+				solver.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void featureModels() {
+		for (final String name : Arrays.asList("car", "gpl_medium_model", "berkeley_db_model")) {
+			final ModelRepresentation rep = ModelRepresentation.load(modelDirectory.resolve(name + ".xml"))
+				.orElseThrow();
+			final CNF cnf = rep.get(CNFProvider.fromFormula());
+			final CubeAndConquerSolver solver = new CubeAndConquerSolver(cnf, 4);
+			try {
+				assertEquals(SatResult.TRUE, solver.hasSolution(), name);
+				final LiteralList solution = solver.getSolution();
+				assertTrue(isSolution(solution, cnf), name);
+				final int variable = solution.get(0);
+				assertEquals(new CDCLSolver(cnf).hasSolution(-variable), solver.hasSolution(-variable), name);
+			} finally {
+				solver.shutdown();
+			}
+		}
+	}
+
+	private static int[] concat(int[] literals1, int[] literals2) {
+		final int[] literals = Arrays.copyOf(literals1, literals1.length + literals2.length);
+		System.arraycopy(literals2, 0, literals, literals1.length, literals2.length);
+		return literals;
+	}
+
+}
@@ -0,0 +1,145 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.math.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.ddnnf.solver.*;
+import org.spldev.analysis.sharpsat.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.*;
+
+public class DDNNFSolverTest {
+
+	private static final Path modelDirectory = Paths.get("src/test/resources/testFeatureModels");
+
+	@Test
+	public void simpleFormulas() {
+		assertEquals(BigInteger.valueOf(8), new DDNNFSolver(createCNF(3)).countSolutions());
+		assertEquals(BigInteger.valueOf(3), new DDNNFSolver(createCNF(2, new int[] { 1, 2 })).countSolutions());
+		assertEquals(BigInteger.ZERO, new DDNNFSolver(createCNF(1, new int[] { 1 }, new int[] { -1 }))
+			.countSolutions());
+		assertEquals(SatResult.FALSE, new DDNNFSolver(createCNF(1, new int[] { 1 }, new int[] { -1 }))
+			.hasSolution());
+		assertEquals(BigInteger.valueOf(8), new DDNNFSolver(createCNF(3, new int[] { 1, -1 }))
+			.countSolutions());
+	}
+
+	@Test
+	public void assumptions() {
+		final DDNNFSolver solver = new DDNNFSolver(createCNF(3, new int[] { 1, 2 }, new int[] { -1, 3 }));
+		assertEquals(BigInteger.valueOf(4), solver.countSolutions());
+		final DDNNF ddnnf = solver.getDDNNF();
+		solver.getAssumptions().push(1);
+		assertEquals(BigInteger.valueOf(2), solver.countSolutions());
+		assertEquals(BigInteger.ONE, solver.countSolutions(new LiteralList(3, 2)));
+		assertEquals(BigInteger.ZERO, solver.countSolutions(new LiteralList(-3)));
+		solver.getAssumptions().push(-3);
+		assertEquals(SatResult.FALSE, solver.hasSolution());
+		assertEquals(BigInteger.ZERO, solver.countSolutions());
+		assertSame(ddnnf, solver.getDDNNF());
+		solver.getAssumptions().clear();
+		solver.getDynamicFormula().push(new LiteralList(-2));
+		assertEquals(BigInteger.ONE, solver.countSolutions());
+		assertEquals(BigInteger.ZERO, solver.countSolutions(new LiteralList(-1)));
+		solver.getDynamicFormula().pop();
+		assertEquals(BigInteger.valueOf(4), solver.countSolutions());
+		assertSame(ddnnf, solver.getDDNNF());
+	}
+
+	@Test
+	public void pushedConstraints() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 100; i++) {
+			final int variableCount = 1 + random.nextInt(10);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 2), random);
+			final CNF currentCNF = new CNF(cnf.getVariableMap());
+			currentCNF.addClauses(cnf.getClauses());
+			final DDNNFSolver solver = new DDNNFSolver(cnf);
+			final DDNNF ddnnf = solver.getDDNNF();
+			for (int j = 0; j < 12; j++) {
+				final LiteralList clause = new LiteralList(createRandomLiterals(variableCount, 1 + random.nextInt(3),
+					random));
+				try {
+					solver.getDynamicFormula().push(clause);
+				} catch (final RuntimeContradictionException e) {
+					continue;
+				}
+				currentCNF.addClause(clause);
+				final int[] assumptions = createRandomLiterals(variableCount, random.nextInt(3), random);
+				solver.getAssumptions().clear();
+				solver.getAssumptions().pushAll(assumptions);
+				final long count = countBruteForce(currentCNF, assumptions);
+				assertEquals(BigInteger.valueOf(count), solver.countSolutions());
+				assertEquals(count > 0 ? SatResult.TRUE : SatResult.FALSE, solver.hasSolution());
+			}
+			assertSame(ddnnf, solver.getDDNNF());
+		}
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(0);
+		for (int i = 0; i < 300; i++) {
+			final int variableCount = 1 + random.nextInt(12);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 3), random);
+			final DDNNFQueryEngine queryEngine = new DDNNFSolver(cnf).getQueryEngine();
+			for (int j = 0; j < 5; j++) {
+				final int[] assumptions = createRandomLiterals(variableCount, random.nextInt(4), random);
+				final long count = countBruteForce(cnf, assumptions);
+				assertEquals(BigInteger.valueOf(count), queryEngine.countSolutions(assumptions));
+				assertEquals(count > 0, queryEngine.hasSolution(assumptions));
+			}
+		}
+	}
+
+	@Test
+	public void featureModels() {
+		for (final String name : Arrays.asList("basic", "simple", "car", "gpl_medium_model", "berkeley_db_model")) {
+			final ModelRepresentation rep = ModelRepresentation.load(modelDirectory.resolve(name + ".xml"))
+				.orElseThrow();
+			final CNF cnf = rep.get(CNFProvider.fromFormula());
+			final DDNNFSolver solver = new DDNNFSolver(cnf);
+			final CountingSolver countingSolver = new CountingSolver(cnf);
+			assertEquals(countingSolver.countSolutions(), solver.countSolutions(), name);
+
+			final Random random = new Random(0);
+			for (int i = 0; i < 10; i++) {
+				final int variable = 1 + random.nextInt(cnf.getVariableMap().getMaxIndex());
+				final int literal = random.nextBoolean() ? variable : -variable;
+				countingSolver.getAssumptions().push(literal);
+				assertEquals(countingSolver.countSolutions(), solver.countSolutions(new LiteralList(literal)), name);
+				countingSolver.getAssumptions().clear();
+			}
+		}
+	}
+
+}
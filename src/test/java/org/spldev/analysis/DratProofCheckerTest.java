@@ -0,0 +1,131 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+
+public class DratProofCheckerTest {
+
+	@Test
+	public void unsatisfiable() throws IOException {
+		final CNF cnf = createCNF(3, new int[] { 1, 2 }, new int[] { -1, 2 }, new int[] { 1, -2 },
+			new int[] { -1, -2, 3 }, new int[] { -1, -2, -3 });
+		final CDCLSolver solver = new CDCLSolver(cnf);
+		final ByteArrayOutputStream proof = new ByteArrayOutputStream();
+		try (DratProofWriter writer = new DratProofWriter(Channels.newChannel(proof))) {
+			solver.getEngine().setProofWriter(writer);
+			assertEquals(SatResult.FALSE, solver.hasSolution());
+		}
+		final DratProofChecker checker = new DratProofChecker(cnf);
+		assertTrue(checker.check(new ByteArrayInputStream(proof.toByteArray())));
+		assertTrue(checker.isRefuted());
+	}
+
+	@Test
+	public void assumptions() throws IOException {
+		final CNF cnf = createCNF(4, new int[] { -1, 2 }, new int[] { -2, 3 }, new int[] { -3, -1 },
+			new int[] { 4, 3 });
+		final CDCLSolver solver = new CDCLSolver(cnf);
+		final ByteArrayOutputStream proof = new ByteArrayOutputStream();
+		try (DratProofWriter writer = new DratProofWriter(Channels.newChannel(proof))) {
+			solver.getEngine().setProofWriter(writer);
+			assertEquals(SatResult.FALSE, solver.hasSolution(1));
+			assertEquals(SatResult.TRUE, solver.hasSolution(4));
+		}
+		final DratProofChecker checker = new DratProofChecker(cnf);
+		assertTrue(checker.check(new ByteArrayInputStream(proof.toByteArray())));
+		assertFalse(checker.isRefuted());
+		assertTrue(checker.isContradicting(1));
+		assertTrue(checker.isContradicting(1, 4));
+		assertFalse(checker.isContradicting(4));
+	}
+
+	@Test
+	public void invalidProofs() throws IOException {
+		final CNF cnf = createCNF(3, new int[] { 1, 2 }, new int[] { -1, 3 });
+		final ByteArrayOutputStream proof = new ByteArrayOutputStream();
+		final CDCLSolver solver = new CDCLSolver(cnf);
+		try (DratProofWriter writer = new DratProofWriter(Channels.newChannel(proof))) {
+			solver.getEngine().setProofWriter(writer);
+			assertEquals(SatResult.TRUE, solver.hasSolution());
+		}
+		assertTrue(new DratProofChecker(cnf).check(new ByteArrayInputStream(proof.toByteArray())));
+
+		proof.write(new byte[] { 'a', 0 });
+		final DratProofChecker checker = new DratProofChecker(cnf);
+		assertFalse(checker.check(new ByteArrayInputStream(proof.toByteArray())));
+		assertEquals(checker.getNumberOfSteps(), checker.getFailedStep());
+
+		final DratProofChecker otherChecker = new DratProofChecker(createCNF(3, new int[] { 1, 2 }));
+		assertFalse(otherChecker.check(new ByteArrayInputStream(proof.toByteArray())));
+		assertEquals(2, otherChecker.getFailedStep());
+	}
+
+	@Test
+	public void randomFormulas() throws IOException {
+		final Random random = new Random(0);
+		for (int i = 0; i < 100; i++) {
+			final int variableCount = 2 + random.nextInt(10);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 4), random);
+			final CDCLSolver solver = new CDCLSolver(cnf);
+			final ByteArrayOutputStream proof = new ByteArrayOutputStream();
+			final DratProofWriter writer = new DratProofWriter(Channels.newChannel(proof));
+			solver.getEngine().setProofWriter(writer);
+			final ArrayList<LiteralList> inputClauses = new ArrayList<>(cnf.getClauses());
+			for (int j = 0; j < 20; j++) {
+				if ((solver.getDynamicFormula().size() > cnf.getClauses().size()) && random.nextBoolean()) {
+					solver.getDynamicFormula().pop();
+				} else {
+					final LiteralList clause = new LiteralList(createRandomLiterals(variableCount, 1 + random.nextInt(3),
+						random));
+					inputClauses.add(clause);
+					try {
+						solver.getDynamicFormula().push(clause);
+					} catch (final RuntimeContradictionException e) {
+						continue;
+					}
+				}
+				final int[] assumptions = createRandomLiterals(variableCount, 1 + random.nextInt(3), random);
+				if (solver.hasSolution(assumptions) == SatResult.FALSE) {
+					final int[] core = solver.getEngine().getCore();
+					writer.flush();
+					final DratProofChecker checker = new DratProofChecker(inputClauses);
+					assertTrue(checker.check(new ByteArrayInputStream(proof.toByteArray())));
+					assertTrue(core.length == 0 ? checker.isRefuted() : checker.isContradicting(core));
+				}
+			}
+		}
+	}
+
+}
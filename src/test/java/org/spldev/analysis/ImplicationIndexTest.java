@@ -0,0 +1,132 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.*;
+
+public class ImplicationIndexTest {
+
+	private static final Path modelDirectory = Paths.get("src/test/resources/testFeatureModels");
+
+	@Test
+	public void binaryImplications() {
+		final ImplicationIndex index = new ImplicationIndex(createCNF(5, new int[] { -1, 2 }, new int[] { -2, 3 },
+			new int[] { -3, 1 }, new int[] { -3, 4 }, new int[] { 4, 5 }));
+		assertTrue(index.impliesByIndex(1, 4));
+		assertTrue(index.impliesByIndex(-4, -2));
+		assertTrue(index.impliesByIndex(-4, 5));
+		assertTrue(index.impliesByIndex(2, 2));
+		assertFalse(index.impliesByIndex(4, 1));
+		assertFalse(index.implies(4, 1));
+		assertFalse(index.implies(5, -4));
+		assertTrue(index.isEquivalentByIndex(1, 3));
+		assertTrue(index.isEquivalentByIndex(-2, -3));
+		assertFalse(index.isEquivalentByIndex(1, -3));
+		assertEquals(0, index.getSolverCalls());
+		assertThrows(IllegalArgumentException.class, () -> index.implies(6, 1));
+		assertThrows(IllegalArgumentException.class, () -> index.implies(1, 0));
+	}
+
+	@Test
+	public void solverFallback() {
+		final ImplicationIndex index = new ImplicationIndex(createCNF(4, new int[] { -1, 2, 3 }, new int[] { -2, 4 },
+			new int[] { -3, 4 }));
+		assertFalse(index.impliesByIndex(1, 4));
+		assertTrue(index.implies(1, 4));
+		assertTrue(index.implies(1, 4));
+		assertEquals(1, index.getSolverCalls());
+
+		index.setUseSolver(false);
+		assertFalse(index.implies(-4, -1));
+		index.setUseSolver(true);
+		assertTrue(index.implies(-4, -1));
+	}
+
+	@Test
+	public void fixedLiterals() {
+		final ImplicationIndex index = new ImplicationIndex(createCNF(3, new int[] { 1 }, new int[] { -1, -2 },
+			new int[] { 2, 3 }));
+		assertTrue(index.impliesByIndex(-3, 1));
+		assertTrue(index.impliesByIndex(2, -3));
+		assertTrue(index.impliesByIndex(3, -2));
+		assertFalse(index.implies(1, -3));
+		assertFalse(index.implies(-2, -3));
+
+		final ImplicationIndex contradiction = new ImplicationIndex(createCNF(2, new int[] { 1 }, new int[] { -1,
+			2 }, new int[] { -2 }));
+		assertTrue(contradiction.impliesByIndex(1, -1));
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 300; i++) {
+			final int variableCount = 1 + random.nextInt(10);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(3 * variableCount), random);
+			final CDCLSolver solver = new CDCLSolver(cnf);
+			final ImplicationIndex index = new ImplicationIndex(cnf);
+			for (int literal = -variableCount; literal <= variableCount; literal++) {
+				for (int impliedLiteral = -variableCount; impliedLiteral <= variableCount; impliedLiteral++) {
+					if ((literal != 0) && (impliedLiteral != 0)) {
+						final boolean expected = solver.getEngine().solve(literal, -impliedLiteral) == SatResult.FALSE;
+						assertEquals(expected, index.implies(literal, impliedLiteral), i + ": " + literal + " -> "
+							+ impliedLiteral);
+						if (index.impliesByIndex(literal, impliedLiteral)) {
+							assertTrue(expected, i + ": " + literal + " -> " + impliedLiteral);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void featureModels() {
+		final Random random = new Random(2);
+		for (final String name : Arrays.asList("basic", "simple", "car", "gpl_medium_model", "berkeley_db_model")) {
+			final ModelRepresentation rep = ModelRepresentation.load(modelDirectory.resolve(name + ".xml"))
+				.orElseThrow();
+			final CNF cnf = rep.get(CNFProvider.fromFormula());
+			final int variableCount = cnf.getVariableMap().getMaxIndex();
+			final CDCLSolver solver = new CDCLSolver(cnf);
+			final ImplicationIndex index = new ImplicationIndex(cnf);
+			for (int i = 0; i < 1000; i++) {
+				final int literal = (random.nextBoolean() ? 1 : -1) * (1 + random.nextInt(variableCount));
+				final int impliedLiteral = (random.nextBoolean() ? 1 : -1) * (1 + random.nextInt(variableCount));
+				assertEquals(solver.getEngine().solve(literal, -impliedLiteral) == SatResult.FALSE, index.implies(
+					literal, impliedLiteral), name);
+			}
+		}
+	}
+
+}
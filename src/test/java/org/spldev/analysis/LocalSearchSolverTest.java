@@ -0,0 +1,169 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.sls.solver.*;
+import org.spldev.analysis.sls.solver.LocalSearchEngine.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.*;
+import org.spldev.formula.structure.atomic.literal.*;
+
+public class LocalSearchSolverTest {
+
+	private static final Path modelDirectory = Paths.get("src/test/resources/testFeatureModels");
+
+	@Test
+	public void satisfiable() {
+		final CNF cnf = createPlantedCNF(1000, 4000, new Random(1));
+		for (final Strategy strategy : Strategy.values()) {
+			final LocalSearchSolver solver = new LocalSearchSolver(cnf);
+			solver.getEngine().setStrategy(strategy);
+			assertEquals(SatResult.TRUE, solver.hasSolution(), strategy.name());
+			assertFalse(solver.isHandedOver());
+			assertTrue(isSolution(solver.getSolution(), cnf), strategy.name());
+			assertEquals(1000, solver.getSolution().size());
+		}
+	}
+
+	@Test
+	public void assumptions() {
+		final CNF cnf = createPlantedCNF(200, 600, new Random(2));
+		cnf.addClause(new LiteralList(new int[] { -1, 2 }));
+		cnf.addClause(new LiteralList(new int[] { -2, 3 }));
+		final LocalSearchSolver solver = new LocalSearchSolver(cnf);
+		solver.getAssumptions().push(1);
+		if (solver.hasSolution() == SatResult.TRUE) {
+			assertTrue(isSolution(solver.getSolution(), cnf));
+			assertTrue(solver.getSolution().containsAllLiterals(1, 2, 3));
+		}
+		assertTrue(solver.getImpliedLiterals().containsAllLiterals(1, 2, 3));
+
+		solver.getAssumptions().push(-3);
+		assertEquals(SatResult.FALSE, solver.hasSolution());
+		assertNull(solver.getSolution());
+		assertNull(solver.getImpliedLiterals());
+	}
+
+	@Test
+	public void dynamicFormula() {
+		final LocalSearchSolver solver = new LocalSearchSolver(createCNF(3, new int[] { 1, 2 }, new int[] { -1,
+			3 }));
+		assertEquals(SatResult.TRUE, solver.hasSolution());
+		solver.getDynamicFormula().push(new LiteralList(new int[] { -3 }));
+		solver.getDynamicFormula().push(new LiteralList(new int[] { -2 }));
+		assertEquals(SatResult.FALSE, solver.hasSolution());
+		solver.getDynamicFormula().pop();
+		assertEquals(SatResult.TRUE, solver.hasSolution());
+		assertTrue(solver.getSolution().containsAllLiterals(-1, 2, -3));
+	}
+
+	@Test
+	public void hybrid() {
+		final CNF cnf = createRandom3CNF(100, 600, new Random(3));
+		final LocalSearchSolver solver = new LocalSearchSolver(cnf);
+		solver.getEngine().setStallLimit(1000);
+		solver.getEngine().setMaxRestarts(1);
+		assertEquals(SatResult.TIMEOUT, solver.hasSolution());
+		assertFalse(solver.isHandedOver());
+		assertNotNull(solver.getEngine().getBestAssignment());
+		assertTrue(solver.getEngine().getBestUnsatisfiedCount() > 0);
+
+		solver.setHybrid(true);
+		assertEquals(SatResult.FALSE, solver.hasSolution());
+		assertTrue(solver.isHandedOver());
+
+		final CNF satisfiableCNF = createPlantedCNF(300, 1200, new Random(4));
+		final LocalSearchSolver hybridSolver = new LocalSearchSolver(satisfiableCNF);
+		hybridSolver.setHybrid(true);
+		hybridSolver.getEngine().setMaxFlips(10);
+		assertEquals(SatResult.TRUE, hybridSolver.hasSolution());
+		assertTrue(hybridSolver.isHandedOver());
+		assertTrue(isSolution(hybridSolver.getSolution(), satisfiableCNF));
+	}
+
+	@Test
+	public void seed() {
+		final CNF cnf = createPlantedCNF(300, 1000, new Random(5));
+		final LocalSearchSolver solver1 = new LocalSearchSolver(cnf);
+		final LocalSearchSolver solver2 = new LocalSearchSolver(cnf);
+		solver1.setSeed(42);
+		solver2.setSeed(42);
+		assertEquals(SatResult.TRUE, solver1.hasSolution());
+		assertEquals(SatResult.TRUE, solver2.hasSolution());
+		assertEquals(solver1.getSolution(), solver2.getSolution());
+		assertEquals(Long.valueOf(solver1.getEngine().getNumberOfFlips()), Long.valueOf(solver2.getEngine()
+			.getNumberOfFlips()));
+	}
+
+	@Test
+	public void budget() {
+		final LocalSearchSolver solver = new LocalSearchSolver(createRandom3CNF(200, 920, new Random(6)));
+		final Budget budget = Budget.ofPropagations(5000);
+		solver.setBudget(budget);
+		solver.setHybrid(true);
+		assertEquals(SatResult.TIMEOUT, solver.hasSolution());
+		assertTrue(budget.isExhausted());
+		assertTrue(solver.getEngine().getNumberOfFlips() <= 6024);
+	}
+
+	@Test
+	public void featureModels() {
+		for (final String name : Arrays.asList("basic", "simple", "car", "gpl_medium_model", "berkeley_db_model")) {
+			final ModelRepresentation rep = ModelRepresentation.load(modelDirectory.resolve(name + ".xml"))
+				.orElseThrow();
+			final CNF cnf = rep.get(CNFProvider.fromFormula());
+			final LocalSearchSolver solver = new LocalSearchSolver(cnf);
+			solver.setHybrid(true);
+			assertEquals(SatResult.TRUE, solver.hasSolution(), name);
+			assertTrue(isSolution(solver.getSolution(), cnf), name);
+		}
+	}
+
+	private static CNF createPlantedCNF(int variableCount, int clauseCount, Random random) {
+		final boolean[] solution = new boolean[variableCount + 1];
+		for (int variable = 1; variable <= variableCount; variable++) {
+			solution[variable] = random.nextBoolean();
+		}
+		final CNF cnf = new CNF(VariableMap.fixedSize(variableCount));
+		while (cnf.getClauses().size() < clauseCount) {
+			final int[] clause = createRandomLiterals(variableCount, 3, random);
+			for (final int literal : clause) {
+				if ((literal > 0) == solution[Math.abs(literal)]) {
+					cnf.addClause(new LiteralList(clause));
+					break;
+				}
+			}
+		}
+		return cnf;
+	}
+
+}
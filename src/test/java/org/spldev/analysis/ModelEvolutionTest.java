@@ -0,0 +1,198 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.formula.*;
+import org.spldev.formula.io.dimacs.*;
+import org.spldev.formula.structure.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.util.data.*;
+import org.spldev.util.io.*;
+import org.spldev.util.io.format.*;
+import org.spldev.util.job.*;
+
+public class ModelEvolutionTest {
+
+	private static final Path modelDirectory = Paths.get("src/test/resources/models_stability_light");
+
+	@Test
+	public void delta() {
+		final CNF oldCNF = createCNF(Arrays.asList("a", "b", "c", "d"), new int[] { 1, 2 }, new int[] { -2, 3 },
+			new int[] { 3, 4 });
+		final CNF newCNF = createCNF(Arrays.asList("d", "c", "b", "e"), new int[] { 2, -3 }, new int[] { 2, 1, 4 },
+			new int[] { 3, 4 });
+		final CNFDelta delta = new CNFDelta(oldCNF, newCNF);
+		assertEquals(0, delta.mapVariable(1));
+		assertEquals(3, delta.mapVariable(2));
+		assertEquals(-2, delta.mapLiteral(-3));
+		assertEquals(new LiteralList(3, -2), delta.mapLiterals(new LiteralList(1, 2, -3)));
+		assertEquals(new LiteralList(4), delta.getAddedVariables());
+		assertEquals(new LiteralList(1), delta.getRemovedVariables());
+		assertEquals(Arrays.asList(new LiteralList(2, 1, 4), new LiteralList(3, 4)), delta.getAddedClauses());
+		assertEquals(Arrays.asList(new LiteralList(1, 2), new LiteralList(3, 4)), delta.getRemovedClauses());
+		assertEquals(new LiteralList(1, 2, 3, 4), delta.getChangedVariables());
+		assertFalse(delta.isEmpty());
+		assertTrue(new CNFDelta(oldCNF, oldCNF).isEmpty());
+	}
+
+	@Test
+	public void unchangedComponents() throws Exception {
+		final List<String> names = Arrays.asList("a", "b", "c", "d", "e", "f");
+		final CNF oldCNF = createCNF(names, new int[] { 1 }, new int[] { -1, 2 }, new int[] { 4, 5 },
+			new int[] { -4, 6 });
+		final CDCLSolver oldSolver = new CDCLSolver(oldCNF);
+		final LiteralList oldCoreDead = new CoreDeadAnalysis(oldSolver).execute(oldSolver, new NullMonitor());
+		assertEquals(new LiteralList(1, 2), oldCoreDead);
+
+		final CNF newCNF = createCNF(names, new int[] { 1 }, new int[] { -1, 2 }, new int[] { 4, 5 },
+			new int[] { -4, 6 }, new int[] { -5 });
+		final ModelEvolution evolution = new ModelEvolution(oldCNF, oldSolver, newCNF);
+		assertTrue(evolution.isIncremental());
+		assertEquals(new LiteralList(1, 2, 4, -5, 6), evolution.updateCoreDead(oldCoreDead, new NullMonitor()));
+		assertEquals(3, evolution.getRecomputedVariableCount());
+
+		final CNF removedCNF = createCNF(names, new int[] { -1, 2 }, new int[] { 4, 5 }, new int[] { -4, 6 });
+		final ModelEvolution removedEvolution = new ModelEvolution(oldCNF, oldSolver, removedCNF);
+		assertEquals(new LiteralList(), removedEvolution.updateCoreDead(oldCoreDead, new NullMonitor()));
+		assertEquals(2, removedEvolution.getRecomputedVariableCount());
+
+		final CNF unsatisfiableCNF = createCNF(names, new int[] { 1 }, new int[] { -1, 2 }, new int[] { -2 });
+		assertNull(new ModelEvolution(oldCNF, oldSolver, unsatisfiableCNF).updateCoreDead(oldCoreDead,
+			new NullMonitor()));
+	}
+
+	@Test
+	public void addedVariables() throws Exception {
+		final List<String> names = Arrays.asList("a", "b", "c", "d", "e", "f");
+		final CNF oldCNF = createCNF(names, new int[] { 1 }, new int[] { -1, 2 }, new int[] { -2, 3, 4 },
+			new int[] { -4, 5, 6 });
+		final CDCLSolver oldSolver = new CDCLSolver(oldCNF);
+		final LiteralList oldCoreDead = new CoreDeadAnalysis(oldSolver).execute(oldSolver, new NullMonitor());
+		final List<String> newNames = Arrays.asList("a", "b", "c", "d", "e", "f", "g");
+
+		final CNF separateCNF = createCNF(newNames, new int[] { 1 }, new int[] { -1, 2 }, new int[] { -2, 3, 4 },
+			new int[] { -4, 5, 6 }, new int[] { -7 });
+		final ModelEvolution separateEvolution = new ModelEvolution(oldCNF, oldSolver, separateCNF);
+		assertTrue(separateEvolution.isIncremental());
+		assertEquals(new LiteralList(1, 2, -7), separateEvolution.updateCoreDead(oldCoreDead, new NullMonitor()));
+		assertEquals(1, separateEvolution.getRecomputedVariableCount());
+
+		final CNF connectedCNF = createCNF(newNames, new int[] { 1 }, new int[] { -1, 2 }, new int[] { -2, 3, 4 },
+			new int[] { -4, 5, 6 }, new int[] { -3, 7 }, new int[] { -7 });
+		final ModelEvolution connectedEvolution = new ModelEvolution(oldCNF, oldSolver, connectedCNF);
+		assertFalse(connectedEvolution.isIncremental());
+		assertEquals(0, connectedEvolution.getTransferredClauseCount());
+		assertEquals(new LiteralList(1, 2, -3, 4, -7), connectedEvolution.updateCoreDead(oldCoreDead,
+			new NullMonitor()));
+		assertEquals(7, connectedEvolution.getRecomputedVariableCount());
+	}
+
+	@Test
+	public void randomVersions() throws Exception {
+		final Random random = new Random(1);
+		for (int i = 0; i < 300; i++) {
+			final int variableCount = 4 + random.nextInt(20);
+			final List<String> oldNames = new ArrayList<>();
+			for (int variable = 1; variable <= variableCount; variable++) {
+				oldNames.add("v" + variable);
+			}
+			final CNF oldCNF = createRandomCNF(oldNames, random.nextInt(3 * variableCount), random);
+
+			final List<String> newNames = new ArrayList<>(oldNames);
+			Collections.shuffle(newNames, random);
+			for (int j = random.nextInt(3); j > 0; j--) {
+				newNames.remove(newNames.size() - 1);
+			}
+			for (int j = random.nextInt(3); j > 0; j--) {
+				newNames.add("w" + j);
+			}
+			final VariableMap newVariables = VariableMap.fromNames(newNames);
+			final CNF newCNF = new CNF(newVariables);
+			final int mode = random.nextInt(3);
+			for (final LiteralList clause : oldCNF.getClauses()) {
+				if ((mode == 0) || (random.nextInt(10) != 0)) {
+					final Result<LiteralList> adaptedClause = clause.adapt(oldCNF.getVariableMap(), newVariables);
+					if (adaptedClause.isPresent()) {
+						newCNF.addClause(adaptedClause.get());
+					}
+				}
+			}
+			if (mode != 1) {
+				newCNF.addClauses(createRandomCNF(newNames, random.nextInt(4), random).getClauses());
+			}
+
+			final CDCLSolver oldSolver = new CDCLSolver(oldCNF);
+			final LiteralList oldCoreDead = new CoreDeadAnalysis(oldSolver).execute(oldSolver, new NullMonitor());
+			final CDCLSolver newSolver = new CDCLSolver(newCNF);
+			final LiteralList expectedCoreDead = new CoreDeadAnalysis(newSolver).execute(newSolver,
+				new NullMonitor());
+
+			final ModelEvolution evolution = new ModelEvolution(oldCNF, oldSolver, newCNF);
+			assertEquals(expectedCoreDead, evolution.updateCoreDead(oldCoreDead, new NullMonitor()), String
+				.valueOf(i));
+			for (final CDCLClause learnt : evolution.getSolver().getEngine().getLearnedClauses()) {
+				assertEquals(SatResult.FALSE, newSolver.getEngine().solve(learnt.getLiterals().negate()
+					.getLiterals()), String.valueOf(i));
+			}
+		}
+	}
+
+	@Test
+	public void featureModels() throws Exception {
+		for (final String name : Arrays.asList("busybox_monthlySnapshot", "financialServices01")) {
+			final Path directory = modelDirectory.resolve(name);
+			final CNF oldCNF = loadCNF(directory.resolve("2007-05-20_17-12-43"));
+			final CNF newCNF = loadCNF(directory.resolve("2010-05-02_14-17-07"));
+
+			final CDCLSolver oldSolver = new CDCLSolver(oldCNF);
+			final LiteralList oldCoreDead = new CoreDeadAnalysis(oldSolver).execute(oldSolver, new NullMonitor());
+			final CDCLSolver newSolver = new CDCLSolver(newCNF);
+			final LiteralList expectedCoreDead = new CoreDeadAnalysis(newSolver).execute(newSolver,
+				new NullMonitor());
+
+			final ModelEvolution evolution = new ModelEvolution(oldCNF, oldSolver, newCNF);
+			assertFalse(evolution.getDelta().isEmpty(), name);
+			// most variables are in the component of an added feature
+			assertFalse(evolution.isIncremental(), name);
+			assertEquals(expectedCoreDead, evolution.updateCoreDead(oldCoreDead, new NullMonitor()), name);
+		}
+	}
+
+	private static CNF loadCNF(Path directory) {
+		final Formula formula = FileHandler.load(directory.resolve("clean.dimacs"), FormatSupplier.of(
+			new DIMACSFormat())).orElseThrow();
+		return new ModelRepresentation(formula).get(CNFProvider.fromFormula());
+	}
+
+}
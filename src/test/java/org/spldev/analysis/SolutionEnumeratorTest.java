@@ -0,0 +1,107 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.bdd.solver.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+
+public class SolutionEnumeratorTest {
+
+	@Test
+	public void simpleFormulas() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(3, new int[] { 1, 2 }, new int[] { -1, 3 }));
+		final List<LiteralList> solutions = new SolutionEnumerator(solver).stream().collect(Collectors.toList());
+		assertEquals(4, solutions.size());
+		assertEquals(4, new HashSet<>(solutions).size());
+		for (final LiteralList solution : solutions) {
+			assertEquals(3, solution.size());
+		}
+		assertEquals(2, new SolutionEnumerator(solver, new LiteralList(1)).stream().count());
+		assertEquals(3, new SolutionEnumerator(solver, new LiteralList(1, 2)).stream().count());
+
+		assertFalse(new SolutionEnumerator(new CDCLSolver(createCNF(1, new int[] { 1 }, new int[] { -1 })))
+			.hasNext());
+		final SolutionEnumerator emptyProjection = new SolutionEnumerator(solver, new LiteralList());
+		assertEquals(0, emptyProjection.next().size());
+		assertFalse(emptyProjection.hasNext());
+		assertThrows(NoSuchElementException.class, emptyProjection::next);
+	}
+
+	@Test
+	public void assumptions() {
+		final CDCLSolver solver = new CDCLSolver(createCNF(3, new int[] { 1, 2 }, new int[] { -1, 3 }));
+		solver.getAssumptions().push(1);
+		final Iterator<LiteralList> iterator = new SolutionEnumerator(solver);
+		assertTrue(iterator.hasNext());
+		assertEquals(1, solver.getAssumptions().size());
+		final LiteralList first = iterator.next();
+		assertEquals(1, first.getLiterals()[0]);
+		final LiteralList second = iterator.next();
+		assertEquals(1, second.getLiterals()[0]);
+		assertNotEquals(first, second);
+		assertFalse(iterator.hasNext());
+		assertEquals(1, solver.getAssumptions().size());
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(0);
+		for (int i = 0; i < 300; i++) {
+			final int variableCount = 1 + random.nextInt(10);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(variableCount * 3), random);
+			final SolutionSolver<LiteralList> solver = random.nextBoolean() ? new CDCLSolver(cnf)
+				: new BDDSolver(cnf);
+			final int[] projection = random.ints(random.nextInt(variableCount + 1), 1, variableCount + 1).toArray();
+			final boolean projected = random.nextBoolean();
+			final SolutionEnumerator enumerator = projected
+				? new SolutionEnumerator(solver, new LiteralList(projection))
+				: new SolutionEnumerator(solver);
+			final Set<LiteralList> solutions = new HashSet<>();
+			enumerator.forEachRemaining(solution -> assertTrue(solutions.add(solution)));
+			assertEquals(findAllBruteForce(cnf, projected ? projection : null), solutions);
+		}
+	}
+
+	private static Set<LiteralList> findAllBruteForce(CNF cnf, int[] projection) {
+		final int variableCount = cnf.getVariableMap().getMaxIndex();
+		final int[] variables = projection == null
+			? IntStream.rangeClosed(1, variableCount).toArray()
+			: IntStream.of(projection).distinct().sorted().toArray();
+		final Set<LiteralList> solutions = new HashSet<>();
+		for (final LiteralList solution : getAllSolutions(cnf)) {
+			final int[] literals = IntStream.of(variables).map(variable -> solution.get(variable - 1)).toArray();
+			solutions.add(new LiteralList(literals, LiteralList.Order.UNORDERED, false));
+		}
+		return solutions;
+	}
+
+}
@@ -0,0 +1,113 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.*;
+import org.spldev.util.data.*;
+import org.spldev.util.job.*;
+
+public class SolverPoolTest {
+
+	@Test
+	public void borrowAndRelease() throws Exception {
+		final SolverPool<CDCLSolver> pool = new SolverPool<>(new CDCLSolver(createCNF(2, new int[] { 1, 2 })),
+			CDCLSolver::clone, 2);
+		final CDCLSolver first = pool.borrow();
+		final CDCLSolver second = pool.borrow();
+		assertNotSame(first, second);
+		assertEquals(2, pool.size());
+
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<CDCLSolver> third = executor.submit(pool::borrow);
+			assertThrows(TimeoutException.class, () -> third.get(100, TimeUnit.MILLISECONDS));
+			pool.release(first);
+			assertEquals(SatResult.TRUE, third.get(10, TimeUnit.SECONDS).hasSolution());
+			assertEquals(2, pool.size());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		second.getAssumptions().push(-1);
+		pool.release(second);
+		assertEquals(1, pool.size());
+		final CDCLSolver fourth = pool.borrow();
+		assertEquals(0, fourth.getAssumptions().size());
+		pool.release(fourth);
+		pool.clear();
+		assertEquals(1, pool.size());
+	}
+
+	@Test
+	public void concurrentAnalyses() throws Exception {
+		final CNF cnf = createCNF(4, new int[] { 1, 2 }, new int[] { -1, 3 }, new int[] { -2, -3, 4 });
+		final SolverPool<CDCLSolver> pool = new SolverPool<>(new CDCLSolver(cnf), CDCLSolver::clone, 3);
+		final CDCLSolver referenceSolver = new CDCLSolver(cnf);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				final Random random = new Random(i);
+				final int[][] assumptions = new int[50][];
+				final boolean[] expected = new boolean[assumptions.length];
+				for (int j = 0; j < assumptions.length; j++) {
+					assumptions[j] = random.ints(random.nextInt(3), 1, 5).map(variable -> random.nextBoolean()
+						? variable
+						: -variable).toArray();
+					expected[j] = referenceSolver.hasSolution(assumptions[j]) == SatResult.TRUE;
+				}
+				futures.add(executor.submit(() -> {
+					final HasSolutionAnalysis analysis = new HasSolutionAnalysis();
+					analysis.setSolverPool(pool);
+					for (int j = 0; j < assumptions.length; j++) {
+						analysis.getLiteralAssumptions().clear();
+						analysis.getLiteralAssumptions().pushAll(assumptions[j]);
+						assertEquals(expected[j], analysis.execute(new Cache(), new NullMonitor()));
+					}
+				}));
+			}
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertTrue(pool.size() <= 3);
+		final CDCLSolver solver = pool.borrow();
+		assertEquals(0, solver.getAssumptions().size());
+		assertEquals(cnf.getClauses().size(), solver.getDynamicFormula().size());
+		pool.release(solver);
+	}
+
+}
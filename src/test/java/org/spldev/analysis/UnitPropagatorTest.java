@@ -0,0 +1,149 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.*;
+import org.spldev.clauses.*;
+import org.spldev.util.job.*;
+
+public class UnitPropagatorTest {
+
+	@Test
+	public void impliedLiterals() {
+		final UnitPropagator propagator = new UnitPropagator(createCNF(5, new int[] { 1 }, new int[] { -1, 2 },
+			new int[] { -2, -3, 4 }, new int[] { -4, -5 }));
+		assertTrue(propagator.isOk());
+		assertEquals(2, propagator.getRootTrailSize());
+
+		final LiteralList impliedLiterals = propagator.getImpliedLiterals(new LiteralList(new int[] { 3 }));
+		assertNotNull(impliedLiterals);
+		assertTrue(impliedLiterals.containsAllLiterals(1, 2, 3, 4, -5));
+		assertEquals(5, impliedLiterals.size());
+		assertEquals(2, propagator.getTrailSize());
+
+		assertNull(propagator.getImpliedLiterals(new LiteralList(new int[] { 5, 3 })));
+		assertTrue(propagator.isConflicting(new int[] { 5, 3 }, 2));
+		assertEquals(2, propagator.getTrailSize());
+		assertFalse(propagator.isConflicting(new int[] { 5 }, 1));
+		assertThrows(IllegalArgumentException.class, () -> propagator.assign(6));
+	}
+
+	@Test
+	public void checkpoints() {
+		final UnitPropagator propagator = new UnitPropagator(createCNF(4, new int[] { -1, 2 }, new int[] { -2,
+			3 }, new int[] { -3, -4 }));
+		final int checkpoint = propagator.getTrailSize();
+		assertTrue(propagator.assign(1));
+		assertEquals(1, propagator.getValue(3));
+		assertEquals(-1, propagator.getValue(4));
+		final int innerCheckpoint = propagator.getTrailSize();
+		assertFalse(propagator.assign(4));
+		assertNull(propagator.getConflictClause());
+		propagator.undo(innerCheckpoint);
+		propagator.undo(checkpoint);
+		assertEquals(0, propagator.getValue(3));
+
+		assertTrue(propagator.assign(4));
+		assertEquals(-1, propagator.getValue(1));
+		propagator.undo(checkpoint);
+		assertEquals(0, propagator.getValue(1));
+		assertEquals(0, propagator.getValue(4));
+	}
+
+	@Test
+	public void conflictClause() {
+		final UnitPropagator propagator = new UnitPropagator(createCNF(3, new int[] { -1, 2 }, new int[] { -1,
+			3 }, new int[] { -2, -3 }));
+		assertFalse(propagator.assign(1));
+		final LiteralList conflictClause = propagator.getConflictClause();
+		assertNotNull(conflictClause);
+		assertTrue(conflictClause.containsAllLiterals(-1, 2) || conflictClause.containsAllLiterals(-1, 3)
+			|| conflictClause.containsAllLiterals(-2, -3));
+		propagator.undo(0);
+		assertEquals(0, propagator.getValue(1));
+		assertTrue(propagator.assign(-1));
+	}
+
+	@Test
+	public void contradictingUnits() {
+		final UnitPropagator propagator = new UnitPropagator(createCNF(2, new int[] { 1 }, new int[] { -1, 2 },
+			new int[] { -2 }));
+		assertFalse(propagator.isOk());
+		assertNull(propagator.getImpliedLiterals(new LiteralList()));
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 200; i++) {
+			final int variableCount = 5 + random.nextInt(20);
+			final CNF cnf = createRandomCNF(variableCount, random.nextInt(3 * variableCount), random);
+			final UnitPropagator propagator = new UnitPropagator(cnf);
+			final CDCLEngine engine = new CDCLEngine(variableCount);
+			for (final LiteralList clause : cnf.getClauses()) {
+				engine.addClause(clause.getLiterals());
+			}
+			for (int j = 0; j < 10; j++) {
+				final int[] assumptions = createRandomLiterals(variableCount, random.nextInt(4), random);
+				final LiteralList impliedLiterals = propagator.getImpliedLiterals(assumptions, assumptions.length);
+				final int[] expectedLiterals = engine.getImpliedLiterals(assumptions, assumptions.length);
+				if (expectedLiterals == null) {
+					assertNull(impliedLiterals);
+				} else {
+					assertNotNull(impliedLiterals);
+					assertEquals(new LiteralList(expectedLiterals), new LiteralList(impliedLiterals.getLiterals()));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void preFilter() {
+		final CNF cnf = createCNF(3, new int[] { -1, 2 }, new int[] { -2, 3 });
+		final CDCLSolver solver = new CDCLSolver(cnf);
+		final HasSolutionAnalysis analysis = new HasSolutionAnalysis(solver);
+		analysis.setUnitPropagator(new UnitPropagator(cnf));
+		analysis.setBudget(Budget.ofConflicts(0));
+		analysis.setThrowTimeoutException(false);
+		analysis.getLiteralAssumptions().pushAll(1, -3);
+		assertFalse(analysis.execute(solver, new NullMonitor()));
+		assertFalse(analysis.isTimeoutOccured());
+
+		analysis.getLiteralAssumptions().clear();
+		analysis.getLiteralAssumptions().push(1);
+		assertFalse(analysis.execute(solver, new NullMonitor()));
+		assertTrue(analysis.isTimeoutOccured());
+
+		analysis.setBudget(null);
+		assertTrue(analysis.execute(solver, new NullMonitor()));
+	}
+
+}
@@ -0,0 +1,167 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.clauses;
+
+import java.util.*;
+
+import org.spldev.formula.structure.atomic.literal.*;
+
+public class CNFCreator {
+
+	public static CNF createCNF(int variableCount, int[]... clauses) {
+		return createCNF(VariableMap.fixedSize(variableCount), clauses);
+	}
+
+	public static CNF createCNF(List<String> names, int[]... clauses) {
+		return createCNF(VariableMap.fromNames(names), clauses);
+	}
+
+	private static CNF createCNF(VariableMap variables, int[]... clauses) {
+		final CNF cnf = new CNF(variables);
+		for (final int[] clause : clauses) {
+			cnf.addClause(new LiteralList(clause));
+		}
+		return cnf;
+	}
+
+	/**
+	 * Creates a CNF with random clauses that contain one to three literals. A
+	 * clause may contain a variable multiple times.
+	 */
+	public static CNF createRandomCNF(int variableCount, int clauseCount, Random random) {
+		return createRandomCNF(VariableMap.fixedSize(variableCount), clauseCount, 3, random);
+	}
+
+	public static CNF createRandomCNF(int variableCount, int clauseCount, int maxClauseLength, Random random) {
+		return createRandomCNF(VariableMap.fixedSize(variableCount), clauseCount, maxClauseLength, random);
+	}
+
+	public static CNF createRandomCNF(List<String> names, int clauseCount, Random random) {
+		return createRandomCNF(VariableMap.fromNames(names), clauseCount, 3, random);
+	}
+
+	private static CNF createRandomCNF(VariableMap variables, int clauseCount, int maxClauseLength,
+		Random random) {
+		final CNF cnf = new CNF(variables);
+		final int variableCount = variables.getMaxIndex();
+		for (int i = 0; i < clauseCount; i++) {
+			cnf.addClause(new LiteralList(createRandomLiterals(variableCount, 1 + random.nextInt(maxClauseLength),
+				random)));
+		}
+		return cnf;
+	}
+
+	/**
+	 * Creates a CNF with random clauses that contain three distinct variables.
+	 * For a ratio of clauses to variables of about 4.26, such formulas are hard
+	 * to solve.
+	 */
+	public static CNF createRandom3CNF(int variableCount, int clauseCount, Random random) {
+		final CNF cnf = new CNF(VariableMap.fixedSize(variableCount));
+		for (int i = 0; i < clauseCount; i++) {
+			final int[] clause = new int[3];
+			for (int j = 0; j < clause.length; j++) {
+				int variable;
+				do {
+					variable = random.nextInt(variableCount) + 1;
+				} while (contains(clause, j, variable));
+				clause[j] = random.nextBoolean() ? variable : -variable;
+			}
+			cnf.addClause(new LiteralList(clause));
+		}
+		return cnf;
+	}
+
+	private static boolean contains(int[] clause, int length, int variable) {
+		for (int i = 0; i < length; i++) {
+			if (Math.abs(clause[i]) == variable) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates the given number of random literals. A variable may occur multiple
+	 * times.
+	 */
+	public static int[] createRandomLiterals(int variableCount, int literalCount, Random random) {
+		return random.ints(literalCount, 1, variableCount + 1).map(variable -> random.nextBoolean() ? variable
+			: -variable).toArray();
+	}
+
+	public static boolean isSolution(LiteralList solution, CNF cnf) {
+		return cnf.getClauses().stream().allMatch(clause -> solution.containsAny(clause));
+	}
+
+	/**
+	 * Computes all solutions of a CNF by enumerating all assignments. Only
+	 * feasible for CNFs with few variables.
+	 */
+	public static List<LiteralList> getAllSolutions(CNF cnf) {
+		final int variableCount = cnf.getVariableMap().getMaxIndex();
+		final List<LiteralList> solutions = new ArrayList<>();
+		for (long bits = 0; bits < (1L << variableCount); bits++) {
+			final int[] literals = new int[variableCount];
+			for (int variable = 1; variable <= variableCount; variable++) {
+				literals[variable - 1] = ((bits >>> (variable - 1)) & 1) != 0 ? variable : -variable;
+			}
+			final LiteralList solution = new LiteralList(literals, LiteralList.Order.INDEX, false);
+			if (isSolution(solution, cnf)) {
+				solutions.add(solution);
+			}
+		}
+		return solutions;
+	}
+
+	/**
+	 * Counts the solutions of a CNF by enumerating all assignments. Only
+	 * feasible for CNFs with few variables.
+	 */
+	public static long countBruteForce(CNF cnf, int... assumptions) {
+		final int variableCount = cnf.getVariableMap().getMaxIndex();
+		long count = 0;
+		outer: for (int assignment = 0; assignment < (1 << variableCount); assignment++) {
+			for (final int literal : assumptions) {
+				if (((assignment >> (Math.abs(literal) - 1)) & 1) != (literal > 0 ? 1 : 0)) {
+					continue outer;
+				}
+			}
+			for (final LiteralList clause : cnf.getClauses()) {
+				boolean satisfied = false;
+				for (final int literal : clause.getLiterals()) {
+					if (((assignment >> (Math.abs(literal) - 1)) & 1) == (literal > 0 ? 1 : 0)) {
+						satisfied = true;
+						break;
+					}
+				}
+				if (!satisfied) {
+					continue outer;
+				}
+			}
+			count++;
+		}
+		return count;
+	}
+
+}
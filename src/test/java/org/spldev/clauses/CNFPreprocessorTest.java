@@ -0,0 +1,195 @@
+/* -----------------------------------------------------------------------------
+ * Formula Lib - Library to represent and edit propositional formulas.
+ * Copyright (C) 2021-2022  Sebastian Krieter
+ * 
+ * This file is part of Formula Lib.
+ * 
+ * Formula Lib is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * Formula Lib is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Formula Lib.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/formula> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.clauses;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.spldev.clauses.CNFCreator.*;
+
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+import org.spldev.analysis.cdcl.solver.*;
+import org.spldev.analysis.solver.SatSolver.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.clauses.preprocessing.*;
+import org.spldev.formula.*;
+import org.spldev.util.job.*;
+
+public class CNFPreprocessorTest {
+
+	private static final Path modelDirectory = Paths.get("src/test/resources/testFeatureModels");
+
+	@Test
+	public void subsumption() {
+		final CNFPreprocessor preprocessor = createPreprocessor(false);
+		preprocessor.setSubsumption(true);
+		final PreprocessedCNF result = preprocessor.execute(createCNF(4, new int[] { 1, 2 }, new int[] { 1, 2,
+			3 }, new int[] { -1, 2, 4 }, new int[] { 2, 3, 4 }), new NullMonitor());
+		final List<LiteralList> clauses = result.getCNF().getClauses();
+		assertEquals(2, clauses.size());
+		assertTrue(clauses.contains(new LiteralList(1, 2)));
+		assertTrue(clauses.contains(new LiteralList(2, 4)));
+		assertEquals(4, result.getCNF().getVariableMap().getMaxIndex());
+	}
+
+	@Test
+	public void failedLiterals() {
+		final CNFPreprocessor preprocessor = createPreprocessor(false);
+		preprocessor.setFailedLiteralProbing(true);
+		final PreprocessedCNF result = preprocessor.execute(createCNF(5, new int[] { -1, 2 }, new int[] { -1, 3 },
+			new int[] { -2, -3 }, new int[] { 4, 5 }, new int[] { -4, 5 }, new int[] { 1, 4, 5 }), new NullMonitor());
+		assertTrue(result.getFixedLiterals().containsAllLiterals(-1, 5));
+		assertEquals(2, result.getFixedLiterals().size());
+		assertEquals(0, result.getReducedLiteral(1));
+		assertEquals(0, result.getReducedLiteral(5));
+		assertEquals(3, result.getCNF().getVariableMap().getMaxIndex());
+		assertEquals(1, result.getCNF().getClauses().size());
+	}
+
+	@Test
+	public void equivalentLiterals() {
+		final CNFPreprocessor preprocessor = createPreprocessor(false);
+		preprocessor.setEquivalentLiteralSubstitution(true);
+		preprocessor.setFrozenVariables(Arrays.asList("3"));
+		final CNF cnf = createCNF(5, new int[] { -1, 2 }, new int[] { -2, -3 }, new int[] { 3, 1 }, new int[] { 1,
+			4, 5 });
+		final PreprocessedCNF result = preprocessor.execute(cnf, new NullMonitor());
+		final CNF reducedCNF = result.getCNF();
+		assertEquals(3, reducedCNF.getVariableMap().getMaxIndex());
+		assertEquals(Optional.of("3"), reducedCNF.getVariableMap().getName(result.getReducedLiteral(3)));
+		assertEquals(0, result.getReducedLiteral(1));
+		assertEquals(0, result.getReducedLiteral(2));
+		assertEquals(1, reducedCNF.getClauses().size());
+		assertTrue(reducedCNF.getClauses().get(0).containsAllLiterals(result.getReducedLiteral(-3), result
+			.getReducedLiteral(4), result.getReducedLiteral(5)));
+
+		final LiteralList solution = result.reconstruct(new LiteralList(new int[] { -1, 2, -3 }, Order.INDEX));
+		assertTrue(isSolution(solution, cnf));
+		assertTrue(solution.containsAllLiterals(1, 2, -3));
+	}
+
+	@Test
+	public void variableElimination() {
+		final CNFPreprocessor preprocessor = createPreprocessor(false);
+		preprocessor.setVariableElimination(true);
+		preprocessor.setFrozenVariables(Arrays.asList("1", "3", "4"));
+		final CNF cnf = createCNF(4, new int[] { 1, 2 }, new int[] { -2, 3 }, new int[] { -2, 4 });
+		final PreprocessedCNF result = preprocessor.execute(cnf, new NullMonitor());
+		final List<LiteralList> clauses = result.getCNF().getClauses();
+		assertEquals(2, clauses.size());
+		assertEquals(0, result.getReducedLiteral(2));
+		assertFalse(result.getReconstructionStack().isEmpty());
+		for (final LiteralList clause : clauses) {
+			assertEquals(2, clause.size());
+		}
+
+		preprocessor.setMaxResolventSize(1);
+		assertEquals(3, preprocessor.execute(cnf, new NullMonitor()).getCNF().getClauses().size());
+	}
+
+	@Test
+	public void contradiction() {
+		final PreprocessedCNF result = new CNFPreprocessor().execute(createCNF(3, new int[] { 1, 2 }, new int[] {
+			-1, 2 }, new int[] { 1, -2 }, new int[] { -1, -2, 3 }, new int[] { -3, -1 }), new NullMonitor());
+		assertTrue(result.isContradiction());
+		assertEquals(1, result.getCNF().getClauses().size());
+		assertEquals(0, result.getCNF().getClauses().get(0).size());
+		assertEquals(3, result.getCNF().getVariableMap().getMaxIndex());
+	}
+
+	@Test
+	public void randomFormulas() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 2000; i++) {
+			final int variableCount = 2 + random.nextInt(9);
+			final CNF cnf = createRandomCNF(variableCount, 1 + random.nextInt(4 * variableCount), 4, random);
+			final List<String> frozenVariables = new ArrayList<>();
+			long frozenMask = 0;
+			for (int variable = 1; variable <= variableCount; variable++) {
+				if (random.nextInt(3) == 0) {
+					frozenVariables.add(Integer.toString(variable));
+					frozenMask |= 1L << (variable - 1);
+				}
+			}
+			final CNFPreprocessor preprocessor = new CNFPreprocessor();
+			preprocessor.setFrozenVariables(frozenVariables);
+			final PreprocessedCNF result = preprocessor.execute(cnf, new NullMonitor());
+
+			final Set<Long> expectedProjections = new HashSet<>();
+			for (final LiteralList solution : getAllSolutions(cnf)) {
+				expectedProjections.add(toBits(solution) & frozenMask);
+			}
+			final Set<Long> actualProjections = new HashSet<>();
+			if (result.isContradiction()) {
+				assertTrue(expectedProjections.isEmpty(), String.valueOf(i));
+				continue;
+			}
+			for (final LiteralList solution : getAllSolutions(result.getCNF())) {
+				final LiteralList originalSolution = result.reconstruct(solution);
+				assertTrue(isSolution(originalSolution, cnf), String.valueOf(i));
+				actualProjections.add(toBits(originalSolution) & frozenMask);
+			}
+			assertEquals(expectedProjections, actualProjections, String.valueOf(i));
+		}
+	}
+
+	@Test
+	public void featureModels() {
+		for (final String name : Arrays.asList("basic", "simple", "car", "gpl_medium_model", "berkeley_db_model")) {
+			final ModelRepresentation rep = ModelRepresentation.load(modelDirectory.resolve(name + ".xml"))
+				.orElseThrow();
+			final CNF cnf = rep.get(CNFProvider.fromFormula());
+			final PreprocessedCNF result = new CNFPreprocessor().execute(cnf, new NullMonitor());
+			final CDCLSolver solver = new CDCLSolver(result.getCNF());
+			assertEquals(SatResult.TRUE, solver.hasSolution(), name);
+			assertTrue(isSolution(result.reconstruct(solver.getSolution()), cnf), name);
+
+			final CNFPreprocessor preprocessor = new CNFPreprocessor();
+			preprocessor.setFrozenVariables(cnf.getVariableMap().getNames());
+			final CNF reducedCNF = preprocessor.execute(cnf, new NullMonitor()).getCNF();
+			assertEquals(cnf.getVariableMap().getMaxIndex(), reducedCNF.getVariableMap().getMaxIndex(), name);
+			assertTrue(reducedCNF.getClauses().size() <= cnf.getClauses().size(), name);
+		}
+	}
+
+	private static CNFPreprocessor createPreprocessor(boolean enabled) {
+		final CNFPreprocessor preprocessor = new CNFPreprocessor();
+		preprocessor.setSubsumption(enabled);
+		preprocessor.setVariableElimination(enabled);
+		preprocessor.setFailedLiteralProbing(enabled);
+		preprocessor.setEquivalentLiteralSubstitution(enabled);
+		return preprocessor;
+	}
+
+	private static long toBits(LiteralList solution) {
+		long bits = 0;
+		for (final int literal : solution.getLiterals()) {
+			if (literal > 0) {
+				bits |= 1L << (literal - 1);
+			}
+		}
+		return bits;
+	}
+
+}